@@ -0,0 +1,66 @@
+package org.example.bench;
+
+import org.example.components.BasketPanel;
+import org.example.models.services.JournalService;
+import org.example.utils.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BasketPanel.scanItem and calculateTotal at basket sizes from 1 to 500 lines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = "-Djava.awt.headless=true")
+public class BasketBenchmark {
+
+    @Param({"1", "10", "100", "500"})
+    public int basketSize;
+
+    private BasketPanel basket;
+    private List<String> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchDatabase.start("map");
+        ids = BenchDatabase.itemIds().subList(0, basketSize);
+        basket = new BasketPanel(new JournalService());
+        fillBasket();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchDatabase.stop();
+    }
+
+    /** Builds a basket of basketSize distinct items from empty. */
+    @Benchmark
+    public int scanFullBasket() {
+        basket.clearBasket(true);
+        fillBasket();
+        return basket.getBasket().size();
+    }
+
+    /** Scans an item already in the basket: line lookup, qty bump, total and journal entry. */
+    @Benchmark
+    public int rescanLastLine() {
+        basket.scanItem(ids.get(ids.size() - 1));
+        return basket.getBasket().size();
+    }
+
+    @Benchmark
+    public Money calculateTotal() {
+        return basket.calculateTotal();
+    }
+
+    private void fillBasket() {
+        for (String id : ids) {
+            basket.scanItem(id);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.bench;
+
+import org.example.models.services.DatabaseManager;
+import org.example.models.services.JournalService;
+import org.example.models.services.PricebookService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Points the app at a throwaway H2 file database and loads the bundled pricebook into it.
+ * Properties must be set before DatabaseManager/PricebookService are first touched, which is why
+ * every benchmark calls start() from its trial setup.
+ */
+final class BenchDatabase {
+
+    private static Path dir;
+
+    private BenchDatabase() {
+    }
+
+    static synchronized void start(String storeType) throws IOException {
+        if (dir != null) {
+            return;
+        }
+        dir = Files.createTempDirectory("pos-bench");
+        System.setProperty("pos.db.url", "jdbc:h2:" + dir.resolve("bench").toAbsolutePath());
+        System.setProperty("pos.h2.console", "false");
+        System.setProperty("pos.journal.spool.dir", dir.resolve("journal-spool").toString());
+        System.setProperty("pos.pricebook.store", storeType);
+        DatabaseManager.init();
+        PricebookService.loadFromTSV();
+    }
+
+    static synchronized void stop() {
+        if (dir == null) {
+            return;
+        }
+        JournalService.flushAndStop();
+        DatabaseManager.shutdown();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException ignore) {
+            // temp dir, best effort
+        }
+        dir = null;
+    }
+
+    /** Every id in the loaded pricebook, in catalog order. */
+    static List<String> itemIds() {
+        List<String> ids = new ArrayList<>();
+        for (String name : PricebookService.getAllProductNames()) {
+            PricebookService.getIdByName(name).ifPresent(ids::add);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.bench;
+
+import org.example.models.services.JournalService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JournalService.log against a local H2 file. With the default BLOCK backpressure policy the
+ * sustained rate is bounded by the batch writer, so this measures the end-to-end journal path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JournalBenchmark {
+
+    private String itemId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchDatabase.start("map");
+        itemId = BenchDatabase.itemIds().get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchDatabase.stop();
+    }
+
+    @Benchmark
+    public void log() {
+        JournalService.log(itemId, 1, "Benchmark");
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.bench;
+
+import org.example.utils.Money;
+import org.example.utils.TaxCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The basket total path (line totals, subtotal, discount, tax, display text) in Money against the
+ * same steps in BigDecimal, plus the allocation-free cents path. Run with -prof gc to compare
+ * allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MoneyBenchmark {
+
+    @Param({"10", "100"})
+    public int lines;
+
+    private int[] qty;
+    private long[] unitCents;
+    private Money[] unitMoney;
+    private BigDecimal[] unitDecimal;
+    private final StringBuilder text = new StringBuilder(32);
+
+    private static final BigDecimal TAX_RATE = new BigDecimal("0.07");
+    private static final BigDecimal DISCOUNT_RATE = new BigDecimal("0.10");
+
+    @Setup
+    public void setUp() {
+        qty = new int[lines];
+        unitCents = new long[lines];
+        unitMoney = new Money[lines];
+        unitDecimal = new BigDecimal[lines];
+        for (int i = 0; i < lines; i++) {
+            qty[i] = 1 + i % 4;
+            unitCents[i] = 99 + 37L * i;
+            unitMoney[i] = Money.ofCents(unitCents[i]);
+            unitDecimal[i] = BigDecimal.valueOf(unitCents[i], 2);
+        }
+    }
+
+    @Benchmark
+    public String totalBigDecimal() {
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (int i = 0; i < lines; i++) {
+            subtotal = subtotal.add(unitDecimal[i].multiply(BigDecimal.valueOf(qty[i])));
+        }
+        BigDecimal discount = subtotal.multiply(DISCOUNT_RATE).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal discounted = subtotal.subtract(discount);
+        BigDecimal tax = discounted.multiply(TAX_RATE).setScale(2, RoundingMode.HALF_UP);
+        return "$" + String.format("%.2f", discounted.add(tax).doubleValue());
+    }
+
+    @Benchmark
+    public String totalMoney() {
+        Money subtotal = Money.ZERO;
+        for (int i = 0; i < lines; i++) {
+            subtotal = subtotal.plus(unitMoney[i].times(qty[i]));
+        }
+        Money discounted = subtotal.minus(subtotal.percent(1_000, RoundingMode.HALF_UP));
+        return TaxCalculator.calculateTotalWithTax(discounted).format();
+    }
+
+    /** Same arithmetic on raw cents into a reused builder: no allocation at all. */
+    @Benchmark
+    public int totalCents() {
+        long subtotal = 0;
+        for (int i = 0; i < lines; i++) {
+            subtotal += unitCents[i] * qty[i];
+        }
+        long discounted = subtotal - Money.multiply(subtotal, 1_000, 10_000, RoundingMode.HALF_UP);
+        long total = discounted + TaxCalculator.calculateTaxCents(discounted);
+        text.setLength(0);
+        return Money.appendPlain(text.append('$'), total, 2).length();
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.bench;
+
+import org.example.models.services.Item;
+import org.example.models.services.PricebookService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PricebookService.getItemById from several threads at once, for each cache store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@Threads(4)
+public class PricebookLookupBenchmark {
+
+    @Param({"map", "offheap"})
+    public String store;
+
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchDatabase.start(store);
+        List<String> all = BenchDatabase.itemIds();
+        ids = all.toArray(new String[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchDatabase.stop();
+    }
+
+    @Benchmark
+    public Item getItemById() {
+        return PricebookService.getItemById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public Item getItemByIdMiss() {
+        return PricebookService.getItemById("999999999999");
+    }
+}
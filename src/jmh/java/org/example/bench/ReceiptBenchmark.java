@@ -0,0 +1,50 @@
+package org.example.bench;
+
+import org.example.models.services.Basket;
+import org.example.models.services.Item;
+import org.example.models.services.PricebookService;
+import org.example.models.services.ReceiptService;
+import org.example.utils.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReceiptService.saveReceipt for a typical basket, including the popular-items counters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ReceiptBenchmark {
+
+    @Param({"5", "50"})
+    public int lines;
+
+    private List<Basket.Line> basket;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchDatabase.start("map");
+        Basket b = new Basket();
+        List<String> ids = BenchDatabase.itemIds();
+        for (int i = 0; i < lines; i++) {
+            Item item = PricebookService.getItemById(ids.get(i));
+            b.add(item, 1 + i % 3);
+        }
+        basket = b.getLines();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchDatabase.stop();
+    }
+
+    @Benchmark
+    public void saveReceipt() {
+        ReceiptService.saveReceipt(basket, Money.ofCents(10_000), Money.ofCents(100));
+    }
+}
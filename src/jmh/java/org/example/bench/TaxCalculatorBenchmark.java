@@ -0,0 +1,41 @@
+package org.example.bench;
+
+import org.example.utils.Money;
+import org.example.utils.TaxCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TaxCalculatorBenchmark {
+
+    private BigDecimal subtotal = new BigDecimal("48.37");
+    private Money subtotalMoney = Money.ofCents(4837);
+    private long subtotalCents = 4837;
+
+    @Benchmark
+    public BigDecimal calculateTax() {
+        return TaxCalculator.calculateTax(subtotal);
+    }
+
+    @Benchmark
+    public BigDecimal calculateTotalWithTax() {
+        return TaxCalculator.calculateTotalWithTax(subtotal);
+    }
+
+    @Benchmark
+    public Money calculateTaxMoney() {
+        return TaxCalculator.calculateTax(subtotalMoney);
+    }
+
+    @Benchmark
+    public long calculateTaxCents() {
+        return TaxCalculator.calculateTaxCents(subtotalCents);
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.models.services;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request encoding and response decoding for the pricing protocol, without the HTTP call:
+ * PricingJsonCodec against the String.format / indexOf helpers it replaced (LegacyPricingJson).
+ * The response echoes the basket lines ahead of the totals, as a basket endpoint may, so its size
+ * grows with the basket. Lives in the client's package to reach the package-private helpers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BasketPricingJsonBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int lines;
+
+    private List<BasketPricingServiceClient.LineItem> items;
+    private long subtotalCents;
+    private String response;
+    private byte[] responseBytes;
+
+    @Setup
+    public void setUp() {
+        items = new ArrayList<>();
+        subtotalCents = 0;
+        for (int i = 0; i < lines; i++) {
+            BasketPricingServiceClient.LineItem li = new BasketPricingServiceClient.LineItem();
+            li.id = String.format("%012d", 41594904794L + i);
+            li.name = "CIR K POLAR POP \"" + i + "\" OZ";
+            li.qty = 1 + i % 4;
+            li.unitPriceCents = 99 + 100L * i;
+            li.lineTotalCents = li.unitPriceCents * li.qty;
+            subtotalCents += li.lineTotalCents;
+            items.add(li);
+        }
+        double subtotal = subtotalCents / 100.0;
+        String echoed = new String(PricingJsonCodec.encodeRequest(items, subtotalCents, "SUMMER10"),
+                StandardCharsets.UTF_8);
+        String itemsArray = echoed.substring(echoed.indexOf("\"items\""), echoed.length() - 1);
+        response = String.format(java.util.Locale.US, "{%s, \"originalSubtotal\": %.2f, \"discountName\": \"SUMMER10\", "
+                        + "\"discountPercentage\": 10.0, \"discountAmount\": %.2f, \"discountedSubtotal\": %.2f}",
+                itemsArray, subtotal, subtotal * 0.1, subtotal * 0.9);
+        responseBytes = response.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encodeRequest() {
+        return PricingJsonCodec.encodeRequest(items, subtotalCents, "SUMMER10");
+    }
+
+    @Benchmark
+    public byte[] encodeRequestLegacy() {
+        // The old client sent a String body, which the HTTP client encoded to UTF-8
+        return LegacyPricingJson.buildRequestJson(items, subtotalCents / 100.0, "SUMMER10").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public BasketPricingServiceClient.BasketResult decodeResponse() {
+        return PricingJsonCodec.decodeResponse(responseBytes);
+    }
+
+    @Benchmark
+    public BasketPricingServiceClient.BasketResult decodeResponseLegacy() {
+        // The old client received the body as a String
+        return LegacyPricingJson.parseBasketResponse(new String(responseBytes, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.models.services;
+
+import org.example.utils.Money;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * The String.format / indexOf JSON helpers BasketPricingServiceClient used before
+ * PricingJsonCodec, kept as the baseline for BasketPricingJsonBenchmark. Amounts go through double
+ * as they did then; decoded values are turned into Money the way the old callers converted them.
+ */
+final class LegacyPricingJson {
+
+    private LegacyPricingJson() {
+    }
+
+    private static String escapeJson(String s) {
+        if (s == null) return "";
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    static String buildRequestJson(List<BasketPricingServiceClient.LineItem> items, double subtotal, String discountName) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        sb.append("\"discountName\":\"").append(escapeJson(discountName == null ? "" : discountName)).append("\",");
+        sb.append("\"subtotal\":").append(String.format(java.util.Locale.US, "%.2f", subtotal)).append(",");
+        sb.append("\"items\":[");
+        if (items != null) {
+            for (int i = 0; i < items.size(); i++) {
+                BasketPricingServiceClient.LineItem it = items.get(i);
+                if (i > 0) sb.append(',');
+                sb.append('{')
+                        .append("\"id\":\"").append(escapeJson(it.id)).append("\",")
+                        .append("\"name\":\"").append(escapeJson(it.name)).append("\",")
+                        .append("\"qty\":").append(it.qty).append(',')
+                        .append("\"unitPrice\":").append(String.format(java.util.Locale.US, "%.2f", it.unitPriceCents / 100.0)).append(',')
+                        .append("\"lineTotal\":").append(String.format(java.util.Locale.US, "%.2f", it.lineTotalCents / 100.0))
+                        .append('}')
+                ;
+            }
+        }
+        sb.append(']');
+        sb.append('}');
+        return sb.toString();
+    }
+
+    static BasketPricingServiceClient.BasketResult parseBasketResponse(String json) {
+        BasketPricingServiceClient.BasketResult r = new BasketPricingServiceClient.BasketResult();
+        double originalSubtotal = extractDouble(json, "originalSubtotal");
+        if (originalSubtotal == 0.0) {
+            // try alternate key name
+            originalSubtotal = extractDouble(json, "subtotal");
+        }
+        r.discountName = extractString(json, "discountName");
+        r.discountPercentage = extractDouble(json, "discountPercentage");
+        double discountAmount = extractDouble(json, "discountAmount");
+        double discountedSubtotal = extractDouble(json, "discountedSubtotal");
+        if (discountedSubtotal == 0.0 && originalSubtotal > 0) {
+            // compute if server only returned discountAmount
+            discountedSubtotal = Math.max(0.0, originalSubtotal - discountAmount);
+        }
+        r.originalSubtotal = Money.of(BigDecimal.valueOf(originalSubtotal));
+        r.discountAmount = Money.of(BigDecimal.valueOf(discountAmount));
+        r.discountedSubtotal = Money.of(BigDecimal.valueOf(discountedSubtotal));
+        return r;
+    }
+
+    // Parsing helpers (simple, tolerant)
+    private static int indexOfKey(String json, String key) {
+        String needle = "\"" + key + "\"";
+        return json.indexOf(needle);
+    }
+
+    private static double extractDouble(String json, String key) {
+        int keyPos = indexOfKey(json, key);
+        if (keyPos < 0) return 0.0;
+        int colon = json.indexOf(':', keyPos);
+        if (colon < 0) return 0.0;
+        int i = colon + 1;
+        while (i < json.length() && Character.isWhitespace(json.charAt(i))) i++;
+        boolean quoted = i < json.length() && json.charAt(i) == '"';
+        if (quoted) i++;
+        int start = i;
+        while (i < json.length()) {
+            char c = json.charAt(i);
+            if (quoted) {
+                if (c == '"') break;
+            } else {
+                if (c == ',' || c == '}' || Character.isWhitespace(c)) break;
+            }
+            i++;
+        }
+        String token = json.substring(start, i).trim();
+        if (token.startsWith("\"") && token.endsWith("\"") && token.length() >= 2) {
+            token = token.substring(1, token.length() - 1);
+        }
+        try { return Double.parseDouble(token); } catch (Exception e) { return 0.0; }
+    }
+
+    private static String extractString(String json, String key) {
+        int keyPos = indexOfKey(json, key);
+        if (keyPos < 0) return null;
+        int colon = json.indexOf(':', keyPos);
+        if (colon < 0) return null;
+        int i = colon + 1;
+        while (i < json.length() && Character.isWhitespace(json.charAt(i))) i++;
+        if (i >= json.length()) return null;
+        if (json.charAt(i) == '"') {
+            int start = i + 1;
+            int end = json.indexOf('"', start);
+            if (end > start) return json.substring(start, end);
+            return null;
+        } else {
+            int start = i;
+            while (i < json.length()) {
+                char c = json.charAt(i);
+                if (c == ',' || c == '}' || Character.isWhitespace(c)) break;
+                i++;
+            }
+            return json.substring(start, i).trim();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.example;
+
+import org.example.models.services.JournalEvent;
+import org.example.models.services.JournalWireCodec;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local stand-in for the journaling server, for development and testing.
+ *
+ * Accepts any number of registers and prints what they send. The protocol is detected from the
+ * first byte of a connection: binary frames (their length prefix starts with a zero byte) are
+ * decoded and ACKed per lane as described in JournalWireCodec, anything else is read as text
+ * lines. The last stored sequence of each lane is kept in memory only, together with the spool
+ * id it belongs to; a HELLO with a different spool id starts the lane over at the HELLO's sequence.
+ * HELLOs of older protocol versions are accepted.
+ *
+ * Usage: java -cp ... org.example.JournalServer [port]   (default 1234)
+ */
+public class JournalServer {
+
+    private final Map<Integer, Long> lastSeqByLane = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> spoolIdByLane = new ConcurrentHashMap<>();
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 1234;
+        new JournalServer().serve(port);
+    }
+
+    public void serve(int port) throws IOException {
+        serve(new ServerSocket(port));
+    }
+
+    /** Accepts registers on an already bound socket until it is closed. */
+    public void serve(ServerSocket server) throws IOException {
+        try (server) {
+            System.out.println("[JournalServer] Listening on port " + server.getLocalPort());
+            while (true) {
+                Socket socket = server.accept();
+                Thread t = new Thread(() -> handle(socket), "journal-client-" + socket.getPort());
+                t.setDaemon(true);
+                t.start();
+            }
+        }
+    }
+
+    /** Highest sequence stored for the lane, 0 if none. */
+    public long getLastSeq(int lane) {
+        return lastSeqByLane.getOrDefault(lane, 0L);
+    }
+
+    private void handle(Socket socket) {
+        String peer = socket.getRemoteSocketAddress().toString();
+        System.out.println("[JournalServer] Connected: " + peer);
+        try (socket; PushbackInputStream in = new PushbackInputStream(socket.getInputStream(), 1)) {
+            int first = in.read();
+            if (first >= 0) {
+                in.unread(first);
+                if (first == 0) {
+                    readBinary(in, socket.getOutputStream(), peer);
+                } else {
+                    readText(in, peer);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[JournalServer] " + peer + ": " + e.getMessage());
+        }
+        System.out.println("[JournalServer] Disconnected: " + peer);
+    }
+
+    private void readText(InputStream in, String peer) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            System.out.println(peer + " " + line);
+        }
+    }
+
+    private void readBinary(InputStream in, OutputStream out, String peer) throws IOException {
+        JournalWireCodec.FrameReader frames = new JournalWireCodec.FrameReader();
+        JournalWireCodec.Encoder encoder = new JournalWireCodec.Encoder();
+        byte[] chunk = new byte[64 * 1024];
+        int n;
+        while ((n = in.read(chunk)) >= 0) {
+            IOException[] failure = new IOException[1];
+            frames.feed(ByteBuffer.wrap(chunk, 0, n), (type, body) -> {
+                try {
+                    switch (type) {
+                        case JournalWireCodec.HELLO -> hello(body, out, encoder, peer);
+                        case JournalWireCodec.BATCH -> batch(body, out, encoder);
+                        default -> System.err.println("[JournalServer] " + peer + ": ignoring frame type " + type);
+                    }
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+    }
+
+    private void hello(ByteBuffer body, OutputStream out, JournalWireCodec.Encoder encoder, String peer)
+            throws IOException {
+        JournalWireCodec.Hello hello = JournalWireCodec.readHello(body);
+        int lane = hello.laneId;
+        long spoolId = hello.spoolId;
+        long ackedSeq = hello.ackedSeq;
+        long lastSeq;
+        Long knownSpoolId = spoolIdByLane.put(lane, spoolId);
+        if (knownSpoolId != null && knownSpoolId != spoolId) {
+            // The register's spool was reset; its sequence numbers start over
+            lastSeqByLane.put(lane, ackedSeq);
+            lastSeq = ackedSeq;
+            System.out.println("[JournalServer] " + peer + ": lane " + lane + " has a new spool, restarting at seq " + ackedSeq);
+        } else {
+            // Without state for the lane (e.g. after a restart) trust what the register says was stored
+            lastSeq = lastSeqByLane.merge(lane, ackedSeq, Math::max);
+        }
+        System.out.println("[JournalServer] " + peer + " is lane " + lane + ", stored up to seq " + lastSeq);
+        send(out, encoder.ack(lane, lastSeq));
+    }
+
+    private void batch(ByteBuffer body, OutputStream out, JournalWireCodec.Encoder encoder) throws IOException {
+        JournalWireCodec.Batch batch = JournalWireCodec.readBatch(body);
+        if (batch.firstSeq == 0) {
+            batch.events.forEach(event -> print(batch.laneId, 0, event));
+            return; // unsequenced: not ACKed
+        }
+        long lastSeq = lastSeqByLane.getOrDefault(batch.laneId, 0L);
+        for (int i = 0; i < batch.events.size(); i++) {
+            long seq = batch.firstSeq + i;
+            if (seq == lastSeq + 1) {
+                print(batch.laneId, seq, batch.events.get(i));
+                lastSeq = seq;
+            }
+            // seq <= lastSeq was already stored; a gap waits for the register to resend
+        }
+        lastSeqByLane.put(batch.laneId, lastSeq);
+        send(out, encoder.ack(batch.laneId, lastSeq));
+    }
+
+    private static void print(int lane, long seq, JournalEvent event) {
+        System.out.println("lane " + lane + " #" + seq + " " + JournalWireCodec.toTextLine(event));
+    }
+
+    private static void send(OutputStream out, ByteBuffer frame) throws IOException {
+        out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+        out.flush();
+    }
+}
@@ -1,9 +1,13 @@
 
 package org.example;
 import org.example.models.services.DatabaseManager;
+import org.example.models.services.DiscountPricingService;
 import org.example.models.services.GlobalKeyScanner;
 import org.example.models.services.JournalService;
 import org.example.models.services.POSPanel;
+import org.example.models.services.PricebookDeltaWatcher;
+import org.example.models.services.SaleCommitService;
+import org.example.models.services.SalesAnalyticsStore;
 
 
 
@@ -12,13 +16,26 @@ public class Main {
     public static void main(String[] args) {
         DatabaseManager.init(); // Starts H2 and sets up DB
 
+        // Copies receipts it has not seen yet, then records every committed sale
+        SalesAnalyticsStore.start();
+
+        // Commits sales left in the spool by the last run, then takes new ones
+        SaleCommitService.start();
+
         // Connect to the journal server
         JournalService.connectToServer();
 
         // Add shutdown hook to properly close connections
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("Shutting down POS system...");
+            PricebookDeltaWatcher.stop();
+            GlobalKeyScanner.stop();
+            DiscountPricingService.shutdown();
+            SaleCommitService.flushAndStop(5_000);
+            SalesAnalyticsStore.flushAndStop(2_000);
+            JournalService.flushAndStop();
             JournalService.disconnectFromServer();
+            DatabaseManager.shutdown();
         }));
 
         javax.swing.SwingUtilities.invokeLater(() -> {
@@ -1,24 +1,27 @@
 package org.example.components;
 
+import org.example.models.services.Basket;
 import org.example.models.services.Item;
+import org.example.models.services.JournalEvent;
 import org.example.models.services.JournalService;
 import org.example.models.services.PricebookService;
-import org.example.utils.TaxCalculator;
+import org.example.models.services.TaxEngine;
+import org.example.utils.Money;
 
 import javax.swing.*;
 import javax.swing.border.AbstractBorder;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
 import java.awt.geom.RoundRectangle2D;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
 
 public class BasketPanel {
     private final JPanel panel;
-    private final DefaultTableModel model;
+    private final Basket basket;
+    private final BasketTableModel model;
     private final JTable table;
     private final JournalService journalService;
     private final JPanel subtotalPanel, taxPanel, totalPanel;
@@ -27,19 +30,15 @@ public class BasketPanel {
     private final JLabel itemCountLabel;
     
     // Add fields to track discount information (kept for compatibility but not displayed)
-    private BigDecimal currentDiscountAmount = BigDecimal.ZERO;
+    private Money currentDiscountAmount = Money.ZERO;
     private String currentDiscountName = "None";
     private double currentDiscountPercentage = 0.0;
 
     public BasketPanel(JournalService journalService) {
         this.journalService = journalService;
 
-        model = new DefaultTableModel(new String[]{"", "Item", "Qty", "Price"}, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        basket = new Basket();
+        model = new BasketTableModel(basket);
 
         table = new JTable(model);
         styleTable(table);
@@ -402,10 +401,14 @@ public class BasketPanel {
         return panel;
     }
 
-    public DefaultTableModel getModel() {
+    public BasketTableModel getModel() {
         return model;
     }
 
+    public Basket getBasket() {
+        return basket;
+    }
+
     public JTable getTable() {
         return table;
     }
@@ -427,60 +430,65 @@ public class BasketPanel {
         return taxAmountLabel;
     }
 
-    public void setDiscountInfo(BigDecimal discountAmount, String discountName, double discountPercentage) {
-        this.currentDiscountAmount = discountAmount != null ? discountAmount : BigDecimal.ZERO;
+    public void setDiscountInfo(Money discountAmount, String discountName, double discountPercentage) {
+        this.currentDiscountAmount = discountAmount != null ? discountAmount : Money.ZERO;
         this.currentDiscountName = discountName != null ? discountName : "None";
         this.currentDiscountPercentage = discountPercentage;
         updateTotal();
     }
 
-    public void setDiscountInfo(BigDecimal discountAmount, String discountName) {
+    public void setDiscountInfo(Money discountAmount, String discountName) {
         setDiscountInfo(discountAmount, discountName, 0.0);
     }
 
     public void scanItem(String id) {
+        scanItem(id, 1);
+    }
+
+    public void scanItem(String id, int qty) {
         id = id.trim();
-        if (id.isEmpty()) return;
-
-        for (int i = 0; i < model.getRowCount(); i++) {
-            if (model.getValueAt(i, 0).equals(id)) {
-                int currentQty = Integer.parseInt(model.getValueAt(i, 2).toString());
-                int newQty = currentQty + 1;
-                model.setValueAt(newQty, i, 2);
-                updateTotal();
-                JournalService.log(id, newQty, "Quantity Increased");
-                return;
-            }
+        if (id.isEmpty() || qty <= 0) return;
+
+        int row = basket.indexOf(id);
+        if (row != -1) {
+            int newQty = basket.getLine(row).getQty() + qty;
+            basket.setQty(row, newQty);
+            updateTotal();
+            JournalService.log(id, newQty, "Quantity Increased");
+            return;
         }
 
         Item item = PricebookService.getItemById(id);
         if (item != null) {
-            model.addRow(new Object[]{item.id, item.name, 1, item.price});
+            basket.add(item, qty);
             updateTotal();
         }
     }
 
+    /**
+     * Sets the quantity of a basket row; zero or less removes it.
+     */
+    public void changeQuantity(int row, int newQty) {
+        Basket.Line line = basket.setQty(row, newQty);
+        JournalService.log(line.getId(), Math.max(newQty, 0), "Quantity Changed");
+        updateTotal();
+    }
+
     public void removeSelected() {
         int selectedRow = table.getSelectedRow();
         if (selectedRow != -1) {
-            String itemId = model.getValueAt(selectedRow, 0).toString();
-            int qty = Integer.parseInt(model.getValueAt(selectedRow, 2).toString());
-            JournalService.log(itemId, qty, "Item Voided");
-            model.removeRow(selectedRow);
+            Basket.Line line = basket.remove(selectedRow);
+            JournalService.log(line.getId(), line.getQty(), "Item Voided");
             updateTotal();
         }
     }
 
     public void clearBasket(boolean isPayment) {
-        if (!isPayment && model.getRowCount() > 0) {
-            for (int i = 0; i < model.getRowCount(); i++) {
-                String itemId = model.getValueAt(i, 0).toString();
-                int qty = Integer.parseInt(model.getValueAt(i, 2).toString());
-                JournalService.log(itemId, qty, "Void Transaction");
-            }
+        if (!isPayment && !basket.isEmpty()) {
+            JournalService.logTransaction("Void Transaction", journalLines());
         }
-        model.setRowCount(0);
-        currentDiscountAmount = BigDecimal.ZERO;
+        basket.clear();
+        currentDiscountAmount = Money.ZERO;
         currentDiscountName = "None";
         currentDiscountPercentage = 0.0;
         updateTotal();
@@ -493,31 +501,21 @@ public class BasketPanel {
         clearBasket(false);
     }
 
-    public BigDecimal calculateTotal() {
-        BigDecimal total = BigDecimal.ZERO;
-        for (int i = 0; i < model.getRowCount(); i++) {
-            int qty = Integer.parseInt(model.getValueAt(i, 2).toString());
-            BigDecimal price = new BigDecimal(model.getValueAt(i, 3).toString());
-            total = total.add(price.multiply(BigDecimal.valueOf(qty)));
-        }
-        return total.setScale(2, RoundingMode.HALF_UP);
+    public Money calculateTotal() {
+        return basket.getSubtotal();
     }
 
     public void updateTotal() {
-        BigDecimal subtotal = calculateTotal();
-
         // Calculate totals without showing discount in the UI
-        BigDecimal discountedSubtotal = subtotal.subtract(currentDiscountAmount).max(BigDecimal.ZERO);
-        BigDecimal tax = TaxCalculator.calculateTax(discountedSubtotal).setScale(2, RoundingMode.HALF_UP);
-        BigDecimal finalTotal = discountedSubtotal.add(tax).setScale(2, RoundingMode.HALF_UP);
+        TaxEngine.Breakdown totals = basket.getTaxBreakdown(currentDiscountAmount);
 
         // Update item count
-        itemCountLabel.setText(model.getRowCount() + " items");
+        itemCountLabel.setText(basket.size() + " items");
 
         // Update financial labels - discount is not shown in UI but still calculated
-        subtotalAmountLabel.setText("$" + String.format("%.2f", subtotal.doubleValue()));
-        taxAmountLabel.setText("$" + String.format("%.2f", tax.doubleValue()));
-        totalAmountLabel.setText("$" + String.format("%.2f", finalTotal.doubleValue()));
+        subtotalAmountLabel.setText(totals.getSubtotal().format());
+        taxAmountLabel.setText(totals.getTax().format());
+        totalAmountLabel.setText(totals.getTotal().format());
 
         animateValueChange(totalAmountLabel);
     }
@@ -533,17 +531,17 @@ public class BasketPanel {
         timer.start();
     }
 
-    public void logTransactionPayment(BigDecimal payment, BigDecimal change, BigDecimal totalWithTax) {
-        for (int i = 0; i < model.getRowCount(); i++) {
-            String itemId = model.getValueAt(i, 0).toString();
-            int qty = Integer.parseInt(model.getValueAt(i, 2).toString());
-            JournalService.log(itemId, qty, "Payment");
+    private List<JournalEvent.Line> journalLines() {
+        List<JournalEvent.Line> lines = new ArrayList<>(basket.size());
+        for (Basket.Line line : basket.getLines()) {
+            lines.add(new JournalEvent.Line(line.getId(), line.getQty()));
         }
+        return lines;
     }
 
     public void clearDiscountsOnServiceFailure() {
         // Clear all discount-related state
-        currentDiscountAmount = BigDecimal.ZERO;
+        currentDiscountAmount = Money.ZERO;
         currentDiscountName = "None";
         currentDiscountPercentage = 0.0;
         
@@ -0,0 +1,78 @@
+package org.example.components;
+
+import org.example.models.services.Basket;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Read-only table view of a Basket. It holds no rows of its own; it forwards the basket's change
+ * notifications as fine-grained table events so only the affected rows repaint.
+ *
+ * Every column reports Object.class, so BasketPanel's one renderer (the "×" quantity prefix, "$"
+ * prices and row styling) draws them all instead of JTable's number renderer.
+ */
+public class BasketTableModel extends AbstractTableModel implements Basket.Listener {
+
+    private static final String[] COLUMNS = {"", "Item", "Qty", "Price"};
+
+    private final Basket basket;
+
+    public BasketTableModel(Basket basket) {
+        this.basket = basket;
+        basket.addListener(this);
+    }
+
+    public Basket getBasket() {
+        return basket;
+    }
+
+    @Override
+    public int getRowCount() {
+        return basket.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Basket.Line line = basket.getLine(row);
+        switch (column) {
+            case 0:
+                return line.getId();
+            case 1:
+                return line.getName();
+            case 2:
+                return line.getQty();
+            default:
+                return line.getUnitPrice();
+        }
+    }
+
+    @Override
+    public void lineAdded(int index, Basket.Line line) {
+        fireTableRowsInserted(index, index);
+    }
+
+    @Override
+    public void lineChanged(int index, Basket.Line line) {
+        fireTableRowsUpdated(index, index);
+    }
+
+    @Override
+    public void lineRemoved(int index, Basket.Line line) {
+        fireTableRowsDeleted(index, index);
+    }
+
+    @Override
+    public void cleared() {
+        fireTableDataChanged();
+    }
+}
@@ -1,29 +1,32 @@
 package org.example.components;
 
-import org.example.models.services.ReceiptService;
+import org.example.models.services.Basket;
+import org.example.models.services.DiscountPricingService;
 import org.example.models.services.ReceiptWindow;
-import org.example.models.services.JournalService;
+import org.example.models.services.SaleCommitService;
+import org.example.models.services.TaxEngine;
 //import org.example.models.services.DiscountServiceClient;
-import org.example.models.services.BasketPricingServiceClient;
-import org.example.utils.TaxCalculator;
+import org.example.utils.Money;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.concurrent.CompletableFuture;
 
 public class BottomBarPanel {
     private final JPanel panel;
     private final BasketPanel basketPanel;
     private final JFrame parentFrame; // Changed to JFrame specifically
+    private final DiscountPricingService pricing;
 
     private JLabel statusLabel;
 
     public BottomBarPanel(BasketPanel basketPanel, JFrame parentFrame) {
         this.basketPanel = basketPanel;
         this.parentFrame = parentFrame; // Store the JFrame directly
+        this.pricing = new DiscountPricingService(basketPanel.getBasket());
 
         // Create buttons with enhanced styling and colors
         JButton payBtn = createButton("PAY", new Color(34, 139, 34), Color.WHITE, true);
@@ -44,15 +47,10 @@ public class BottomBarPanel {
                 JOptionPane.showMessageDialog(parentFrame, "Please select an item first.", "No Selection", JOptionPane.WARNING_MESSAGE);
                 return;
             }
-            javax.swing.table.DefaultTableModel model = basketPanel.getModel();
-            String itemId = model.getValueAt(selectedRow, 0).toString();
-            String itemName = model.getValueAt(selectedRow, 1).toString();
-            int currentQty;
-            try {
-                currentQty = Integer.parseInt(model.getValueAt(selectedRow, 2).toString());
-            } catch (Exception ex) {
-                currentQty = 1;
-            }
+            Basket.Line line = basketPanel.getBasket().getLine(selectedRow);
+            String itemId = line.getId();
+            String itemName = line.getName();
+            int currentQty = line.getQty();
             String input = JOptionPane.showInputDialog(parentFrame,
                     String.format("Enter new quantity for %s (ID: %s):", itemName, itemId),
                     String.valueOf(currentQty));
@@ -82,9 +80,7 @@ public class BottomBarPanel {
                 return;
             }
             // Update quantity
-            model.setValueAt(newQty, selectedRow, 2);
-            basketPanel.updateTotal();
-            JournalService.log(itemId, newQty, "Quantity Changed");
+            basketPanel.changeQuantity(selectedRow, newQty);
             updateStatusLabel();
         });
         voidBtn.addActionListener(e -> { basketPanel.removeSelected(); updateStatusLabel(); });
@@ -148,8 +144,8 @@ public class BottomBarPanel {
 
     // Method to update status label
     private void updateStatusLabel() {
-        BigDecimal subtotal = basketPanel.calculateTotal();
-        if (subtotal.compareTo(BigDecimal.ZERO) == 0) {
+        Money subtotal = basketPanel.calculateTotal();
+        if (subtotal.isZero()) {
             statusLabel.setText("Add items to basket");
             statusLabel.setForeground(new Color(150, 150, 150));
         } else {
@@ -243,46 +239,38 @@ public class BottomBarPanel {
         return new Color(r, g, b);
     }
 
-    private static class DiscountOutcome {
-        BigDecimal discountAmount = BigDecimal.ZERO;
-        BigDecimal discountedSubtotal = BigDecimal.ZERO;
-        String discountName;
-        double discountPercentage;
-    }
-
-    private DiscountOutcome computeDiscountedSubtotal(BigDecimal subtotal, String discountName) throws Exception {
-        DiscountOutcome o = new DiscountOutcome();
-        // 1) Try basket-based endpoint
-        try {
-            BasketPricingServiceClient bClient = new BasketPricingServiceClient();
-            java.util.List<BasketPricingServiceClient.LineItem> items = BasketPricingServiceClient.fromTable(basketPanel.getModel());
-            BasketPricingServiceClient.BasketResult br = bClient.applyDiscountToBasket(items, subtotal.doubleValue(), discountName);
-            BigDecimal discounted = BigDecimal.valueOf(br.discountedSubtotal);
-            if (discounted.compareTo(BigDecimal.ZERO) > 0) {
-                o.discountedSubtotal = discounted.setScale(2, RoundingMode.HALF_UP);
-                BigDecimal original = BigDecimal.valueOf(br.originalSubtotal > 0 ? br.originalSubtotal : subtotal.doubleValue());
-                o.discountAmount = original.subtract(o.discountedSubtotal).max(BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
-                o.discountName = br.discountName;
-                o.discountPercentage = br.discountPercentage;
-                return o;
+    // Waits for the discount quote, showing a spinner while the service is still working.
+    // Returns null if the discount service failed or is switched off by its circuit breaker.
+    private DiscountPricingService.Quote awaitQuote(String discountName) {
+        CompletableFuture<DiscountPricingService.Quote> future = pricing.quote(discountName);
+        if (!future.isDone()) {
+            JDialog wait = new JDialog(parentFrame, "Discount", Dialog.ModalityType.APPLICATION_MODAL);
+            wait.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+            JProgressBar spinner = new JProgressBar();
+            spinner.setIndeterminate(true);
+            JPanel content = new JPanel(new BorderLayout(8, 8));
+            content.setBorder(BorderFactory.createEmptyBorder(16, 16, 16, 16));
+            content.add(new JLabel("Contacting discount service..."), BorderLayout.NORTH);
+            content.add(spinner, BorderLayout.CENTER);
+            wait.add(content);
+            wait.pack();
+            wait.setLocationRelativeTo(parentFrame);
+            future.whenComplete((q, ex) -> SwingUtilities.invokeLater(wait::dispose));
+            if (!future.isDone()) {
+                wait.setVisible(true); // modal; returns once the quote is in
             }
-        } catch (Exception ignore) {
-            // fall through to legacy endpoint
         }
-        // 2) Fallback to legacy total-based endpoint
-        BasketPricingServiceClient client = new BasketPricingServiceClient();
-        BasketPricingServiceClient.BasketResult r = client.applySimpleDiscount(subtotal.doubleValue(), discountName);
-        o.discountAmount = BigDecimal.valueOf(r.discountAmount).setScale(2, RoundingMode.HALF_UP);
-        o.discountedSubtotal = BigDecimal.valueOf(r.discountedSubtotal).setScale(2, RoundingMode.HALF_UP);
-        o.discountName = r.discountName;
-
-        o.discountPercentage = r.discountPercentage;
-        return o;
+        try {
+            DiscountPricingService.Quote quote = future.join();
+            return quote.shortCircuited ? null : quote;
+        } catch (Exception ex) {
+            return null;
+        }
     }
 
-    private void processPayment(BigDecimal prefilledAmount) {
-        BigDecimal subtotal = basketPanel.calculateTotal();
-        if (subtotal.compareTo(BigDecimal.ZERO) == 0) {
+    private void processPayment(Money prefilledAmount) {
+        Money subtotal = basketPanel.calculateTotal();
+        if (subtotal.isZero()) {
             JOptionPane.showMessageDialog(parentFrame, "Nothing in basket!", "Warning", JOptionPane.WARNING_MESSAGE);
             return;
         }
@@ -312,52 +300,37 @@ public class BottomBarPanel {
         String selectedDiscountName = dialogResult.selectedDiscount;
         
         // Compute total with discount from service (basket preferred) and tax locally
-        BigDecimal totalWithTax;
-        DiscountOutcome outcome = null;
-        try {
-            outcome = computeDiscountedSubtotal(subtotal, selectedDiscountName);
-            BigDecimal tax = TaxCalculator.calculateTax(outcome.discountedSubtotal);
-            totalWithTax = outcome.discountedSubtotal.add(tax).setScale(2, RoundingMode.HALF_UP);
-        } catch (Exception ex) {
+        DiscountPricingService.Quote outcome = awaitQuote(selectedDiscountName);
+        TaxEngine.Breakdown totals = breakdownFor(outcome);
+        Money totalWithTax = totals.getTotal();
+        if (outcome == null) {
             // Fallback to local tax calculation without discount
-            BigDecimal tax = TaxCalculator.calculateTax(subtotal);
-            totalWithTax = subtotal.add(tax).setScale(2, RoundingMode.HALF_UP);
             JOptionPane.showMessageDialog(parentFrame, "Discount service unavailable. Proceeding without discount.", "Warning", JOptionPane.WARNING_MESSAGE);
         }
 
-        BigDecimal payment;
-        BigDecimal change;
+        Money payment;
+        Money change;
 
         // Handle payment based on type
         if ("Credit".equals(paymentType)) {
             // Credit payments: payment equals total, no change
             payment = totalWithTax;
-            change = BigDecimal.ZERO;
+            change = Money.ZERO;
         } else {
             // Cash payments: handle as before with change calculation
             payment = prefilledAmount;
 
             if (payment == null) {
-                BigDecimal shownSubtotal = subtotal;
-                BigDecimal shownDiscount = BigDecimal.ZERO;
-                BigDecimal shownTax;
-                if (outcome != null) {
-                    shownDiscount = outcome.discountAmount.setScale(2, RoundingMode.HALF_UP);
-                    BigDecimal discountedSubtotal = shownSubtotal.subtract(shownDiscount);
-                    shownTax = totalWithTax.subtract(discountedSubtotal);
-                } else {
-                    shownTax = totalWithTax.subtract(shownSubtotal);
-                }
-
                 String input = JOptionPane.showInputDialog(parentFrame,
-                        String.format("Payment Method: %s\nSubtotal: $%.2f\nDiscount: $%.2f\nTax: $%.2f\nTotal: $%.2f\n\nEnter payment amount:",
-                                paymentType, shownSubtotal, shownDiscount, shownTax, totalWithTax),
+                        String.format("Payment Method: %s\nSubtotal: %s\nDiscount: %s\nTax: %s\nTotal: %s\n\nEnter payment amount:",
+                                paymentType, totals.getSubtotal().format(), totals.getDiscount().format(),
+                                totals.getTax().format(), totalWithTax.format()),
                         "Payment", JOptionPane.PLAIN_MESSAGE);
 
                 if (input == null || input.trim().isEmpty()) return;
 
                 try {
-                    payment = new BigDecimal(input);
+                    payment = Money.parse(input);
                 } catch (NumberFormatException ex) {
                     JOptionPane.showMessageDialog(parentFrame, "Invalid number input.", "Error", JOptionPane.ERROR_MESSAGE);
                     return;
@@ -369,7 +342,7 @@ public class BottomBarPanel {
                 return;
             }
 
-            change = payment.subtract(totalWithTax);
+            change = payment.minus(totalWithTax);
         }
 
         // Load the accepted.gif icon from resources/images/
@@ -384,9 +357,9 @@ public class BottomBarPanel {
         // Show different success messages based on payment type
         String successMessage;
         if ("Credit".equals(paymentType)) {
-            successMessage = String.format("Credit Payment Accepted!\nAmount Charged: $%.2f", payment);
+            successMessage = "Credit Payment Accepted!\nAmount Charged: " + payment.format();
         } else {
-            successMessage = String.format("Cash Payment Accepted!\nChange: $%.2f", change);
+            successMessage = "Cash Payment Accepted!\nChange: " + change.format();
         }
 
         JOptionPane.showMessageDialog(
@@ -401,8 +374,8 @@ public class BottomBarPanel {
         String actionLabel = "Payment";
         if (prefilledAmount != null && "Cash".equals(paymentType)) {
             try {
-                BigDecimal exact = getExactTotal(selectedDiscountName);
-                BigDecimal next = getNextDollarTotal(selectedDiscountName);
+                Money exact = getExactTotal(selectedDiscountName);
+                Money next = getNextDollarTotal(selectedDiscountName);
                 if (prefilledAmount.compareTo(exact) == 0) {
                     actionLabel = "Payment (Exact Dollar)";
                 } else if (prefilledAmount.compareTo(next) == 0) {
@@ -414,45 +387,38 @@ public class BottomBarPanel {
         }
 
         // Log payment per item in the basket with detailed transaction information
-        javax.swing.table.DefaultTableModel m = basketPanel.getModel();
+        java.util.List<Basket.Line> lines = basketPanel.getBasket().getLines();
 
         // Calculate all the payment details for logging
-        BigDecimal finalSubtotal = subtotal;
-        BigDecimal finalDiscountAmount = BigDecimal.ZERO;
+        Money finalSubtotal = totals.getSubtotal();
+        Money finalDiscountAmount = totals.getDiscount();
         String finalDiscountName = "None";
         double finalDiscountPercentage = 0.0;
-        BigDecimal finalTax = TaxCalculator.calculateTax(subtotal);
+        Money finalTax = totals.getTax();
 
         if (outcome != null) {
-            finalSubtotal = subtotal;
-            finalDiscountAmount = outcome.discountAmount;
             finalDiscountName = (outcome.discountName != null && !outcome.discountName.isEmpty()) ? 
                                 outcome.discountName : selectedDiscountName;
             finalDiscountPercentage = outcome.discountPercentage;
-            finalTax = TaxCalculator.calculateTax(outcome.discountedSubtotal);
         }
 
         // Enhanced action label with all payment details
         String enhancedActionLabel = String.format(
-            "%s | Subtotal: $%.2f | Tax: $%.2f | %s | Discount: %s (%.0f%%) -$%.2f | Total: $%.2f",
+            "%s | Subtotal: %s | Tax: %s | %s | Discount: %s (%.0f%%) -%s | Total: %s",
             actionLabel,
-            finalSubtotal,
-            finalTax,
+            finalSubtotal.format(),
+            finalTax.format(),
             paymentType,
             finalDiscountName,
             finalDiscountPercentage,
-            finalDiscountAmount,
-            totalWithTax
+            finalDiscountAmount.format(),
+            totalWithTax.format()
         );
 
-        for (int i = 0; i < m.getRowCount(); i++) {
-            String itemId = m.getValueAt(i, 0).toString();
-            int qty = Integer.parseInt(m.getValueAt(i, 2).toString());
-            JournalService.log(itemId, qty, enhancedActionLabel);
-        }
-
-        ReceiptService.saveReceipt(basketPanel.getModel(), payment, change);
-        ReceiptWindow.showReceipt(parentFrame, basketPanel.getModel(), totalWithTax, payment, change);
+        // Receipt and journal entry commit together in the background; the id is known right away
+        long receiptId = SaleCommitService.submit(lines, totals, finalDiscountName, paymentType, payment, change,
+                enhancedActionLabel);
+        ReceiptWindow.showReceipt(parentFrame, receiptId, lines, totals, finalDiscountName, payment, change);
 
         basketPanel.clearBasket(true);
         updateStatusLabel(); // Update status after clearing basket
@@ -477,18 +443,13 @@ public class BottomBarPanel {
         dialog.setLayout(new BorderLayout(10, 10));
 
         // Copy basket items into a non-editable table for display
-        javax.swing.table.DefaultTableModel src = basketPanel.getModel();
         String[] cols = new String[]{"ID", "Name", "Qty", "Price"};
         javax.swing.table.DefaultTableModel model = new javax.swing.table.DefaultTableModel(cols, 0) {
             @Override
             public boolean isCellEditable(int row, int column) { return false; }
         };
-        for (int i = 0; i < src.getRowCount(); i++) {
-            Object id = src.getValueAt(i, 0);
-            Object name = src.getValueAt(i, 1);
-            Object qty = src.getValueAt(i, 2);
-            Object price = src.getValueAt(i, 3);
-            model.addRow(new Object[]{id, name, qty, price});
+        for (Basket.Line line : basketPanel.getBasket().getLines()) {
+            model.addRow(new Object[]{line.getId(), line.getName(), line.getQty(), line.getUnitPrice()});
         }
         JTable table = new JTable(model);
         table.setFillsViewportHeight(true);
@@ -527,8 +488,19 @@ public class BottomBarPanel {
             BorderFactory.createEmptyBorder(5, 8, 5, 8)
         ));
 
+        JProgressBar pricingSpinner = new JProgressBar();
+        pricingSpinner.setIndeterminate(true);
+        pricingSpinner.setPreferredSize(new Dimension(80, 12));
+        pricingSpinner.setVisible(false);
+
         discountPanel.add(discountLabel);
         discountPanel.add(discountCombo);
+        discountPanel.add(pricingSpinner);
+
+        // Price every option in the background so switching is instant
+        for (int i = 0; i < discountCombo.getItemCount(); i++) {
+            pricing.quote(getDiscountNameFromText(discountCombo.getItemAt(i)));
+        }
 
         // Totals panel that will be updated based on discount selection
         JPanel totalsPanel = new JPanel(new GridLayout(5, 2, 5, 5));
@@ -549,33 +521,41 @@ public class BottomBarPanel {
 
         // Method to update totals based on selected discount
         Runnable updateTotals = () -> {
-            BigDecimal subtotal = basketPanel.calculateTotal();
+            Money subtotal = basketPanel.calculateTotal();
             String selectedDiscountText = (String) discountCombo.getSelectedItem();
             String discountName = getDiscountNameFromText(selectedDiscountText);
             
-            subtotalValueLabel.setText("$" + subtotal);
-            
-            try {
-                DiscountOutcome out = computeDiscountedSubtotal(subtotal, discountName);
-                BigDecimal discountAmountBD = out.discountAmount.setScale(2, RoundingMode.HALF_UP);
-                BigDecimal discountedSubtotal = out.discountedSubtotal;
-                BigDecimal tax = TaxCalculator.calculateTax(discountedSubtotal).setScale(2, RoundingMode.HALF_UP);
-                BigDecimal finalTotalBD = discountedSubtotal.add(tax).setScale(2, RoundingMode.HALF_UP);
-                
-                String dn = (out.discountName != null && !out.discountName.isEmpty()) ? out.discountName : discountName;
-                discountNameLabel.setText(String.format("Discount (%s %.0f%%):", dn, out.discountPercentage));
-                discountValueLabel.setText("-$" + discountAmountBD);
-                taxValueLabel.setText("$" + tax);
-                totalValueLabel.setText("$" + finalTotalBD);
-            } catch (Exception ex) {
-                // Fallback: no discount, local tax
-                BigDecimal tax = TaxCalculator.calculateTax(subtotal);
-                BigDecimal finalTotalBD = subtotal.add(tax).setScale(2, RoundingMode.HALF_UP);
-                discountNameLabel.setText("Discount:");
-                discountValueLabel.setText("-$0.00");
-                taxValueLabel.setText("$" + tax);
-                totalValueLabel.setText("$" + finalTotalBD);
+            subtotalValueLabel.setText(subtotal.format());
+
+            CompletableFuture<DiscountPricingService.Quote> future = pricing.quote(discountName);
+            if (!future.isDone()) {
+                pricingSpinner.setVisible(true);
+                discountValueLabel.setText("Calculating...");
+                taxValueLabel.setText("...");
+                totalValueLabel.setText("...");
             }
+            future.whenComplete((out, error) -> SwingUtilities.invokeLater(() -> {
+                // Ignore answers for a discount that is no longer selected
+                if (!discountName.equals(getDiscountNameFromText((String) discountCombo.getSelectedItem()))) {
+                    return;
+                }
+                pricingSpinner.setVisible(false);
+                if (error == null) {
+                    TaxEngine.Breakdown totals = breakdownFor(out);
+                    String dn = (out.discountName != null && !out.discountName.isEmpty()) ? out.discountName : discountName;
+                    discountNameLabel.setText(String.format("Discount (%s %.0f%%):", dn, out.discountPercentage));
+                    discountValueLabel.setText("-" + totals.getDiscount().format());
+                    taxValueLabel.setText(totals.getTax().format());
+                    totalValueLabel.setText(totals.getTotal().format());
+                } else {
+                    // Fallback: no discount, local tax
+                    TaxEngine.Breakdown totals = breakdownFor(null);
+                    discountNameLabel.setText("Discount:");
+                    discountValueLabel.setText("-$0.00");
+                    taxValueLabel.setText(totals.getTax().format());
+                    totalValueLabel.setText(totals.getTotal().format());
+                }
+            }));
         };
 
         // Initial update and add listener for discount changes
@@ -624,29 +604,28 @@ public class BottomBarPanel {
         return idx > 0 ? discountText.substring(0, idx).trim() : discountText.trim();
     }
 
-    private BigDecimal getExactTotal() {
+    private Money getExactTotal() {
         return getExactTotal("None"); // Default to no discount for button calculations
     }
 
-    private BigDecimal getExactTotal(String discountName) {
-        BigDecimal subtotal = basketPanel.calculateTotal();
-        try {
-            DiscountOutcome out = computeDiscountedSubtotal(subtotal, discountName);
-            BigDecimal tax = TaxCalculator.calculateTax(out.discountedSubtotal);
-            return out.discountedSubtotal.add(tax).setScale(2, RoundingMode.HALF_UP);
-        } catch (Exception ex) {
-            BigDecimal tax = TaxCalculator.calculateTax(subtotal);
-            return subtotal.add(tax).setScale(2, RoundingMode.HALF_UP);
-        }
+    private Money getExactTotal(String discountName) {
+        return breakdownFor(awaitQuote(discountName)).getTotal();
+    }
+
+    // The basket's tax breakdown after a quoted discount (none if the quote is null)
+    private TaxEngine.Breakdown breakdownFor(DiscountPricingService.Quote quote) {
+        Basket basket = basketPanel.getBasket();
+        Money discount = quote == null ? Money.ZERO : basket.getSubtotal().minus(quote.discountedSubtotal);
+        return basket.getTaxBreakdown(discount);
     }
 
-    private BigDecimal getNextDollarTotal() {
+    private Money getNextDollarTotal() {
         return getNextDollarTotal("None"); // Default to no discount for button calculations
     }
 
-    private BigDecimal getNextDollarTotal(String discountName) {
-        BigDecimal total = getExactTotal(discountName);
-        return new BigDecimal(Math.ceil(total.doubleValue())).setScale(0, RoundingMode.UP);
+    private Money getNextDollarTotal(String discountName) {
+        Money total = getExactTotal(discountName);
+        return total.toWholeUnits(RoundingMode.CEILING);
     }
 
     public JPanel getPanel() {
@@ -1,76 +1,137 @@
 package org.example.components;
 
-import org.example.models.services.DatabaseManager;
+import org.example.models.services.JournalQuery;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 
+/**
+ * Journal browser. The table is backed by JournalTableModel, which pages rows in from the
+ * database as the user scrolls; item, action and time filters run in the query. With Live
+ * checked it switches to LiveJournalTableModel, which follows new entries as they are logged.
+ */
 public class JournalPanel extends JPanel {
-    private final DefaultTableModel model;
+
+    private static final String[] RANGES = {"All time", "Last hour", "Today", "Last 7 days"};
+
+    private final JournalTableModel model;
+    private final LiveJournalTableModel liveModel;
     private final JTable table;
+    private final JTextField itemField = new JTextField(10);
+    private final JTextField actionField = new JTextField(14);
+    private final JComboBox<String> rangeBox = new JComboBox<>(RANGES);
+    private final JCheckBox liveBox = new JCheckBox("Live");
+    private final JLabel statusLabel = new JLabel(" ");
 
     public JournalPanel() {
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        // Table model with columns
-        model = new DefaultTableModel(new String[]{"Time", "Item ID", "Item Name", "Qty", "Action"}, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        model = new JournalTableModel();
         table = new JTable(model);
         table.setFillsViewportHeight(true);
         table.setRowHeight(24);
+        model.setStatusListener(this::updateStatus);
+        liveModel = new LiveJournalTableModel();
+        liveModel.setStatusListener(this::updateStatus);
 
-        // Top bar with actions
+        // Top bar with filters and actions
         JPanel topBar = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        topBar.add(new JLabel("Item ID:"));
+        topBar.add(itemField);
+        topBar.add(new JLabel("Action contains:"));
+        topBar.add(actionField);
+        topBar.add(rangeBox);
+        JButton applyBtn = new JButton("Apply");
         JButton refreshBtn = new JButton("Refresh");
+        topBar.add(applyBtn);
         topBar.add(refreshBtn);
+        topBar.add(liveBox);
 
+        applyBtn.addActionListener(e -> applyFilter());
+        itemField.addActionListener(e -> applyFilter());
+        actionField.addActionListener(e -> applyFilter());
+        rangeBox.addActionListener(e -> applyFilter());
         refreshBtn.addActionListener(e -> loadData());
+        liveBox.addActionListener(e -> setLive(liveBox.isSelected()));
 
         add(topBar, BorderLayout.NORTH);
         add(new JScrollPane(table), BorderLayout.CENTER);
+        add(statusLabel, BorderLayout.SOUTH);
 
-        // Initial load
-        loadData();
+        updateStatus();
     }
 
+    /** Reloads from the newest entry with the current filter. */
     public void loadData() {
-        // Clear current rows
-        model.setRowCount(0);
-
-        String sql = """
-                SELECT j.datetime, j.item_id, COALESCE(p.name, '') AS name, j.item_qty, j.action
-                FROM journal j
-                LEFT JOIN pricebook p ON p.id = j.item_id
-                ORDER BY j.datetime DESC, j.id DESC
-                """;
-
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-
-            while (rs.next()) {
-                Timestamp ts = rs.getTimestamp("datetime");
-                String itemId = rs.getString("item_id");
-                String name = rs.getString("name");
-                int qty = rs.getInt("item_qty");
-                String action = rs.getString("action");
-
-                model.addRow(new Object[]{ts, itemId, name, qty, action});
-            }
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, "Failed to load journal entries: " + ex.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
+        if (liveModel.isRunning()) {
+            liveModel.start(model.getFilter());
+        } else {
+            model.refresh();
+        }
+        updateStatus();
+    }
+
+    private void setLive(boolean live) {
+        if (live) {
+            liveModel.start(model.getFilter());
+            table.setModel(liveModel);
+        } else {
+            liveModel.stop();
+            table.setModel(model);
+            model.refresh();
+        }
+        updateStatus();
+    }
+
+    @Override
+    public void removeNotify() {
+        liveModel.stop(); // the dialog closed: stop following the journal
+        super.removeNotify();
+    }
+
+    private void applyFilter() {
+        Timestamp from = null;
+        LocalDateTime now = LocalDateTime.now();
+        switch (rangeBox.getSelectedIndex()) {
+            case 1:
+                from = Timestamp.valueOf(now.minusHours(1));
+                break;
+            case 2:
+                from = Timestamp.valueOf(LocalDate.now().atStartOfDay());
+                break;
+            case 3:
+                from = Timestamp.valueOf(now.minusDays(7));
+                break;
+            default:
+                break;
+        }
+        model.setFilter(new JournalQuery.Filter(itemField.getText(), actionField.getText(), from, null));
+        if (liveModel.isRunning()) {
+            liveModel.start(model.getFilter());
+        }
+        updateStatus();
+    }
+
+    private void updateStatus() {
+        String text;
+        if (liveModel.isRunning()) {
+            text = liveModel.getLastError() != null
+                    ? "Live (recent entries unavailable: " + liveModel.getLastError() + ")"
+                    : String.format("Live: newest %d of up to %d entries, %d received",
+                            liveModel.getRowCount(), liveModel.getCapacity(), liveModel.getReceived());
+        } else if (model.getLastError() != null) {
+            text = "Failed to load journal entries: " + model.getLastError();
+        } else if (model.getRowCount() == 0) {
+            text = model.isLoading() ? "Loading…" : "No journal entries";
+        } else if (model.isExhausted()) {
+            text = model.getRowCount() + " entries";
+        } else {
+            text = model.getRowCount() + "+ entries (scroll for more)";
         }
+        statusLabel.setText(text);
     }
 }
@@ -0,0 +1,242 @@
+package org.example.components;
+
+import org.example.models.services.JournalQuery;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lazily loaded, read-only view of the journal, newest first.
+ *
+ * Rows are fetched in pages of pageSize through JournalQuery on a background thread when the
+ * table first asks for them; asking for a row on the last known page also fetches the next one,
+ * so the row count grows as the user scrolls down. Only the most recently used pages are kept;
+ * for every page the key it starts after is remembered, so an evicted page is fetched again with
+ * the same keyset query. Rows that are still loading show as placeholders.
+ *
+ * The view is a snapshot from when the filter was set: journal rows logged later only appear
+ * after setFilter() or refresh(). Use from the EDT.
+ */
+public class JournalTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"Time", "Item ID", "Item Name", "Qty", "Action"};
+    // Time stays Object: JTable's Date renderer would show the date without the time of day
+    private static final Class<?>[] TYPES = {Object.class, String.class, String.class, Integer.class, String.class};
+    private static final String LOADING = "Loading…";
+
+    // One loader thread for every journal view (paged and live); pages are small and fetched one at a time
+    static final ExecutorService LOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "journal-page-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final int pageSize;
+    private final int maxCachedPages;
+    private final Map<Integer, List<JournalQuery.Row>> pages;
+    // pageStarts.get(p) is the key page p starts after; page 0 starts at the snapshot top
+    private final List<JournalQuery.Key> pageStarts = new ArrayList<>();
+    private final Set<Integer> loading = new HashSet<>();
+
+    private JournalQuery.Filter filter = JournalQuery.Filter.ALL;
+    private int generation;
+    private int rowCount;
+    private boolean exhausted;
+    private String lastError;
+    private Runnable statusListener;
+
+    public JournalTableModel() {
+        this(Integer.getInteger("pos.journal.view.pageSize", 200),
+                Integer.getInteger("pos.journal.view.cachedPages", 10));
+    }
+
+    public JournalTableModel(int pageSize, int maxCachedPages) {
+        this.pageSize = Math.max(10, pageSize);
+        this.maxCachedPages = Math.max(2, maxCachedPages);
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<JournalQuery.Row>> eldest) {
+                return size() > JournalTableModel.this.maxCachedPages;
+            }
+        };
+        reset();
+    }
+
+    /** Shows only the rows matching the filter, starting again from the newest. */
+    public void setFilter(JournalQuery.Filter filter) {
+        this.filter = filter;
+        reset();
+    }
+
+    public JournalQuery.Filter getFilter() {
+        return filter;
+    }
+
+    /** Drops every loaded page and reloads from the newest row, picking up new entries. */
+    public void refresh() {
+        reset();
+    }
+
+    /** Called on the EDT whenever a page arrives or fails to load. */
+    public void setStatusListener(Runnable statusListener) {
+        this.statusListener = statusListener;
+    }
+
+    public boolean isLoading() {
+        return !loading.isEmpty();
+    }
+
+    /** True once the last page has been fetched, so getRowCount() is the full result size. */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public int getCachedPageCount() {
+        return pages.size();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return TYPES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / pageSize;
+        if (!exhausted && page == (rowCount - 1) / pageSize) {
+            request(page + 1); // the user reached the last loaded page: fetch the next one ahead
+        }
+        List<JournalQuery.Row> rows = pages.get(page);
+        int offset = row - page * pageSize;
+        if (rows == null || offset >= rows.size()) {
+            request(page);
+            return column == 2 ? LOADING : null;
+        }
+        JournalQuery.Row r = rows.get(offset);
+        switch (column) {
+            case 0:
+                return r.getDatetime();
+            case 1:
+                return r.getItemId();
+            case 2:
+                return r.getItemName();
+            case 3:
+                return r.getQty();
+            default:
+                return r.getAction();
+        }
+    }
+
+    private void reset() {
+        generation++;
+        pages.clear();
+        pageStarts.clear();
+        pageStarts.add(null);
+        loading.clear();
+        exhausted = false;
+        lastError = null;
+        rowCount = 0;
+        fireTableDataChanged();
+        request(0);
+    }
+
+    // Fetches a page in the background unless it is cached, already loading or not reachable yet
+    private void request(int page) {
+        if (page >= pageStarts.size() || pages.containsKey(page) || !loading.add(page)) {
+            return;
+        }
+        int gen = generation;
+        JournalQuery.Filter f = filter;
+        JournalQuery.Key after = pageStarts.get(page);
+        LOADER.execute(() -> {
+            try {
+                // One extra row tells whether another page follows
+                List<JournalQuery.Row> rows = JournalQuery.fetchPage(f, after, pageSize + 1);
+                SwingUtilities.invokeLater(() -> pageLoaded(gen, page, rows));
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> pageFailed(gen, page, e));
+            }
+        });
+    }
+
+    private void pageLoaded(int gen, int page, List<JournalQuery.Row> fetched) {
+        if (gen != generation) {
+            return; // the filter changed while this page was loading
+        }
+        loading.remove(page);
+        lastError = null;
+        boolean more = fetched.size() > pageSize;
+        List<JournalQuery.Row> rows = more ? List.copyOf(fetched.subList(0, pageSize)) : List.copyOf(fetched);
+        pages.put(page, rows);
+
+        if (page == 0 && pageStarts.get(0) == null && !rows.isEmpty()) {
+            // Pin the snapshot: page 0 is fetched again from the same top row, newer rows excluded
+            JournalQuery.Row top = rows.get(0);
+            pageStarts.set(0, new JournalQuery.Key(top.getDatetime(), top.getId() + 1));
+        }
+
+        int first = page * pageSize;
+        if (page == pageStarts.size() - 1 && !exhausted) {
+            // Frontier page: it extends the table
+            if (more) {
+                pageStarts.add(rows.get(rows.size() - 1).key());
+            } else {
+                exhausted = true;
+            }
+            int oldCount = rowCount;
+            rowCount = first + rows.size();
+            if (rowCount > oldCount) {
+                fireTableRowsInserted(oldCount, rowCount - 1);
+            }
+            if (oldCount > first) {
+                fireTableRowsUpdated(first, Math.min(oldCount, rowCount) - 1);
+            }
+        } else if (!rows.isEmpty()) {
+            fireTableRowsUpdated(first, first + rows.size() - 1);
+        }
+        notifyStatus();
+    }
+
+    private void pageFailed(int gen, int page, Exception e) {
+        if (gen != generation) {
+            return;
+        }
+        loading.remove(page);
+        lastError = e.getMessage();
+        System.err.println("[JournalTableModel] Failed to load journal page " + page + ": " + e.getMessage());
+        notifyStatus();
+    }
+
+    private void notifyStatus() {
+        if (statusListener != null) {
+            statusListener.run();
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package org.example.components;
+
+import org.example.models.services.Item;
+import org.example.models.services.JournalEvent;
+import org.example.models.services.JournalQuery;
+import org.example.models.services.JournalService;
+import org.example.models.services.PricebookService;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Live tail of the journal, newest first, in a fixed-size ring of rows.
+ *
+ * start() fills the ring with the newest matching rows from the database once, then subscribes
+ * to JournalService's event stream. Events arriving on the writer threads are queued and a
+ * one-shot Swing timer moves them into the ring at most once per frame, firing a single insert
+ * for the whole batch. When the ring is full the oldest rows fall off the bottom, so memory stays
+ * the same however long the view is open. Use from the EDT, except for the event listener.
+ *
+ * The listener is registered before the seed query runs, so events stored in between arrive both
+ * ways. Events queued by the time the seed is shown that are at or before its newest row are taken
+ * to be in the seed already; every later event is shown, whatever its time (a sale committed
+ * after retries, or a batch stored after newer rows, carries the older time it was logged at).
+ */
+public class LiveJournalTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"Time", "Item ID", "Item Name", "Qty", "Action"};
+    // Time stays Object: JTable's Date renderer would show the date without the time of day
+    private static final Class<?>[] TYPES = {Object.class, String.class, String.class, Integer.class, String.class};
+    private static final int FRAME_MILLIS = 16;
+
+    private final JournalQuery.Row[] ring;
+    private int head; // next slot to write
+    private int size;
+
+    // Filled on the publishing threads, drained on the EDT
+    private final ArrayDeque<JournalEvent> pending = new ArrayDeque<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Timer flushTimer;
+    private final Consumer<List<JournalEvent>> listener = this::enqueue;
+
+    private JournalQuery.Filter filter = JournalQuery.Filter.ALL;
+    private int generation;
+    private boolean running;
+    private boolean seeded;
+    private Timestamp seededUpTo;
+    private int seededAtNewest; // seed rows with exactly the seededUpTo time, not yet matched to events
+    private long received;
+    private long dropped;
+    private String lastError;
+    private Runnable statusListener;
+
+    public LiveJournalTableModel() {
+        this(Integer.getInteger("pos.journal.view.liveRows", 2000));
+    }
+
+    public LiveJournalTableModel(int capacity) {
+        ring = new JournalQuery.Row[Math.max(10, capacity)];
+        flushTimer = new Timer(FRAME_MILLIS, e -> flush());
+        flushTimer.setRepeats(false);
+    }
+
+    /** Loads the newest rows matching the filter and starts following new journal events. */
+    public void start(JournalQuery.Filter filter) {
+        this.filter = filter;
+        if (!running) {
+            running = true;
+            received = 0;
+            synchronized (pending) {
+                dropped = 0;
+            }
+            JournalService.addEventListener(listener);
+        }
+        seed();
+    }
+
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        generation++;
+        JournalService.removeEventListener(listener);
+        flushTimer.stop();
+        synchronized (pending) {
+            pending.clear();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /** Events received since start(), including ones filtered out. */
+    public long getReceived() {
+        return received;
+    }
+
+    /** Events discarded because more arrived within a frame than the ring holds. */
+    public long getDropped() {
+        synchronized (pending) {
+            return dropped;
+        }
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    /** Called on the EDT after each seed or batch of new rows. */
+    public void setStatusListener(Runnable statusListener) {
+        this.statusListener = statusListener;
+    }
+
+    @Override
+    public int getRowCount() {
+        return size;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return TYPES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        JournalQuery.Row r = ring[Math.floorMod(head - 1 - row, ring.length)];
+        switch (column) {
+            case 0:
+                return r.getDatetime();
+            case 1:
+                return r.getItemId();
+            case 2:
+                return r.getItemName();
+            case 3:
+                return r.getQty();
+            default:
+                return r.getAction();
+        }
+    }
+
+    private void seed() {
+        int gen = ++generation;
+        seeded = false;
+        seededUpTo = null;
+        seededAtNewest = 0;
+        lastError = null;
+        head = 0;
+        size = 0;
+        Arrays.fill(ring, null);
+        fireTableDataChanged();
+
+        JournalQuery.Filter f = filter;
+        JournalTableModel.LOADER.execute(() -> {
+            try {
+                List<JournalQuery.Row> rows = JournalQuery.fetchPage(f, null, ring.length);
+                SwingUtilities.invokeLater(() -> seedLoaded(gen, rows));
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> seedFailed(gen, e));
+            }
+        });
+    }
+
+    private void seedLoaded(int gen, List<JournalQuery.Row> newestFirst) {
+        if (gen != generation) {
+            return;
+        }
+        List<JournalQuery.Row> rows = new ArrayList<>(newestFirst.size());
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            rows.add(newestFirst.get(i));
+        }
+        seeded = true;
+        if (!rows.isEmpty()) {
+            seededUpTo = rows.get(rows.size() - 1).getDatetime();
+            for (int i = rows.size() - 1; i >= 0 && rows.get(i).getDatetime().equals(seededUpTo); i--) {
+                seededAtNewest++;
+            }
+        }
+        append(rows);
+        flush(); // events that arrived while the seed query ran
+        seededUpTo = null; // anything queued from here on was stored after the seed query
+        seededAtNewest = 0;
+    }
+
+    private void seedFailed(int gen, Exception e) {
+        if (gen != generation) {
+            return;
+        }
+        System.err.println("[LiveJournalTableModel] Failed to load recent journal entries: " + e.getMessage());
+        lastError = e.getMessage();
+        seeded = true; // follow the stream anyway
+        flush();
+    }
+
+    // Runs on the thread that stored the events
+    private void enqueue(List<JournalEvent> events) {
+        synchronized (pending) {
+            for (JournalEvent event : events) {
+                if (pending.size() == ring.length) {
+                    pending.pollFirst(); // could never be shown: the ring only holds the newest
+                    dropped++;
+                }
+                pending.addLast(event);
+            }
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            flushTimer.restart();
+        }
+    }
+
+    // One frame's worth of events into the ring, as a single table insert
+    private void flush() {
+        flushScheduled.set(false);
+        if (!running || !seeded) {
+            return;
+        }
+        List<JournalEvent> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+        received += batch.size();
+        List<JournalQuery.Row> rows = new ArrayList<>(batch.size());
+        for (JournalEvent event : batch) {
+            Timestamp at = new Timestamp(event.getTimestampMillis());
+            if (seededUpTo != null && at.before(seededUpTo)) {
+                continue; // already part of the seed query
+            }
+            if (!filter.matches(event, at)) {
+                continue;
+            }
+            if (seededAtNewest > 0 && at.equals(seededUpTo)) {
+                seededAtNewest--; // the seed's newest rows; later ones with the same time are new
+                continue;
+            }
+            Item item = event.getItemId() != null ? PricebookService.getItemById(event.getItemId()) : null;
+            rows.add(new JournalQuery.Row(0, at, event.getItemId(), item != null ? item.getName() : "",
+                    event.getQty(), event.getAction()));
+        }
+        append(rows);
+    }
+
+    // rows are oldest first; they end up at the top of the table, newest in row 0
+    private void append(List<JournalQuery.Row> rows) {
+        int n = rows.size();
+        if (n > 0) {
+            if (n >= ring.length) {
+                rows = rows.subList(n - ring.length, n);
+                for (int i = 0; i < ring.length; i++) {
+                    ring[i] = rows.get(i);
+                }
+                head = 0;
+                size = ring.length;
+                fireTableDataChanged();
+            } else {
+                int overflow = size + n - ring.length;
+                if (overflow > 0) {
+                    size -= overflow;
+                    fireTableRowsDeleted(size, size + overflow - 1);
+                }
+                for (JournalQuery.Row row : rows) {
+                    ring[head] = row;
+                    head = (head + 1) % ring.length;
+                }
+                size += n;
+                fireTableRowsInserted(0, n - 1);
+            }
+        }
+        if (statusListener != null) {
+            statusListener.run();
+        }
+    }
+}
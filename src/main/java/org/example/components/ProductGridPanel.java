@@ -1,6 +1,7 @@
 package org.example.components;
 
 import org.example.models.services.JournalService;
+import org.example.models.services.PricebookChange;
 import org.example.models.services.PricebookService;
 import org.example.models.services.PopularItemsService;
 import org.example.models.services.Item;
@@ -8,8 +9,11 @@ import org.example.models.services.Item;
 import javax.swing.*;
 import javax.swing.border.*;
 import java.awt.*;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 
 public class ProductGridPanel {
@@ -20,6 +24,7 @@ public class ProductGridPanel {
     private final JPanel popularPanel;
     private final JLabel popularLabel;
     private final JLabel pageLabel;
+    private final JComboBox<PopularItemsService.Window> popularWindowBox;
     private final List<String> productNames;
     private final JournalService journalService;
     private int currentPage = 0;
@@ -44,10 +49,22 @@ public class ProductGridPanel {
         reloadBtn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
         reloadBtn.addActionListener(e -> reloadPopularItems(onItemClicked));
 
+        // Which sales window the F1-F12 buttons rank by
+        popularWindowBox = new JComboBox<>(PopularItemsService.Window.values());
+        popularWindowBox.setSelectedItem(PopularItemsService.getDefaultWindow());
+        popularWindowBox.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        popularWindowBox.setFocusable(false);
+        popularWindowBox.addActionListener(e -> reloadPopularItems(onItemClicked));
+
+        JPanel popularActions = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        popularActions.setOpaque(false);
+        popularActions.add(popularWindowBox);
+        popularActions.add(reloadBtn);
+
         JPanel popularHeaderPanel = new JPanel(new BorderLayout());
         popularHeaderPanel.setOpaque(false);
         popularHeaderPanel.add(popularLabel, BorderLayout.WEST);
-        popularHeaderPanel.add(reloadBtn, BorderLayout.EAST);
+        popularHeaderPanel.add(popularActions, BorderLayout.EAST);
 
         popularPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 10));
         popularPanel.setOpaque(false);
@@ -136,6 +153,49 @@ public class ProductGridPanel {
 
         // Install F1-F12 shortcuts to trigger popular items
         installFunctionKeyBindings(container);
+
+        // Pricebook deltas arrive on the watcher thread; patch the product list on the EDT
+        PricebookService.addChangeListener(change ->
+                SwingUtilities.invokeLater(() -> applyPricebookChange(change, onItemClicked)));
+    }
+
+    /**
+     * Patches productNames in place and rebuilds the grid only if the visible page changed.
+     */
+    private void applyPricebookChange(PricebookChange change, Consumer<String> onItemClicked) {
+        Set<Integer> changedPages = new HashSet<>();
+        int shiftedFrom = Integer.MAX_VALUE; // every index from here on moved
+
+        for (Map.Entry<String, String> rename : change.getRenamedNames().entrySet()) {
+            int idx = productNames.indexOf(rename.getKey());
+            if (idx >= 0) {
+                productNames.set(idx, rename.getValue());
+                changedPages.add(idx / ITEMS_PER_PAGE);
+            }
+        }
+        for (String name : change.getRemovedNames()) {
+            int idx = productNames.indexOf(name);
+            if (idx >= 0) {
+                productNames.remove(idx);
+                shiftedFrom = Math.min(shiftedFrom, idx);
+            }
+        }
+        for (String name : change.getAddedNames()) {
+            if (!productNames.contains(name)) {
+                shiftedFrom = Math.min(shiftedFrom, productNames.size());
+                productNames.add(name);
+            }
+        }
+
+        int lastPage = Math.max(0, (productNames.size() - 1) / ITEMS_PER_PAGE);
+        if (currentPage > lastPage) {
+            currentPage = lastPage;
+            updateGrid(onItemClicked);
+        } else if (changedPages.contains(currentPage) || (currentPage + 1) * ITEMS_PER_PAGE > shiftedFrom) {
+            updateGrid(onItemClicked);
+        } else {
+            updatePageLabel();
+        }
     }
 
     private void installFunctionKeyBindings(JComponent root) {
@@ -222,7 +282,8 @@ public class ProductGridPanel {
             popularShortcutButtons[i] = null;
         }
 
-        List<Item> updatedPopularItems = PopularItemsService.getPopularItems(12);
+        PopularItemsService.Window window = (PopularItemsService.Window) popularWindowBox.getSelectedItem();
+        List<Item> updatedPopularItems = PopularItemsService.getPopularItems(12, window);
         int idx = 0;
         for (Item item : updatedPopularItems) {
             if (idx >= 12) break; // safety
@@ -325,13 +386,17 @@ public class ProductGridPanel {
             grid.add(btn);
         }
 
-        int totalPages = (int) Math.ceil((double) productNames.size() / ITEMS_PER_PAGE);
-        pageLabel.setText("Page " + (currentPage + 1) + " of " + totalPages);
+        updatePageLabel();
 
         grid.revalidate();
         grid.repaint();
     }
 
+    private void updatePageLabel() {
+        int totalPages = (int) Math.ceil((double) productNames.size() / ITEMS_PER_PAGE);
+        pageLabel.setText("Page " + (currentPage + 1) + " of " + totalPages);
+    }
+
     public JPanel getPanel() {
         return container;
     }
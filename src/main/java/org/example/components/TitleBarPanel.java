@@ -47,6 +47,10 @@ public class TitleBarPanel extends JPanel {
         setupComponents(title, icon);
         setupLayout();
         startTimers();
+
+        // Connection status is pushed by the transport instead of being set only after Connect clicks
+        applyConnectionState(socketService.getState());
+        socketService.addConnectionListener(state -> SwingUtilities.invokeLater(() -> applyConnectionState(state)));
     }
 
     @Override
@@ -360,12 +364,8 @@ public class TitleBarPanel extends JPanel {
                 try {
                     boolean connected = get();
                     if (connected) {
-                        connectionStatusLabel.setText("🟢 Connected");
-                        connectionStatusLabel.setForeground(new Color(34, 197, 94));
                         showToast("Connected!", false);
                     } else {
-                        connectionStatusLabel.setText("🔴 Failed");
-                        connectionStatusLabel.setForeground(new Color(248, 113, 113));
                         showToast("Failed!", true);
                     }
                 } catch (Exception e) {
@@ -382,6 +382,28 @@ public class TitleBarPanel extends JPanel {
         worker.execute();
     }
 
+    private void applyConnectionState(SocketService.ConnectionState state) {
+        switch (state) {
+            case CONNECTED:
+                connectionStatusLabel.setText("🟢 Connected");
+                connectionStatusLabel.setForeground(new Color(34, 197, 94));
+                break;
+            case CONNECTING:
+                connectionStatusLabel.setText("🟡 Connecting");
+                connectionStatusLabel.setForeground(new Color(250, 204, 21));
+                break;
+            case RECONNECTING:
+                connectionStatusLabel.setText("🟡 Reconnecting");
+                connectionStatusLabel.setForeground(new Color(250, 204, 21));
+                break;
+            case DISCONNECTED:
+            default:
+                connectionStatusLabel.setText("⚪ Disconnected");
+                connectionStatusLabel.setForeground(new Color(248, 113, 113));
+                break;
+        }
+    }
+
     private void showToast(String message, boolean isError) {
         JWindow toast = new JWindow();
         toast.setAlwaysOnTop(true);
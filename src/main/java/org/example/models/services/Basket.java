@@ -0,0 +1,260 @@
+package org.example.models.services;
+
+import org.example.utils.Money;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Headless basket: the lines of the current sale and their running subtotal.
+ *
+ * Lines are kept in scan order with an id index, amounts are long cents, and the subtotal and the
+ * taxable amount per tax class are adjusted on every add, quantity change and void instead of
+ * being recomputed; getTaxBreakdown() turns the latter into the sale's tax. Swing views
+ * (BasketTableModel) register as listeners; pricing and receipt code read lines directly.
+ * Not thread-safe: use it from the EDT like the rest of the UI state.
+ */
+public class Basket {
+
+    public interface Listener {
+        void lineAdded(int index, Line line);
+
+        void lineChanged(int index, Line line);
+
+        void lineRemoved(int index, Line line);
+
+        void cleared();
+    }
+
+    /** One basket line. Immutable; a quantity change replaces the line. */
+    public static final class Line {
+        private final String id;
+        private final String name;
+        private final int qty;
+        private final long unitPriceCents;
+        private final int taxClass;
+
+        public Line(String id, String name, int qty, long unitPriceCents) {
+            this(id, name, qty, unitPriceCents, 0);
+        }
+
+        public Line(String id, String name, int qty, long unitPriceCents, int taxClass) {
+            this.id = id;
+            this.name = name;
+            this.qty = qty;
+            this.unitPriceCents = unitPriceCents;
+            this.taxClass = taxClass;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getQty() {
+            return qty;
+        }
+
+        public long getUnitPriceCents() {
+            return unitPriceCents;
+        }
+
+        public long getLineTotalCents() {
+            return unitPriceCents * qty;
+        }
+
+        /** Tax class index in the basket's TaxEngine. */
+        public int getTaxClass() {
+            return taxClass;
+        }
+
+        public Money getUnitPrice() {
+            return Money.ofCents(unitPriceCents);
+        }
+
+        public Money getLineTotal() {
+            return Money.ofCents(getLineTotalCents());
+        }
+
+        Line withQty(int newQty) {
+            return new Line(id, name, newQty, unitPriceCents, taxClass);
+        }
+    }
+
+    private final List<Line> lines = new ArrayList<>();
+    private final Map<String, Integer> indexById = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final TaxEngine taxEngine;
+    private final long[] taxableCents;
+    private long subtotalCents;
+    private int unitCount;
+    private long contentHash;
+
+    public Basket() {
+        this(TaxEngine.getDefault());
+    }
+
+    public Basket(TaxEngine taxEngine) {
+        this.taxEngine = taxEngine;
+        this.taxableCents = new long[taxEngine.getClassCount()];
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Adds qty of an item, merging into its existing line if there is one. Returns the line.
+     */
+    public Line add(Item item, int qty) {
+        Integer index = indexById.get(item.id);
+        if (index != null) {
+            return setQty(index, lines.get(index).getQty() + qty);
+        }
+        Line line = new Line(item.id, item.name, qty, Money.of(item.price).getCents(), taxEngine.classOf(item.id));
+        lines.add(line);
+        indexById.put(line.getId(), lines.size() - 1);
+        subtotalCents += line.getLineTotalCents();
+        taxableCents[line.getTaxClass()] += line.getLineTotalCents();
+        unitCount += qty;
+        contentHash += lineHash(line);
+        for (Listener l : listeners) {
+            l.lineAdded(lines.size() - 1, line);
+        }
+        return line;
+    }
+
+    /**
+     * Sets the quantity of the line at index; zero or less voids it. Returns the new line, or the
+     * removed one when voided.
+     */
+    public Line setQty(int index, int qty) {
+        if (qty <= 0) {
+            return remove(index);
+        }
+        Line old = lines.get(index);
+        Line line = old.withQty(qty);
+        lines.set(index, line);
+        subtotalCents += line.getLineTotalCents() - old.getLineTotalCents();
+        taxableCents[line.getTaxClass()] += line.getLineTotalCents() - old.getLineTotalCents();
+        unitCount += qty - old.getQty();
+        contentHash += lineHash(line) - lineHash(old);
+        for (Listener l : listeners) {
+            l.lineChanged(index, line);
+        }
+        return line;
+    }
+
+    /**
+     * Voids the line at index and returns it.
+     */
+    public Line remove(int index) {
+        Line line = lines.remove(index);
+        indexById.remove(line.getId());
+        // Lines after the removed one moved up by one
+        for (int i = index; i < lines.size(); i++) {
+            indexById.put(lines.get(i).getId(), i);
+        }
+        subtotalCents -= line.getLineTotalCents();
+        taxableCents[line.getTaxClass()] -= line.getLineTotalCents();
+        unitCount -= line.getQty();
+        contentHash -= lineHash(line);
+        for (Listener l : listeners) {
+            l.lineRemoved(index, line);
+        }
+        return line;
+    }
+
+    public void clear() {
+        lines.clear();
+        indexById.clear();
+        subtotalCents = 0;
+        Arrays.fill(taxableCents, 0);
+        unitCount = 0;
+        contentHash = 0;
+        for (Listener l : listeners) {
+            l.cleared();
+        }
+    }
+
+    /** Row index of the item's line, or -1. */
+    public int indexOf(String itemId) {
+        Integer index = indexById.get(itemId);
+        return index == null ? -1 : index;
+    }
+
+    public Line getLine(int index) {
+        return lines.get(index);
+    }
+
+    /** Snapshot of the current lines in scan order. */
+    public List<Line> getLines() {
+        return List.copyOf(lines);
+    }
+
+    public int size() {
+        return lines.size();
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    /** Total number of units across all lines. */
+    public int getUnitCount() {
+        return unitCount;
+    }
+
+    /**
+     * Order-independent 64-bit hash of the lines (id, qty, unit price), kept up to date on every
+     * change. Equal baskets have equal hashes.
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+
+    public Money getSubtotal() {
+        return Money.ofCents(subtotalCents);
+    }
+
+    /**
+     * Tax breakdown of the basket after a discount off the whole basket (zero for none). This is
+     * the one place totals with tax come from: the basket panel, the payment dialog and the
+     * receipt all use it.
+     */
+    public TaxEngine.Breakdown getTaxBreakdown(Money discount) {
+        return taxEngine.breakdown(taxableCents, discount);
+    }
+
+    public TaxEngine getTaxEngine() {
+        return taxEngine;
+    }
+
+    private static long lineHash(Line line) {
+        long h = line.getId().hashCode();
+        h = h * 0x9E3779B97F4A7C15L + line.getQty();
+        h = h * 0x9E3779B97F4A7C15L + line.getUnitPriceCents();
+        // MurmurHash3 finalizer so the sum over lines stays well spread
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
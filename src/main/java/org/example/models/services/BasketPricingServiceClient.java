@@ -1,37 +1,106 @@
 package org.example.models.services;
 
+import org.example.utils.CircuitBreaker;
+import org.example.utils.Money;
+
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Unified discount service client that handles both basket-based and simple total-based discounts.
  * Replaces the deprecated DiscountServiceClient with enhanced functionality.
+ *
+ * All instances share one HttpClient (HTTP/2 when the server offers it, pooled keep-alive
+ * connections otherwise), so repeat lookups skip TCP/TLS setup. Each call gets a latency budget
+ * (-Dpos.discount.budgetMs, default 3000). With -Dpos.discount.hedge=true a second identical
+ * request is sent once the first has been outstanding longer than the recent p95 and whichever
+ * answers first wins; pricing requests have no side effects, so this is safe. A circuit breaker
+ * opens after -Dpos.discount.breaker.failures consecutive failures (default 5) and rejects calls
+ * for -Dpos.discount.breaker.openMs (default 30000) before probing again.
+ *
+ * -Dpos.discount.mode picks where basket discounts come from: REMOTE (the service only), FALLBACK
+ * (the default: the service, and LocalDiscountEngine whenever a call fails or the breaker is open)
+ * or LOCAL (LocalDiscountEngine only, no HTTP).
  */
 public class BasketPricingServiceClient {
 
-    private final HttpClient httpClient = HttpClient.newBuilder()
+    public enum Mode { REMOTE, FALLBACK, LOCAL }
+
+    public static class ClientStats {
+        public long requests;
+        public long failures;
+        public long hedged;
+        public long hedgeWins;
+        public long breakerRejected;
+        public long localEvaluations;
+        public long localFallbacks;
+        public long breakerTrips;
+        public String breakerState;
+        public double p95LatencyMillis;
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US,
+                    "requests=%d failures=%d hedged=%d hedgeWins=%d breaker=%s trips=%d rejected=%d p95=%.1fms local=%d localFallbacks=%d",
+                    requests, failures, hedged, hedgeWins, breakerState, breakerTrips, breakerRejected, p95LatencyMillis,
+                    localEvaluations, localFallbacks);
+        }
+    }
+
+    private static final Mode MODE = parseMode(System.getProperty("pos.discount.mode", "FALLBACK"));
+    private static final long BUDGET_MILLIS = Long.getLong("pos.discount.budgetMs", 3000);
+    private static final boolean HEDGE = Boolean.parseBoolean(System.getProperty("pos.discount.hedge", "false"));
+    private static final long HEDGE_MIN_MILLIS = Long.getLong("pos.discount.hedgeMinMs", 50);
+    private static final int LATENCY_SAMPLES = 128;
+    private static final int MIN_SAMPLES_FOR_HEDGE = 20;
+
+    private static final HttpClient SHARED_CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
             .connectTimeout(Duration.ofSeconds(3))
             .build();
 
+    private static final CircuitBreaker breaker = new CircuitBreaker(
+            Integer.getInteger("pos.discount.breaker.failures", 5),
+            Long.getLong("pos.discount.breaker.openMs", 30_000));
+
+    private static final LongAdder requests = new LongAdder();
+    private static final LongAdder failures = new LongAdder();
+    private static final LongAdder hedged = new LongAdder();
+    private static final LongAdder hedgeWins = new LongAdder();
+    private static final LongAdder localEvaluations = new LongAdder();
+    private static final LongAdder localFallbacks = new LongAdder();
+    private static final long[] latencies = new long[LATENCY_SAMPLES];
+    private static long latencyCount;
+
+    private final HttpClient httpClient = SHARED_CLIENT;
+
     public static class LineItem {
         public String id;
         public String name;
         public int qty;
-        public double unitPrice;
-        public double lineTotal;
+        public long unitPriceCents;
+        public long lineTotalCents;
     }
 
     public static class BasketResult {
-        public double originalSubtotal;     // subtotal before discount
-        public String discountName;         // echo or resolved name
-        public double discountPercentage;   // optional from server
-        public double discountAmount;       // amount discounted
-        public double discountedSubtotal;   // subtotal after discount
+        public Money originalSubtotal = Money.ZERO;     // subtotal before discount
+        public String discountName;                     // echo or resolved name
+        public double discountPercentage;               // optional from server
+        public Money discountAmount = Money.ZERO;       // amount discounted
+        public Money discountedSubtotal = Money.ZERO;   // subtotal after discount
     }
 
     /**
@@ -58,159 +127,214 @@ public class BasketPricingServiceClient {
     /**
      * Applies discount to a full basket with detailed line items.
      */
-    public BasketResult applyDiscountToBasket(List<LineItem> items, double subtotal, String discountName) throws Exception {
-        String jsonBody = buildRequestJson(items, subtotal, discountName);
+    public BasketResult applyDiscountToBasket(List<LineItem> items, Money subtotal, String discountName) throws Exception {
+        if (MODE == Mode.LOCAL) {
+            localEvaluations.increment();
+            return LocalDiscountEngine.getDefault().evaluate(items, discountName);
+        }
+        try {
+            return applyRemote(items, subtotal, discountName);
+        } catch (Exception e) {
+            if (!hasLocalFallback()) {
+                throw e;
+            }
+            localFallbacks.increment();
+            return LocalDiscountEngine.getDefault().evaluate(items, discountName);
+        }
+    }
+
+    private BasketResult applyRemote(List<LineItem> items, Money subtotal, String discountName) throws Exception {
+        byte[] jsonBody = buildRequestJson(items, subtotal, discountName);
         String url = resolveUrl();
 
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
-                .timeout(Duration.ofSeconds(8))
+                .timeout(Duration.ofMillis(BUDGET_MILLIS))
                 .header("Content-Type", "application/json")
                 .header("Accept", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(jsonBody))
                 .build();
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<byte[]> response = send(request);
         int status = response.statusCode();
-        String body = response.body() == null ? "" : response.body();
+        byte[] body = response.body() == null ? new byte[0] : response.body();
         if (status < 200 || status >= 300) {
-            throw new RuntimeException("Basket pricing service error: HTTP " + status + " - " + body);
+            throw new RuntimeException("Basket pricing service error: HTTP " + status + " - "
+                    + new String(body, StandardCharsets.UTF_8));
         }
         return parseBasketResponse(body);
     }
 
+    public static Mode getMode() {
+        return MODE;
+    }
+
+    /** True if basket discounts can be priced locally when the service fails. */
+    public static boolean hasLocalFallback() {
+        return MODE != Mode.REMOTE && LocalDiscountEngine.getDefault().hasRules();
+    }
+
+    /** True while the circuit breaker is rejecting calls. */
+    public static boolean isCircuitOpen() {
+        return breaker.isOpen();
+    }
+
+    public static ClientStats getStats() {
+        ClientStats s = new ClientStats();
+        s.requests = requests.sum();
+        s.failures = failures.sum();
+        s.hedged = hedged.sum();
+        s.hedgeWins = hedgeWins.sum();
+        s.breakerRejected = breaker.getRejected();
+        s.localEvaluations = localEvaluations.sum();
+        s.localFallbacks = localFallbacks.sum();
+        s.breakerTrips = breaker.getTrips();
+        s.breakerState = breaker.getState().name();
+        s.p95LatencyMillis = p95LatencyNanos() / 1_000_000.0;
+        return s;
+    }
+
+    private static Mode parseMode(String value) {
+        try {
+            return Mode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("[BasketPricingServiceClient] Unknown pos.discount.mode " + value + ", using FALLBACK");
+            return Mode.FALLBACK;
+        }
+    }
+
+    // One exchange within the latency budget, hedged if enabled; feeds the breaker
+    private HttpResponse<byte[]> send(HttpRequest request) throws Exception {
+        if (!breaker.allowRequest()) {
+            throw new RuntimeException("Basket pricing service unavailable (circuit open)");
+        }
+        requests.increment();
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> future = HEDGE ? sendHedged(request)
+                : httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        try {
+            HttpResponse<byte[]> response = future.get(BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+            recordLatency(System.nanoTime() - start);
+            if (response.statusCode() >= 500) {
+                failures.increment();
+                breaker.recordFailure();
+            } else {
+                breaker.recordSuccess();
+            }
+            return response;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            failures.increment();
+            breaker.recordFailure();
+            throw new RuntimeException("Basket pricing service exceeded " + BUDGET_MILLIS + " ms budget");
+        } catch (InterruptedException e) {
+            // The caller gave up, not the service: no failure, but a half-open probe must be freed
+            future.cancel(true);
+            breaker.release();
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            failures.increment();
+            breaker.recordFailure();
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    // Primary request plus one duplicate after the recent p95; the first success wins
+    private CompletableFuture<HttpResponse<byte[]>> sendHedged(HttpRequest request) {
+        CompletableFuture<HttpResponse<byte[]>> result = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<byte[]>> primary = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        AtomicInteger outstanding = new AtomicInteger(1);
+        primary.whenComplete((response, error) -> {
+            if (error == null) {
+                result.complete(response);
+            } else if (outstanding.decrementAndGet() == 0) {
+                result.completeExceptionally(error);
+            }
+        });
+        result.whenComplete((response, error) -> primary.cancel(true));
+
+        long delayMillis = Math.max(HEDGE_MIN_MILLIS, TimeUnit.NANOSECONDS.toMillis(p95LatencyNanos()));
+        if (sampleCount() < MIN_SAMPLES_FOR_HEDGE || delayMillis >= BUDGET_MILLIS) {
+            return result;
+        }
+        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            outstanding.incrementAndGet();
+            hedged.increment();
+            CompletableFuture<HttpResponse<byte[]>> hedge = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+            hedge.whenComplete((response, error) -> {
+                if (error == null) {
+                    if (result.complete(response)) {
+                        hedgeWins.increment();
+                    }
+                } else if (outstanding.decrementAndGet() == 0) {
+                    result.completeExceptionally(error);
+                }
+            });
+            result.whenComplete((response, error) -> hedge.cancel(true));
+        });
+        return result;
+    }
+
+    private static synchronized void recordLatency(long nanos) {
+        latencies[(int) (latencyCount % LATENCY_SAMPLES)] = nanos;
+        latencyCount++;
+    }
+
+    private static synchronized long sampleCount() {
+        return latencyCount;
+    }
+
+    private static synchronized long p95LatencyNanos() {
+        int n = (int) Math.min(latencyCount, LATENCY_SAMPLES);
+        if (n == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, n);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(n * 0.95) - 1];
+    }
+
     /**
      * Simplified discount method that creates a single line item from the total.
      * This replaces the functionality of DiscountServiceClient for backward compatibility.
      */
-    public BasketResult applySimpleDiscount(double total, String discountName) throws Exception {
+    public BasketResult applySimpleDiscount(Money total, String discountName) throws Exception {
         // Create a single line item representing the total
         List<LineItem> items = new ArrayList<>();
         LineItem singleItem = new LineItem();
         singleItem.id = "TOTAL";
         singleItem.name = "Order Total";
         singleItem.qty = 1;
-        singleItem.unitPrice = total;
-        singleItem.lineTotal = total;
+        singleItem.unitPriceCents = total.getCents();
+        singleItem.lineTotalCents = total.getCents();
         items.add(singleItem);
 
         return applyDiscountToBasket(items, total, discountName);
     }
 
-    private static String escapeJson(String s) {
-        if (s == null) return "";
-        return s.replace("\\", "\\\\").replace("\"", "\\\"");
-    }
-
-    private static String buildRequestJson(List<LineItem> items, double subtotal, String discountName) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("{");
-        sb.append("\"discountName\":\"").append(escapeJson(discountName == null ? "" : discountName)).append("\",");
-        sb.append("\"subtotal\":").append(String.format(java.util.Locale.US, "%.2f", subtotal)).append(",");
-        sb.append("\"items\":[");
-        if (items != null) {
-            for (int i = 0; i < items.size(); i++) {
-                LineItem it = items.get(i);
-                if (i > 0) sb.append(',');
-                sb.append('{')
-                        .append("\"id\":\"").append(escapeJson(it.id)).append("\",")
-                        .append("\"name\":\"").append(escapeJson(it.name)).append("\",")
-                        .append("\"qty\":").append(it.qty).append(',')
-                        .append("\"unitPrice\":").append(String.format(java.util.Locale.US, "%.2f", it.unitPrice)).append(',')
-                        .append("\"lineTotal\":").append(String.format(java.util.Locale.US, "%.2f", it.lineTotal))
-                        .append('}')
-                ;
-            }
-        }
-        sb.append(']');
-        sb.append('}');
-        return sb.toString();
+    // Request body, encoded by PricingJsonCodec
+    static byte[] buildRequestJson(List<LineItem> items, Money subtotal, String discountName) {
+        return PricingJsonCodec.encodeRequest(items, subtotal.getCents(), discountName);
     }
 
-    private BasketResult parseBasketResponse(String json) {
-        BasketResult r = new BasketResult();
-        r.originalSubtotal = extractDouble(json, "originalSubtotal");
-        if (r.originalSubtotal == 0.0) {
-            // try alternate key name
-            r.originalSubtotal = extractDouble(json, "subtotal");
-        }
-        r.discountName = extractString(json, "discountName");
-        r.discountPercentage = extractDouble(json, "discountPercentage");
-        r.discountAmount = extractDouble(json, "discountAmount");
-        r.discountedSubtotal = extractDouble(json, "discountedSubtotal");
-        if (r.discountedSubtotal == 0.0 && r.originalSubtotal > 0) {
-            // compute if server only returned discountAmount
-            r.discountedSubtotal = Math.max(0.0, r.originalSubtotal - r.discountAmount);
-        }
-        return r;
-    }
-
-    // Parsing helpers (simple, tolerant)
-    private static int indexOfKey(String json, String key) {
-        String needle = "\"" + key + "\"";
-        return json.indexOf(needle);
-    }
-
-    private static double extractDouble(String json, String key) {
-        int keyPos = indexOfKey(json, key);
-        if (keyPos < 0) return 0.0;
-        int colon = json.indexOf(':', keyPos);
-        if (colon < 0) return 0.0;
-        int i = colon + 1;
-        while (i < json.length() && Character.isWhitespace(json.charAt(i))) i++;
-        boolean quoted = i < json.length() && json.charAt(i) == '"';
-        if (quoted) i++;
-        int start = i;
-        while (i < json.length()) {
-            char c = json.charAt(i);
-            if (quoted) {
-                if (c == '"') break;
-            } else {
-                if (c == ',' || c == '}' || Character.isWhitespace(c)) break;
-            }
-            i++;
-        }
-        String token = json.substring(start, i).trim();
-        if (token.startsWith("\"") && token.endsWith("\"") && token.length() >= 2) {
-            token = token.substring(1, token.length() - 1);
-        }
-        try { return Double.parseDouble(token); } catch (Exception e) { return 0.0; }
-    }
-
-    private static String extractString(String json, String key) {
-        int keyPos = indexOfKey(json, key);
-        if (keyPos < 0) return null;
-        int colon = json.indexOf(':', keyPos);
-        if (colon < 0) return null;
-        int i = colon + 1;
-        while (i < json.length() && Character.isWhitespace(json.charAt(i))) i++;
-        if (i >= json.length()) return null;
-        if (json.charAt(i) == '"') {
-            int start = i + 1;
-            int end = json.indexOf('"', start);
-            if (end > start) return json.substring(start, end);
-            return null;
-        } else {
-            int start = i;
-            while (i < json.length()) {
-                char c = json.charAt(i);
-                if (c == ',' || c == '}' || Character.isWhitespace(c)) break;
-                i++;
-            }
-            return json.substring(start, i).trim();
-        }
+    BasketResult parseBasketResponse(byte[] json) {
+        return PricingJsonCodec.decodeResponse(json);
     }
 
-    // Utility to convert table model entries into LineItem list (optional helper if needed elsewhere)
-    public static List<LineItem> fromTable(javax.swing.table.DefaultTableModel model) {
-        List<LineItem> items = new ArrayList<>();
-        for (int i = 0; i < model.getRowCount(); i++) {
+    // Utility to convert basket lines into LineItem list
+    public static List<LineItem> fromBasket(List<Basket.Line> lines) {
+        List<LineItem> items = new ArrayList<>(lines.size());
+        for (Basket.Line line : lines) {
             LineItem li = new LineItem();
-            li.id = String.valueOf(model.getValueAt(i, 0));
-            li.name = String.valueOf(model.getValueAt(i, 1));
-            try { li.qty = Integer.parseInt(String.valueOf(model.getValueAt(i, 2))); } catch (Exception e) { li.qty = 1; }
-            try { li.unitPrice = Double.parseDouble(String.valueOf(model.getValueAt(i, 3))); } catch (Exception e) { li.unitPrice = 0.0; }
-            li.lineTotal = li.unitPrice * li.qty;
+            li.id = line.getId();
+            li.name = line.getName();
+            li.qty = line.getQty();
+            li.unitPriceCents = line.getUnitPriceCents();
+            li.lineTotalCents = line.getLineTotalCents();
             items.add(li);
         }
         return items;
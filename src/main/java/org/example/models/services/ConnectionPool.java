@@ -0,0 +1,601 @@
+package org.example.models.services;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded JDBC connection pool used behind DatabaseManager.getConnection().
+ *
+ * Callers keep using try-with-resources: close() on a borrowed connection hands it back to the
+ * pool instead of closing the physical H2 connection. Each physical connection keeps a small LRU
+ * cache of prepared statements, so hot INSERT/SELECT statements are parsed once per connection.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final boolean traceLeaks;
+    private final int statementCacheSize;
+
+    private static final long VALIDATION_IDLE_MILLIS = 30_000;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> leased = ConcurrentHashMap.newKeySet();
+    private int totalConnections = 0;
+    private int waitingThreads = 0;
+    private boolean closed = false;
+
+    private final ScheduledExecutorService housekeeper;
+
+    // Gauges / counters
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder evictedCount = new LongAdder();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public static class Config {
+        public String url;
+        public String user;
+        public String password;
+        public int minSize = 2;
+        public int maxSize = 8;
+        public long borrowTimeoutMillis = 5_000;
+        public long idleTimeoutMillis = 300_000;
+        public long leakThresholdMillis = 30_000;
+        // Record where each connection was borrowed, so a leak report names the caller; costs a stack walk per borrow
+        public boolean traceLeaks = false;
+        public int statementCacheSize = 32;
+        public long housekeepingIntervalMillis = 15_000;
+    }
+
+    /** Point-in-time snapshot of the pool gauges. */
+    public static class PoolStats {
+        public int active;
+        public int idle;
+        public int total;
+        public int waiting;
+        public int maxSize;
+        public long borrows;
+        public long timeouts;
+        public long leaksDetected;
+        public long created;
+        public long evicted;
+        public long statementCacheHits;
+        public long statementCacheMisses;
+        public double avgWaitMillis;
+        public double maxWaitMillis;
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US,
+                    "active=%d idle=%d total=%d/%d waiting=%d borrows=%d avgWait=%.3fms maxWait=%.3fms " +
+                            "timeouts=%d leaks=%d created=%d evicted=%d stmtCache=%d/%d",
+                    active, idle, total, maxSize, waiting, borrows, avgWaitMillis, maxWaitMillis,
+                    timeouts, leaksDetected, created, evicted, statementCacheHits,
+                    statementCacheHits + statementCacheMisses);
+        }
+    }
+
+    public ConnectionPool(Config config) {
+        if (config.maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be >= 1");
+        }
+        this.url = config.url;
+        this.user = config.user;
+        this.password = config.password;
+        this.maxSize = config.maxSize;
+        this.minSize = Math.max(0, Math.min(config.minSize, config.maxSize));
+        this.borrowTimeoutMillis = config.borrowTimeoutMillis;
+        this.idleTimeoutMillis = config.idleTimeoutMillis;
+        this.leakThresholdMillis = config.leakThresholdMillis;
+        this.traceLeaks = config.traceLeaks && config.leakThresholdMillis > 0;
+        this.statementCacheSize = Math.max(0, config.statementCacheSize);
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1_000, config.housekeepingIntervalMillis);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /** Opens connections up to the configured minimum so the first scans don't pay setup cost. */
+    public void warmUp() {
+        for (int i = 0; i < minSize; i++) {
+            lock.lock();
+            try {
+                if (closed || totalConnections >= minSize) {
+                    return;
+                }
+                totalConnections++;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                PooledConnection pc = openPhysical();
+                lock.lock();
+                try {
+                    idle.push(pc);
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (SQLException e) {
+                releaseSlot();
+                System.err.println("[ConnectionPool] Warm-up failed: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+        PooledConnection pc = null;
+        boolean mustCreate = false;
+
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new SQLException("Connection pool is closed");
+                }
+                pc = idle.poll();
+                if (pc != null) {
+                    break;
+                }
+                if (totalConnections < maxSize) {
+                    totalConnections++;
+                    mustCreate = true;
+                    break;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    timeoutCount.increment();
+                    throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+                            + " ms waiting for a database connection (" + getStats() + ")");
+                }
+                waitingThreads++;
+                try {
+                    available.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a database connection", e);
+                } finally {
+                    waitingThreads--;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (mustCreate) {
+            try {
+                pc = openPhysical();
+            } catch (SQLException e) {
+                releaseSlot();
+                throw e;
+            }
+        } else if (!pc.isUsable()) {
+            pc.closePhysical();
+            evictedCount.increment();
+            try {
+                pc = openPhysical();
+            } catch (SQLException e) {
+                releaseSlot();
+                throw e;
+            }
+        }
+
+        recordWait(System.nanoTime() - start);
+        borrowCount.increment();
+        pc.borrowedAt = System.currentTimeMillis();
+        pc.leakReported = false;
+        pc.borrowSite = traceLeaks ? new Throwable("Connection borrowed here") : null;
+        leased.add(pc);
+        return pc.newHandle();
+    }
+
+    public PoolStats getStats() {
+        PoolStats s = new PoolStats();
+        lock.lock();
+        try {
+            s.idle = idle.size();
+            s.total = totalConnections;
+            s.waiting = waitingThreads;
+        } finally {
+            lock.unlock();
+        }
+        s.active = leased.size();
+        s.maxSize = maxSize;
+        s.borrows = borrowCount.sum();
+        s.timeouts = timeoutCount.sum();
+        s.leaksDetected = leakCount.sum();
+        s.created = createdCount.sum();
+        s.evicted = evictedCount.sum();
+        s.statementCacheHits = statementHits.sum();
+        s.statementCacheMisses = statementMisses.sum();
+        s.avgWaitMillis = s.borrows == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / s.borrows;
+        s.maxWaitMillis = maxWaitNanos.get() / 1_000_000.0;
+        return s;
+    }
+
+    /** Closes idle connections; connections still leased are closed when they are returned. */
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            totalConnections -= toClose.size();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        for (PooledConnection pc : toClose) {
+            pc.closePhysical();
+        }
+    }
+
+    private PooledConnection openPhysical() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, password);
+        createdCount.increment();
+        return new PooledConnection(raw, raw.isReadOnly(), raw.getTransactionIsolation());
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            totalConnections--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void giveBack(PooledConnection pc) {
+        leased.remove(pc);
+        boolean healthy = pc.resetForReuse();
+
+        lock.lock();
+        try {
+            if (healthy && !closed) {
+                pc.lastReturnedAt = System.currentTimeMillis();
+                idle.push(pc); // LIFO keeps the warmest connections in use
+                available.signal();
+                return;
+            }
+            totalConnections--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        pc.closePhysical();
+        evictedCount.increment();
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        // Idle eviction down to the minimum size (oldest idle connections sit at the tail)
+        List<PooledConnection> evict = new ArrayList<>();
+        lock.lock();
+        try {
+            while (totalConnections > minSize && !idle.isEmpty()
+                    && now - idle.peekLast().lastReturnedAt > idleTimeoutMillis) {
+                evict.add(idle.pollLast());
+                totalConnections--;
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pc : evict) {
+            pc.closePhysical();
+            evictedCount.increment();
+        }
+
+        // Leak detection: report connections held longer than the threshold once per borrow
+        if (leakThresholdMillis > 0) {
+            for (PooledConnection pc : leased) {
+                if (!pc.leakReported && now - pc.borrowedAt > leakThresholdMillis) {
+                    pc.leakReported = true;
+                    leakCount.increment();
+                    System.err.println("[ConnectionPool] Possible connection leak: held for "
+                            + (now - pc.borrowedAt) + " ms"
+                            + (pc.borrowSite == null ? " (-Dpos.db.pool.traceLeaks=true shows where it was borrowed)" : ""));
+                    if (pc.borrowSite != null) {
+                        StringBuilder site = new StringBuilder("[ConnectionPool] Leaked connection was borrowed at:");
+                        for (StackTraceElement frame : pc.borrowSite.getStackTrace()) {
+                            if (!frame.getClassName().startsWith(ConnectionPool.class.getName())) {
+                                site.append("\n[ConnectionPool]     at ").append(frame);
+                            }
+                        }
+                        System.err.println(site);
+                    }
+                }
+            }
+        }
+
+        if (!closed) {
+            warmUp();
+        }
+    }
+
+    private static Object invokeRaw(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** A physical connection plus its prepared-statement cache. */
+    private class PooledConnection {
+        final Connection raw;
+        // Session settings a borrower may change; restored before the next borrow
+        final boolean defaultReadOnly;
+        final int defaultIsolation;
+        final Map<String, CachedStatement> statements;
+        volatile long borrowedAt;
+        volatile long lastReturnedAt = System.currentTimeMillis();
+        volatile boolean leakReported;
+        volatile Throwable borrowSite;
+
+        PooledConnection(Connection raw, boolean defaultReadOnly, int defaultIsolation) {
+            this.raw = raw;
+            this.defaultReadOnly = defaultReadOnly;
+            this.defaultIsolation = defaultIsolation;
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() > statementCacheSize && !eldest.getValue().inUse) {
+                        eldest.getValue().closeQuietly();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new ConnectionHandle(this));
+        }
+
+        boolean isUsable() {
+            try {
+                if (raw.isClosed()) {
+                    return false;
+                }
+                // Only round-trip a validation query for connections that sat idle for a while
+                return System.currentTimeMillis() - lastReturnedAt < VALIDATION_IDLE_MILLIS || raw.isValid(1);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        PreparedStatement prepare(ConnectionHandle handle, String sql) throws SQLException {
+            if (statementCacheSize > 0) {
+                CachedStatement cached = statements.get(sql);
+                if (cached != null && !cached.inUse) {
+                    cached.inUse = true;
+                    statementHits.increment();
+                    return cached.newHandle(handle);
+                }
+                if (cached == null) {
+                    statementMisses.increment();
+                    cached = new CachedStatement(raw.prepareStatement(sql));
+                    cached.inUse = true;
+                    statements.put(sql, cached);
+                    return cached.newHandle(handle);
+                }
+            }
+            // Same SQL already open on this connection (or caching disabled): hand out a plain statement
+            return raw.prepareStatement(sql);
+        }
+
+        boolean resetForReuse() {
+            try {
+                if (raw.isClosed()) {
+                    return false;
+                }
+                if (!raw.getAutoCommit()) {
+                    raw.rollback();
+                    raw.setAutoCommit(true);
+                }
+                if (raw.isReadOnly() != defaultReadOnly) {
+                    raw.setReadOnly(defaultReadOnly);
+                }
+                if (raw.getTransactionIsolation() != defaultIsolation) {
+                    raw.setTransactionIsolation(defaultIsolation);
+                }
+                for (CachedStatement cs : statements.values()) {
+                    if (cs.inUse) {
+                        cs.reset();
+                    }
+                }
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            for (CachedStatement cs : statements.values()) {
+                cs.closeQuietly();
+            }
+            statements.clear();
+            try {
+                raw.close();
+            } catch (SQLException ignore) {
+                // already gone
+            }
+        }
+    }
+
+    private static class CachedStatement {
+        final PreparedStatement raw;
+        boolean inUse;
+
+        CachedStatement(PreparedStatement raw) {
+            this.raw = raw;
+        }
+
+        PreparedStatement newHandle(ConnectionHandle owner) {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new StatementHandle(this, owner));
+        }
+
+        void reset() {
+            try {
+                raw.clearParameters();
+                raw.clearBatch();
+                raw.clearWarnings();
+            } catch (SQLException ignore) {
+                // statement will be re-prepared if it is really broken
+            }
+            inUse = false;
+        }
+
+        void closeQuietly() {
+            try {
+                raw.close();
+            } catch (SQLException ignore) {
+                // best effort
+            }
+        }
+    }
+
+    /** The Connection callers see; close() returns the physical connection to the pool. */
+    private class ConnectionHandle implements InvocationHandler {
+        private final PooledConnection pc;
+        private boolean handleClosed = false;
+        private Connection self;
+
+        ConnectionHandle(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            self = (Connection) proxy;
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!handleClosed) {
+                        handleClosed = true;
+                        giveBack(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return handleClosed || pc.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pc.raw + "]";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (handleClosed) {
+                throw new SQLException("Connection is closed");
+            }
+            if ("prepareStatement".equals(name) && args != null && args.length == 1) {
+                return pc.prepare(this, (String) args[0]);
+            }
+            return invokeRaw(pc.raw, method, args);
+        }
+    }
+
+    /** The PreparedStatement callers see; close() parks the statement in the cache. */
+    private static class StatementHandle implements InvocationHandler {
+        private final CachedStatement cached;
+        private final ConnectionHandle owner;
+        private boolean handleClosed = false;
+
+        StatementHandle(CachedStatement cached, ConnectionHandle owner) {
+            this.cached = cached;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!handleClosed) {
+                        handleClosed = true;
+                        cached.reset();
+                    }
+                    return null;
+                case "isClosed":
+                    return handleClosed || cached.raw.isClosed();
+                case "getConnection":
+                    return owner.self;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + cached.raw + "]";
+                default:
+                    break;
+            }
+            if (handleClosed) {
+                throw new SQLException("Statement is closed");
+            }
+            return invokeRaw(cached.raw, method, args);
+        }
+    }
+}
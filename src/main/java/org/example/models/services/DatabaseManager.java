@@ -3,13 +3,20 @@ package org.example.models.services;
 import java.sql.*;
 
 public class DatabaseManager {
-    public static final String JDBC_URL = "jdbc:h2:./database/testdb";
+    public static final String JDBC_URL = System.getProperty("pos.db.url", "jdbc:h2:./database/testdb");
     public static final String USER = "sa";
     public static final String PASSWORD = "";
 
+    private static volatile ConnectionPool pool;
+
     public static void init() {
-        startH2Console();
+        // -Dpos.h2.console=false skips the web console (benchmarks, headless lanes)
+        if (Boolean.parseBoolean(System.getProperty("pos.h2.console", "true"))) {
+            startH2Console();
+        }
         setupDatabase();
+        getPool().warmUp();
+        System.out.println("Connection pool ready: " + getPoolStats());
     }
 
     private static void startH2Console() {
@@ -21,57 +28,107 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Migrates the schema in place so journal, receipts and the pricebook survive restarts.
+     * -Dpos.db.reset=true restores the old behaviour of dropping everything first.
+     */
     private static void setupDatabase() {
-        try (Connection conn = getConnection(); Statement stmt = conn.createStatement()) {
-            stmt.execute("DROP ALL OBJECTS");
+        try (Connection conn = getConnection()) {
+            if (Boolean.getBoolean("pos.db.reset")) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("DROP ALL OBJECTS");
+                }
+                System.out.println("[DatabaseManager] pos.db.reset set, dropped all objects.");
+            }
+            int applied = SchemaMigrator.migrate(conn);
+            System.out.println("Database setup complete (" + applied + " migration(s) applied).");
+        } catch (Exception e) {
+            System.out.println("Database setup error: " + e.getMessage());
+        }
+    }
 
-            // Pricebook Table
-            stmt.execute("""
-                CREATE TABLE pricebook (
-                    id VARCHAR(12) PRIMARY KEY,
-                    name VARCHAR(255),
-                    price DECIMAL(10,2)
-                )
-            """);
+    /**
+     * Reads a value from app_metadata, or null if it is not set.
+     */
+    public static String getMetadata(Connection conn, String key) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT meta_value FROM app_metadata WHERE meta_key = ?")) {
+            stmt.setString(1, key);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
 
-            // ✅ Insert system-reserved items for special journal actions
-            //stmt.execute("INSERT INTO pricebook (id, name, price) VALUES ('SYS_PAYMENT', 'Payment Action', 0.00)");
-            //stmt.execute("INSERT INTO pricebook (id, name, price) VALUES ('SYS_VOID_ALL', 'Void All Action', 0.00)");
-            // Journal Table
-            stmt.execute("""
-                CREATE TABLE journal (
-                    id IDENTITY PRIMARY KEY,
-                    item_id VARCHAR(12),
-                    item_qty INT,
-                    action VARCHAR(255),
-                    datetime TIMESTAMP,
-                    FOREIGN KEY (item_id) REFERENCES pricebook(id)
-                )
-            """);
+    /**
+     * Inserts or replaces a value in app_metadata using the caller's transaction.
+     */
+    public static void putMetadata(Connection conn, String key, String value) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "MERGE INTO app_metadata (meta_key, meta_value, updated_at) KEY (meta_key) VALUES (?, ?, CURRENT_TIMESTAMP)")) {
+            stmt.setString(1, key);
+            stmt.setString(2, value);
+            stmt.executeUpdate();
+        }
+    }
 
-            // Receipts Table (1 row per item in the receipt)
-            stmt.execute("""
-                CREATE TABLE receipts (
-                    id IDENTITY PRIMARY KEY,
-                    receipt_id VARCHAR(36),
-                    item_id VARCHAR(12),
-                    qty INT,
-                    unit_price DECIMAL(10, 2),
-                    subtotal DECIMAL(10, 2),
-                    amount_paid DECIMAL(10, 2),
-                    change_due DECIMAL(10, 2),
-                    created_at TIMESTAMP,
-                    FOREIGN KEY (item_id) REFERENCES pricebook(id)
-                )
-            """);
+    /**
+     * Borrows a pooled connection. Closing it returns it to the pool, so callers keep using
+     * try-with-resources exactly as before.
+     */
+    public static Connection getConnection() throws SQLException {
+        return getPool().getConnection();
+    }
 
-            System.out.println("Database setup complete.");
-        } catch (Exception e) {
-            System.out.println("Database setup error: " + e.getMessage());
+    /**
+     * Current pool gauges (active/idle/waiting connections, borrow wait times, leaks).
+     */
+    public static ConnectionPool.PoolStats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    /**
+     * Closes the pool; call from the shutdown hook after the journal has been flushed.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            System.out.println("[DatabaseManager] Closing connection pool: " + pool.getStats());
+            pool.close();
+            pool = null;
         }
-     }
+    }
 
-    public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(JDBC_URL, USER, PASSWORD);
+    private static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DatabaseManager.class) {
+                p = pool;
+                if (p == null) {
+                    p = new ConnectionPool(poolConfig());
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Pool sizing comes from JVM system properties so each lane can be tuned without a rebuild:
+     * pos.db.pool.min, pos.db.pool.max, pos.db.pool.borrowTimeoutMs, pos.db.pool.idleTimeoutMs,
+     * pos.db.pool.leakThresholdMs (0 disables), pos.db.pool.traceLeaks (log where a leaked
+     * connection was borrowed), pos.db.pool.statementCacheSize.
+     */
+    private static ConnectionPool.Config poolConfig() {
+        ConnectionPool.Config c = new ConnectionPool.Config();
+        c.url = JDBC_URL;
+        c.user = USER;
+        c.password = PASSWORD;
+        c.minSize = Integer.getInteger("pos.db.pool.min", c.minSize);
+        c.maxSize = Integer.getInteger("pos.db.pool.max", c.maxSize);
+        c.borrowTimeoutMillis = Long.getLong("pos.db.pool.borrowTimeoutMs", c.borrowTimeoutMillis);
+        c.idleTimeoutMillis = Long.getLong("pos.db.pool.idleTimeoutMs", c.idleTimeoutMillis);
+        c.leakThresholdMillis = Long.getLong("pos.db.pool.leakThresholdMs", c.leakThresholdMillis);
+        c.traceLeaks = Boolean.getBoolean("pos.db.pool.traceLeaks");
+        c.statementCacheSize = Integer.getInteger("pos.db.pool.statementCacheSize", c.statementCacheSize);
+        return c;
     }
 }
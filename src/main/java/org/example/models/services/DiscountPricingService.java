@@ -0,0 +1,203 @@
+package org.example.models.services;
+
+import org.example.utils.Money;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Discount pricing for one basket, off the EDT.
+ *
+ * quote() returns a CompletableFuture that is memoized by (basket content hash, subtotal, discount
+ * name) until the basket is cleared, so the pre-payment dialog, the EXACT/NEXT buttons and payment
+ * logging share one round trip per discount. Requests run on a small shared executor against a
+ * single BasketPricingServiceClient: basket endpoint first, then the legacy total-based one. A
+ * failed request completes its future exceptionally and is dropped from the cache so the next
+ * call retries. While the client's circuit breaker is open, and no local rules can stand in, the
+ * quote is "no discount" without any request, and is not cached.
+ *
+ * Tuning: -Dpos.discount.threads (default 2).
+ */
+public class DiscountPricingService implements Basket.Listener {
+
+    public static class Quote {
+        public Money discountAmount = Money.ZERO;
+        public Money discountedSubtotal = Money.ZERO;
+        public String discountName;
+        public double discountPercentage;
+        /** True if the service was skipped because its circuit breaker is open. */
+        public boolean shortCircuited;
+    }
+
+    public static class PricingStats {
+        public long hits;
+        public long misses;
+        public long requests;
+        public long failures;
+        public long shortCircuited;
+        public int inFlight;
+        public double avgLatencyMillis;
+        public double maxLatencyMillis;
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US,
+                    "hits=%d misses=%d requests=%d failures=%d shortCircuited=%d inFlight=%d latency avg=%.1fms max=%.1fms",
+                    hits, misses, requests, failures, shortCircuited, inFlight, avgLatencyMillis, maxLatencyMillis);
+        }
+    }
+
+    private static final int THREADS = Math.max(1, Integer.getInteger("pos.discount.threads", 2));
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService executor = Executors.newFixedThreadPool(THREADS, r -> {
+        Thread t = new Thread(r, "discount-pricing-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+    private static final BasketPricingServiceClient client = new BasketPricingServiceClient();
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder requests = new LongAdder();
+    private static final LongAdder failures = new LongAdder();
+    private static final LongAdder shortCircuits = new LongAdder();
+    private static final LongAdder latencyNanos = new LongAdder();
+    private static final AtomicLong maxLatencyNanos = new AtomicLong();
+    private static final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Basket basket;
+    private final Map<String, CompletableFuture<Quote>> cache = new ConcurrentHashMap<>();
+
+    public DiscountPricingService(Basket basket) {
+        this.basket = basket;
+        basket.addListener(this);
+    }
+
+    /**
+     * Quote for the current basket contents. Call on the EDT (reads the basket); the returned
+     * future completes on a pricing thread.
+     */
+    public CompletableFuture<Quote> quote(String discountName) {
+        String name = discountName == null ? "None" : discountName;
+        String key = basket.getContentHash() + ":" + basket.getSubtotalCents() + ":" + name;
+        CompletableFuture<Quote> cached = cache.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        List<Basket.Line> lines = basket.getLines();
+        Money subtotal = basket.getSubtotal();
+        CompletableFuture<Quote> future = CompletableFuture.supplyAsync(() -> fetch(lines, subtotal, name), executor);
+        cache.put(key, future);
+        future.whenComplete((q, e) -> {
+            if (e != null || q.shortCircuited) {
+                cache.remove(key, future);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Drops all memoized quotes.
+     */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    public static PricingStats getStats() {
+        PricingStats s = new PricingStats();
+        s.hits = hits.sum();
+        s.misses = misses.sum();
+        s.requests = requests.sum();
+        s.failures = failures.sum();
+        s.shortCircuited = shortCircuits.sum();
+        s.inFlight = inFlight.get();
+        if (s.requests > 0) {
+            s.avgLatencyMillis = latencyNanos.sum() / (double) s.requests / 1_000_000.0;
+        }
+        s.maxLatencyMillis = maxLatencyNanos.get() / 1_000_000.0;
+        return s;
+    }
+
+    public static void shutdown() {
+        executor.shutdownNow();
+        System.out.println("[DiscountPricingService] " + getStats());
+        System.out.println("[BasketPricingServiceClient] " + BasketPricingServiceClient.getStats());
+    }
+
+    @Override
+    public void lineAdded(int index, Basket.Line line) {
+    }
+
+    @Override
+    public void lineChanged(int index, Basket.Line line) {
+    }
+
+    @Override
+    public void lineRemoved(int index, Basket.Line line) {
+    }
+
+    @Override
+    public void cleared() {
+        invalidate();
+    }
+
+    private static Quote fetch(List<Basket.Line> lines, Money subtotal, String discountName) {
+        if (BasketPricingServiceClient.isCircuitOpen() && !BasketPricingServiceClient.hasLocalFallback()) {
+            shortCircuits.increment();
+            Quote q = new Quote();
+            q.discountedSubtotal = subtotal;
+            q.discountName = "None";
+            q.shortCircuited = true;
+            return q;
+        }
+        long start = System.nanoTime();
+        inFlight.incrementAndGet();
+        try {
+            return computeQuote(lines, subtotal, discountName);
+        } catch (Exception e) {
+            failures.increment();
+            throw new RuntimeException("Discount service unavailable: " + e.getMessage(), e);
+        } finally {
+            inFlight.decrementAndGet();
+            long elapsed = System.nanoTime() - start;
+            requests.increment();
+            latencyNanos.add(elapsed);
+            maxLatencyNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    private static Quote computeQuote(List<Basket.Line> lines, Money subtotal, String discountName) throws Exception {
+        Quote q = new Quote();
+        // 1) Try basket-based endpoint
+        try {
+            List<BasketPricingServiceClient.LineItem> items = BasketPricingServiceClient.fromBasket(lines);
+            BasketPricingServiceClient.BasketResult br = client.applyDiscountToBasket(items, subtotal, discountName);
+            if (br.discountedSubtotal.isPositive()) {
+                q.discountedSubtotal = br.discountedSubtotal;
+                Money original = br.originalSubtotal.isPositive() ? br.originalSubtotal : subtotal;
+                q.discountAmount = original.minus(q.discountedSubtotal).max(Money.ZERO);
+                q.discountName = br.discountName;
+                q.discountPercentage = br.discountPercentage;
+                return q;
+            }
+        } catch (Exception ignore) {
+            // fall through to legacy endpoint
+        }
+        // 2) Fallback to legacy total-based endpoint
+        BasketPricingServiceClient.BasketResult r = client.applySimpleDiscount(subtotal, discountName);
+        q.discountAmount = r.discountAmount;
+        q.discountedSubtotal = r.discountedSubtotal;
+        q.discountName = r.discountName;
+        q.discountPercentage = r.discountPercentage;
+        return q;
+    }
+}
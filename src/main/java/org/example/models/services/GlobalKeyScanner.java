@@ -3,35 +3,112 @@ package org.example.models.services;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 
+/**
+ * Application-wide keystroke capture for barcode scanners.
+ *
+ * Every keystroke is timestamped with System.nanoTime(), back-dated by how long the event waited
+ * in the AWT queue so a busy EDT does not stretch the gaps. On Enter the gaps of the collected code
+ * decide its source: a scanner burst (mean and largest inter-key gap under the thresholds) is
+ * "Scanner", anything slower is "Keyboard". The code is then handed to a ScanProcessor and the
+ * dispatcher returns immediately.
+ *
+ * Tuning: -Dpos.scanner.maxMeanGapMs (default 35), -Dpos.scanner.maxGapMs (default 80),
+ * -Dpos.scanner.minLength (default 3), -Dpos.scanner.resetGapMs (default 300) and
+ * -Dpos.scanner.queueCapacity (default 1024).
+ */
 public class GlobalKeyScanner {
-    private static StringBuilder buffer = new StringBuilder();
-    private static long lastEventTime = 0;
-
-    public static void install(POSPanel posPanel) {
-        KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(e -> {
-            long now = System.currentTimeMillis();
-            if (now - lastEventTime > 300) {
-                buffer.setLength(0);
+
+    private static final long MAX_MEAN_GAP_NANOS = Long.getLong("pos.scanner.maxMeanGapMs", 35) * 1_000_000L;
+    private static final long MAX_GAP_NANOS = Long.getLong("pos.scanner.maxGapMs", 80) * 1_000_000L;
+    private static final int MIN_BURST_LENGTH = Integer.getInteger("pos.scanner.minLength", 3);
+    private static final long RESET_GAP_NANOS = Long.getLong("pos.scanner.resetGapMs", 300) * 1_000_000L;
+    private static final int QUEUE_CAPACITY = Integer.getInteger("pos.scanner.queueCapacity", 1024);
+
+    private static ScanProcessor processor;
+
+    // Keystroke state; only touched from the EDT
+    private static final StringBuilder buffer = new StringBuilder();
+    private static long lastKeyNanos;
+    private static long gapSum;
+    private static long gapMax;
+    private static int gapCount;
+
+    public static synchronized void install(POSPanel posPanel) {
+        if (processor != null) {
+            return;
+        }
+        processor = new ScanProcessor(QUEUE_CAPACITY, posPanel::scanItem);
+        KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(GlobalKeyScanner::dispatch);
+    }
+
+    public static synchronized ScanProcessor.ScanStats getStats() {
+        return processor == null ? new ScanProcessor.ScanStats() : processor.getStats();
+    }
+
+    public static synchronized void stop() {
+        if (processor != null) {
+            processor.stop();
+            System.out.println("[GlobalKeyScanner] " + processor.getStats());
+        }
+    }
+
+    private static boolean dispatch(KeyEvent e) {
+        if (e.getID() != KeyEvent.KEY_PRESSED && e.getID() != KeyEvent.KEY_TYPED) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long queued = Math.max(0, System.currentTimeMillis() - e.getWhen());
+        long keyNanos = now - queued * 1_000_000L;
+
+        if (e.getID() == KeyEvent.KEY_PRESSED) {
+            if (e.getKeyCode() != KeyEvent.VK_ENTER) {
+                return false;
+            }
+            if (keyNanos - lastKeyNanos > RESET_GAP_NANOS) {
+                reset(); // stale input, let Enter through to the focused component
+                return false;
             }
-            lastEventTime = now;
-
-            if (e.getID() == KeyEvent.KEY_PRESSED) {
-                int keyCode = e.getKeyCode();
-                if (keyCode == KeyEvent.VK_ENTER) {
-                    String code = buffer.toString().trim();
-                    if (!code.isEmpty()) {
-                        posPanel.scanItem(code, "Scanner"); // ✅ now marks source
-                    }
-                    buffer.setLength(0);
-                    return true; // consume
-                }
-            } else if (e.getID() == KeyEvent.KEY_TYPED) {
-                char c = e.getKeyChar();
-                if (!Character.isISOControl(c)) {
-                    buffer.append(c);
-                }
+            String code = buffer.toString().trim();
+            boolean burst = isBurst(code.length());
+            reset();
+            if (code.isEmpty()) {
+                return false;
             }
+            if (!processor.submit(new ScanProcessor.Scan(code, burst ? "Scanner" : "Keyboard", keyNanos))) {
+                System.err.println("[GlobalKeyScanner] Scan queue full, dropped " + code);
+            }
+            return true; // consume
+        }
+
+        char c = e.getKeyChar();
+        if (Character.isISOControl(c)) {
             return false;
-        });
+        }
+        if (buffer.length() > 0) {
+            long gap = keyNanos - lastKeyNanos;
+            if (gap > RESET_GAP_NANOS) {
+                reset();
+            } else {
+                gapSum += Math.max(0, gap);
+                gapMax = Math.max(gapMax, gap);
+                gapCount++;
+            }
+        }
+        buffer.append(c);
+        lastKeyNanos = keyNanos;
+        return false;
+    }
+
+    private static boolean isBurst(int length) {
+        return length >= MIN_BURST_LENGTH && gapCount > 0
+                && gapSum / gapCount <= MAX_MEAN_GAP_NANOS
+                && gapMax <= MAX_GAP_NANOS;
+    }
+
+    private static void reset() {
+        buffer.setLength(0);
+        gapSum = 0;
+        gapMax = 0;
+        gapCount = 0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+package org.example.models.services;
+
+import java.util.List;
+
+/**
+ * Immutable journal entry captured at the moment JournalService.log() is called.
+ * The timestamp is taken on the caller's thread so batching never shifts event times.
+ *
+ * An entry is either about one item, or a whole transaction (a payment or a void): then it has
+ * no item id, carries its basket lines as compact Line references, its qty is their total, and a
+ * payment also has its receipt id.
+ */
+public final class JournalEvent {
+    private final String itemId;
+    private final int qty;
+    private final String action;
+    private final long timestampMillis;
+    private final long receiptId;
+    private final List<Line> lines;
+
+    /** One basket line of a transaction entry. */
+    public static final class Line {
+        private final String itemId;
+        private final int qty;
+
+        public Line(String itemId, int qty) {
+            this.itemId = itemId;
+            this.qty = qty;
+        }
+
+        public String getItemId() {
+            return itemId;
+        }
+
+        public int getQty() {
+            return qty;
+        }
+    }
+
+    public JournalEvent(String itemId, int qty, String action, long timestampMillis) {
+        this.itemId = itemId;
+        this.qty = qty;
+        this.action = action;
+        this.timestampMillis = timestampMillis;
+        this.receiptId = 0;
+        this.lines = List.of();
+    }
+
+    /** A transaction entry; receiptId is 0 when there is no receipt (e.g. a voided basket). */
+    public JournalEvent(String action, long receiptId, List<Line> lines, long timestampMillis) {
+        int total = 0;
+        for (Line line : lines) {
+            total += line.getQty();
+        }
+        this.itemId = null;
+        this.qty = total;
+        this.action = action;
+        this.timestampMillis = timestampMillis;
+        this.receiptId = receiptId;
+        this.lines = List.copyOf(lines);
+    }
+
+    /** The item, or null for a transaction entry. */
+    public String getItemId() {
+        return itemId;
+    }
+
+    public int getQty() {
+        return qty;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public boolean isTransaction() {
+        return !lines.isEmpty();
+    }
+
+    public long getReceiptId() {
+        return receiptId;
+    }
+
+    /** The transaction's lines in basket order; empty for an item entry. */
+    public List<Line> getLines() {
+        return lines;
+    }
+}
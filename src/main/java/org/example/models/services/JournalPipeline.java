@@ -0,0 +1,193 @@
+package org.example.models.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind pipeline for journal events.
+ *
+ * publish() drops the event into a bounded ring buffer and returns; a single writer thread drains
+ * the buffer in batches (up to batchSize events, or whatever arrived within lingerMillis of the
+ * first one) and hands each batch to the BatchWriter.
+ */
+public class JournalPipeline {
+
+    public enum BackpressurePolicy {
+        /** Wait up to blockTimeoutMillis for space, then drop the new event. */
+        BLOCK,
+        /** Discard the event being published. */
+        DROP_NEWEST,
+        /** Discard the oldest queued event to make room. */
+        DROP_OLDEST,
+        /** Write the event synchronously on the calling thread. */
+        CALLER_RUNS
+    }
+
+    public interface BatchWriter {
+        void write(List<JournalEvent> batch) throws Exception;
+    }
+
+    public static class Config {
+        public int capacity = 8192;
+        public int batchSize = 256;
+        public long lingerMillis = 20;
+        public long blockTimeoutMillis = 250;
+        public BackpressurePolicy policy = BackpressurePolicy.BLOCK;
+    }
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final Config config;
+    private final BatchWriter writer;
+    private final ArrayBlockingQueue<JournalEvent> ring;
+    private final Object writeLock = new Object();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public JournalPipeline(Config config, BatchWriter writer) {
+        this.config = config;
+        this.writer = writer;
+        this.ring = new ArrayBlockingQueue<>(Math.max(1, config.capacity));
+        this.writerThread = new Thread(this::drainLoop, "journal-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Enqueues an event. Returns false if the event was dropped by the backpressure policy.
+     */
+    public boolean publish(JournalEvent event) {
+        published.increment();
+        if (!running) {
+            return writeNow(event);
+        }
+        if (ring.offer(event)) {
+            return true;
+        }
+        switch (config.policy) {
+            case DROP_NEWEST:
+                return drop(event);
+            case DROP_OLDEST:
+                while (!ring.offer(event)) {
+                    JournalEvent oldest = ring.poll();
+                    if (oldest != null) {
+                        drop(oldest);
+                    }
+                }
+                return true;
+            case CALLER_RUNS:
+                return writeNow(event);
+            case BLOCK:
+            default:
+                try {
+                    if (ring.offer(event, config.blockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return drop(event);
+        }
+    }
+
+    /**
+     * Stops accepting queued work and writes everything still in the ring buffer.
+     * Waits at most timeoutMillis for the writer thread to finish.
+     */
+    public void shutdown(long timeoutMillis) {
+        running = false;
+        try {
+            writerThread.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Writer thread may have been stuck; flush whatever is left from this thread
+        List<JournalEvent> rest = new ArrayList<>();
+        ring.drainTo(rest);
+        if (!rest.isEmpty()) {
+            writeBatch(rest);
+        }
+    }
+
+    public int getQueueDepth() {
+        return ring.size();
+    }
+
+    public String getStats() {
+        return String.format("published=%d written=%d dropped=%d batches=%d failures=%d queued=%d",
+                published.sum(), written.sum(), dropped.sum(), batches.sum(), failures.sum(), ring.size());
+    }
+
+    private void drainLoop() {
+        List<JournalEvent> batch = new ArrayList<>(config.batchSize);
+        while (true) {
+            try {
+                // Timed poll instead of interrupts: interrupting JDBC/socket I/O can close H2's file channel
+                JournalEvent first = ring.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (!running) {
+                        break;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.lingerMillis);
+                while (batch.size() < config.batchSize) {
+                    ring.drainTo(batch, config.batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= config.batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    JournalEvent next = ring.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            writeBatch(batch);
+            batch = new ArrayList<>(config.batchSize);
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+    }
+
+    private boolean writeNow(JournalEvent event) {
+        List<JournalEvent> single = new ArrayList<>(1);
+        single.add(event);
+        writeBatch(single);
+        return true;
+    }
+
+    private void writeBatch(List<JournalEvent> batch) {
+        synchronized (writeLock) {
+            try {
+                writer.write(batch);
+                written.add(batch.size());
+                batches.increment();
+            } catch (Exception e) {
+                failures.increment();
+                System.err.println("[JournalPipeline] Failed to write batch of " + batch.size() + " events: " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean drop(JournalEvent event) {
+        dropped.increment();
+        System.err.println("[JournalPipeline] Buffer full, dropped event: " + event.getItemId() + " | " + event.getAction());
+        return false;
+    }
+}
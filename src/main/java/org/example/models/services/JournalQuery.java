@@ -0,0 +1,212 @@
+package org.example.models.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the journal newest-first, one page at a time, by keyset pagination on (datetime, id).
+ *
+ * A page is the rows strictly after a Key (the last row of the previous page) in that order, so
+ * every page is an index range scan no matter how deep it is, unlike LIMIT/OFFSET. Filters are
+ * applied in the query.
+ */
+public class JournalQuery {
+
+    /** What to show: each field is optional (null matches everything). */
+    public static final class Filter {
+        public static final Filter ALL = new Filter(null, null, null, null);
+
+        private final String itemId;
+        private final String actionContains;
+        private final Timestamp from;
+        private final Timestamp to;
+
+        /**
+         * itemId must match exactly (the item of an entry, or any line of a transaction entry),
+         * actionContains case-insensitively anywhere in the action; from is inclusive and to
+         * exclusive.
+         */
+        public Filter(String itemId, String actionContains, Timestamp from, Timestamp to) {
+            this.itemId = blankToNull(itemId);
+            this.actionContains = blankToNull(actionContains);
+            this.from = from;
+            this.to = to;
+        }
+
+        public String getItemId() {
+            return itemId;
+        }
+
+        public String getActionContains() {
+            return actionContains;
+        }
+
+        public Timestamp getFrom() {
+            return from;
+        }
+
+        public Timestamp getTo() {
+            return to;
+        }
+
+        /** Same test as the query, for events that did not come from it (live events). */
+        public boolean matches(JournalEvent event, Timestamp at) {
+            if (itemId != null && !itemId.equals(event.getItemId()) && !containsItem(event)) {
+                return false;
+            }
+            String rowAction = event.getAction();
+            if (actionContains != null
+                    && (rowAction == null || !rowAction.toLowerCase().contains(actionContains.toLowerCase()))) {
+                return false;
+            }
+            if (from != null && at.before(from)) {
+                return false;
+            }
+            return to == null || at.before(to);
+        }
+
+        private boolean containsItem(JournalEvent event) {
+            for (JournalEvent.Line line : event.getLines()) {
+                if (itemId.equals(line.getItemId())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String blankToNull(String s) {
+            return s == null || s.isBlank() ? null : s.trim();
+        }
+    }
+
+    /** Position of a row in (datetime DESC, id DESC) order. */
+    public static final class Key {
+        private final Timestamp datetime;
+        private final long id;
+
+        public Key(Timestamp datetime, long id) {
+            this.datetime = datetime;
+            this.id = id;
+        }
+
+        public Timestamp getDatetime() {
+            return datetime;
+        }
+
+        public long getId() {
+            return id;
+        }
+    }
+
+    public static final class Row {
+        private final long id;
+        private final Timestamp datetime;
+        private final String itemId;
+        private final String itemName;
+        private final int qty;
+        private final String action;
+
+        /** id is the journal row id, or 0 for a row that was not read from the table. */
+        public Row(long id, Timestamp datetime, String itemId, String itemName, int qty, String action) {
+            this.id = id;
+            this.datetime = datetime;
+            this.itemId = itemId;
+            this.itemName = itemName;
+            this.qty = qty;
+            this.action = action;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public Timestamp getDatetime() {
+            return datetime;
+        }
+
+        public String getItemId() {
+            return itemId;
+        }
+
+        public String getItemName() {
+            return itemName;
+        }
+
+        public int getQty() {
+            return qty;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public Key key() {
+            return new Key(datetime, id);
+        }
+    }
+
+    /**
+     * Returns up to limit rows that come after the given key (or from the newest row if after is
+     * null), newest first.
+     */
+    public static List<Row> fetchPage(Filter filter, Key after, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder("""
+                SELECT j.id, j.datetime, j.item_id, COALESCE(p.name, '') AS name, j.item_qty, j.action
+                FROM journal j
+                LEFT JOIN pricebook p ON p.id = j.item_id
+                WHERE j.datetime IS NOT NULL
+                """);
+        List<Object> params = new ArrayList<>();
+        if (after != null) {
+            // The first condition alone is an index range; the second excludes rows already shown
+            sql.append(" AND j.datetime <= ? AND (j.datetime < ? OR j.id < ?)");
+            params.add(after.getDatetime());
+            params.add(after.getDatetime());
+            params.add(after.getId());
+        }
+        if (filter.getItemId() != null) {
+            // Transactions keep their items in journal_line
+            sql.append(" AND (j.item_id = ? OR j.id IN (SELECT l.journal_id FROM journal_line l WHERE l.item_id = ?))");
+            params.add(filter.getItemId());
+            params.add(filter.getItemId());
+        }
+        if (filter.getActionContains() != null) {
+            sql.append(" AND LOWER(j.action) LIKE ? ESCAPE '\\'");
+            params.add("%" + escapeLike(filter.getActionContains().toLowerCase()) + "%");
+        }
+        if (filter.getFrom() != null) {
+            sql.append(" AND j.datetime >= ?");
+            params.add(filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND j.datetime < ?");
+            params.add(filter.getTo());
+        }
+        sql.append(" ORDER BY j.datetime DESC, j.id DESC LIMIT ?");
+        params.add(limit);
+
+        List<Row> rows = new ArrayList<>(limit);
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Row(rs.getLong(1), rs.getTimestamp(2), rs.getString(3), rs.getString(4),
+                            rs.getInt(5), rs.getString(6)));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
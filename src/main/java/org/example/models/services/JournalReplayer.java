@@ -0,0 +1,252 @@
+package org.example.models.services;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams the journal spool to the server in sequence order.
+ *
+ * While SocketService is connected the replayer reads the next records after the last one it
+ * sent and hands them over with sendReplayable(). With the BINARY wire format each read becomes
+ * one BATCH frame carrying the records' spool sequence numbers, and the spool is acknowledged when
+ * the server ACKs them; every connection starts with a HELLO. With TEXT the records go out as
+ * lines and are acknowledged once the socket has flushed them. After every reconnect (new
+ * connection epoch) sending restarts from the acknowledged position, so nothing is lost while
+ * offline.
+ *
+ * BATCH frames are only sent once the server has answered the HELLO. A server that does not
+ * within HELLO_TIMEOUT_MILLIS is taken to speak only the text protocol: the replayer reconnects
+ * and uses TEXT from then on.
+ */
+public class JournalReplayer {
+
+    private static final int BATCH_RECORDS = 512;
+    private static final long MAX_UNACKED_RECORDS = 8_192;
+    private static final long ACK_TIMEOUT_MILLIS = 15_000;
+    private static final long HELLO_TIMEOUT_MILLIS = 5_000;
+    private static final long IDLE_WAIT_MILLIS = 500;
+
+    private final JournalSpool spool;
+    private final SocketService socketService;
+    private volatile JournalWireCodec.Format format;
+    private final int laneId;
+    private final Object signal = new Object();
+    private final AtomicLong flushedSeq = new AtomicLong();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private boolean signalled = false;
+
+    // Replay thread only
+    private long sentSeq;
+    private long lastEpoch = -1;
+    private long lastAckProgressAt = System.currentTimeMillis();
+    private long helloSentAt;
+    private final JournalWireCodec.Encoder encoder = new JournalWireCodec.Encoder();
+
+    // I/O thread only
+    private final JournalWireCodec.FrameReader frameReader = new JournalWireCodec.FrameReader();
+    private long readerEpoch = -1;
+    private volatile long helloAckedEpoch = -1;
+
+    public JournalReplayer(JournalSpool spool, SocketService socketService,
+                           JournalWireCodec.Format format, int laneId) {
+        this.spool = spool;
+        this.socketService = socketService;
+        this.format = format;
+        this.laneId = laneId;
+        this.sentSeq = spool.getAckedSeq();
+        this.flushedSeq.set(spool.getAckedSeq());
+        socketService.addConnectionListener(state -> wakeUp());
+        if (format == JournalWireCodec.Format.BINARY) {
+            socketService.setInboundListener(this::onInbound);
+        }
+        this.thread = new Thread(this::replayLoop, "journal-replay");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /** The wire format in use; BINARY turns into TEXT if the server never answers a HELLO. */
+    public JournalWireCodec.Format getFormat() {
+        return format;
+    }
+
+    /** Called after new lines were appended to the spool. */
+    public void wakeUp() {
+        synchronized (signal) {
+            signalled = true;
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until the spool backlog has been acknowledged, the connection is down, or the timeout
+     * passes, then stops the replay thread.
+     */
+    public void drainAndStop(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (socketService.isConnected() && spool.getBacklog() > 0 && System.currentTimeMillis() < deadline) {
+            wakeUp();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        running = false;
+        wakeUp();
+        try {
+            thread.join(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        applyAcks();
+    }
+
+    private void replayLoop() {
+        while (running) {
+            try {
+                applyAcks();
+                if (!socketService.isConnected()) {
+                    await(IDLE_WAIT_MILLIS);
+                    continue;
+                }
+
+                long epoch = socketService.getConnectionEpoch();
+                if (epoch != lastEpoch) {
+                    // New connection: anything sent on the previous one without an ack is resent
+                    sentSeq = spool.getAckedSeq();
+                    if (format == JournalWireCodec.Format.BINARY
+                            && !socketService.sendReplayable(encoder.hello(laneId, spool.getSpoolId(), sentSeq), epoch, null)) {
+                        await(IDLE_WAIT_MILLIS);
+                        continue;
+                    }
+                    lastEpoch = epoch;
+                    lastAckProgressAt = System.currentTimeMillis();
+                    helloSentAt = lastAckProgressAt;
+                }
+
+                if (format == JournalWireCodec.Format.BINARY && helloAckedEpoch != epoch) {
+                    if (System.currentTimeMillis() - helloSentAt > HELLO_TIMEOUT_MILLIS) {
+                        fallBackToText();
+                    } else {
+                        await(IDLE_WAIT_MILLIS);
+                    }
+                    continue;
+                }
+
+                long acked = spool.getAckedSeq();
+                if (sentSeq < acked) {
+                    sentSeq = acked; // the server already had these (ACKed after HELLO)
+                }
+                if (sentSeq > acked) {
+                    if (System.currentTimeMillis() - lastAckProgressAt > ACK_TIMEOUT_MILLIS) {
+                        System.err.println("[JournalReplayer] No acknowledgement for "
+                                + (sentSeq - acked) + " record(s), resending from seq " + (acked + 1));
+                        sentSeq = acked;
+                        lastAckProgressAt = System.currentTimeMillis();
+                    } else if (sentSeq - acked >= MAX_UNACKED_RECORDS) {
+                        await(IDLE_WAIT_MILLIS);
+                        continue;
+                    }
+                }
+
+                List<JournalSpool.Record> records = spool.read(sentSeq, BATCH_RECORDS);
+                if (records.isEmpty()) {
+                    await(IDLE_WAIT_MILLIS);
+                    continue;
+                }
+                long lastSeq = records.get(records.size() - 1).seq;
+                boolean accepted = format == JournalWireCodec.Format.BINARY
+                        ? socketService.sendReplayable(encodeBatch(records), epoch, null)
+                        : socketService.sendReplayable(textLines(records), epoch, () -> {
+                            flushedSeq.accumulateAndGet(lastSeq, Math::max);
+                            wakeUp();
+                        });
+                if (accepted) {
+                    sentSeq = lastSeq;
+                } else {
+                    await(IDLE_WAIT_MILLIS);
+                }
+            } catch (Exception e) {
+                System.err.println("[JournalReplayer] Replay error: " + e.getMessage());
+                await(IDLE_WAIT_MILLIS);
+            }
+        }
+    }
+
+    // Spool reads are contiguous, so the batch's records are firstSeq, firstSeq + 1, ...
+    private ByteBuffer encodeBatch(List<JournalSpool.Record> records) {
+        List<JournalEvent> events = new ArrayList<>(records.size());
+        for (JournalSpool.Record r : records) {
+            JournalEvent event = JournalWireCodec.fromSpoolRecord(r.line);
+            // A plain text line spooled by an older version travels as the action of an empty event
+            events.add(event != null ? event : new JournalEvent("", 0, r.line, System.currentTimeMillis()));
+        }
+        return encoder.batch(laneId, records.get(0).seq, events);
+    }
+
+    private static List<String> textLines(List<JournalSpool.Record> records) {
+        List<String> lines = new ArrayList<>(records.size());
+        for (JournalSpool.Record r : records) {
+            JournalEvent event = JournalWireCodec.fromSpoolRecord(r.line);
+            lines.add(event != null ? JournalWireCodec.toTextLine(event) : r.line);
+        }
+        return lines;
+    }
+
+    // Server bytes on the I/O thread; a new epoch means a new stream, so partial frames are dropped
+    private void onInbound(long epoch, ByteBuffer data) {
+        if (epoch != readerEpoch) {
+            readerEpoch = epoch;
+            frameReader.reset();
+        }
+        frameReader.feed(data, (type, body) -> {
+            if (type != JournalWireCodec.ACK || body.remaining() < 12) {
+                return;
+            }
+            int lane = body.getInt();
+            long seq = body.getLong();
+            if (lane == laneId) {
+                helloAckedEpoch = epoch;
+                flushedSeq.accumulateAndGet(seq, Math::max);
+                wakeUp();
+            }
+        });
+    }
+
+    // The HELLO went out as bytes a text-only server would print as a line; start a clean connection
+    private void fallBackToText() {
+        System.err.println("[JournalReplayer] No answer to HELLO within " + HELLO_TIMEOUT_MILLIS
+                + " ms, switching the journal to the TEXT wire format");
+        format = JournalWireCodec.Format.TEXT;
+        socketService.disconnect();
+        socketService.connect();
+    }
+
+    // Acks arrive on the I/O thread; the spool (and its file deletes) is only touched from here
+    private void applyAcks() {
+        // A server ACK is never allowed past what this spool has actually written
+        long flushed = Math.min(flushedSeq.get(), spool.getLastSeq());
+        if (flushed > spool.getAckedSeq()) {
+            spool.acknowledge(flushed);
+            lastAckProgressAt = System.currentTimeMillis();
+        }
+    }
+
+    private void await(long millis) {
+        synchronized (signal) {
+            if (!signalled) {
+                try {
+                    signal.wait(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+            signalled = false;
+        }
+    }
+}
@@ -1,60 +1,336 @@
 package org.example.models.services;
 
+import org.example.utils.Money;
+
 import java.sql.*;
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public class JournalService {
 
     private static final SocketService socketService = SocketService.getInstance();
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final JournalWireCodec.Format wireFormat = wireFormat();
+    private static final int laneId = Integer.getInteger("pos.lane.id", 1);
+    // Only for events sent without the spool; the replayer has its own
+    private static final JournalWireCodec.Encoder directEncoder = new JournalWireCodec.Encoder();
+    private static final String INSERT_SQL =
+            "INSERT INTO journal (item_id, item_qty, action, datetime) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO journal (item_id, item_qty, action, datetime, receipt_id) VALUES (NULL, ?, ?, ?, ?)";
+    // Transaction lines go in as multi-row INSERTs of up to this many rows
+    private static final int LINE_ROWS_PER_INSERT = 250;
+    private static final String INSERT_LINES_SQL = insertLinesSql(LINE_ROWS_PER_INSERT);
+
+    // Durable local spool: every event is appended here first and streamed to the server from it
+    private static final JournalSpool spool = openSpool();
+    private static final JournalReplayer replayer =
+            spool == null ? null : new JournalReplayer(spool, socketService, wireFormat, laneId);
+
+    // Write-behind pipeline: log() only enqueues, the journal-writer thread does DB + socket I/O
+    private static final JournalPipeline pipeline = new JournalPipeline(pipelineConfig(), JournalService::writeBatch);
+
+    // In-process subscribers (e.g. the live journal view), told about every batch once it is stored
+    private static final CopyOnWriteArrayList<Consumer<List<JournalEvent>>> listeners = new CopyOnWriteArrayList<>();
 
-    // Updated log method with socket communication
+    /**
+     * Records a journal event. Returns immediately; the event is persisted and forwarded to the
+     * journal server in the next batch.
+     */
     public static void log(String itemId, int qty, String action) {
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT INTO journal (item_id, item_qty, action, datetime) VALUES (?, ?, ?, CURRENT_TIMESTAMP)"
-             )) {
-
-            stmt.setString(1, itemId);
-            stmt.setInt(2, qty);
-            stmt.setString(3, action);
+        pipeline.publish(new JournalEvent(itemId, qty, action, System.currentTimeMillis()));
+    }
+
+    /**
+     * Records a whole transaction (e.g. a voided basket) as one journal entry with compact line
+     * references, instead of one entry per line repeating the action. Returns immediately.
+     */
+    public static void logTransaction(String action, List<JournalEvent.Line> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        pipeline.publish(new JournalEvent(action, 0, lines, System.currentTimeMillis()));
+    }
+
+    // Writes one drained batch as a single JDBC batch, then spools what was stored for the server
+    private static void writeBatch(List<JournalEvent> batch) throws SQLException {
+        List<JournalEvent> stored = batch;
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                insertEvents(conn, batch);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                // One bad row (e.g. an unknown item id failing the FK) must not lose the whole batch
+                stored = insertIndividually(conn, batch);
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        System.out.printf("[Journal] Logged %d entr%s%n", stored.size(), stored.size() == 1 ? "y" : "ies");
+        // Like the table, the server only gets entries whose INSERT succeeded
+        if (!stored.isEmpty()) {
+            spoolForServer(stored);
+        }
+        publish(stored);
+    }
+
+    /**
+     * Registers a listener for stored journal events, delivered in batches in the order they were
+     * logged. Listeners run on the thread that stored the batch and must return quickly.
+     */
+    public static void addEventListener(Consumer<List<JournalEvent>> listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeEventListener(Consumer<List<JournalEvent>> listener) {
+        listeners.remove(listener);
+    }
+
+    private static void publish(List<JournalEvent> events) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        List<JournalEvent> batch = List.copyOf(events);
+        for (Consumer<List<JournalEvent>> listener : listeners) {
+            try {
+                listener.accept(batch);
+            } catch (Exception e) {
+                System.err.println("[Journal] Event listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Inserts events on the caller's connection and transaction; used to journal a sale in the
+     * same transaction as its receipt. Call forwardCommitted() once that transaction commits.
+     */
+    static void insertEvents(Connection conn, List<JournalEvent> events) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            int batched = 0;
+            for (JournalEvent event : events) {
+                if (event.isTransaction()) {
+                    if (batched > 0) {
+                        stmt.executeBatch(); // keep ids in logging order
+                        batched = 0;
+                    }
+                    insertTransaction(conn, event);
+                    continue;
+                }
+                stmt.setString(1, event.getItemId());
+                stmt.setInt(2, event.getQty());
+                stmt.setString(3, event.getAction());
+                stmt.setTimestamp(4, new Timestamp(event.getTimestampMillis()));
+                stmt.addBatch();
+                batched++;
+            }
+            if (batched > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    // One journal row for the transaction, then its lines as multi-row INSERTs
+    private static void insertTransaction(Connection conn, JournalEvent event) throws SQLException {
+        long journalId;
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_TRANSACTION_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, event.getQty());
+            stmt.setString(2, event.getAction());
+            stmt.setTimestamp(3, new Timestamp(event.getTimestampMillis()));
+            if (event.getReceiptId() != 0) {
+                stmt.setLong(4, event.getReceiptId());
+            } else {
+                stmt.setNull(4, Types.BIGINT);
+            }
             stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No id generated for journal transaction");
+                }
+                journalId = keys.getLong(1);
+            }
+        }
 
-            // Create formatted log message for server
-            String timestamp = LocalDateTime.now().format(formatter);
-            String logMessage = String.format("[%s] ItemID: %s | Qty: %d | Action: %s", 
-                                             timestamp, itemId, qty, action);
+        List<JournalEvent.Line> lines = event.getLines();
+        for (int start = 0; start < lines.size(); start += LINE_ROWS_PER_INSERT) {
+            int rows = Math.min(LINE_ROWS_PER_INSERT, lines.size() - start);
+            String sql = rows == LINE_ROWS_PER_INSERT ? INSERT_LINES_SQL : insertLinesSql(rows);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int p = 1;
+                for (int i = start; i < start + rows; i++) {
+                    JournalEvent.Line line = lines.get(i);
+                    stmt.setLong(p++, journalId);
+                    stmt.setInt(p++, i + 1);
+                    stmt.setString(p++, line.getItemId());
+                    stmt.setInt(p++, line.getQty());
+                }
+                stmt.executeUpdate();
+            }
+        }
+    }
 
-            System.out.printf("[Journal] Logged → ItemID: %s | Qty: %d | Action: %s%n", itemId, qty, action);
+    private static String insertLinesSql(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO journal_line (journal_id, line_no, item_id, qty) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
 
-            // Send to server
-            sendLogToServer(logMessage);
+    /** Sends events already committed by insertEvents() to the journal server. */
+    static void forwardCommitted(List<JournalEvent> events) {
+        spoolForServer(events);
+        publish(events);
+    }
 
-        } catch (Exception e) {
-            System.err.println("Journal log error:");
-            e.printStackTrace();
+    // Each entry in its own transaction, so a transaction's row and lines still go in together.
+    // Returns the entries that were stored.
+    private static List<JournalEvent> insertIndividually(Connection conn, List<JournalEvent> batch) throws SQLException {
+        List<JournalEvent> stored = new ArrayList<>(batch.size());
+        conn.setAutoCommit(false);
+        try {
+            for (JournalEvent event : batch) {
+                try {
+                    insertEvents(conn, List.of(event));
+                    conn.commit();
+                    stored.add(event);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    System.err.println("[Journal] Rejected entry for "
+                            + (event.isTransaction() ? "transaction '" + event.getAction() + "'" : "item " + event.getItemId())
+                            + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            conn.setAutoCommit(true);
         }
+        return stored;
+    }
+
+    /**
+     * Pipeline tuning via JVM system properties: pos.journal.capacity, pos.journal.batchSize,
+     * pos.journal.lingerMs, pos.journal.blockTimeoutMs and pos.journal.backpressure
+     * (BLOCK, DROP_NEWEST, DROP_OLDEST or CALLER_RUNS).
+     */
+    private static JournalPipeline.Config pipelineConfig() {
+        JournalPipeline.Config c = new JournalPipeline.Config();
+        c.capacity = Integer.getInteger("pos.journal.capacity", c.capacity);
+        c.batchSize = Math.max(1, Integer.getInteger("pos.journal.batchSize", c.batchSize));
+        c.lingerMillis = Long.getLong("pos.journal.lingerMs", c.lingerMillis);
+        c.blockTimeoutMillis = Long.getLong("pos.journal.blockTimeoutMs", c.blockTimeoutMillis);
+        String policy = System.getProperty("pos.journal.backpressure");
+        if (policy != null && !policy.isBlank()) {
+            try {
+                c.policy = JournalPipeline.BackpressurePolicy.valueOf(policy.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("[Journal] Unknown backpressure policy '" + policy + "', using " + c.policy);
+            }
+        }
+        return c;
     }
 
     // New overloaded log method that accepts tax, appends tax info to action string
-    public static void log(String itemId, int qty, String action, BigDecimal tax) {
+    public static void log(String itemId, int qty, String action, Money tax) {
         // Append tax info to action
-        String actionWithTax = String.format("%s | Tax: $%.2f", action, tax);
+        String actionWithTax = action + " | Tax: " + tax.format();
 
         // Call existing log method
         log(itemId, qty, actionWithTax);
     }
 
-    private static void sendLogToServer(String logMessage) {
+    private static void spoolForServer(List<JournalEvent> events) {
+        if (spool != null) {
+            try {
+                List<String> records = new ArrayList<>(events.size());
+                for (JournalEvent event : events) {
+                    records.add(JournalWireCodec.toSpoolRecord(event));
+                }
+                spool.append(records);
+                replayer.wakeUp();
+                return;
+            } catch (Exception e) {
+                System.err.println("[Journal] Spool append failed, sending directly: " + e.getMessage());
+            }
+        }
+        sendLogsToServer(events);
+    }
+
+    // Without the spool events are sent once, unsequenced, and never acknowledged
+    private static void sendLogsToServer(List<JournalEvent> events) {
+        try {
+            JournalWireCodec.Format format = replayer != null ? replayer.getFormat() : wireFormat;
+            if (format == JournalWireCodec.Format.BINARY) {
+                synchronized (directEncoder) {
+                    socketService.sendFrame(directEncoder.batch(laneId, 0, events));
+                }
+            } else {
+                List<String> lines = new ArrayList<>(events.size());
+                for (JournalEvent event : events) {
+                    lines.add(JournalWireCodec.toTextLine(event));
+                }
+                socketService.sendLogs(lines);
+            }
+        } catch (Exception e) {
+            System.err.println("[Journal] Failed to send logs to server: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Journal protocol via -Dpos.journal.wire: TEXT (default; one human-readable line per event,
+     * no ACKs, what every journal server understands) or BINARY (framed batches with per-lane
+     * sequence numbers and server ACKs; needs a server that speaks it).
+     */
+    private static JournalWireCodec.Format wireFormat() {
+        String value = System.getProperty("pos.journal.wire", "TEXT");
         try {
-            socketService.sendLog(logMessage);
+            return JournalWireCodec.Format.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("[Journal] Unknown journal wire format '" + value + "', using TEXT");
+            return JournalWireCodec.Format.TEXT;
+        }
+    }
+
+    /**
+     * Spool settings via JVM system properties: pos.journal.spool.enabled (default true),
+     * pos.journal.spool.dir (default ./database/journal-spool), pos.journal.spool.segmentBytes
+     * (default 4 MB) and pos.journal.spool.fsync (force each batch to disk, default true).
+     */
+    private static JournalSpool openSpool() {
+        if (!Boolean.parseBoolean(System.getProperty("pos.journal.spool.enabled", "true"))) {
+            return null;
+        }
+        try {
+            return JournalSpool.open(
+                    Paths.get(System.getProperty("pos.journal.spool.dir", "./database/journal-spool")),
+                    Integer.getInteger("pos.journal.spool.segmentBytes", 4 * 1024 * 1024),
+                    Boolean.parseBoolean(System.getProperty("pos.journal.spool.fsync", "true")));
         } catch (Exception e) {
-            System.err.println("[Journal] Failed to send log to server: " + e.getMessage());
+            System.err.println("[Journal] Could not open journal spool, lines go straight to the socket: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Flushes every queued journal event to the database and the server.
+     * Called from Main's shutdown hook before the socket and pool are closed.
+     */
+    public static void flushAndStop() {
+        pipeline.shutdown(5_000);
+        System.out.println("[Journal] Pipeline flushed: " + pipeline.getStats());
+        if (replayer != null) {
+            replayer.drainAndStop(2_000);
+            System.out.println("[Journal] Spool closed with " + spool.getBacklog() + " line(s) awaiting the server");
+            spool.close();
         }
     }
 
+    public static String getPipelineStats() {
+        return pipeline.getStats();
+    }
+
     // Method to manually connect to server (call this during startup)
     public static void connectToServer() {
         socketService.connect();
@@ -0,0 +1,375 @@
+package org.example.models.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, memory-mapped spool of journal lines.
+ *
+ * Lines are written into fixed-size segment files (journal-&lt;firstSeq&gt;.seg) as records of
+ * [int length][int crc32c][long seq][utf-8 payload]. Every record gets the next sequence number.
+ * The highest sequence the journal server has received is kept in spool.ack; segments that are
+ * entirely at or below it are deleted. On startup the segments are rescanned and a torn tail
+ * record (bad length or CRC) marks the end of the data.
+ *
+ * spool.id holds an id chosen when the spool directory is first used (its creation time). A
+ * spool that is deleted and recreated starts its sequences at 1 again under a new id, which
+ * tells the server not to compare them with what it stored from the old one.
+ */
+public class JournalSpool {
+
+    private static final int HEADER_BYTES = 16;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    public static class Record {
+        public final long seq;
+        public final String line;
+
+        Record(long seq, String line) {
+            this.seq = seq;
+            this.line = line;
+        }
+    }
+
+    private static class Segment {
+        final Path path;
+        final long firstSeq;
+        FileChannel channel;
+        MappedByteBuffer map;
+        long lastSeq;
+        int writePos;
+
+        Segment(Path path, long firstSeq) {
+            this.path = path;
+            this.firstSeq = firstSeq;
+            this.lastSeq = firstSeq - 1;
+        }
+
+        boolean isEmpty() {
+            return lastSeq < firstSeq;
+        }
+    }
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final List<Path> pendingDeletes = new ArrayList<>();
+    private final FileChannel ackChannel;
+    private final long spoolId;
+    private final ByteBuffer ackBuffer = ByteBuffer.allocate(8);
+    private final CRC32C crc = new CRC32C();
+    private final ByteBuffer seqBytes = ByteBuffer.allocate(8);
+    private Segment active;
+    private long nextSeq = 1;
+    private volatile long ackedSeq = 0;
+
+    // Read cursor, so sequential replay doesn't rescan segments from the start
+    private long cursorSegment = -1;
+    private int cursorPos;
+    private long cursorSeq = -1;
+
+    private JournalSpool(Path dir, int segmentBytes, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        Files.createDirectories(dir);
+        this.ackChannel = FileChannel.open(dir.resolve("spool.ack"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.spoolId = readOrCreateId(dir.resolve("spool.id"));
+    }
+
+    private static long readOrCreateId(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocate(8);
+            if (channel.size() >= 8) {
+                channel.read(buf, 0);
+                return buf.flip().getLong();
+            }
+            long id = System.currentTimeMillis();
+            buf.putLong(id).flip();
+            channel.write(buf, 0);
+            channel.force(false);
+            return id;
+        }
+    }
+
+    public static JournalSpool open(Path dir, int segmentBytes, boolean fsync) throws IOException {
+        JournalSpool spool = new JournalSpool(dir, Math.max(64 * 1024, segmentBytes), fsync);
+        spool.recover();
+        return spool;
+    }
+
+    /**
+     * Appends lines and returns the sequence number of the last one.
+     */
+    public synchronized long append(List<String> lines) throws IOException {
+        for (String line : lines) {
+            byte[] payload = line.getBytes(StandardCharsets.UTF_8);
+            int needed = HEADER_BYTES + payload.length;
+            if (active == null || active.writePos + needed + 4 > active.map.capacity()) {
+                roll(needed + 4);
+            }
+            long seq = nextSeq++;
+            MappedByteBuffer map = active.map;
+            int pos = active.writePos;
+            map.putInt(pos, payload.length);
+            map.putInt(pos + 4, checksum(seq, payload));
+            map.putLong(pos + 8, seq);
+            map.put(pos + HEADER_BYTES, payload);
+            // zero terminator so recovery stops here even if stale bytes follow
+            map.putInt(pos + needed, 0);
+            active.writePos = pos + needed;
+            active.lastSeq = seq;
+        }
+        if (fsync && active != null) {
+            active.map.force();
+        }
+        return nextSeq - 1;
+    }
+
+    /**
+     * Returns up to maxRecords records with seq greater than afterSeq, in order.
+     */
+    public synchronized List<Record> read(long afterSeq, int maxRecords) {
+        List<Record> out = new ArrayList<>(Math.min(maxRecords, 256));
+        if (afterSeq >= nextSeq - 1) {
+            return out;
+        }
+        long wanted = Math.max(afterSeq + 1, firstAvailableSeq());
+        Map.Entry<Long, Segment> entry = segments.floorEntry(wanted);
+        if (entry == null) {
+            entry = segments.firstEntry();
+        }
+        while (entry != null && out.size() < maxRecords) {
+            Segment seg = entry.getValue();
+            int pos = 0;
+            if (cursorSegment == seg.firstSeq && cursorSeq < wanted && cursorPos <= seg.writePos) {
+                pos = cursorPos;
+            }
+            while (pos < seg.writePos && out.size() < maxRecords) {
+                int len = seg.map.getInt(pos);
+                long seq = seg.map.getLong(pos + 8);
+                int next = pos + HEADER_BYTES + len;
+                if (seq >= wanted) {
+                    byte[] payload = new byte[len];
+                    seg.map.get(pos + HEADER_BYTES, payload);
+                    out.add(new Record(seq, new String(payload, StandardCharsets.UTF_8)));
+                    wanted = seq + 1;
+                }
+                cursorSegment = seg.firstSeq;
+                cursorPos = next;
+                cursorSeq = seq;
+                pos = next;
+            }
+            entry = segments.higherEntry(entry.getKey());
+        }
+        return out;
+    }
+
+    /**
+     * Records that everything up to and including seq reached the server and deletes segments
+     * that are now fully acknowledged.
+     */
+    public synchronized void acknowledge(long seq) {
+        if (seq <= ackedSeq) {
+            return;
+        }
+        ackedSeq = Math.min(seq, nextSeq - 1);
+        try {
+            ackBuffer.clear();
+            ackBuffer.putLong(ackedSeq).flip();
+            ackChannel.write(ackBuffer, 0);
+        } catch (IOException e) {
+            System.err.println("[JournalSpool] Failed to persist ack position: " + e.getMessage());
+        }
+        truncateAcknowledged();
+    }
+
+    public long getAckedSeq() {
+        return ackedSeq;
+    }
+
+    /** Identifies this spool's sequence numbers; see the class comment. */
+    public long getSpoolId() {
+        return spoolId;
+    }
+
+    public synchronized long getLastSeq() {
+        return nextSeq - 1;
+    }
+
+    public synchronized long getBacklog() {
+        return (nextSeq - 1) - ackedSeq;
+    }
+
+    public synchronized void close() {
+        for (Segment seg : segments.values()) {
+            if (fsync && seg == active) {
+                seg.map.force();
+            }
+            closeSegment(seg);
+        }
+        segments.clear();
+        active = null;
+        try {
+            ackChannel.force(false);
+            ackChannel.close();
+        } catch (IOException ignore) {
+            // best effort
+        }
+    }
+
+    private long firstAvailableSeq() {
+        return segments.isEmpty() ? nextSeq : segments.firstKey();
+    }
+
+    private void recover() throws IOException {
+        if (ackChannel.size() >= 8) {
+            ackBuffer.clear();
+            ackChannel.read(ackBuffer, 0);
+            ackBuffer.flip();
+            ackedSeq = ackBuffer.getLong();
+        }
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path p : stream) {
+                files.add(p);
+            }
+        }
+        for (Path p : files) {
+            String name = p.getFileName().toString();
+            long firstSeq;
+            try {
+                firstSeq = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            Segment seg = new Segment(p, firstSeq);
+            seg.channel = FileChannel.open(p, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            seg.map = seg.channel.map(FileChannel.MapMode.READ_WRITE, 0, seg.channel.size());
+            scan(seg);
+            segments.put(firstSeq, seg);
+        }
+
+        long records = 0;
+        for (Segment seg : segments.values()) {
+            if (!seg.isEmpty()) {
+                nextSeq = Math.max(nextSeq, seg.lastSeq + 1);
+                records += seg.lastSeq - seg.firstSeq + 1;
+            }
+        }
+        nextSeq = Math.max(nextSeq, ackedSeq + 1);
+        active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        truncateAcknowledged();
+        if (records > 0) {
+            System.out.println("[JournalSpool] Recovered " + segments.size() + " segment(s), "
+                    + getBacklog() + " unacknowledged line(s)");
+        }
+    }
+
+    // Finds the end of valid data in a segment
+    private void scan(Segment seg) {
+        int pos = 0;
+        int cap = seg.map.capacity();
+        long expected = seg.firstSeq;
+        while (pos + HEADER_BYTES <= cap) {
+            int len = seg.map.getInt(pos);
+            if (len <= 0 || pos + HEADER_BYTES + len > cap) {
+                break;
+            }
+            int storedCrc = seg.map.getInt(pos + 4);
+            long seq = seg.map.getLong(pos + 8);
+            byte[] payload = new byte[len];
+            seg.map.get(pos + HEADER_BYTES, payload);
+            if (seq != expected || checksum(seq, payload) != storedCrc) {
+                System.err.println("[JournalSpool] Torn record in " + seg.path.getFileName() + " at offset " + pos);
+                break;
+            }
+            seg.lastSeq = seq;
+            expected = seq + 1;
+            pos += HEADER_BYTES + len;
+        }
+        seg.writePos = pos;
+    }
+
+    private void roll(int minBytes) throws IOException {
+        if (active != null && fsync) {
+            active.map.force();
+        }
+        long firstSeq = nextSeq;
+        Path path = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX));
+        Segment seg = new Segment(path, firstSeq);
+        seg.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        seg.map = seg.channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, minBytes));
+        Segment previous = active;
+        // An empty active segment (e.g. a record too large for it) is replaced rather than kept
+        if (previous != null && previous.isEmpty()) {
+            segments.remove(previous.firstSeq);
+            closeSegment(previous);
+            pendingDeletes.add(previous.path);
+        }
+        segments.put(firstSeq, seg);
+        active = seg;
+        truncateAcknowledged();
+    }
+
+    private void truncateAcknowledged() {
+        Iterator<Segment> it = segments.values().iterator();
+        while (it.hasNext()) {
+            Segment seg = it.next();
+            if (seg == active || seg.isEmpty() || seg.lastSeq > ackedSeq) {
+                break;
+            }
+            it.remove();
+            closeSegment(seg);
+            pendingDeletes.add(seg.path);
+            if (cursorSegment == seg.firstSeq) {
+                cursorSegment = -1;
+            }
+        }
+        // Deletes can fail while a mapping is still alive on some platforms; retry next time
+        pendingDeletes.removeIf(p -> {
+            try {
+                Files.deleteIfExists(p);
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        });
+    }
+
+    private void closeSegment(Segment seg) {
+        seg.map = null;
+        try {
+            seg.channel.close();
+        } catch (IOException ignore) {
+            // best effort
+        }
+    }
+
+    private int checksum(long seq, byte[] payload) {
+        crc.reset();
+        seqBytes.clear();
+        seqBytes.putLong(seq).flip();
+        crc.update(seqBytes);
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,421 @@
+package org.example.models.services;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary journal protocol and the compact spool record it is built from.
+ *
+ * Every frame is [int length][byte type][body], big-endian, where length counts the type byte
+ * and the body:
+ * <pre>
+ * HELLO (client, first frame on a connection)  [byte version][int laneId][long spoolId][long ackedSeq]
+ * BATCH (client)                               [int laneId][long firstSeq][int count] count x record
+ *   item record                                [byte 0][long timeMillis][int qty][byte idLen][id utf-8]
+ *                                              [short actionLen][action utf-8]
+ *   transaction record                         [byte 1][long timeMillis][short actionLen][action utf-8]
+ *                                              [long receiptId][int lineCount] lineCount x line
+ *     line                                     [byte idLen][id utf-8][int qty]
+ * ACK   (server)                               [int laneId][long seq]
+ * </pre>
+ * Records in a BATCH carry the sequence numbers firstSeq, firstSeq + 1, ... from the journal
+ * spool; firstSeq 0 marks events that were not spooled and expect no ACK. The server ACKs the
+ * highest sequence it has stored for the lane, and ignores records at or below it, so resending
+ * after a reconnect is safe. HELLO carries the client's last ACKed sequence so a server without
+ * state for the lane can pick up from there, and the id of the spool the sequences come from: when
+ * it changes (the register's spool was reset and counts from 1 again) the server takes the HELLO's
+ * sequence as the lane's position instead of keeping a higher one from the old spool. Version 2
+ * HELLOs have no spoolId; version 1 had no transaction records.
+ *
+ * Spooled events are stored as one tab-separated line, "E1 time qty itemId action" for an item
+ * and "T1 time receiptId action itemId qty itemId qty ..." for a transaction, with tab, CR, LF
+ * and backslash escaped in the text fields.
+ */
+public class JournalWireCodec {
+
+    public enum Format {
+        /** Framed batches with sequence numbers and server ACKs. */
+        BINARY,
+        /** The original protocol: one readable line per event, no ACKs. */
+        TEXT
+    }
+
+    public static final byte VERSION = 3;
+    public static final byte HELLO = 1;
+    public static final byte BATCH = 2;
+    public static final byte ACK = 3;
+    public static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    private static final String SPOOL_FORMAT = "E1";
+    private static final String SPOOL_TRANSACTION_FORMAT = "T1";
+    private static final byte ITEM_RECORD = 0;
+    private static final byte TRANSACTION_RECORD = 1;
+    private static final DateTimeFormatter TEXT_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int MAX_ID_BYTES = 255;
+    private static final int MAX_ACTION_BYTES = 65_535;
+
+    /** One decoded HELLO frame; spoolId is 0 for clients older than version 3. */
+    public static final class Hello {
+        public final byte version;
+        public final int laneId;
+        public final long spoolId;
+        public final long ackedSeq;
+
+        Hello(byte version, int laneId, long spoolId, long ackedSeq) {
+            this.version = version;
+            this.laneId = laneId;
+            this.spoolId = spoolId;
+            this.ackedSeq = ackedSeq;
+        }
+    }
+
+    /** One decoded BATCH frame. */
+    public static final class Batch {
+        public final int laneId;
+        public final long firstSeq;
+        public final List<JournalEvent> events;
+
+        Batch(int laneId, long firstSeq, List<JournalEvent> events) {
+            this.laneId = laneId;
+            this.firstSeq = firstSeq;
+            this.events = events;
+        }
+    }
+
+    // ---------------------------------------------------------------- text protocol
+
+    /**
+     * The TEXT protocol line: "[yyyy-MM-dd HH:mm:ss] ItemID: id | Qty: n | Action: action"; a
+     * transaction has ItemID "-" and ends with " | Receipt: id | Lines: id1xqty1 id2xqty2 ...".
+     */
+    public static String toTextLine(JournalEvent event) {
+        String time = LocalDateTime.ofInstant(Instant.ofEpochMilli(event.getTimestampMillis()), ZoneId.systemDefault())
+                .format(TEXT_TIME);
+        StringBuilder sb = new StringBuilder(64)
+                .append('[').append(time).append("] ItemID: ").append(event.isTransaction() ? "-" : event.getItemId())
+                .append(" | Qty: ").append(event.getQty())
+                .append(" | Action: ").append(event.getAction());
+        if (event.isTransaction()) {
+            if (event.getReceiptId() != 0) {
+                sb.append(" | Receipt: ").append(event.getReceiptId());
+            }
+            sb.append(" | Lines:");
+            for (JournalEvent.Line line : event.getLines()) {
+                sb.append(' ').append(line.getItemId()).append('x').append(line.getQty());
+            }
+        }
+        return sb.toString();
+    }
+
+    // ---------------------------------------------------------------- spool records
+
+    public static String toSpoolRecord(JournalEvent event) {
+        if (event.isTransaction()) {
+            return toTransactionRecord(event);
+        }
+        String action = event.getAction();
+        StringBuilder sb = new StringBuilder(32 + (action == null ? 0 : action.length()));
+        sb.append(SPOOL_FORMAT).append('\t').append(event.getTimestampMillis()).append('\t').append(event.getQty());
+        appendEscaped(sb.append('\t'), event.getItemId());
+        appendEscaped(sb.append('\t'), action);
+        return sb.toString();
+    }
+
+    private static String toTransactionRecord(JournalEvent event) {
+        List<JournalEvent.Line> lines = event.getLines();
+        StringBuilder sb = new StringBuilder(48 + lines.size() * 20);
+        sb.append(SPOOL_TRANSACTION_FORMAT).append('\t').append(event.getTimestampMillis())
+                .append('\t').append(event.getReceiptId());
+        appendEscaped(sb.append('\t'), event.getAction());
+        for (JournalEvent.Line line : lines) {
+            appendEscaped(sb.append('\t'), line.getItemId());
+            sb.append('\t').append(line.getQty());
+        }
+        return sb.toString();
+    }
+
+    /** Parses a line written by toSpoolRecord(), or returns null for anything else. */
+    public static JournalEvent fromSpoolRecord(String line) {
+        String[] f = line.split("\t", -1);
+        try {
+            if (f.length == 5 && SPOOL_FORMAT.equals(f[0])) {
+                return new JournalEvent(unescape(f[3]), Integer.parseInt(f[2]), unescape(f[4]), Long.parseLong(f[1]));
+            }
+            if (f.length >= 6 && f.length % 2 == 0 && SPOOL_TRANSACTION_FORMAT.equals(f[0])) {
+                List<JournalEvent.Line> lines = new ArrayList<>((f.length - 4) / 2);
+                for (int i = 4; i < f.length; i += 2) {
+                    lines.add(new JournalEvent.Line(unescape(f[i]), Integer.parseInt(f[i + 1])));
+                }
+                return new JournalEvent(unescape(f[3]), Long.parseLong(f[2]), lines, Long.parseLong(f[1]));
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return null;
+    }
+
+    private static void appendEscaped(StringBuilder sb, String s) {
+        if (s == null) {
+            return;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != '\\' || i + 1 == s.length()) {
+                sb.append(c);
+                continue;
+            }
+            char next = s.charAt(++i);
+            switch (next) {
+                case 't' -> sb.append('\t');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                default -> sb.append(next);
+            }
+        }
+        return sb.toString();
+    }
+
+    // ---------------------------------------------------------------- encoding
+
+    /**
+     * Encodes frames into one reused buffer, so steady-state encoding allocates nothing. The
+     * returned buffer is only valid until the next call; SocketService copies it. Not thread-safe.
+     */
+    public static final class Encoder {
+        private ByteBuffer buf = ByteBuffer.allocate(16 * 1024);
+
+        public ByteBuffer hello(int laneId, long spoolId, long ackedSeq) {
+            begin(HELLO);
+            buf.put(VERSION).putInt(laneId).putLong(spoolId).putLong(ackedSeq);
+            return end();
+        }
+
+        public ByteBuffer batch(int laneId, long firstSeq, List<JournalEvent> events) {
+            begin(BATCH);
+            buf.putInt(laneId).putLong(firstSeq).putInt(events.size());
+            for (JournalEvent event : events) {
+                if (event.isTransaction()) {
+                    ensure(1 + 8);
+                    buf.put(TRANSACTION_RECORD).putLong(event.getTimestampMillis());
+                    putString(event.getAction(), 2, MAX_ACTION_BYTES);
+                    ensure(8 + 4);
+                    buf.putLong(event.getReceiptId()).putInt(event.getLines().size());
+                    for (JournalEvent.Line line : event.getLines()) {
+                        putString(line.getItemId(), 1, MAX_ID_BYTES);
+                        ensure(4);
+                        buf.putInt(line.getQty());
+                    }
+                } else {
+                    ensure(1 + 8 + 4);
+                    buf.put(ITEM_RECORD).putLong(event.getTimestampMillis()).putInt(event.getQty());
+                    putString(event.getItemId(), 1, MAX_ID_BYTES);
+                    putString(event.getAction(), 2, MAX_ACTION_BYTES);
+                }
+            }
+            return end();
+        }
+
+        public ByteBuffer ack(int laneId, long seq) {
+            begin(ACK);
+            buf.putInt(laneId).putLong(seq);
+            return end();
+        }
+
+        private void begin(byte type) {
+            buf.clear();
+            buf.putInt(0).put(type);
+        }
+
+        private ByteBuffer end() {
+            buf.putInt(0, buf.position() - 4);
+            buf.flip();
+            return buf;
+        }
+
+        // Writes a length-prefixed UTF-8 string straight into the buffer, cut at maxBytes
+        private void putString(String s, int lengthBytes, int maxBytes) {
+            if (s == null) {
+                s = "";
+            }
+            ensure(lengthBytes + Math.min(maxBytes, s.length() * 3));
+            int lengthAt = buf.position();
+            buf.position(lengthAt + lengthBytes);
+            int start = buf.position();
+            for (int i = 0; i < s.length(); i++) {
+                int cp = s.codePointAt(i);
+                int size = cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+                if (buf.position() - start + size > maxBytes) {
+                    break;
+                }
+                if (cp < 0x80) {
+                    buf.put((byte) cp);
+                } else if (cp < 0x800) {
+                    buf.put((byte) (0xC0 | (cp >> 6))).put((byte) (0x80 | (cp & 0x3F)));
+                } else if (cp < 0x10000) {
+                    buf.put((byte) (0xE0 | (cp >> 12))).put((byte) (0x80 | ((cp >> 6) & 0x3F)))
+                            .put((byte) (0x80 | (cp & 0x3F)));
+                } else {
+                    buf.put((byte) (0xF0 | (cp >> 18))).put((byte) (0x80 | ((cp >> 12) & 0x3F)))
+                            .put((byte) (0x80 | ((cp >> 6) & 0x3F))).put((byte) (0x80 | (cp & 0x3F)));
+                    i++; // surrogate pair
+                }
+            }
+            int length = buf.position() - start;
+            if (lengthBytes == 1) {
+                buf.put(lengthAt, (byte) length);
+            } else {
+                buf.putShort(lengthAt, (short) length);
+            }
+        }
+
+        private void ensure(int bytes) {
+            if (buf.remaining() >= bytes) {
+                return;
+            }
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + bytes));
+            buf.flip();
+            bigger.put(buf);
+            buf = bigger;
+        }
+    }
+
+    // ---------------------------------------------------------------- decoding
+
+    /**
+     * Reassembles frames from a byte stream that may split them anywhere.
+     */
+    public static final class FrameReader {
+        private ByteBuffer pending = ByteBuffer.allocate(4 * 1024);
+
+        public interface Handler {
+            void frame(byte type, ByteBuffer body);
+        }
+
+        /**
+         * Appends bytes and hands every complete frame to the handler; body is only valid during
+         * the call. Throws IllegalStateException on a frame length the protocol does not allow.
+         */
+        public void feed(ByteBuffer data, Handler handler) {
+            if (pending.remaining() < data.remaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + data.remaining()));
+                pending.flip();
+                bigger.put(pending);
+                pending = bigger;
+            }
+            pending.put(data);
+            pending.flip();
+            while (pending.remaining() >= 4) {
+                int length = pending.getInt(pending.position());
+                if (length < 1 || length > MAX_FRAME_BYTES) {
+                    throw new IllegalStateException("Bad journal frame length " + length);
+                }
+                if (pending.remaining() < 4 + length) {
+                    break;
+                }
+                int frameEnd = pending.position() + 4 + length;
+                byte type = pending.get(pending.position() + 4);
+                ByteBuffer body = pending.duplicate();
+                body.position(pending.position() + 5).limit(frameEnd);
+                handler.frame(type, body.slice());
+                pending.position(frameEnd);
+            }
+            pending.compact();
+        }
+
+        public void reset() {
+            pending.clear();
+        }
+    }
+
+    /**
+     * Reads a HELLO body of any version up to VERSION. Throws IllegalArgumentException for a newer
+     * version or a truncated body.
+     */
+    public static Hello readHello(ByteBuffer body) {
+        try {
+            byte version = body.get();
+            if (version < 1 || version > VERSION) {
+                throw new IllegalArgumentException("Unsupported protocol version " + version);
+            }
+            int laneId = body.getInt();
+            long spoolId = version >= 3 ? body.getLong() : 0;
+            return new Hello(version, laneId, spoolId, body.getLong());
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated journal hello", e);
+        }
+    }
+
+    /** Reads a BATCH body. Throws IllegalArgumentException if it is truncated. */
+    public static Batch readBatch(ByteBuffer body) {
+        try {
+            int laneId = body.getInt();
+            long firstSeq = body.getLong();
+            int count = body.getInt();
+            if (count < 0 || count > body.remaining() / 16) {
+                throw new IllegalArgumentException("Bad record count " + count);
+            }
+            List<JournalEvent> events = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte kind = body.get();
+                long time = body.getLong();
+                if (kind == TRANSACTION_RECORD) {
+                    String action = readString(body, body.getShort() & 0xFFFF);
+                    long receiptId = body.getLong();
+                    int lineCount = body.getInt();
+                    if (lineCount < 0 || lineCount > body.remaining() / 5) {
+                        throw new IllegalArgumentException("Bad line count " + lineCount);
+                    }
+                    List<JournalEvent.Line> lines = new ArrayList<>(lineCount);
+                    for (int j = 0; j < lineCount; j++) {
+                        String itemId = readString(body, body.get() & 0xFF);
+                        lines.add(new JournalEvent.Line(itemId, body.getInt()));
+                    }
+                    events.add(new JournalEvent(action, receiptId, lines, time));
+                } else if (kind == ITEM_RECORD) {
+                    int qty = body.getInt();
+                    String itemId = readString(body, body.get() & 0xFF);
+                    String action = readString(body, body.getShort() & 0xFFFF);
+                    events.add(new JournalEvent(itemId, qty, action, time));
+                } else {
+                    throw new IllegalArgumentException("Unknown record kind " + kind);
+                }
+            }
+            return new Batch(laneId, firstSeq, events);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated journal batch", e);
+        }
+    }
+
+    private static String readString(ByteBuffer body, int length) {
+        if (length > body.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String s = new String(body.array(), body.arrayOffset() + body.position(), length, StandardCharsets.UTF_8);
+        body.position(body.position() + length);
+        return s;
+    }
+}
@@ -0,0 +1,382 @@
+package org.example.models.services;
+
+import org.example.utils.Money;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embedded rule-based discount engine, the local stand-in for the discount service.
+ *
+ * Rules come from a tab-separated file (see resources/discount-rules.tsv for the format): percent
+ * off the basket, percent off items, mix-and-match (buy N get M free within a group of items) and
+ * spend thresholds. At load time the rules are compiled per discount name, with the "*" rules
+ * merged in, into a rule set whose item rules are indexed by item id, so evaluating a basket is a
+ * single pass over its lines plus a sort of the lines that fall in a mix-and-match group. All
+ * arithmetic is in cents.
+ *
+ * The rules file is -Dpos.discount.rules.file, or discount-rules.tsv on the classpath.
+ */
+public class LocalDiscountEngine {
+
+    private static final String WILDCARD = "*";
+
+    private static volatile LocalDiscountEngine defaultEngine;
+
+    // Item rules for one item within a rule set
+    private static final class ItemRule {
+        int percentBps;
+        int group = -1;
+    }
+
+    private static final class MixMatch {
+        final int buy;
+        final int free;
+
+        MixMatch(int buy, int free) {
+            this.buy = buy;
+            this.free = free;
+        }
+    }
+
+    // Everything that applies when one discount name is picked
+    private static final class RuleSet {
+        final Map<String, ItemRule> byItem = new HashMap<>();
+        final List<MixMatch> groups = new ArrayList<>();
+        long[] thresholdMinCents = new long[0];
+        long[] thresholdOffCents = new long[0];
+        int basketPercentBps;
+
+        void addThreshold(long minCents, long offCents) {
+            int n = thresholdMinCents.length;
+            thresholdMinCents = Arrays.copyOf(thresholdMinCents, n + 1);
+            thresholdOffCents = Arrays.copyOf(thresholdOffCents, n + 1);
+            thresholdMinCents[n] = minCents;
+            thresholdOffCents[n] = offCents;
+        }
+
+        ItemRule item(String id) {
+            return byItem.computeIfAbsent(id, k -> new ItemRule());
+        }
+    }
+
+    // One parsed line, kept until compile()
+    private static final class RuleLine {
+        final String discount;
+        final String[] cols;
+
+        RuleLine(String discount, String[] cols) {
+            this.discount = discount;
+            this.cols = cols;
+        }
+    }
+
+    private final Map<String, RuleSet> sets;
+    private final RuleSet defaultSet;
+    private final int ruleCount;
+
+    private LocalDiscountEngine(List<RuleLine> rules) {
+        Map<String, List<RuleLine>> byName = new LinkedHashMap<>();
+        List<RuleLine> wildcard = new ArrayList<>();
+        for (RuleLine rule : rules) {
+            if (WILDCARD.equals(rule.discount)) {
+                wildcard.add(rule);
+            } else {
+                byName.computeIfAbsent(rule.discount, k -> new ArrayList<>()).add(rule);
+            }
+        }
+        this.sets = new HashMap<>();
+        for (Map.Entry<String, List<RuleLine>> e : byName.entrySet()) {
+            List<RuleLine> merged = new ArrayList<>(wildcard);
+            merged.addAll(e.getValue());
+            sets.put(e.getKey(), compile(merged));
+        }
+        this.defaultSet = compile(wildcard);
+        this.ruleCount = rules.size();
+    }
+
+    /**
+     * The engine for the configured rules file, loaded on first use. Empty if there is no file.
+     */
+    public static LocalDiscountEngine getDefault() {
+        LocalDiscountEngine engine = defaultEngine;
+        if (engine == null) {
+            synchronized (LocalDiscountEngine.class) {
+                engine = defaultEngine;
+                if (engine == null) {
+                    engine = loadConfigured();
+                    defaultEngine = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    public static LocalDiscountEngine load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader, file.toString());
+        }
+    }
+
+    public static LocalDiscountEngine parse(Reader reader, String sourceName) throws IOException {
+        List<RuleLine> rules = new ArrayList<>();
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String line;
+        int lineNo = 0;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] cols = line.split("\t");
+            for (int i = 0; i < cols.length; i++) {
+                cols[i] = cols[i].trim();
+            }
+            String problem = validate(cols);
+            if (problem != null) {
+                System.err.println("[LocalDiscountEngine] Skipping " + sourceName + ":" + lineNo + ": " + problem);
+                continue;
+            }
+            rules.add(new RuleLine(cols[0], cols));
+        }
+        return new LocalDiscountEngine(rules);
+    }
+
+    public boolean hasRules() {
+        return ruleCount > 0;
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * Prices a basket for the named discount. Unknown names get only the "*" rules.
+     */
+    public BasketPricingServiceClient.BasketResult evaluate(List<BasketPricingServiceClient.LineItem> items, String discountName) {
+        RuleSet rs = discountName == null ? defaultSet : sets.getOrDefault(discountName, defaultSet);
+        long original = 0;
+        long itemOff = 0;
+        long[][] groupUnits = null; // per group: pairs of (unit cents, qty)
+        int[] groupSizes = null;
+
+        if (items != null) {
+            for (BasketPricingServiceClient.LineItem it : items) {
+                long unit = it.unitPriceCents;
+                int qty = it.qty;
+                original += unit * qty;
+                ItemRule rule = rs.byItem.isEmpty() ? null : rs.byItem.get(it.id);
+                if (rule == null || qty <= 0) {
+                    continue;
+                }
+                if (rule.percentBps > 0) {
+                    long off = percentOf(unit * qty, rule.percentBps);
+                    itemOff += off;
+                    unit -= percentOf(unit, rule.percentBps);
+                }
+                if (rule.group >= 0) {
+                    if (groupUnits == null) {
+                        groupUnits = new long[rs.groups.size()][];
+                        groupSizes = new int[rs.groups.size()];
+                    }
+                    long[] units = groupUnits[rule.group];
+                    int n = groupSizes[rule.group];
+                    if (units == null) {
+                        units = new long[8];
+                    } else if (n + 2 > units.length) {
+                        units = Arrays.copyOf(units, units.length * 2);
+                    }
+                    units[n] = unit;
+                    units[n + 1] = qty;
+                    groupUnits[rule.group] = units;
+                    groupSizes[rule.group] = n + 2;
+                }
+            }
+        }
+
+        if (groupUnits != null) {
+            for (int g = 0; g < groupUnits.length; g++) {
+                if (groupUnits[g] != null) {
+                    itemOff += mixMatchOff(rs.groups.get(g), groupUnits[g], groupSizes[g]);
+                }
+            }
+        }
+
+        long after = Math.max(0, original - itemOff);
+        long bestThreshold = 0;
+        for (int i = 0; i < rs.thresholdMinCents.length; i++) {
+            if (after >= rs.thresholdMinCents[i]) {
+                bestThreshold = Math.max(bestThreshold, rs.thresholdOffCents[i]);
+            }
+        }
+        after = Math.max(0, after - bestThreshold);
+        after -= percentOf(after, rs.basketPercentBps);
+
+        BasketPricingServiceClient.BasketResult r = new BasketPricingServiceClient.BasketResult();
+        r.originalSubtotal = Money.ofCents(original);
+        r.discountName = discountName;
+        r.discountAmount = Money.ofCents(original - after);
+        r.discountedSubtotal = Money.ofCents(after);
+        r.discountPercentage = original > 0 ? (original - after) * 100.0 / original : 0.0;
+        return r;
+    }
+
+    private static LocalDiscountEngine loadConfigured() {
+        String configured = System.getProperty("pos.discount.rules.file");
+        try {
+            if (configured != null && !configured.isBlank()) {
+                Path file = Paths.get(configured.trim());
+                if (Files.isRegularFile(file)) {
+                    LocalDiscountEngine engine = load(file);
+                    System.out.println("[LocalDiscountEngine] Loaded " + engine.ruleCount + " rule(s) from " + file);
+                    return engine;
+                }
+                System.err.println("[LocalDiscountEngine] Rules file not found: " + file);
+            } else {
+                try (InputStream in = LocalDiscountEngine.class.getClassLoader().getResourceAsStream("discount-rules.tsv")) {
+                    if (in != null) {
+                        LocalDiscountEngine engine = parse(new InputStreamReader(in, StandardCharsets.UTF_8), "discount-rules.tsv");
+                        System.out.println("[LocalDiscountEngine] Loaded " + engine.ruleCount + " rule(s) from discount-rules.tsv");
+                        return engine;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[LocalDiscountEngine] Failed to load rules: " + e.getMessage());
+        }
+        return new LocalDiscountEngine(new ArrayList<>());
+    }
+
+    private static String validate(String[] cols) {
+        if (cols.length < 3) {
+            return "expected <discount> <type> <params...>";
+        }
+        try {
+            switch (cols[1]) {
+                case "BASKET_PERCENT":
+                    parsePercentBps(cols[2]);
+                    return null;
+                case "ITEM_PERCENT":
+                    parsePercentBps(cols[2]);
+                    return cols.length < 4 || cols[3].isEmpty() ? "ITEM_PERCENT needs item ids" : null;
+                case "MIX_MATCH":
+                    if (cols.length < 5 || cols[4].isEmpty()) {
+                        return "MIX_MATCH needs <buy> <free> <itemIds>";
+                    }
+                    if (Integer.parseInt(cols[2]) < 1 || Integer.parseInt(cols[3]) < 1) {
+                        return "MIX_MATCH quantities must be positive";
+                    }
+                    return null;
+                case "THRESHOLD":
+                    if (cols.length < 4) {
+                        return "THRESHOLD needs <minSubtotal> <amountOff>";
+                    }
+                    toCents(cols[2]);
+                    toCents(cols[3]);
+                    return null;
+                default:
+                    return "unknown rule type " + cols[1];
+            }
+        } catch (NumberFormatException | ArithmeticException e) {
+            return "bad number (" + e.getMessage() + ")";
+        }
+    }
+
+    private static RuleSet compile(List<RuleLine> rules) {
+        RuleSet rs = new RuleSet();
+        for (RuleLine rule : rules) {
+            String[] c = rule.cols;
+            switch (c[1]) {
+                case "BASKET_PERCENT":
+                    rs.basketPercentBps = Math.max(rs.basketPercentBps, parsePercentBps(c[2]));
+                    break;
+                case "ITEM_PERCENT": {
+                    int bps = parsePercentBps(c[2]);
+                    for (String id : c[3].split(",")) {
+                        ItemRule ir = rs.item(id.trim());
+                        ir.percentBps = Math.max(ir.percentBps, bps);
+                    }
+                    break;
+                }
+                case "MIX_MATCH": {
+                    int group = rs.groups.size();
+                    rs.groups.add(new MixMatch(Integer.parseInt(c[2]), Integer.parseInt(c[3])));
+                    for (String id : c[4].split(",")) {
+                        ItemRule ir = rs.item(id.trim());
+                        if (ir.group < 0) {
+                            ir.group = group; // an item belongs to its first group only
+                        }
+                    }
+                    break;
+                }
+                case "THRESHOLD":
+                    rs.addThreshold(toCents(c[2]), toCents(c[3]));
+                    break;
+                default:
+                    break;
+            }
+        }
+        return rs;
+    }
+
+    // Free units are the cheapest ones in the group
+    private static long mixMatchOff(MixMatch mm, long[] units, int size) {
+        long totalQty = 0;
+        int pairs = size / 2;
+        for (int i = 0; i < pairs; i++) {
+            totalQty += units[2 * i + 1];
+        }
+        long freeUnits = totalQty / (mm.buy + mm.free) * mm.free;
+        if (freeUnits == 0) {
+            return 0;
+        }
+        Integer[] order = new Integer[pairs];
+        for (int i = 0; i < pairs; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(units[2 * a], units[2 * b]));
+        long off = 0;
+        for (int idx : order) {
+            if (freeUnits == 0) {
+                break;
+            }
+            long take = Math.min(freeUnits, units[2 * idx + 1]);
+            off += take * units[2 * idx];
+            freeUnits -= take;
+        }
+        return off;
+    }
+
+    // Half-up share of cents for a percentage in basis points
+    private static long percentOf(long cents, int bps) {
+        return bps <= 0 ? 0 : Money.multiply(cents, bps, 10_000, RoundingMode.HALF_UP);
+    }
+
+    private static int parsePercentBps(String s) {
+        int bps = new BigDecimal(s).movePointRight(2).setScale(0, RoundingMode.HALF_UP).intValueExact();
+        if (bps < 0 || bps > 10_000) {
+            throw new NumberFormatException("percent out of range: " + s);
+        }
+        return bps;
+    }
+
+    private static long toCents(String s) {
+        return Money.parse(s).getCents();
+    }
+}
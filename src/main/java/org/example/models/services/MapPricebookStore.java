@@ -0,0 +1,63 @@
+package org.example.models.services;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The original pricebook cache: String keyed hash maps holding Item objects.
+ */
+public class MapPricebookStore implements PricebookStore {
+
+    // Rough per-entry heap cost of two map nodes, two Strings, an Item and a BigDecimal
+    private static final int ESTIMATED_BYTES_PER_ITEM = 320;
+
+    // Thread-safe cache for fast lookups
+    private final Map<String, Item> cacheById = new ConcurrentHashMap<>();
+    private final Map<String, String> cacheIdByName = new ConcurrentHashMap<>();
+
+    public static Builder builder() {
+        MapPricebookStore store = new MapPricebookStore();
+        return new Builder() {
+            @Override
+            public void add(String id, String name, BigDecimal price) {
+                store.cacheById.put(id, new Item(id, name, price));
+                store.cacheIdByName.put(name, id);
+            }
+
+            @Override
+            public PricebookStore build() {
+                return store;
+            }
+        };
+    }
+
+    @Override
+    public Item getItemById(String id) {
+        return cacheById.get(id);
+    }
+
+    @Override
+    public Optional<String> getIdByName(String name) {
+        return Optional.ofNullable(cacheIdByName.get(name));
+    }
+
+    @Override
+    public List<String> getAllProductNames() {
+        return new ArrayList<>(cacheIdByName.keySet());
+    }
+
+    @Override
+    public int size() {
+        return cacheById.size();
+    }
+
+    @Override
+    public String footprintReport() {
+        long estimate = (long) cacheById.size() * ESTIMATED_BYTES_PER_ITEM;
+        return String.format("map store: %d items, ~%d KB estimated heap", cacheById.size(), estimate / 1024);
+    }
+}
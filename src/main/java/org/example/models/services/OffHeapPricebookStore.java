@@ -0,0 +1,304 @@
+package org.example.models.services;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compact pricebook store for large catalogs.
+ *
+ * UPC/PLU codes are encoded as longs (digit count in the top bits so leading zeros survive),
+ * prices are kept as long cents, and all product names live in one shared off-heap UTF-8 arena.
+ * Lookups go through two open-addressing int tables (by code and by name) over parallel primitive
+ * arrays; an Item is only created when getItemById() is called. Codes that are not purely numeric
+ * (or longer than 17 digits) fall back to a small side map.
+ */
+public class OffHeapPricebookStore implements PricebookStore {
+
+    private static final long NOT_NUMERIC = -1L;
+    private static final int LENGTH_SHIFT = 57;
+    private static final long VALUE_MASK = (1L << LENGTH_SHIFT) - 1;
+    private static final int MAX_NUMERIC_DIGITS = 17;
+
+    private final int count;
+    private final long[] codes;
+    private final long[] priceCents;
+    private final int[] nameOffsets;   // count + 1 entries; name i spans [nameOffsets[i], nameOffsets[i + 1])
+    private final ByteBuffer names;    // direct, shared arena
+    private final int[] codeTable;     // entry + 1, 0 = empty
+    private final int[] nameTable;     // entry + 1, 0 = empty
+    private final Map<String, Integer> textIdIndex;
+    private final Map<Integer, String> textIds;
+
+    private OffHeapPricebookStore(Builder b) {
+        this.count = b.count;
+        this.codes = Arrays.copyOf(b.codes, count);
+        this.priceCents = Arrays.copyOf(b.prices, count);
+        this.nameOffsets = Arrays.copyOf(b.offsets, count + 1);
+        this.names = ByteBuffer.allocateDirect(Math.max(1, b.arenaSize));
+        this.names.put(b.arena, 0, b.arenaSize).flip();
+        this.textIdIndex = b.textIdIndex;
+        this.textIds = b.textIds;
+
+        this.codeTable = new int[tableSize(count)];
+        this.nameTable = new int[tableSize(count)];
+        for (int i = 0; i < count; i++) {
+            if (codes[i] != NOT_NUMERIC) {
+                insertCode(i);
+            }
+            insertName(i);
+        }
+    }
+
+    public static PricebookStore.Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Item getItemById(String id) {
+        int entry = findEntry(id);
+        return entry < 0 ? null : materialize(entry);
+    }
+
+    @Override
+    public Optional<String> getIdByName(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        int entry = findName(name.getBytes(StandardCharsets.UTF_8));
+        return entry < 0 ? Optional.empty() : Optional.of(idOf(entry));
+    }
+
+    @Override
+    public List<String> getAllProductNames() {
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = nameBytes(i);
+            // Skip entries whose name was re-registered by a later row
+            if (findName(bytes) == i) {
+                result.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public String footprintReport() {
+        long heap = 8L * codes.length + 8L * priceCents.length + 4L * nameOffsets.length
+                + 4L * codeTable.length + 4L * nameTable.length;
+        long offHeap = names.capacity();
+        return String.format("off-heap store: %d items, %d KB heap (codes/prices/index) + %d KB off-heap names, %d non-numeric ids",
+                count, heap / 1024, offHeap / 1024, textIdIndex.size());
+    }
+
+    // ---------------------------------------------------------------- lookups
+
+    private int findEntry(String id) {
+        if (id == null) {
+            return -1;
+        }
+        long code = encode(id);
+        if (code == NOT_NUMERIC) {
+            Integer entry = textIdIndex.get(id);
+            return entry == null ? -1 : entry;
+        }
+        int mask = codeTable.length - 1;
+        int slot = mix(code) & mask;
+        while (true) {
+            int v = codeTable[slot];
+            if (v == 0) {
+                return -1;
+            }
+            if (codes[v - 1] == code) {
+                return v - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int findName(byte[] bytes) {
+        int mask = nameTable.length - 1;
+        int slot = hashBytes(bytes) & mask;
+        while (true) {
+            int v = nameTable[slot];
+            if (v == 0) {
+                return -1;
+            }
+            if (nameEquals(v - 1, bytes)) {
+                return v - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private Item materialize(int entry) {
+        String name = new String(nameBytes(entry), StandardCharsets.UTF_8);
+        return new Item(idOf(entry), name, BigDecimal.valueOf(priceCents[entry], 2));
+    }
+
+    private String idOf(int entry) {
+        long code = codes[entry];
+        return code == NOT_NUMERIC ? textIds.get(entry) : decode(code);
+    }
+
+    private byte[] nameBytes(int entry) {
+        int start = nameOffsets[entry];
+        byte[] out = new byte[nameOffsets[entry + 1] - start];
+        names.get(start, out);
+        return out;
+    }
+
+    private boolean nameEquals(int entry, byte[] bytes) {
+        int start = nameOffsets[entry];
+        int len = nameOffsets[entry + 1] - start;
+        if (len != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (names.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ---------------------------------------------------------------- index construction
+
+    private void insertCode(int entry) {
+        int mask = codeTable.length - 1;
+        int slot = mix(codes[entry]) & mask;
+        while (codeTable[slot] != 0) {
+            if (codes[codeTable[slot] - 1] == codes[entry]) {
+                codeTable[slot] = entry + 1; // later row wins, like Map.put
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        codeTable[slot] = entry + 1;
+    }
+
+    private void insertName(int entry) {
+        byte[] bytes = nameBytes(entry);
+        int mask = nameTable.length - 1;
+        int slot = hashBytes(bytes) & mask;
+        while (nameTable[slot] != 0) {
+            if (nameEquals(nameTable[slot] - 1, bytes)) {
+                nameTable[slot] = entry + 1;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        nameTable[slot] = entry + 1;
+    }
+
+    private static int tableSize(int entries) {
+        int size = 16;
+        while (size < entries * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private static int mix(long code) {
+        long h = code * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int hashBytes(byte[] bytes) {
+        int h = 0x811C9DC5;
+        for (byte b : bytes) {
+            h ^= b;
+            h *= 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    // ---------------------------------------------------------------- code encoding
+
+    /**
+     * Encodes an all-digit code of up to 17 digits as (digitCount << 57) | value, or NOT_NUMERIC.
+     */
+    static long encode(String id) {
+        int len = id.length();
+        if (len == 0 || len > MAX_NUMERIC_DIGITS) {
+            return NOT_NUMERIC;
+        }
+        long value = 0;
+        for (int i = 0; i < len; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return NOT_NUMERIC;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return ((long) len << LENGTH_SHIFT) | value;
+    }
+
+    static String decode(long code) {
+        int len = (int) (code >>> LENGTH_SHIFT);
+        String digits = Long.toString(code & VALUE_MASK);
+        if (digits.length() >= len) {
+            return digits;
+        }
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = digits.length(); i < len; i++) {
+            sb.append('0');
+        }
+        return sb.append(digits).toString();
+    }
+
+    private static class Builder implements PricebookStore.Builder {
+        int count = 0;
+        long[] codes = new long[1024];
+        long[] prices = new long[1024];
+        int[] offsets = new int[1025];
+        byte[] arena = new byte[32 * 1024];
+        int arenaSize = 0;
+        final Map<String, Integer> textIdIndex = new HashMap<>();
+        final Map<Integer, String> textIds = new HashMap<>();
+
+        @Override
+        public void add(String id, String name, BigDecimal price) {
+            if (count == codes.length) {
+                int cap = codes.length * 2;
+                codes = Arrays.copyOf(codes, cap);
+                prices = Arrays.copyOf(prices, cap);
+                offsets = Arrays.copyOf(offsets, cap + 1);
+            }
+            long code = encode(id);
+            if (code == NOT_NUMERIC) {
+                textIdIndex.put(id, count);
+                textIds.put(count, id);
+            }
+            byte[] nameBytes = (name == null ? "" : name).getBytes(StandardCharsets.UTF_8);
+            if (arenaSize + nameBytes.length > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + nameBytes.length));
+            }
+            System.arraycopy(nameBytes, 0, arena, arenaSize, nameBytes.length);
+
+            codes[count] = code;
+            prices[count] = price == null ? 0L : price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            offsets[count] = arenaSize;
+            arenaSize += nameBytes.length;
+            offsets[count + 1] = arenaSize;
+            count++;
+        }
+
+        @Override
+        public PricebookStore build() {
+            return new OffHeapPricebookStore(this);
+        }
+    }
+}
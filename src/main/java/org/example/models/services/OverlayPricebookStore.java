@@ -0,0 +1,127 @@
+package org.example.models.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Immutable view of a base store with pricebook deltas layered on top.
+ *
+ * Each applied delta produces a new overlay (copy-on-write), so the base store (which may be a
+ * large off-heap store) never has to be rebuilt for a handful of price changes. Lookups check the
+ * overlay first: deleted ids resolve to nothing, upserted ids to the new Item.
+ */
+public class OverlayPricebookStore implements PricebookStore {
+
+    private final PricebookStore base;
+    private final Map<String, Item> upserts;
+    private final Set<String> deletes;
+    private final Map<String, String> idByName;
+    private final int size;
+
+    private OverlayPricebookStore(PricebookStore base, Map<String, Item> upserts, Set<String> deletes) {
+        this.base = base;
+        this.upserts = upserts;
+        this.deletes = deletes;
+        this.idByName = new HashMap<>();
+        int added = 0;
+        for (Item item : upserts.values()) {
+            idByName.put(item.name, item.id);
+            if (base.getItemById(item.id) == null) {
+                added++;
+            }
+        }
+        int removed = 0;
+        for (String id : deletes) {
+            if (base.getItemById(id) != null) {
+                removed++;
+            }
+        }
+        this.size = base.size() + added - removed;
+    }
+
+    /**
+     * Returns a new store with the given changes applied on top of current.
+     */
+    public static OverlayPricebookStore apply(PricebookStore current, Map<String, Item> changed, Set<String> deleted) {
+        PricebookStore base = current;
+        Map<String, Item> upserts = new LinkedHashMap<>();
+        Set<String> deletes = new HashSet<>();
+        if (current instanceof OverlayPricebookStore) {
+            OverlayPricebookStore overlay = (OverlayPricebookStore) current;
+            base = overlay.base;
+            upserts.putAll(overlay.upserts);
+            deletes.addAll(overlay.deletes);
+        }
+        for (Item item : changed.values()) {
+            upserts.put(item.id, item);
+            deletes.remove(item.id);
+        }
+        for (String id : deleted) {
+            upserts.remove(id);
+            if (base.getItemById(id) != null) {
+                deletes.add(id);
+            }
+        }
+        return new OverlayPricebookStore(base, upserts, deletes);
+    }
+
+    /** Number of ids the overlay shadows in the base store. */
+    public int overlaySize() {
+        return upserts.size() + deletes.size();
+    }
+
+    @Override
+    public Item getItemById(String id) {
+        Item item = upserts.get(id);
+        if (item != null) {
+            return item;
+        }
+        return deletes.contains(id) ? null : base.getItemById(id);
+    }
+
+    @Override
+    public Optional<String> getIdByName(String name) {
+        String id = idByName.get(name);
+        if (id != null) {
+            return Optional.of(id);
+        }
+        return base.getIdByName(name).filter(this::unchangedInBase);
+    }
+
+    @Override
+    public List<String> getAllProductNames() {
+        List<String> names = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String name : base.getAllProductNames()) {
+            if (base.getIdByName(name).filter(this::unchangedInBase).isPresent() && seen.add(name)) {
+                names.add(name);
+            }
+        }
+        for (Item item : upserts.values()) {
+            if (seen.add(item.name)) {
+                names.add(item.name);
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String footprintReport() {
+        return base.footprintReport() + ", overlay of " + overlaySize() + " change(s)";
+    }
+
+    private boolean unchangedInBase(String id) {
+        return !deletes.contains(id) && !upserts.containsKey(id);
+    }
+}
@@ -14,11 +14,14 @@ public class POSPanel {
 
     public POSPanel() {
 
-        // ✅ Load data from TSV into DB
-        PricebookService.loadFromTSV();
+        // ✅ Load data from TSV into DB (builds the in-memory cache in the same pass)
+        if (!PricebookService.loadFromTSV()) {
+            // ✅ Import failed; populate fast in-memory cache from whatever the DB has
+            PricebookService.loadCacheFromDatabase();
+        }
 
-        // ✅ Populate fast in-memory cache from DB
-        PricebookService.loadCacheFromDatabase();
+        // ✅ Apply pricebook deltas dropped into the delta directory while running
+        PricebookDeltaWatcher.start();
 
         setupUI();
     }
@@ -70,6 +73,11 @@ public class POSPanel {
 
     // New method to specify the source ("Panel" or "Scanner")
     public void scanItem(String code, String source) {
+        scanItem(code, source, 1);
+    }
+
+    // Adds qty units in one update (coalesced repeat scans)
+    public void scanItem(String code, String source, int qty) {
         JTable table = basketPanel.getTable();
 
         if (table.isEditing()) {
@@ -79,8 +87,8 @@ public class POSPanel {
         table.clearSelection();
 
         // Log with source
-        journalService.log(code, 1, "Added (" + source + ")");
-        basketPanel.scanItem(code);
+        journalService.log(code, qty, "Added (" + source + ")");
+        basketPanel.scanItem(code, qty);
     }
 
     // Kept for backward compatibility (defaults to Panel)
@@ -1,42 +1,110 @@
 package org.example.models.services;
 
+import org.example.utils.SpaceSavingSketch;
+
 import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
 
+/**
+ * Popular items from incrementally maintained sales counters.
+ *
+ * ReceiptService adds each committed sale to item_sales_summary (all-time totals) and
+ * item_sales_hourly (per-hour buckets) and then to the in-memory copies kept here, so a top-N
+ * query never scans receipts. In memory the all-time totals are exact; each hourly bucket is a
+ * bounded Space-Saving sketch, and windowed queries sum the buckets in range and pick the top N
+ * with a small heap.
+ */
 public class PopularItemsService {
 
-    public static List<String> getTopPopularItemIds(int topN) {
-        List<String> popularItemIds = new ArrayList<>();
+    public enum Window {
+        LAST_HOUR("Last hour"),
+        TODAY("Today"),
+        LAST_7_DAYS("Last 7 days"),
+        ALL_TIME("All time");
 
-        String sql = """
-            SELECT item_id, SUM(qty) as total_qty
-            FROM receipts
-            GROUP BY item_id
-            ORDER BY total_qty DESC
-            LIMIT ?
-            """;
+        private final String label;
 
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        Window(String label) {
+            this.label = label;
+        }
 
-            stmt.setInt(1, topN);
-            ResultSet rs = stmt.executeQuery();
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
 
-            while (rs.next()) {
-                popularItemIds.add(rs.getString("item_id"));
-            }
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final long RETAIN_MILLIS = 7 * 24 * HOUR_MILLIS + HOUR_MILLIS;
+    private static final int BUCKET_CAPACITY = Integer.getInteger("pos.popular.bucketCapacity", 256);
 
-        } catch (Exception e) {
-            System.out.println("Error fetching popular items: " + e.getMessage());
+    private static final Map<String, Long> allTime = new HashMap<>();
+    private static final TreeMap<Long, SpaceSavingSketch> hourly = new TreeMap<>();
+    private static boolean loaded = false;
+    // Highest receipt whose sale the loaded counters already include
+    private static long loadedUpToReceiptId;
+
+    /**
+     * Window used by getPopularItems(int); -Dpos.popular.window=LAST_HOUR|TODAY|LAST_7_DAYS|ALL_TIME.
+     */
+    public static Window getDefaultWindow() {
+        try {
+            return Window.valueOf(System.getProperty("pos.popular.window", "ALL_TIME").trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Window.ALL_TIME;
         }
+    }
+
+    public static List<String> getTopPopularItemIds(int topN) {
+        return getTopPopularItemIds(topN, getDefaultWindow());
+    }
 
-        return popularItemIds;
+    public static synchronized List<String> getTopPopularItemIds(int topN, Window window) {
+        ensureLoaded();
+        long now = System.currentTimeMillis();
+        Map<String, Long> counts;
+        switch (window) {
+            case LAST_HOUR: {
+                // Sliding hour: current bucket plus the part of the previous one still inside the window
+                counts = new HashMap<>();
+                long current = bucketStart(now);
+                double previousWeight = 1.0 - (double) (now - current) / HOUR_MILLIS;
+                addBucket(counts, hourly.get(current), 1.0);
+                addBucket(counts, hourly.get(current - HOUR_MILLIS), previousWeight);
+                break;
+            }
+            case TODAY:
+                counts = sumBuckets(LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli(), now);
+                break;
+            case LAST_7_DAYS:
+                counts = sumBuckets(now - 7 * 24 * HOUR_MILLIS, now);
+                break;
+            case ALL_TIME:
+            default:
+                counts = allTime;
+                break;
+        }
+        return topN(counts, topN);
     }
 
     public static List<Item> getPopularItems(int topN) {
+        return getPopularItems(topN, getDefaultWindow());
+    }
+
+    public static List<Item> getPopularItems(int topN, Window window) {
         List<Item> popularItems = new ArrayList<>();
-        List<String> popularIds = getTopPopularItemIds(topN);
+        List<String> popularIds = getTopPopularItemIds(topN, window);
 
         for (String id : popularIds) {
             Item item = PricebookService.getItemById(id);
@@ -47,4 +115,140 @@ public class PopularItemsService {
 
         return popularItems;
     }
+
+    /**
+     * Adds a sale to the summary tables inside the caller's transaction.
+     */
+    static void recordSale(Connection conn, Map<String, Long> qtyByItem, Timestamp at) throws SQLException {
+        Timestamp bucket = new Timestamp(bucketStart(at.getTime()));
+        try (PreparedStatement summary = conn.prepareStatement("""
+                MERGE INTO item_sales_summary t
+                USING (SELECT CAST(? AS VARCHAR(12)) AS item_id, CAST(? AS BIGINT) AS qty) s
+                ON t.item_id = s.item_id
+                WHEN MATCHED THEN UPDATE SET total_qty = t.total_qty + s.qty, updated_at = CURRENT_TIMESTAMP
+                WHEN NOT MATCHED THEN INSERT (item_id, total_qty, updated_at) VALUES (s.item_id, s.qty, CURRENT_TIMESTAMP)
+                """);
+             PreparedStatement hour = conn.prepareStatement("""
+                MERGE INTO item_sales_hourly t
+                USING (SELECT CAST(? AS VARCHAR(12)) AS item_id, CAST(? AS TIMESTAMP) AS bucket_start, CAST(? AS BIGINT) AS qty) s
+                ON t.item_id = s.item_id AND t.bucket_start = s.bucket_start
+                WHEN MATCHED THEN UPDATE SET qty = t.qty + s.qty
+                WHEN NOT MATCHED THEN INSERT (item_id, bucket_start, qty) VALUES (s.item_id, s.bucket_start, s.qty)
+                """)) {
+            for (Map.Entry<String, Long> e : qtyByItem.entrySet()) {
+                summary.setString(1, e.getKey());
+                summary.setLong(2, e.getValue());
+                summary.addBatch();
+                hour.setString(1, e.getKey());
+                hour.setTimestamp(2, bucket);
+                hour.setLong(3, e.getValue());
+                hour.addBatch();
+            }
+            summary.executeBatch();
+            hour.executeBatch();
+        }
+    }
+
+    /**
+     * Applies a committed sale to the in-memory counters, unless the load already read it.
+     */
+    static synchronized void applyCommittedSale(long receiptId, Map<String, Long> qtyByItem, long atMillis) {
+        if (!loaded) {
+            return; // the first query loads everything from the tables, this sale included
+        }
+        if (receiptId <= loadedUpToReceiptId) {
+            return; // committed before the load read the tables
+        }
+        SpaceSavingSketch bucket = hourly.computeIfAbsent(bucketStart(atMillis), k -> new SpaceSavingSketch(BUCKET_CAPACITY));
+        for (Map.Entry<String, Long> e : qtyByItem.entrySet()) {
+            allTime.merge(e.getKey(), e.getValue(), Long::sum);
+            bucket.add(e.getKey(), e.getValue());
+        }
+        hourly.headMap(System.currentTimeMillis() - RETAIN_MILLIS).clear();
+    }
+
+    private static void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        long cutoff = bucketStart(System.currentTimeMillis() - RETAIN_MILLIS);
+        try (Connection conn = DatabaseManager.getConnection()) {
+            try (PreparedStatement prune = conn.prepareStatement("DELETE FROM item_sales_hourly WHERE bucket_start < ?")) {
+                prune.setTimestamp(1, new Timestamp(cutoff - 24 * HOUR_MILLIS));
+                prune.executeUpdate();
+            }
+            // One statement, so the counters and the receipt watermark come from the same snapshot:
+            // sales committed meanwhile are either in both or in neither
+            long upTo = 0;
+            try (PreparedStatement stmt = conn.prepareStatement("""
+                    SELECT 'A', item_id, CAST(NULL AS TIMESTAMP), total_qty FROM item_sales_summary
+                    UNION ALL
+                    SELECT 'H', item_id, bucket_start, qty FROM item_sales_hourly WHERE bucket_start >= ?
+                    UNION ALL
+                    SELECT 'W', CAST(NULL AS VARCHAR(12)), CAST(NULL AS TIMESTAMP), COALESCE(MAX(receipt_id), 0)
+                    FROM receipt_header
+                    """)) {
+                stmt.setTimestamp(1, new Timestamp(cutoff));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        switch (rs.getString(1)) {
+                            case "A" -> allTime.put(rs.getString(2), rs.getLong(4));
+                            case "H" -> hourly.computeIfAbsent(rs.getTimestamp(3).getTime(),
+                                    k -> new SpaceSavingSketch(BUCKET_CAPACITY)).add(rs.getString(2), rs.getLong(4));
+                            default -> upTo = rs.getLong(4);
+                        }
+                    }
+                }
+            }
+            loadedUpToReceiptId = upTo;
+            loaded = true;
+            System.out.println("[PopularItemsService] Loaded sales counters: " + allTime.size() + " items, "
+                    + hourly.size() + " hourly bucket(s)");
+        } catch (Exception e) {
+            System.out.println("Error fetching popular items: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, Long> sumBuckets(long fromMillis, long toMillis) {
+        Map<String, Long> counts = new HashMap<>();
+        for (SpaceSavingSketch sketch : hourly.subMap(bucketStart(fromMillis), true, toMillis, true).values()) {
+            sketch.forEach((id, qty) -> counts.merge(id, qty, Long::sum));
+        }
+        return counts;
+    }
+
+    private static void addBucket(Map<String, Long> counts, SpaceSavingSketch sketch, double weight) {
+        if (sketch != null && weight > 0) {
+            sketch.forEach((id, qty) -> counts.merge(id, Math.round(qty * weight), Long::sum));
+        }
+    }
+
+    // Min-heap of size n over the counts, then sorted highest first
+    private static List<String> topN(Map<String, Long> counts, int n) {
+        Comparator<Map.Entry<String, Long>> order = Map.Entry.<String, Long>comparingByValue()
+                .thenComparing(Map.Entry.<String, Long>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<String, Long>> heap = new PriorityQueue<>(order);
+        for (Map.Entry<String, Long> e : counts.entrySet()) {
+            if (e.getValue() <= 0) {
+                continue;
+            }
+            heap.offer(e);
+            if (heap.size() > n) {
+                heap.poll();
+            }
+        }
+        List<String> ids = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            ids.add(heap.poll().getKey());
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    // Start of the local hour, the same bucket as DATE_TRUNC('HOUR', created_at) in V004's backfill
+    // (timestamps are stored as local time); differs from a UTC hour in half-hour offset zones
+    private static long bucketStart(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault())
+                .truncatedTo(ChronoUnit.HOURS).toInstant().toEpochMilli();
+    }
 }
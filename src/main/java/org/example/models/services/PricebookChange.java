@@ -0,0 +1,51 @@
+package org.example.models.services;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes one applied pricebook delta, as seen by PricebookService change listeners.
+ */
+public class PricebookChange {
+
+    private final long version;
+    private final List<String> addedNames;
+    private final List<String> removedNames;
+    private final Map<String, String> renamedNames;
+    private final List<String> changedIds;
+
+    public PricebookChange(long version, List<String> addedNames, List<String> removedNames,
+                           Map<String, String> renamedNames, List<String> changedIds) {
+        this.version = version;
+        this.addedNames = Collections.unmodifiableList(addedNames);
+        this.removedNames = Collections.unmodifiableList(removedNames);
+        this.renamedNames = Collections.unmodifiableMap(renamedNames);
+        this.changedIds = Collections.unmodifiableList(changedIds);
+    }
+
+    /** Snapshot version this change produced. */
+    public long getVersion() {
+        return version;
+    }
+
+    /** Names of items that did not exist before. */
+    public List<String> getAddedNames() {
+        return addedNames;
+    }
+
+    /** Names of deleted items. */
+    public List<String> getRemovedNames() {
+        return removedNames;
+    }
+
+    /** Old name to new name for items whose name changed. */
+    public Map<String, String> getRenamedNames() {
+        return renamedNames;
+    }
+
+    /** Every id that was added, changed or deleted. */
+    public List<String> getChangedIds() {
+        return changedIds;
+    }
+}
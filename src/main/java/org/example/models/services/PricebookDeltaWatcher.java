@@ -0,0 +1,186 @@
+package org.example.models.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a drop directory for pricebook delta files and applies them without a restart.
+ *
+ * A delta file is a *.tsv with one change per line:
+ *   A&lt;tab&gt;id&lt;tab&gt;name&lt;tab&gt;price   add
+ *   C&lt;tab&gt;id&lt;tab&gt;name&lt;tab&gt;price   change
+ *   D&lt;tab&gt;id                     delete
+ * Files are applied in name order through PricebookService.applyDelta() and then moved to
+ * processed/ (or failed/ if the database rejected the whole file). Writers should create the file
+ * under another name and rename it to *.tsv once complete.
+ */
+public class PricebookDeltaWatcher {
+
+    private static final String DELTA_SUFFIX = ".tsv";
+    private static final int MAX_ID_LENGTH = 12;
+
+    private static PricebookDeltaWatcher instance;
+
+    private final Path dir;
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private PricebookDeltaWatcher(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir.resolve("processed"));
+        Files.createDirectories(dir.resolve("failed"));
+        this.watchService = dir.getFileSystem().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::watchLoop, "pricebook-delta");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the watcher on -Dpos.pricebook.delta.dir unless -Dpos.pricebook.delta.enabled=false.
+     */
+    public static synchronized void start() {
+        if (instance != null || !Boolean.parseBoolean(System.getProperty("pos.pricebook.delta.enabled", "true"))) {
+            return;
+        }
+        Path dir = Paths.get(System.getProperty("pos.pricebook.delta.dir", "./database/pricebook-deltas"));
+        try {
+            instance = new PricebookDeltaWatcher(dir);
+            instance.thread.start();
+            System.out.println("[PricebookDeltaWatcher] Watching " + dir.toAbsolutePath() + " for pricebook deltas");
+        } catch (IOException e) {
+            System.err.println("[PricebookDeltaWatcher] Could not watch " + dir + ": " + e.getMessage());
+        }
+    }
+
+    public static synchronized void stop() {
+        if (instance != null) {
+            instance.running = false;
+            try {
+                instance.watchService.close();
+            } catch (IOException ignore) {
+                // best effort
+            }
+            instance = null;
+        }
+    }
+
+    private void watchLoop() {
+        // Pick up anything dropped while the lane was down
+        applyPending();
+        while (running) {
+            try {
+                WatchKey key = watchService.poll(1, TimeUnit.SECONDS);
+                if (key == null) {
+                    continue;
+                }
+                key.pollEvents();
+                key.reset();
+                applyPending();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ClosedWatchServiceException e) {
+                break;
+            }
+        }
+    }
+
+    private void applyPending() {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + DELTA_SUFFIX)) {
+            for (Path p : stream) {
+                if (Files.isRegularFile(p)) {
+                    files.add(p);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[PricebookDeltaWatcher] Could not list " + dir + ": " + e.getMessage());
+            return;
+        }
+        Collections.sort(files);
+        for (Path file : files) {
+            applyFile(file);
+        }
+    }
+
+    private void applyFile(Path file) {
+        Map<String, Item> upserts = new LinkedHashMap<>();
+        Set<String> deletes = new LinkedHashSet<>();
+        int rejected = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] parts = line.split("\t");
+                String op = parts[0].trim().toUpperCase();
+                String id = parts.length > 1 ? parts[1].trim() : "";
+                if (id.isEmpty() || id.length() > MAX_ID_LENGTH) {
+                    rejected++;
+                    System.err.println("[PricebookDeltaWatcher] " + file.getFileName() + ":" + lineNumber + " bad id");
+                    continue;
+                }
+                if ((op.equals("A") || op.equals("C")) && parts.length == 4) {
+                    try {
+                        Item item = new Item(id, parts[2].trim(), new BigDecimal(parts[3].trim()));
+                        deletes.remove(id);
+                        upserts.put(id, item);
+                    } catch (NumberFormatException e) {
+                        rejected++;
+                        System.err.println("[PricebookDeltaWatcher] " + file.getFileName() + ":" + lineNumber + " bad price");
+                    }
+                } else if (op.equals("D")) {
+                    upserts.remove(id);
+                    deletes.add(id);
+                } else {
+                    rejected++;
+                    System.err.println("[PricebookDeltaWatcher] " + file.getFileName() + ":" + lineNumber + " unrecognised line");
+                }
+            }
+        } catch (IOException e) {
+            // Probably still being written; try again on the next event
+            System.err.println("[PricebookDeltaWatcher] Could not read " + file.getFileName() + ": " + e.getMessage());
+            return;
+        }
+
+        String target = "processed";
+        try {
+            PricebookService.applyDelta(upserts, deletes);
+            if (rejected > 0) {
+                System.err.println("[PricebookDeltaWatcher] " + file.getFileName() + ": " + rejected + " line(s) rejected");
+            }
+        } catch (Exception e) {
+            target = "failed";
+            System.err.println("[PricebookDeltaWatcher] Failed to apply " + file.getFileName() + ": " + e.getMessage());
+        }
+        try {
+            Files.move(file, dir.resolve(target).resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("[PricebookDeltaWatcher] Could not move " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+}
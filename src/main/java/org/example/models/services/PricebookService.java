@@ -2,53 +2,169 @@ package org.example.models.services;
 
 import java.io.*;
 import java.math.BigDecimal;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
 import java.sql.*;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
 
 public class PricebookService {
 
-    // Thread-safe cache for fast lookups
-    private static final Map<String, Item> cacheById = new ConcurrentHashMap<>();
-    private static final Map<String, String> cacheIdByName = new ConcurrentHashMap<>();
+    /**
+     * An immutable store together with the version it was published as. Every load or applied
+     * delta publishes a new snapshot; readers holding an old one keep a consistent view.
+     */
+    public static final class Snapshot {
+        public final PricebookStore store;
+        public final long version;
+
+        Snapshot(PricebookStore store, long version) {
+            this.store = store;
+            this.version = version;
+        }
+    }
+
+    // "map" keeps the original String-keyed maps, "offheap" the compact OffHeapPricebookStore
+    private static final String STORE_TYPE = System.getProperty("pos.pricebook.store", "map");
+
+    // Replaced as a whole on every load or delta, so readers never see a half-built cache
+    private static volatile Snapshot current = new Snapshot(newStoreBuilder().build(), 0);
+    private static final Object publishLock = new Object();
+    private static final CopyOnWriteArrayList<Consumer<PricebookChange>> listeners = new CopyOnWriteArrayList<>();
+
+    // Once the delta overlay shadows this many ids the cache is rebuilt from the table
+    private static final int OVERLAY_COMPACT_THRESHOLD = Integer.getInteger("pos.pricebook.delta.compactThreshold", 10_000);
+
+    // Rows per JDBC batch during the TSV import
+    private static final int BATCH_SIZE = Math.max(1, Integer.getInteger("pos.pricebook.batchSize", 1000));
+    // Matches pricebook.id VARCHAR(12)
+    private static final int MAX_ID_LENGTH = 12;
+    private static final int MAX_REJECTS_LOGGED = 20;
+    private static final String TSV_CHECKSUM_KEY = "pricebook.tsv.checksum";
 
     /**
-     * Loads the pricebook table from a TSV file into the database.
-     * Call this after your DB is dropped/recreated.
+     * Loads the pricebook table from a TSV file into the database and builds the in-memory cache
+     * from the same parsed rows. The import is skipped (and the cache loaded from the table) when
+     * the TSV checksum matches the one recorded by the last import; -Dpos.pricebook.forceReload=true
+     * imports anyway. Rows are MERGEd in JDBC batches inside a single transaction; malformed rows
+     * are counted and skipped. Returns true if the cache was rebuilt, false if the import was
+     * rolled back.
      */
-    public static void loadFromTSV() {
-        try (InputStream in = PricebookService.class.getClassLoader().getResourceAsStream("pricebook.tsv");
-             BufferedReader reader = new BufferedReader(new InputStreamReader(in));
-             Connection conn = DatabaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("INSERT INTO pricebook VALUES (?, ?, ?)")) {
-
-            if (in == null) {
-                throw new FileNotFoundException("pricebook.tsv not found in resources");
-            }
+    public static boolean loadFromTSV() {
+        long started = System.nanoTime();
+        PricebookStore.Builder builder = newStoreBuilder();
+        long[] counters = new long[2]; // accepted, rejected
+        long tableRows;
+
+        try {
+            ByteBuffer data = openPricebook();
+            String checksum = checksum(data);
+            try (Connection conn = DatabaseManager.getConnection()) {
+                if (!Boolean.getBoolean("pos.pricebook.forceReload")
+                        && checksum.equals(DatabaseManager.getMetadata(conn, TSV_CHECKSUM_KEY))
+                        && countRows(conn) > 0) {
+                    System.out.println("[PricebookService] pricebook.tsv unchanged (" + checksum + "), skipping import");
+                    tableRows = -1;
+                } else {
+                    conn.setAutoCommit(false);
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "MERGE INTO pricebook (id, name, price) KEY (id) VALUES (?, ?, ?)")) {
+
+                        new PricebookTsvParser(MAX_ID_LENGTH).parse(data, new PricebookTsvParser.RowHandler() {
+                            int pending = 0;
 
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\t");
-                if (parts.length == 3) {
-                    stmt.setString(1, parts[0].trim());
-                    stmt.setString(2, parts[1].trim());
-                    stmt.setBigDecimal(3, new BigDecimal(parts[2].trim()));
-                    stmt.executeUpdate();
+                            @Override
+                            public void row(String id, String name, BigDecimal price) throws SQLException {
+                                stmt.setString(1, id);
+                                stmt.setString(2, name);
+                                stmt.setBigDecimal(3, price);
+                                stmt.addBatch();
+                                builder.add(id, name, price);
+                                counters[0]++;
+                                if (++pending >= BATCH_SIZE) {
+                                    stmt.executeBatch();
+                                    pending = 0;
+                                }
+                            }
+
+                            @Override
+                            public void reject(long lineNumber, String reason) {
+                                counters[1]++;
+                                if (counters[1] <= MAX_REJECTS_LOGGED) {
+                                    System.err.println("[PricebookService] Rejected pricebook.tsv line " + lineNumber + ": " + reason);
+                                }
+                            }
+                        });
+                        stmt.executeBatch();
+                        DatabaseManager.putMetadata(conn, TSV_CHECKSUM_KEY, checksum);
+                        conn.commit();
+                    } catch (Exception e) {
+                        conn.rollback();
+                        throw e;
+                    } finally {
+                        conn.setAutoCommit(true);
+                    }
+                    tableRows = countRows(conn);
                 }
             }
-
         } catch (Exception e) {
             System.out.println("Error loading TSV: " + e.getMessage());
+            return false;
+        }
+
+        if (tableRows < 0) {
+            loadCacheFromDatabase();
+            return true;
+        }
+        double seconds = Math.max(1e-9, (System.nanoTime() - started) / 1e9);
+        System.out.printf("[PricebookService] Imported %d rows (%d rejected) in %d ms, %.0f rows/sec%n",
+                counters[0], counters[1], Math.round(seconds * 1000), counters[0] / seconds);
+        if (tableRows > counters[0]) {
+            // The table kept rows this TSV doesn't have (e.g. added by deltas), so cache the table
+            loadCacheFromDatabase();
+            return true;
+        }
+        PricebookStore store = publish(builder.build());
+        System.out.println("Pricebook cache loaded: " + store.size() + " items.");
+        System.out.println("[PricebookService] " + store.footprintReport());
+        return true;
+    }
+
+    private static long countRows(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM pricebook")) {
+            return rs.next() ? rs.getLong(1) : 0;
         }
     }
 
+    private static String checksum(ByteBuffer data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data.duplicate());
+        return Long.toHexString(crc.getValue()) + ":" + data.remaining();
+    }
+
+    // -Dpos.pricebook.file overrides the bundled resource, e.g. for a store-specific export
+    private static ByteBuffer openPricebook() throws IOException {
+        String file = System.getProperty("pos.pricebook.file");
+        if (file != null && !file.isBlank()) {
+            return PricebookTsvParser.map(Paths.get(file));
+        }
+        URL resource = PricebookService.class.getClassLoader().getResource("pricebook.tsv");
+        if (resource == null) {
+            throw new FileNotFoundException("pricebook.tsv not found in resources");
+        }
+        return PricebookTsvParser.open(resource);
+    }
+
     /**
      * Loads all products from the database into the cache for fast access.
-     * Should be called right after loadFromTSV() or DB init.
+     * Only needed when loadFromTSV() did not build the cache itself.
      */
     public static void loadCacheFromDatabase() {
-        cacheById.clear();
-        cacheIdByName.clear();
+        PricebookStore.Builder builder = newStoreBuilder();
 
         try (Connection conn = DatabaseManager.getConnection();
              Statement stmt = conn.createStatement();
@@ -59,12 +175,12 @@ public class PricebookService {
                 String name = rs.getString("name");
                 BigDecimal price = rs.getBigDecimal("price");
 
-                Item item = new Item(id, name, price);
-                cacheById.put(id, item);
-                cacheIdByName.put(name, id);
+                builder.add(id, name, price);
             }
 
-            System.out.println("Pricebook cache loaded: " + cacheById.size() + " items.");
+            PricebookStore store = publish(builder.build());
+            System.out.println("Pricebook cache loaded: " + store.size() + " items.");
+            System.out.println("[PricebookService] " + store.footprintReport());
 
         } catch (Exception e) {
             System.out.println("Error loading cache: " + e.getMessage());
@@ -75,20 +191,145 @@ public class PricebookService {
      * Gets an Item by ID from the cache.
      */
     public static Item getItemById(String id) {
-        return cacheById.get(id);
+        return current.store.getItemById(id);
     }
 
     /**
      * Gets all product names from the cache.
      */
     public static List<String> getAllProductNames() {
-        return new ArrayList<>(cacheIdByName.keySet());
+        return current.store.getAllProductNames();
     }
 
     /**
      * Gets an optional ID by product name from the cache.
      */
     public static Optional<String> getIdByName(String name) {
-        return Optional.ofNullable(cacheIdByName.get(name));
+        return current.store.getIdByName(name);
+    }
+
+    /**
+     * Returns the current cache snapshot and its version.
+     */
+    public static Snapshot getSnapshot() {
+        return current;
+    }
+
+    /**
+     * Registers a listener for applied deltas. Listeners run on the thread that applied the delta.
+     */
+    public static void addChangeListener(Consumer<PricebookChange> listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeChangeListener(Consumer<PricebookChange> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Applies a pricebook delta: upserts and deletes are written to the pricebook table in one
+     * transaction, then the rows that made it are swapped into the cache as a new snapshot and
+     * listeners are notified. Rows the database refuses (e.g. deleting an item the journal still
+     * references) are skipped. Returns the published change, or null if nothing changed.
+     */
+    public static PricebookChange applyDelta(Map<String, Item> upserts, Set<String> deletes) throws SQLException {
+        Map<String, Item> applied = new LinkedHashMap<>();
+        Set<String> deleted = new LinkedHashSet<>();
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement merge = conn.prepareStatement(
+                         "MERGE INTO pricebook (id, name, price) KEY (id) VALUES (?, ?, ?)");
+                 PreparedStatement delete = conn.prepareStatement("DELETE FROM pricebook WHERE id = ?")) {
+                for (Item item : upserts.values()) {
+                    try {
+                        merge.setString(1, item.id);
+                        merge.setString(2, item.name);
+                        merge.setBigDecimal(3, item.price);
+                        merge.executeUpdate();
+                        applied.put(item.id, item);
+                    } catch (SQLException e) {
+                        System.err.println("[PricebookService] Skipped upsert of " + item.id + ": " + e.getMessage());
+                    }
+                }
+                for (String id : deletes) {
+                    try {
+                        delete.setString(1, id);
+                        delete.executeUpdate();
+                        deleted.add(id);
+                    } catch (SQLException e) {
+                        System.err.println("[PricebookService] Skipped delete of " + id + ": " + e.getMessage());
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        PricebookChange change;
+        boolean compact;
+        synchronized (publishLock) {
+            Snapshot before = current;
+            List<String> added = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            Map<String, String> renamed = new LinkedHashMap<>();
+            List<String> changedIds = new ArrayList<>();
+            for (Item item : applied.values()) {
+                Item old = before.store.getItemById(item.id);
+                if (old == null) {
+                    added.add(item.name);
+                } else if (!old.name.equals(item.name)) {
+                    renamed.put(old.name, item.name);
+                }
+                changedIds.add(item.id);
+            }
+            for (String id : deleted) {
+                Item old = before.store.getItemById(id);
+                if (old != null) {
+                    removed.add(old.name);
+                    changedIds.add(id);
+                }
+            }
+            if (changedIds.isEmpty()) {
+                return null;
+            }
+            OverlayPricebookStore next = OverlayPricebookStore.apply(before.store, applied, deleted);
+            current = new Snapshot(next, before.version + 1);
+            change = new PricebookChange(current.version, added, removed, renamed, changedIds);
+            compact = next.overlaySize() >= OVERLAY_COMPACT_THRESHOLD;
+        }
+
+        System.out.println("[PricebookService] Applied delta v" + change.getVersion() + ": "
+                + applied.size() + " upsert(s), " + change.getRemovedNames().size() + " delete(s)");
+        if (compact) {
+            // Fold the overlay back into a fresh base store; the table already holds every change
+            loadCacheFromDatabase();
+        }
+        for (Consumer<PricebookChange> listener : listeners) {
+            try {
+                listener.accept(change);
+            } catch (Exception e) {
+                System.err.println("[PricebookService] Change listener failed: " + e.getMessage());
+            }
+        }
+        return change;
+    }
+
+    private static PricebookStore publish(PricebookStore store) {
+        synchronized (publishLock) {
+            current = new Snapshot(store, current.version + 1);
+        }
+        return store;
+    }
+
+    private static PricebookStore.Builder newStoreBuilder() {
+        if ("offheap".equalsIgnoreCase(STORE_TYPE)) {
+            return OffHeapPricebookStore.builder();
+        }
+        return MapPricebookStore.builder();
     }
 }
@@ -0,0 +1,31 @@
+package org.example.models.services;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-only lookup structure behind PricebookService. A store is built once per load through its
+ * Builder and then swapped in as a whole, so lookups never see a half-loaded pricebook.
+ */
+public interface PricebookStore {
+
+    Item getItemById(String id);
+
+    Optional<String> getIdByName(String name);
+
+    List<String> getAllProductNames();
+
+    int size();
+
+    /**
+     * One-line summary of the memory this store uses, printed after each load.
+     */
+    String footprintReport();
+
+    interface Builder {
+        void add(String id, String name, BigDecimal price);
+
+        PricebookStore build();
+    }
+}
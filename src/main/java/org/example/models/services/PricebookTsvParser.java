@@ -0,0 +1,188 @@
+package org.example.models.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Single-pass parser for pricebook.tsv (id, name, price separated by tabs).
+ *
+ * Works directly on the bytes of a memory-mapped file (or the resource bytes when it is packed in
+ * a jar): fields are located by scanning for tab/newline, ids and prices are decoded straight from
+ * the buffer and only the name needs a String decode. Malformed rows are passed to the handler's
+ * reject() instead of stopping the load.
+ */
+public class PricebookTsvParser {
+
+    public interface RowHandler {
+        void row(String id, String name, BigDecimal price) throws Exception;
+
+        void reject(long lineNumber, String reason);
+    }
+
+    private final int maxIdLength;
+
+    public PricebookTsvParser(int maxIdLength) {
+        this.maxIdLength = maxIdLength;
+    }
+
+    /**
+     * Maps the resource if it is a plain file, otherwise reads it fully into a heap buffer.
+     */
+    public static ByteBuffer open(URL resource) throws IOException {
+        if ("file".equals(resource.getProtocol())) {
+            try {
+                return map(Paths.get(resource.toURI()));
+            } catch (URISyntaxException e) {
+                // fall through to stream read
+            }
+        }
+        try (InputStream in = resource.openStream()) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+
+    public static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+    }
+
+    /**
+     * Parses every line in the buffer and returns the number of lines seen.
+     */
+    public long parse(ByteBuffer buf, RowHandler handler) throws Exception {
+        int limit = buf.limit();
+        int pos = buf.position();
+        long lineNumber = 0;
+        int[] tabs = new int[2];
+
+        while (pos < limit) {
+            lineNumber++;
+            int end = pos;
+            int tabCount = 0;
+            while (end < limit) {
+                byte b = buf.get(end);
+                if (b == '\n') {
+                    break;
+                }
+                if (b == '\t') {
+                    if (tabCount < 2) {
+                        tabs[tabCount] = end;
+                    }
+                    tabCount++;
+                }
+                end++;
+            }
+            int next = end + 1;
+            if (end > pos && buf.get(end - 1) == '\r') {
+                end--;
+            }
+
+            if (end == pos) {
+                // blank line
+            } else if (tabCount != 2) {
+                handler.reject(lineNumber, "expected 3 fields, found " + (tabCount + 1));
+            } else {
+                String id = decodeTrimmed(buf, pos, tabs[0]);
+                String name = decodeTrimmed(buf, tabs[0] + 1, tabs[1]);
+                BigDecimal price = parsePrice(buf, tabs[1] + 1, end);
+                if (id.isEmpty() || id.length() > maxIdLength) {
+                    handler.reject(lineNumber, "bad id '" + id + "'");
+                } else if (price == null) {
+                    handler.reject(lineNumber, "bad price '" + decodeTrimmed(buf, tabs[1] + 1, end) + "'");
+                } else {
+                    handler.row(id, name, price);
+                }
+            }
+            pos = next;
+        }
+        return lineNumber;
+    }
+
+    private static String decodeTrimmed(ByteBuffer buf, int from, int to) {
+        while (from < to && isBlank(buf.get(from))) {
+            from++;
+        }
+        while (to > from && isBlank(buf.get(to - 1))) {
+            to--;
+        }
+        int len = to - from;
+        boolean ascii = true;
+        for (int i = from; i < to; i++) {
+            if (buf.get(i) < 0) {
+                ascii = false;
+                break;
+            }
+        }
+        byte[] bytes = new byte[len];
+        buf.get(from, bytes);
+        return new String(bytes, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses [-]digits[.digits] into a BigDecimal without going through a String.
+     * Falls back to BigDecimal's own parser for anything longer or unusual; returns null if invalid.
+     */
+    static BigDecimal parsePrice(ByteBuffer buf, int from, int to) {
+        while (from < to && isBlank(buf.get(from))) {
+            from++;
+        }
+        while (to > from && isBlank(buf.get(to - 1))) {
+            to--;
+        }
+        if (from == to) {
+            return null;
+        }
+        int i = from;
+        boolean negative = buf.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long unscaled = 0;
+        int scale = -1;
+        int digits = 0;
+        for (; i < to; i++) {
+            byte b = buf.get(i);
+            if (b == '.' && scale < 0) {
+                scale = 0;
+            } else if (b >= '0' && b <= '9' && digits < 18) {
+                unscaled = unscaled * 10 + (b - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                return parseSlow(buf, from, to);
+            }
+        }
+        if (digits == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    // Unsigned compare, so UTF-8 continuation bytes are not mistaken for whitespace
+    private static boolean isBlank(byte b) {
+        return (b & 0xFF) <= ' ';
+    }
+
+    private static BigDecimal parseSlow(ByteBuffer buf, int from, int to) {
+        try {
+            byte[] bytes = new byte[to - from];
+            buf.get(from, bytes);
+            return new BigDecimal(new String(bytes, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package org.example.models.services;
+
+import org.example.utils.Money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * JSON encoding and decoding for the basket pricing protocol, without a JSON library.
+ *
+ * Requests are written as UTF-8 straight into a per-thread byte buffer that is reused between
+ * calls; amounts are written from whole cents, so no String.format. Responses are read in one
+ * forward pass over the body bytes: keys are compared in place, amounts are read straight into
+ * cents (rounded half-up) without going through double, and only the discountName value becomes
+ * a String. Like the old indexOf parser it is tolerant: a key is picked up at any nesting
+ * depth (first occurrence wins), numbers may be quoted, and unknown or malformed content is
+ * skipped, leaving the field at 0.
+ */
+final class PricingJsonCodec {
+
+    private static final byte[] ORIGINAL_SUBTOTAL = ascii("originalSubtotal");
+    private static final byte[] SUBTOTAL = ascii("subtotal");
+    private static final byte[] DISCOUNT_NAME = ascii("discountName");
+    private static final byte[] DISCOUNT_PERCENTAGE = ascii("discountPercentage");
+    private static final byte[] DISCOUNT_AMOUNT = ascii("discountAmount");
+    private static final byte[] DISCOUNTED_SUBTOTAL = ascii("discountedSubtotal");
+
+    private static final byte[] HEX = ascii("0123456789abcdef");
+    private static final long[] POW10_LONG = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L,
+            10_000_000L, 100_000_000L, 1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+            10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L, 10_000_000_000_000_000L,
+            100_000_000_000_000_000L};
+    private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private static final ThreadLocal<Writer> WRITERS = ThreadLocal.withInitial(Writer::new);
+
+    private PricingJsonCodec() {
+    }
+
+    /**
+     * Encodes a pricing request. The returned array is a fresh copy of exactly the body bytes, since
+     * the HTTP client may still be reading it after this thread has moved on.
+     */
+    static byte[] encodeRequest(List<BasketPricingServiceClient.LineItem> items, long subtotalCents, String discountName) {
+        Writer w = WRITERS.get();
+        w.reset();
+        w.raw("{\"discountName\":").string(discountName == null ? "" : discountName);
+        w.raw(",\"subtotal\":").amount(subtotalCents);
+        w.raw(",\"items\":[");
+        if (items != null) {
+            for (int i = 0; i < items.size(); i++) {
+                BasketPricingServiceClient.LineItem it = items.get(i);
+                if (i > 0) {
+                    w.raw(',');
+                }
+                w.raw("{\"id\":").string(it.id);
+                w.raw(",\"name\":").string(it.name);
+                w.raw(",\"qty\":").integer(it.qty);
+                w.raw(",\"unitPrice\":").amount(it.unitPriceCents);
+                w.raw(",\"lineTotal\":").amount(it.lineTotalCents);
+                w.raw('}');
+            }
+        }
+        w.raw("]}");
+        return w.toByteArray();
+    }
+
+    /**
+     * Decodes a pricing response in a single pass.
+     */
+    static BasketPricingServiceClient.BasketResult decodeResponse(byte[] json) {
+        BasketPricingServiceClient.BasketResult r = new BasketPricingServiceClient.BasketResult();
+        Reader reader = new Reader(json);
+        long original = 0, subtotal = 0, amount = 0, discounted = 0;
+        double percentage = 0;
+        boolean seenOriginal = false, seenSubtotal = false, seenName = false,
+                seenPercentage = false, seenAmount = false, seenDiscounted = false;
+        try {
+            while (reader.nextKey()) {
+                if (!seenOriginal && reader.keyEquals(ORIGINAL_SUBTOTAL)) {
+                    original = reader.cents();
+                    seenOriginal = true;
+                } else if (!seenSubtotal && reader.keyEquals(SUBTOTAL)) {
+                    subtotal = reader.cents();
+                    seenSubtotal = true;
+                } else if (!seenName && reader.keyEquals(DISCOUNT_NAME)) {
+                    r.discountName = reader.text();
+                    seenName = true;
+                } else if (!seenPercentage && reader.keyEquals(DISCOUNT_PERCENTAGE)) {
+                    percentage = reader.number();
+                    seenPercentage = true;
+                } else if (!seenAmount && reader.keyEquals(DISCOUNT_AMOUNT)) {
+                    amount = reader.cents();
+                    seenAmount = true;
+                } else if (!seenDiscounted && reader.keyEquals(DISCOUNTED_SUBTOTAL)) {
+                    discounted = reader.cents();
+                    seenDiscounted = true;
+                }
+                // Anything else: the next nextKey() call walks past it
+            }
+        } catch (IllegalStateException malformed) {
+            // keep whatever was read before the damage
+        }
+        if (original == 0) {
+            original = subtotal; // try alternate key name
+        }
+        if (discounted == 0 && original > 0) {
+            // compute if server only returned discountAmount
+            discounted = Math.max(0, original - amount);
+        }
+        r.originalSubtotal = Money.ofCents(original);
+        r.discountPercentage = percentage;
+        r.discountAmount = Money.ofCents(amount);
+        r.discountedSubtotal = Money.ofCents(discounted);
+        return r;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Growable UTF-8 output buffer
+    private static final class Writer {
+        private byte[] buf = new byte[4096];
+        private int len;
+
+        void reset() {
+            len = 0;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, len);
+        }
+
+        private void ensure(int extra) {
+            if (len + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + extra));
+            }
+        }
+
+        Writer raw(char c) {
+            ensure(1);
+            buf[len++] = (byte) c;
+            return this;
+        }
+
+        // ASCII-only literals
+        Writer raw(String s) {
+            int n = s.length();
+            ensure(n);
+            for (int i = 0; i < n; i++) {
+                buf[len++] = (byte) s.charAt(i);
+            }
+            return this;
+        }
+
+        Writer string(String s) {
+            if (s == null) {
+                s = "";
+            }
+            int n = s.length();
+            ensure(n * 3 + 2);
+            buf[len++] = '"';
+            for (int i = 0; i < n; i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    ensure(2 + (n - i) * 3);
+                    buf[len++] = '\\';
+                    buf[len++] = (byte) c;
+                } else if (c < 0x20) {
+                    ensure(6 + (n - i) * 3);
+                    buf[len++] = '\\';
+                    buf[len++] = 'u';
+                    buf[len++] = '0';
+                    buf[len++] = '0';
+                    buf[len++] = HEX[c >> 4];
+                    buf[len++] = HEX[c & 0xF];
+                } else if (c < 0x80) {
+                    buf[len++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[len++] = (byte) (0xC0 | (c >> 6));
+                    buf[len++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    buf[len++] = (byte) (0xF0 | (cp >> 18));
+                    buf[len++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buf[len++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buf[len++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    buf[len++] = '?'; // lone surrogate, same as String.getBytes(UTF_8)
+                } else {
+                    buf[len++] = (byte) (0xE0 | (c >> 12));
+                    buf[len++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[len++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            ensure(1);
+            buf[len++] = '"';
+            return this;
+        }
+
+        Writer integer(long v) {
+            ensure(20);
+            if (v < 0) {
+                buf[len++] = '-';
+                v = -v;
+            }
+            int start = len;
+            do {
+                buf[len++] = (byte) ('0' + v % 10);
+                v /= 10;
+            } while (v > 0);
+            reverse(start, len - 1);
+            return this;
+        }
+
+        // Whole cents as a decimal with two places
+        Writer amount(long cents) {
+            if (cents < 0) {
+                raw('-');
+            }
+            integer(Math.abs(cents / 100));
+            long frac = Math.abs(cents % 100);
+            ensure(3);
+            buf[len++] = '.';
+            buf[len++] = (byte) ('0' + frac / 10);
+            buf[len++] = (byte) ('0' + frac % 10);
+            return this;
+        }
+
+        private void reverse(int i, int j) {
+            while (i < j) {
+                byte t = buf[i];
+                buf[i++] = buf[j];
+                buf[j--] = t;
+            }
+        }
+    }
+
+    // Forward-only scanner that stops at each object key, whatever its depth
+    private static final class Reader {
+        private final byte[] in;
+        private int pos;
+        private int keyStart;
+        private int keyEnd;
+        private boolean valuePending;
+
+        // Last number scanned by scanNumber()
+        private int numStart;
+        private int numEnd;
+        private long mantissa;
+        private int scale;
+        private boolean negative;
+        private boolean simple;
+
+        Reader(byte[] in) {
+            this.in = in;
+        }
+
+        /**
+         * Advances to the next object key and positions after its colon. If the previous key's value
+         * was not consumed it is skipped first.
+         */
+        boolean nextKey() {
+            if (valuePending) {
+                skipScalar();
+                valuePending = false;
+            }
+            while (pos < in.length) {
+                byte b = in[pos];
+                if (b == '"') {
+                    int start = pos + 1;
+                    skipString();
+                    int end = pos - 1;
+                    skipWhitespace();
+                    if (pos < in.length && in[pos] == ':') {
+                        pos++;
+                        skipWhitespace();
+                        keyStart = start;
+                        keyEnd = end;
+                        valuePending = true;
+                        return true;
+                    }
+                    // a string value inside an array; keep going
+                } else {
+                    pos++; // structural characters, literals and numbers in arrays
+                }
+            }
+            return false;
+        }
+
+        boolean keyEquals(byte[] key) {
+            return keyEnd - keyStart == key.length && Arrays.equals(in, keyStart, keyEnd, key, 0, key.length);
+        }
+
+        /** Numeric value of the pending key; quoted numbers are accepted, anything else is 0. */
+        double number() {
+            if (!scanNumber()) {
+                return 0.0;
+            }
+            if (simple && mantissa < 1L << 53) {
+                // Exact: the mantissa fits a double's 53 bits and 10^scale is exactly representable
+                double value = mantissa / POW10[scale];
+                return negative ? -value : value;
+            }
+            try {
+                return Double.parseDouble(new String(in, numStart, numEnd - numStart, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                return 0.0;
+            }
+        }
+
+        /** Like number(), as whole cents rounded half-up, exactly for any decimal. */
+        long cents() {
+            if (!scanNumber()) {
+                return 0;
+            }
+            if (simple && mantissa <= Long.MAX_VALUE / 100) {
+                long c;
+                if (scale <= 2) {
+                    c = mantissa * POW10_LONG[2 - scale];
+                } else {
+                    long div = POW10_LONG[scale - 2];
+                    c = mantissa / div;
+                    if ((mantissa % div) * 2 >= div) {
+                        c++;
+                    }
+                }
+                return negative ? -c : c;
+            }
+            try {
+                return new BigDecimal(new String(in, numStart, numEnd - numStart, StandardCharsets.US_ASCII))
+                        .setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            } catch (NumberFormatException | ArithmeticException e) {
+                return 0;
+            }
+        }
+
+        /**
+         * Scans the pending value as a number and consumes it. Returns false if there is no number.
+         * simple means the digits fit in mantissa/scale with no exponent.
+         */
+        private boolean scanNumber() {
+            valuePending = false;
+            boolean quoted = pos < in.length && in[pos] == '"';
+            if (quoted) {
+                pos++;
+                skipWhitespace();
+            }
+            int start = pos;
+            negative = false;
+            if (pos < in.length && (in[pos] == '-' || in[pos] == '+')) {
+                negative = in[pos] == '-';
+                pos++;
+            }
+            mantissa = 0;
+            scale = 0;
+            simple = true;
+            int digits = 0;
+            while (pos < in.length && in[pos] >= '0' && in[pos] <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (in[pos] - '0');
+                    digits++;
+                } else {
+                    simple = false;
+                }
+                pos++;
+            }
+            if (pos < in.length && in[pos] == '.') {
+                pos++;
+                while (pos < in.length && in[pos] >= '0' && in[pos] <= '9') {
+                    if (digits < 18) {
+                        mantissa = mantissa * 10 + (in[pos] - '0');
+                        digits++;
+                        scale++;
+                    } else {
+                        simple = false;
+                    }
+                    pos++;
+                }
+            }
+            if (pos < in.length && (in[pos] == 'e' || in[pos] == 'E')) {
+                simple = false;
+                pos++;
+                if (pos < in.length && (in[pos] == '-' || in[pos] == '+')) {
+                    pos++;
+                }
+                while (pos < in.length && in[pos] >= '0' && in[pos] <= '9') {
+                    pos++;
+                }
+            }
+            numStart = start;
+            numEnd = pos;
+            if (quoted) {
+                // Drop anything else inside the quotes, e.g. "12.50 USD"
+                while (pos < in.length && in[pos] != '"') {
+                    pos++;
+                }
+                if (pos < in.length) {
+                    pos++;
+                }
+            } else if (pos == start) {
+                skipScalar();
+            }
+            return numEnd != numStart && !(digits == 0 && simple);
+        }
+
+        /** String value of the pending key (a bare value is returned as its raw text), or null. */
+        String text() {
+            valuePending = false;
+            if (pos >= in.length) {
+                return null;
+            }
+            if (in[pos] != '"') {
+                if (in[pos] == '{' || in[pos] == '[') {
+                    return null;
+                }
+                int start = pos;
+                skipScalar();
+                return new String(in, start, pos - start, StandardCharsets.UTF_8).trim();
+            }
+            int start = pos + 1;
+            int i = start;
+            while (i < in.length && in[i] != '"' && in[i] != '\\') {
+                i++;
+            }
+            if (i < in.length && in[i] == '"') {
+                pos = i + 1;
+                return new String(in, start, i - start, StandardCharsets.UTF_8);
+            }
+            // Escapes present: decode the slow way
+            StringBuilder sb = new StringBuilder();
+            pos = start;
+            while (pos < in.length && in[pos] != '"') {
+                byte b = in[pos];
+                if (b != '\\') {
+                    int runStart = pos;
+                    while (pos < in.length && in[pos] != '"' && in[pos] != '\\') {
+                        pos++;
+                    }
+                    sb.append(new String(in, runStart, pos - runStart, StandardCharsets.UTF_8));
+                    continue;
+                }
+                if (pos + 1 >= in.length) {
+                    throw new IllegalStateException("unterminated string");
+                }
+                byte e = in[pos + 1];
+                pos += 2;
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (pos + 4 > in.length) {
+                            throw new IllegalStateException("bad unicode escape");
+                        }
+                        int code = 0;
+                        for (int k = 0; k < 4; k++) {
+                            int digit = Character.digit(in[pos + k], 16);
+                            if (digit < 0) {
+                                throw new IllegalStateException("bad unicode escape");
+                            }
+                            code = code * 16 + digit;
+                        }
+                        sb.append((char) code);
+                        pos += 4;
+                        break;
+                    default: sb.append((char) e);
+                }
+            }
+            if (pos >= in.length) {
+                throw new IllegalStateException("unterminated string");
+            }
+            pos++;
+            return sb.toString();
+        }
+
+        // Skips a string, number or literal; objects and arrays are walked by nextKey()
+        private void skipScalar() {
+            if (pos >= in.length) {
+                return;
+            }
+            if (in[pos] == '"') {
+                skipString();
+                return;
+            }
+            while (pos < in.length) {
+                byte b = in[pos];
+                if (b == ',' || b == '}' || b == ']' || b == '{' || b == '[' || b == '"' || b <= ' ') {
+                    return;
+                }
+                pos++;
+            }
+        }
+
+        // pos at the opening quote; leaves pos after the closing quote
+        private void skipString() {
+            pos++;
+            while (pos < in.length) {
+                byte b = in[pos++];
+                if (b == '\\') {
+                    pos++;
+                } else if (b == '"') {
+                    return;
+                }
+            }
+            throw new IllegalStateException("unterminated string");
+        }
+
+        private void skipWhitespace() {
+            while (pos < in.length && (in[pos] & 0xFF) <= ' ') {
+                pos++;
+            }
+        }
+    }
+}
@@ -1,51 +1,307 @@
 package org.example.models.services;
 
-import javax.swing.table.DefaultTableModel;
-import java.math.BigDecimal;
+import org.example.utils.Money;
+import org.example.utils.TimeOrderedIds;
+
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.time.Instant;
-import java.util.UUID;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Stores receipts as one receipt_header row per sale with its totals, tax, discount and tender,
+ * plus one receipt_line row per basket line. Both, the sale's journal entry and the popular-items
+ * counters are written in a single transaction. Receipt ids come from TimeOrderedIds, so they
+ * sort by time.
+ */
 public class ReceiptService {
 
-    public static void saveReceipt(DefaultTableModel posModel, BigDecimal amountPaid, BigDecimal change) {
-        String receiptId = UUID.randomUUID().toString();
-        Timestamp now = Timestamp.from(Instant.now());
+    /** A stored receipt: its header and its lines in basket order. */
+    public static class Receipt {
+        public long receiptId;
+        public Timestamp createdAt;
+        public Money subtotal;
+        public Money discount;
+        public String discountName;
+        public Money tax;
+        public Money total;
+        public String tenderType;
+        public Money paid;
+        public Money change;
+        public final List<Basket.Line> lines = new ArrayList<>();
+    }
+
+    /** Totals over all receipts created on one day. */
+    public static class DailyTotals {
+        public LocalDate day;
+        public long receipts;
+        public long lines;
+        public Money subtotal = Money.ZERO;
+        public Money discount = Money.ZERO;
+        public Money tax = Money.ZERO;
+        public Money total = Money.ZERO;
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US,
+                    "day=%s receipts=%d lines=%d subtotal=%s discount=%s tax=%s total=%s",
+                    day, receipts, lines, subtotal, discount, tax, total);
+        }
+    }
 
+    private static final TimeOrderedIds IDS = new TimeOrderedIds();
+    private static volatile boolean seeded;
+
+    public static void saveReceipt(List<Basket.Line> lines, Money amountPaid, Money change) {
+        saveReceipt(lines, TaxEngine.getDefault().breakdown(lines, Money.ZERO), null, null, amountPaid, change);
+    }
+
+    /**
+     * Saves a sale synchronously on the calling thread and returns its receipt id, or -1 if it
+     * could not be saved. Checkout goes through SaleCommitService instead.
+     */
+    public static long saveReceipt(List<Basket.Line> lines, TaxEngine.Breakdown totals, String discountName,
+                                   String tenderType, Money amountPaid, Money change) {
         try (Connection conn = DatabaseManager.getConnection()) {
-            String sql = """
-                INSERT INTO receipts (
-                    receipt_id, item_id, qty, unit_price, subtotal,
-                    amount_paid, change_due, created_at
-                ) VALUES (?, ?, ?, ?, ?, ?, ?, ?)
-            """;
-
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                for (int i = 0; i < posModel.getRowCount(); i++) {
-                    String itemId = posModel.getValueAt(i, 0).toString();
-                    int qty = (int) posModel.getValueAt(i, 2);
-                    BigDecimal price = (BigDecimal) posModel.getValueAt(i, 3);
-                    BigDecimal subtotal = price.multiply(BigDecimal.valueOf(qty));
-
-                    pstmt.setString(1, receiptId);
-                    pstmt.setString(2, itemId);
-                    pstmt.setInt(3, qty);
-                    pstmt.setBigDecimal(4, price);
-                    pstmt.setBigDecimal(5, subtotal);
-                    pstmt.setBigDecimal(6, amountPaid);
-                    pstmt.setBigDecimal(7, change);
-                    pstmt.setTimestamp(8, now);
-                    pstmt.addBatch();
+            long nowMillis = System.currentTimeMillis();
+            Sale sale = new Sale(nextReceiptId(conn, nowMillis), nowMillis, lines, totals, discountName,
+                    tenderType, amountPaid, change, null);
+            write(conn, sale);
+            afterCommit(sale);
+            System.out.println("Receipt saved successfully: " + sale.getReceiptId());
+            return sale.getReceiptId();
+        } catch (Exception e) {
+            System.out.println("Error saving receipt: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Writes a sale's header, lines, journal entry and popular-items counters in one transaction.
+     * Returns false without writing anything if the receipt is already stored, so a replayed sale
+     * is never saved twice.
+     */
+    static boolean write(Connection conn, Sale sale) throws SQLException {
+        long receiptId = sale.getReceiptId();
+        Timestamp at = new Timestamp(sale.getCreatedAtMillis());
+        List<Basket.Line> lines = sale.getLines();
+
+        conn.setAutoCommit(false);
+        try (PreparedStatement exists = conn.prepareStatement("SELECT 1 FROM receipt_header WHERE receipt_id = ?");
+             PreparedStatement header = conn.prepareStatement("""
+                    INSERT INTO receipt_header (
+                        receipt_id, created_at, line_count, subtotal_cents, discount_cents, discount_name,
+                        tax_cents, total_cents, tender_type, paid_cents, change_cents
+                    ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                    """);
+             PreparedStatement line = conn.prepareStatement("""
+                    INSERT INTO receipt_line (
+                        receipt_id, line_no, item_id, qty, unit_price_cents, line_total_cents
+                    ) VALUES (?, ?, ?, ?, ?, ?)
+                    """)) {
+            exists.setLong(1, receiptId);
+            try (ResultSet rs = exists.executeQuery()) {
+                if (rs.next()) {
+                    conn.rollback();
+                    return false;
                 }
-                pstmt.executeBatch();
             }
 
-            System.out.println("Receipt saved successfully: " + receiptId);
-        } catch (Exception e) {
-            System.out.println("Error saving receipt: " + e.getMessage());
+            header.setLong(1, receiptId);
+            header.setTimestamp(2, at);
+            header.setInt(3, lines.size());
+            header.setLong(4, sale.getSubtotal().getCents());
+            header.setLong(5, sale.getDiscount().getCents());
+            header.setString(6, sale.getDiscountName());
+            header.setLong(7, sale.getTax().getCents());
+            header.setLong(8, sale.getTotal().getCents());
+            header.setString(9, sale.getTenderType());
+            header.setLong(10, sale.getPaid().getCents());
+            header.setLong(11, sale.getChange().getCents());
+            header.executeUpdate();
+
+            int lineNo = 0;
+            for (Basket.Line l : lines) {
+                line.setLong(1, receiptId);
+                line.setInt(2, ++lineNo);
+                line.setString(3, l.getId());
+                line.setInt(4, l.getQty());
+                line.setLong(5, l.getUnitPriceCents());
+                line.setLong(6, l.getLineTotalCents());
+                line.addBatch();
+            }
+            line.executeBatch();
+
+            List<JournalEvent> journal = journalEvents(sale);
+            if (!journal.isEmpty()) {
+                JournalService.insertEvents(conn, journal);
+            }
+
+            // Popular-items counters commit together with the receipt
+            PopularItemsService.recordSale(conn, quantities(sale), at);
+            conn.commit();
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
         }
     }
-}
 
+    /** Follow-up once write() has committed: popular-items cache, analytics store and journal server. */
+    static void afterCommit(Sale sale) {
+        PopularItemsService.applyCommittedSale(sale.getReceiptId(), quantities(sale), sale.getCreatedAtMillis());
+        SalesAnalyticsStore.record(sale);
+        List<JournalEvent> journal = journalEvents(sale);
+        if (!journal.isEmpty()) {
+            JournalService.forwardCommitted(journal);
+        }
+    }
+
+    /**
+     * Next receipt id, above every id already stored. The first call reads MAX(receipt_id).
+     */
+    static long nextReceiptId(Connection conn, long nowMillis) throws SQLException {
+        seedIds(conn);
+        return IDS.next(nowMillis);
+    }
+
+    /** Next receipt id without a database round trip; call seedIds() once beforehand. */
+    static long nextReceiptId(long nowMillis) {
+        return IDS.next(nowMillis);
+    }
+
+    /** Keeps later ids above one that is in use but not stored yet, e.g. a sale awaiting replay. */
+    static void reserveReceiptId(long receiptId) {
+        IDS.seed(receiptId);
+    }
+
+    private static Map<String, Long> quantities(Sale sale) {
+        Map<String, Long> qtyByItem = new LinkedHashMap<>();
+        for (Basket.Line l : sale.getLines()) {
+            qtyByItem.merge(l.getId(), (long) l.getQty(), Long::sum);
+        }
+        return qtyByItem;
+    }
+
+    private static List<JournalEvent> journalEvents(Sale sale) {
+        if (sale.getJournalAction() == null) {
+            return List.of();
+        }
+        // One transaction entry: the action text once, the lines as compact references
+        List<JournalEvent.Line> lines = new ArrayList<>(sale.getLines().size());
+        for (Basket.Line l : sale.getLines()) {
+            lines.add(new JournalEvent.Line(l.getId(), l.getQty()));
+        }
+        return List.of(new JournalEvent(sale.getJournalAction(), sale.getReceiptId(), lines, sale.getCreatedAtMillis()));
+    }
+
+    /**
+     * Loads a receipt by id, or returns null if there is none. Both reads are primary key lookups.
+     */
+    public static Receipt findReceipt(long receiptId) {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            Receipt receipt;
+            try (PreparedStatement stmt = conn.prepareStatement("""
+                    SELECT created_at, subtotal_cents, discount_cents, discount_name, tax_cents,
+                           total_cents, tender_type, paid_cents, change_cents
+                    FROM receipt_header WHERE receipt_id = ?
+                    """)) {
+                stmt.setLong(1, receiptId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    receipt = new Receipt();
+                    receipt.receiptId = receiptId;
+                    receipt.createdAt = rs.getTimestamp(1);
+                    receipt.subtotal = Money.ofCents(rs.getLong(2));
+                    receipt.discount = Money.ofCents(rs.getLong(3));
+                    receipt.discountName = rs.getString(4);
+                    receipt.tax = Money.ofCents(rs.getLong(5));
+                    receipt.total = Money.ofCents(rs.getLong(6));
+                    receipt.tenderType = rs.getString(7);
+                    receipt.paid = Money.ofCents(rs.getLong(8));
+                    receipt.change = Money.ofCents(rs.getLong(9));
+                }
+            }
+
+            TaxEngine taxEngine = TaxEngine.getDefault();
+            try (PreparedStatement stmt = conn.prepareStatement("""
+                    SELECT l.item_id, p.name, l.qty, l.unit_price_cents
+                    FROM receipt_line l LEFT JOIN pricebook p ON p.id = l.item_id
+                    WHERE l.receipt_id = ? ORDER BY l.line_no
+                    """)) {
+                stmt.setLong(1, receiptId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        String itemId = rs.getString(1);
+                        receipt.lines.add(new Basket.Line(itemId, rs.getString(2), rs.getInt(3), rs.getLong(4),
+                                taxEngine.classOf(itemId)));
+                    }
+                }
+            }
+            return receipt;
+        } catch (SQLException e) {
+            System.err.println("[ReceiptService] Failed to load receipt " + receiptId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Sums the headers of one day's receipts; a range scan on the created_at index that never
+     * touches receipt_line.
+     */
+    public static DailyTotals getDailyTotals(LocalDate day) {
+        DailyTotals totals = new DailyTotals();
+        totals.day = day;
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("""
+                     SELECT COUNT(*), SUM(line_count), SUM(subtotal_cents), SUM(discount_cents),
+                            SUM(tax_cents), SUM(total_cents)
+                     FROM receipt_header WHERE created_at >= ? AND created_at < ?
+                     """)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(day.atStartOfDay()));
+            stmt.setTimestamp(2, Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    totals.receipts = rs.getLong(1);
+                    totals.lines = rs.getLong(2);
+                    totals.subtotal = Money.ofCents(rs.getLong(3));
+                    totals.discount = Money.ofCents(rs.getLong(4));
+                    totals.tax = Money.ofCents(rs.getLong(5));
+                    totals.total = Money.ofCents(rs.getLong(6));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("[ReceiptService] Failed to load daily totals for " + day + ": " + e.getMessage());
+        }
+        return totals;
+    }
+
+    // Keeps new ids above those already stored, including ones backfilled from the old table
+    static void seedIds(Connection conn) throws SQLException {
+        if (seeded) {
+            return;
+        }
+        synchronized (IDS) {
+            if (seeded) {
+                return;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT MAX(receipt_id) FROM receipt_header");
+                 ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    IDS.seed(rs.getLong(1));
+                }
+            }
+            seeded = true;
+        }
+    }
+}
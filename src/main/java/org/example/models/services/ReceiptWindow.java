@@ -1,52 +1,26 @@
 package org.example.models.services;
 
+import org.example.utils.Money;
+
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.print.PrinterException;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 public class ReceiptWindow {
     
-    // Legacy method for backward compatibility - matches your existing call
-    public static void showReceipt(DefaultTableModel posModel, BigDecimal total, BigDecimal paid, BigDecimal change) {
-        showReceipt(null, posModel, total, paid, change);
-    }
-    
-    // Legacy method with parent parameter
-    public static void showReceipt(JFrame parentFrame, DefaultTableModel posModel, BigDecimal total, BigDecimal paid, BigDecimal change) {
-        // Calculate subtotal by subtracting estimated tax from total
-        BigDecimal estimatedTaxRate = new BigDecimal("0.1"); // Assuming 10% tax rate
-        BigDecimal subtotal = total.divide(BigDecimal.ONE.add(estimatedTaxRate), 2, BigDecimal.ROUND_HALF_UP);
-        showReceipt(parentFrame, posModel, subtotal, total, paid, change, null, BigDecimal.ZERO);
-    }
-    
-    // New method with subtotal parameter
-    public static void showReceipt(DefaultTableModel posModel, BigDecimal subtotal, BigDecimal total, 
-                                 BigDecimal paid, BigDecimal change) {
-        showReceipt(null, posModel, subtotal, total, paid, change);
-    }
-    
-    // New method with subtotal parameter and parent
-    public static void showReceipt(JFrame parentFrame, DefaultTableModel posModel, BigDecimal subtotal, BigDecimal total, 
-                                 BigDecimal paid, BigDecimal change) {
-        showReceipt(parentFrame, posModel, subtotal, total, paid, change, null, BigDecimal.ZERO);
-    }
-    
-    // Full method with discount support (backward compatibility)
-    public static void showReceipt(DefaultTableModel posModel, BigDecimal subtotal, BigDecimal total, 
-                                 BigDecimal paid, BigDecimal change, String discountName, 
-                                 BigDecimal discountAmount) {
-        showReceipt(null, posModel, subtotal, total, paid, change, discountName, discountAmount);
+    // Receipt for a sale's tax breakdown, the same one the payment was taken for
+    public static void showReceipt(JFrame parentFrame, List<Basket.Line> lines, TaxEngine.Breakdown totals,
+                                   String discountName, Money paid, Money change) {
+        showReceipt(parentFrame, -1, lines, totals, discountName, paid, change);
     }
-    
-    // Full method with discount support and parent parameter
-    public static void showReceipt(JFrame parentFrame, DefaultTableModel posModel, BigDecimal subtotal, BigDecimal total, 
-                                 BigDecimal paid, BigDecimal change, String discountName, 
-                                 BigDecimal discountAmount) {
+
+    // Same, printing the id the receipt was stored under (-1 if it was not saved)
+    public static void showReceipt(JFrame parentFrame, long storedReceiptId, List<Basket.Line> lines,
+                                   TaxEngine.Breakdown totals, String discountName, Money paid, Money change) {
         
         JFrame receiptFrame = new JFrame("Receipt - My Business Store");
         receiptFrame.setSize(450, 700);
@@ -78,7 +52,8 @@ public class ReceiptWindow {
 
         // Date and receipt info
         String dateTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm:ss"));
-        String receiptId = String.valueOf(System.currentTimeMillis() % 100000); // Shorter ID
+        String receiptId = storedReceiptId >= 0 ? Long.toString(storedReceiptId)
+                : String.valueOf(System.currentTimeMillis() % 100000); // Shorter ID
         
         sb.append(String.format("Date: %s\n", dateTime));
         sb.append(String.format("Receipt #: %s\n", receiptId));
@@ -90,41 +65,47 @@ public class ReceiptWindow {
         sb.append(String.format("%-20s %3s %8s %10s\n", "Item", "Qty", "Price", "Total"));
         sb.append("------------------------------------------------\n");
 
-        for (int i = 0; i < posModel.getRowCount(); i++) {
-            String name = (String) posModel.getValueAt(i, 1);
-            int qty = (int) posModel.getValueAt(i, 2);
-            BigDecimal price = (BigDecimal) posModel.getValueAt(i, 3);
-            BigDecimal totalItem = price.multiply(BigDecimal.valueOf(qty));
+        for (Basket.Line line : lines) {
+            String name = line.getName();
+            int qty = line.getQty();
+            Money price = line.getUnitPrice();
+            Money totalItem = line.getLineTotal();
 
             // Truncate long item names
             if (name.length() > 18) {
                 name = name.substring(0, 15) + "...";
             }
 
-            sb.append(String.format("%-20s %3d %8.2f %10.2f\n", 
-                name, qty, price.doubleValue(), totalItem.doubleValue()));
+            sb.append(String.format("%-20s %3d %8s %10s\n", name, qty, price, totalItem));
         }
 
         sb.append("================================================\n");
         
         // Financial summary with discount support
-        sb.append(String.format("%-30s %12.2f\n", "Subtotal:", subtotal.doubleValue()));
+        sb.append(String.format("%-30s %12s\n", "Subtotal:", totals.getSubtotal()));
         
         // Add discount information if applicable
-        if (discountName != null && discountAmount.compareTo(BigDecimal.ZERO) > 0) {
-            sb.append(String.format("%-30s -%11.2f\n", discountName + ":", discountAmount.doubleValue()));
+        if (totals.getDiscount().isPositive()) {
+            String label = discountName != null && !"None".equals(discountName) ? discountName : "Discount";
+            sb.append(String.format("%-30s -%11s\n", label + ":", totals.getDiscount()));
         }
         
-        // Calculate and show tax
-        BigDecimal tax = total.subtract(subtotal.subtract(discountAmount != null ? discountAmount : BigDecimal.ZERO));
-        if (tax.compareTo(BigDecimal.ZERO) > 0) {
-            sb.append(String.format("%-30s %12.2f\n", "Tax:", tax.doubleValue()));
+        // Tax per class when the sale spans several, otherwise one line
+        List<TaxEngine.ClassTax> classes = totals.getClasses();
+        if (classes.size() > 1) {
+            for (TaxEngine.ClassTax ct : classes) {
+                sb.append(String.format("%-30s %12s\n",
+                        "Tax " + ct.getTaxClass() + " " + ct.getRatePercent() + "% on " + ct.getTaxable() + ":", ct.getTax()));
+            }
+        } else if (totals.getTax().isPositive()) {
+            String rate = classes.isEmpty() ? "" : " (" + classes.get(0).getRatePercent() + "%)";
+            sb.append(String.format("%-30s %12s\n", "Tax" + rate + ":", totals.getTax()));
         }
         
         sb.append("------------------------------------------------\n");
-        sb.append(String.format("%-30s %12.2f\n", "TOTAL:", total.doubleValue()));
-        sb.append(String.format("%-30s %12.2f\n", "PAID:", paid.doubleValue()));
-        sb.append(String.format("%-30s %12.2f\n", "CHANGE:", change.doubleValue()));
+        sb.append(String.format("%-30s %12s\n", "TOTAL:", totals.getTotal()));
+        sb.append(String.format("%-30s %12s\n", "PAID:", paid));
+        sb.append(String.format("%-30s %12s\n", "CHANGE:", change));
         sb.append("================================================\n\n");
 
         // Footer
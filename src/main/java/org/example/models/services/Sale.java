@@ -0,0 +1,207 @@
+package org.example.models.services;
+
+import org.example.utils.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable snapshot of a finished sale: the basket lines, the amounts it was charged for, the
+ * tender and the journal action, taken on the EDT when the cashier confirms payment.
+ *
+ * encode() turns it into a single tab-separated line for the sale spool and decode() reads it
+ * back. Text fields escape backslash, tab, CR and LF; \N stands for null.
+ */
+public final class Sale {
+
+    private static final String FORMAT = "S1";
+    private static final int HEADER_FIELDS = 13;
+    private static final int LINE_FIELDS = 5;
+
+    private final long receiptId;
+    private final long createdAtMillis;
+    private final List<Basket.Line> lines;
+    private final Money subtotal;
+    private final Money discount;
+    private final Money tax;
+    private final Money total;
+    private final String discountName;
+    private final String tenderType;
+    private final Money paid;
+    private final Money change;
+    private final String journalAction;
+
+    public Sale(long receiptId, long createdAtMillis, List<Basket.Line> lines, TaxEngine.Breakdown totals,
+                String discountName, String tenderType, Money paid, Money change, String journalAction) {
+        this(receiptId, createdAtMillis, lines, totals.getSubtotal(), totals.getDiscount(), totals.getTax(),
+                totals.getTotal(), discountName, tenderType, paid, change, journalAction);
+    }
+
+    private Sale(long receiptId, long createdAtMillis, List<Basket.Line> lines, Money subtotal, Money discount,
+                 Money tax, Money total, String discountName, String tenderType, Money paid, Money change,
+                 String journalAction) {
+        this.receiptId = receiptId;
+        this.createdAtMillis = createdAtMillis;
+        this.lines = List.copyOf(lines);
+        this.subtotal = subtotal;
+        this.discount = discount;
+        this.tax = tax;
+        this.total = total;
+        this.discountName = discountName;
+        this.tenderType = tenderType;
+        this.paid = paid;
+        this.change = change;
+        this.journalAction = journalAction;
+    }
+
+    public long getReceiptId() {
+        return receiptId;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public List<Basket.Line> getLines() {
+        return lines;
+    }
+
+    public Money getSubtotal() {
+        return subtotal;
+    }
+
+    public Money getDiscount() {
+        return discount;
+    }
+
+    public Money getTax() {
+        return tax;
+    }
+
+    public Money getTotal() {
+        return total;
+    }
+
+    public String getDiscountName() {
+        return discountName;
+    }
+
+    public String getTenderType() {
+        return tenderType;
+    }
+
+    public Money getPaid() {
+        return paid;
+    }
+
+    public Money getChange() {
+        return change;
+    }
+
+    /** Action of the sale's journal entry, or null for no journal entry. */
+    public String getJournalAction() {
+        return journalAction;
+    }
+
+    public String encode() {
+        StringBuilder sb = new StringBuilder(128 + lines.size() * 48);
+        sb.append(FORMAT);
+        field(sb, receiptId);
+        field(sb, createdAtMillis);
+        field(sb, subtotal.getCents());
+        field(sb, discount.getCents());
+        field(sb, tax.getCents());
+        field(sb, total.getCents());
+        field(sb, paid.getCents());
+        field(sb, change.getCents());
+        field(sb, discountName);
+        field(sb, tenderType);
+        field(sb, journalAction);
+        field(sb, lines.size());
+        for (Basket.Line line : lines) {
+            field(sb, line.getId());
+            field(sb, line.getName());
+            field(sb, line.getQty());
+            field(sb, line.getUnitPriceCents());
+            field(sb, line.getTaxClass());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parses a line written by encode(). Throws IllegalArgumentException if it is not one.
+     */
+    public static Sale decode(String text) {
+        String[] f = text.split("\t", -1);
+        if (f.length < HEADER_FIELDS || !FORMAT.equals(f[0])) {
+            throw new IllegalArgumentException("Not a sale record");
+        }
+        try {
+            int lineCount = Integer.parseInt(f[12]);
+            if (lineCount < 0 || f.length != HEADER_FIELDS + lineCount * LINE_FIELDS) {
+                throw new IllegalArgumentException("Sale record has " + f.length + " fields for " + lineCount + " lines");
+            }
+            List<Basket.Line> lines = new ArrayList<>(lineCount);
+            for (int i = 0, p = HEADER_FIELDS; i < lineCount; i++, p += LINE_FIELDS) {
+                lines.add(new Basket.Line(unescape(f[p]), unescape(f[p + 1]), Integer.parseInt(f[p + 2]),
+                        Long.parseLong(f[p + 3]), Integer.parseInt(f[p + 4])));
+            }
+            return new Sale(Long.parseLong(f[1]), Long.parseLong(f[2]), lines,
+                    cents(f[3]), cents(f[4]), cents(f[5]), cents(f[6]),
+                    unescape(f[9]), unescape(f[10]), cents(f[7]), cents(f[8]), unescape(f[11]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Bad number in sale record: " + e.getMessage(), e);
+        }
+    }
+
+    private static Money cents(String field) {
+        return Money.ofCents(Long.parseLong(field));
+    }
+
+    private static void field(StringBuilder sb, long value) {
+        sb.append('\t').append(value);
+    }
+
+    private static void field(StringBuilder sb, String value) {
+        sb.append('\t');
+        if (value == null) {
+            sb.append("\\N");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+    }
+
+    private static String unescape(String field) {
+        if (field.equals("\\N")) {
+            return null;
+        }
+        if (field.indexOf('\\') < 0) {
+            return field;
+        }
+        StringBuilder sb = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c != '\\' || i + 1 == field.length()) {
+                sb.append(c);
+                continue;
+            }
+            char next = field.charAt(++i);
+            switch (next) {
+                case 't' -> sb.append('\t');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                default -> sb.append(next);
+            }
+        }
+        return sb.toString();
+    }
+}
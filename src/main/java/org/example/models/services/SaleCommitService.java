@@ -0,0 +1,307 @@
+package org.example.models.services;
+
+import org.example.utils.Money;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Commits finished sales in the background so checkout never waits on the database.
+ *
+ * submit() snapshots the sale, gives it its receipt id, appends it to a durable sale spool and
+ * returns. A single committer thread takes sales in submission order and writes each one
+ * (receipt header, lines, journal entry and sales counters) in one transaction via
+ * ReceiptService.write(); the spool position is acknowledged only after the commit. A failed
+ * commit is retried with backoff and later sales wait behind it, so sales always commit in order.
+ * Sales the database rejects outright (constraint or data errors), or that keep failing with an
+ * unexpected runtime error, go to rejected.tsv in the spool directory instead of blocking the queue.
+ *
+ * On startup, sales still in the spool from a previous run are queued again before anything new;
+ * a sale whose receipt was already stored is skipped.
+ */
+public class SaleCommitService {
+
+    private static final class Pending {
+        final long seq;
+        final Sale sale; // null for a spool record that could not be decoded
+
+        Pending(long seq, Sale sale) {
+            this.seq = seq;
+            this.sale = sale;
+        }
+    }
+
+    private static final long RETRY_MIN_MILLIS = Long.getLong("pos.sale.retryMinMs", 200);
+    private static final long RETRY_MAX_MILLIS = Long.getLong("pos.sale.retryMaxMs", 10_000);
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final int REPLAY_BATCH = 256;
+    // Unexpected runtime failures are retried this many times before the sale is rejected
+    private static final int MAX_RUNTIME_ATTEMPTS = 5;
+
+    private static final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private static JournalSpool spool;
+    private static Path rejectedFile;
+    private static Thread committer;
+    private static volatile boolean running;
+    private static volatile Pending inFlight;
+
+    private static final LongAdder submitted = new LongAdder();
+    private static final LongAdder committed = new LongAdder();
+    private static final LongAdder replayed = new LongAdder();
+    private static final LongAdder duplicates = new LongAdder();
+    private static final LongAdder retries = new LongAdder();
+    private static final LongAdder rejected = new LongAdder();
+
+    /**
+     * Opens the sale spool, queues any sales left uncommitted by the last run and starts the
+     * committer thread. Called from Main after DatabaseManager.init(); submit() calls it too.
+     */
+    public static synchronized void start() {
+        if (committer != null) {
+            return;
+        }
+        spool = openSpool();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            ReceiptService.seedIds(conn);
+        } catch (SQLException e) {
+            System.err.println("[SaleCommit] Could not read the last receipt id: " + e.getMessage());
+        }
+        if (spool != null) {
+            replayUncommitted();
+        }
+        running = true;
+        committer = new Thread(SaleCommitService::commitLoop, "sale-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Queues a finished sale for commit and returns its receipt id straight away.
+     * journalAction is journaled once for the whole sale in the same transaction; null skips it.
+     */
+    public static synchronized long submit(List<Basket.Line> lines, TaxEngine.Breakdown totals, String discountName,
+                                           String tenderType, Money paid, Money change, String journalAction) {
+        start();
+        long now = System.currentTimeMillis();
+        Sale sale = new Sale(ReceiptService.nextReceiptId(now), now, lines, totals, discountName, tenderType,
+                paid, change, journalAction);
+        long seq = 0;
+        if (spool != null) {
+            try {
+                seq = spool.append(List.of(sale.encode()));
+            } catch (IOException e) {
+                System.err.println("[SaleCommit] Spool append failed, receipt " + sale.getReceiptId()
+                        + " is only queued in memory: " + e.getMessage());
+            }
+        }
+        queue.add(new Pending(seq, sale));
+        submitted.increment();
+        return sale.getReceiptId();
+    }
+
+    /**
+     * Waits up to timeoutMillis for queued sales to commit, then stops the committer. Whatever
+     * is left stays in the spool and is committed on the next start.
+     * Called from Main's shutdown hook before the journal and the pool are closed.
+     */
+    public static void flushAndStop(long timeoutMillis) {
+        Thread thread;
+        synchronized (SaleCommitService.class) {
+            thread = committer;
+            running = false;
+        }
+        if (thread != null) {
+            try {
+                thread.join(Math.max(1, timeoutMillis));
+                if (thread.isAlive()) {
+                    thread.interrupt();
+                    thread.join(1_000);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        System.out.println("[SaleCommit] Stopped: " + getStats());
+        synchronized (SaleCommitService.class) {
+            if (spool != null) {
+                spool.close();
+                spool = null;
+            }
+        }
+    }
+
+    /** Sales submitted or replayed but not yet committed. */
+    public static int getBacklog() {
+        return queue.size() + (inFlight != null ? 1 : 0);
+    }
+
+    public static String getStats() {
+        return String.format(java.util.Locale.US,
+                "submitted=%d committed=%d replayed=%d duplicates=%d retries=%d rejected=%d backlog=%d",
+                submitted.sum(), committed.sum(), replayed.sum(), duplicates.sum(), retries.sum(),
+                rejected.sum(), getBacklog());
+    }
+
+    private static void replayUncommitted() {
+        long after = spool.getAckedSeq();
+        List<JournalSpool.Record> records;
+        while (!(records = spool.read(after, REPLAY_BATCH)).isEmpty()) {
+            for (JournalSpool.Record record : records) {
+                Sale sale = null;
+                try {
+                    sale = Sale.decode(record.line);
+                    ReceiptService.reserveReceiptId(sale.getReceiptId());
+                } catch (IllegalArgumentException e) {
+                    System.err.println("[SaleCommit] Skipping unreadable spool record " + record.seq + ": " + e.getMessage());
+                }
+                queue.add(new Pending(record.seq, sale));
+                replayed.increment();
+                after = record.seq;
+            }
+        }
+        if (!queue.isEmpty()) {
+            System.out.println("[SaleCommit] Replaying " + queue.size() + " sale(s) not committed by the last run");
+        }
+    }
+
+    private static void commitLoop() {
+        try {
+            while (running || !queue.isEmpty()) {
+                Pending next = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (next != null) {
+                    inFlight = next;
+                    try {
+                        commit(next);
+                    } catch (RuntimeException e) {
+                        // Never let one sale kill the committer; later sales still need it
+                        System.err.println("[SaleCommit] Unexpected failure handling receipt "
+                                + (next.sale != null ? next.sale.getReceiptId() : "?") + ": " + e);
+                    } finally {
+                        inFlight = null;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopped while retrying; that sale and any behind it are still in the spool
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Commits one sale, retrying until it is stored, rejected or the thread is interrupted
+    private static void commit(Pending pending) throws InterruptedException {
+        Sale sale = pending.sale;
+        if (sale == null) {
+            acknowledge(pending);
+            return;
+        }
+        long backoff = RETRY_MIN_MILLIS;
+        int runtimeFailures = 0;
+        while (true) {
+            try (Connection conn = DatabaseManager.getConnection()) {
+                if (ReceiptService.write(conn, sale)) {
+                    committed.increment();
+                    acknowledge(pending);
+                    afterCommit(sale);
+                } else {
+                    duplicates.increment();
+                    acknowledge(pending);
+                    System.out.println("[SaleCommit] Receipt " + sale.getReceiptId() + " was already stored");
+                }
+                return;
+            } catch (SQLException e) {
+                if (isPermanent(e)) {
+                    reject(pending, e);
+                    return;
+                }
+                retries.increment();
+                System.err.println("[SaleCommit] Commit of receipt " + sale.getReceiptId() + " failed, retrying in "
+                        + backoff + " ms: " + e.getMessage());
+            } catch (RuntimeException e) {
+                // e.g. the pool failing to hand out a connection, or a bug in write()
+                if (++runtimeFailures >= MAX_RUNTIME_ATTEMPTS) {
+                    reject(pending, e);
+                    return;
+                }
+                retries.increment();
+                System.err.println("[SaleCommit] Commit of receipt " + sale.getReceiptId() + " failed, retrying in "
+                        + backoff + " ms: " + e);
+            }
+            Thread.sleep(backoff);
+            backoff = Math.min(backoff * 2, RETRY_MAX_MILLIS);
+        }
+    }
+
+    private static void afterCommit(Sale sale) {
+        try {
+            ReceiptService.afterCommit(sale);
+        } catch (RuntimeException e) {
+            System.err.println("[SaleCommit] Post-commit update failed for receipt " + sale.getReceiptId() + ": " + e.getMessage());
+        }
+    }
+
+    // Constraint violations (SQLState class 23) and data exceptions (22) fail the same way every time
+    private static boolean isPermanent(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLIntegrityConstraintViolationException
+                || (state != null && (state.startsWith("23") || state.startsWith("22")));
+    }
+
+    private static void reject(Pending pending, Exception e) {
+        rejected.increment();
+        System.err.println("[SaleCommit] Receipt " + pending.sale.getReceiptId() + " rejected: " + e);
+        Path file = rejectedFile;
+        if (file != null) {
+            try {
+                Files.writeString(file, pending.sale.encode() + System.lineSeparator(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException io) {
+                // The spool acknowledges in order, so it cannot hold on to this one; keep it in the log
+                System.err.println("[SaleCommit] Could not write " + file + " (" + io.getMessage() + "), rejected sale: "
+                        + pending.sale.encode());
+            }
+        }
+        acknowledge(pending);
+    }
+
+    private static void acknowledge(Pending pending) {
+        JournalSpool s;
+        synchronized (SaleCommitService.class) {
+            s = spool;
+        }
+        if (s != null && pending.seq > 0) {
+            s.acknowledge(pending.seq);
+        }
+    }
+
+    /**
+     * Spool settings via JVM system properties: pos.sale.spool.enabled (default true),
+     * pos.sale.spool.dir (default ./database/sale-spool) and pos.sale.spool.fsync (default true).
+     */
+    private static JournalSpool openSpool() {
+        if (!Boolean.parseBoolean(System.getProperty("pos.sale.spool.enabled", "true"))) {
+            System.err.println("[SaleCommit] Sale spool disabled; queued sales are lost if the POS stops before they commit");
+            return null;
+        }
+        try {
+            Path dir = Paths.get(System.getProperty("pos.sale.spool.dir", "./database/sale-spool"));
+            JournalSpool opened = JournalSpool.open(dir, 1024 * 1024,
+                    Boolean.parseBoolean(System.getProperty("pos.sale.spool.fsync", "true")));
+            rejectedFile = dir.resolve("rejected.tsv");
+            return opened;
+        } catch (Exception e) {
+            System.err.println("[SaleCommit] Could not open sale spool, sales are only queued in memory: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package org.example.models.services;
+
+import org.example.utils.Money;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Append-only columnar copy of committed sales for end-of-day reporting, kept outside the H2
+ * database so reports never compete with the lanes for it.
+ *
+ * ReceiptService hands every committed sale to record(), which only queues it. The
+ * analytics-writer thread appends the sales to one SalesSegment file per day
+ * (./database/analytics/sales-yyyy-MM-dd.col), a block at a time. On start the writer first
+ * copies any receipts stored after the last one in the newest segment (sales whose block was not
+ * written before a crash, or a new store), so the segments catch up with receipt_header.
+ *
+ * report() decodes a day's segment into primitive columns and aggregates them in flat loops:
+ * totals, movement per item, sales per hour and per tender. Use reportAsync() from the EDT.
+ */
+public class SalesAnalyticsStore {
+
+    /** Units and sales of one item over a day. */
+    public static class ItemTotals {
+        public String itemId;
+        public long qty;
+        public Money sales = Money.ZERO;
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US, "%s qty=%d sales=%s", itemId, qty, sales);
+        }
+    }
+
+    /** One day's sales from the analytics store. */
+    public static class DayReport {
+        public LocalDate day;
+        public long receipts;
+        public long lines;
+        public long units;
+        public Money subtotal = Money.ZERO;
+        public Money discount = Money.ZERO;
+        public Money tax = Money.ZERO;
+        public Money total = Money.ZERO;
+        /** Items by sales, highest first. */
+        public final List<ItemTotals> byItem = new ArrayList<>();
+        /** Receipt totals and receipt counts per local hour of the day. */
+        public final Money[] totalByHour = new Money[24];
+        public final long[] receiptsByHour = new long[24];
+        /** Receipt totals per tender type ("" for receipts stored without one). */
+        public final Map<String, Money> totalByTender = new LinkedHashMap<>();
+
+        public DayReport() {
+            Arrays.fill(totalByHour, Money.ZERO);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US,
+                    "day=%s receipts=%d lines=%d units=%d subtotal=%s discount=%s tax=%s total=%s items=%d tenders=%s",
+                    day, receipts, lines, units, subtotal, discount, tax, total, byItem.size(), totalByTender);
+        }
+    }
+
+    private static final Path DIR = Paths.get(System.getProperty("pos.analytics.dir", "./database/analytics"));
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("pos.analytics.enabled", "true"));
+    private static final int BLOCK_RECEIPTS = Math.max(1, Integer.getInteger("pos.analytics.blockReceipts", 256));
+    private static final long FLUSH_MILLIS = Math.max(10, Long.getLong("pos.analytics.flushMs", 1_000));
+    private static final int BACKFILL_DAYS = Integer.getInteger("pos.analytics.backfillDays", 7);
+    private static final boolean FSYNC = Boolean.parseBoolean(System.getProperty("pos.analytics.fsync", "false"));
+    private static final String PREFIX = "sales-";
+    private static final String SUFFIX = ".col";
+
+    // Sales and flush requests (CompletableFuture) for the writer, in commit order
+    private static final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private static final ExecutorService REPORTS = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "analytics-report");
+        t.setDaemon(true);
+        return t;
+    });
+    private static Thread writer;
+    private static volatile boolean running;
+
+    // Writer thread only
+    private static SalesSegment segment;
+    private static LocalDate segmentDay;
+    private static long lastReceiptId;
+    private static boolean failed;
+    private static long oldestPendingAt; // when the first receipt of the unwritten block arrived
+
+    private static final LongAdder recorded = new LongAdder();
+    private static final LongAdder caughtUp = new LongAdder();
+    private static final LongAdder skipped = new LongAdder();
+    private static final LongAdder blocks = new LongAdder();
+
+    /**
+     * Starts the writer, which first catches up with receipts already in the database.
+     * Called from Main after DatabaseManager.init(); disabled with -Dpos.analytics.enabled=false.
+     */
+    public static synchronized void start() {
+        if (writer != null || !ENABLED) {
+            return;
+        }
+        running = true;
+        writer = new Thread(SalesAnalyticsStore::writeLoop, "analytics-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Writes what is queued, waiting up to timeoutMillis, then stops the writer. Sales still
+     * queued after that are copied from the database on the next start.
+     */
+    public static void flushAndStop(long timeoutMillis) {
+        Thread thread;
+        synchronized (SalesAnalyticsStore.class) {
+            thread = writer;
+            running = false;
+        }
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(Math.max(1, timeoutMillis));
+            if (thread.isAlive()) {
+                thread.interrupt();
+                thread.join(1_000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("[Analytics] Stopped: " + getStats());
+    }
+
+    /** Queues a committed sale; returns at once. Called on the sale-committer thread. */
+    static void record(Sale sale) {
+        if (!running) {
+            return;
+        }
+        List<Basket.Line> lines = sale.getLines();
+        String[] itemIds = new String[lines.size()];
+        int[] qty = new int[lines.size()];
+        long[] lineCents = new long[lines.size()];
+        for (int i = 0; i < itemIds.length; i++) {
+            Basket.Line line = lines.get(i);
+            itemIds[i] = line.getId();
+            qty[i] = line.getQty();
+            lineCents[i] = line.getLineTotalCents();
+        }
+        queue.add(new SalesSegment.Receipt(sale.getReceiptId(), sale.getCreatedAtMillis(), sale.getTenderType(),
+                sale.getSubtotal().getCents(), sale.getDiscount().getCents(), sale.getTax().getCents(),
+                sale.getTotal().getCents(), itemIds, qty, lineCents));
+        recorded.increment();
+    }
+
+    /**
+     * Aggregates one day from its segment, on the calling thread. Sales still queued for the
+     * writer are written first (waiting up to a second).
+     */
+    public static DayReport report(LocalDate day) {
+        flushWriter();
+        DayReport report = new DayReport();
+        report.day = day;
+        Path path = segmentPath(day);
+        if (!Files.exists(path)) {
+            return report;
+        }
+        try {
+            aggregate(SalesSegment.read(path), report);
+        } catch (IOException e) {
+            System.err.println("[Analytics] Failed to read " + path.getFileName() + ": " + e.getMessage());
+        }
+        return report;
+    }
+
+    /** report() on the analytics-report thread. */
+    public static CompletableFuture<DayReport> reportAsync(LocalDate day) {
+        return CompletableFuture.supplyAsync(() -> report(day), REPORTS);
+    }
+
+    public static String getStats() {
+        return String.format(java.util.Locale.US,
+                "recorded=%d caughtUp=%d skipped=%d blocks=%d queued=%d lastReceiptId=%d",
+                recorded.sum(), caughtUp.sum(), skipped.sum(), blocks.sum(), queue.size(), lastReceiptId);
+    }
+
+    // ---------------------------------------------------------------- aggregation
+
+    // Flat passes over the columns; every accumulator is indexed by a dictionary code or an hour
+    static void aggregate(SalesSegment.Columns c, DayReport report) {
+        int receipts = c.receipts;
+        int lines = c.lines;
+        report.receipts = receipts;
+        report.lines = lines;
+
+        long subtotal = 0;
+        long discount = 0;
+        long tax = 0;
+        long total = 0;
+        for (int i = 0; i < receipts; i++) {
+            subtotal += c.subtotal[i];
+            discount += c.discount[i];
+            tax += c.tax[i];
+            total += c.total[i];
+        }
+        report.subtotal = Money.ofCents(subtotal);
+        report.discount = Money.ofCents(discount);
+        report.tax = Money.ofCents(tax);
+        report.total = Money.ofCents(total);
+
+        ZoneId zone = ZoneId.systemDefault();
+        long[] centsByHour = new long[24];
+        long[] centsByTender = new long[c.tenders.size()];
+        for (int i = 0; i < receipts; i++) {
+            int hour = Instant.ofEpochMilli(c.time[i]).atZone(zone).getHour();
+            centsByHour[hour] += c.total[i];
+            report.receiptsByHour[hour]++;
+            centsByTender[c.tender[i]] += c.total[i];
+        }
+        for (int h = 0; h < 24; h++) {
+            report.totalByHour[h] = Money.ofCents(centsByHour[h]);
+        }
+        for (int t = 0; t < centsByTender.length; t++) {
+            report.totalByTender.put(c.tenders.get(t), Money.ofCents(centsByTender[t]));
+        }
+
+        long units = 0;
+        long[] qtyByItem = new long[c.items.size()];
+        long[] centsByItem = new long[c.items.size()];
+        int[] item = c.item;
+        int[] qty = c.qty;
+        long[] lineCents = c.lineCents;
+        for (int i = 0; i < lines; i++) {
+            int code = item[i];
+            qtyByItem[code] += qty[i];
+            centsByItem[code] += lineCents[i];
+            units += qty[i];
+        }
+        report.units = units;
+        for (int code = 0; code < qtyByItem.length; code++) {
+            ItemTotals totals = new ItemTotals();
+            totals.itemId = c.items.get(code);
+            totals.qty = qtyByItem[code];
+            totals.sales = Money.ofCents(centsByItem[code]);
+            report.byItem.add(totals);
+        }
+        report.byItem.sort(Comparator.comparingLong((ItemTotals t) -> t.sales.getCents()).reversed());
+    }
+
+    // ---------------------------------------------------------------- writer
+
+    private static void writeLoop() {
+        try {
+            Files.createDirectories(DIR);
+            catchUp();
+        } catch (IOException | SQLException e) {
+            System.err.println("[Analytics] Catch-up failed, continuing with new sales only: " + e.getMessage());
+        }
+        while (running || !queue.isEmpty()) {
+            // A block is written once its oldest receipt has waited flushMs, even under steady traffic
+            long wait = FLUSH_MILLIS;
+            if (segment != null && segment.getPendingCount() > 0) {
+                wait = oldestPendingAt + FLUSH_MILLIS - System.currentTimeMillis();
+            }
+            Object next;
+            try {
+                next = wait > 0 ? queue.poll(wait, TimeUnit.MILLISECONDS) : null;
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (next == null) {
+                flushSegment();
+            } else if (next instanceof CompletableFuture<?> request) {
+                flushSegment();
+                request.complete(null);
+            } else {
+                append((SalesSegment.Receipt) next);
+            }
+        }
+        flushSegment();
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+        // Anyone still waiting in report() gets what is on disk
+        for (Object left : queue) {
+            if (left instanceof CompletableFuture<?> request) {
+                request.complete(null);
+            }
+        }
+    }
+
+    private static void flushWriter() {
+        if (!running || Thread.currentThread() == writer) {
+            return;
+        }
+        CompletableFuture<Object> request = new CompletableFuture<>();
+        queue.add(request);
+        try {
+            request.get(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // report what is already written
+        }
+    }
+
+    private static void append(SalesSegment.Receipt receipt) {
+        if (failed || receipt.receiptId <= lastReceiptId) {
+            skipped.increment(); // already copied by the catch-up, or the store is broken for this run
+            return;
+        }
+        LocalDate day = Instant.ofEpochMilli(receipt.timeMillis).atZone(ZoneId.systemDefault()).toLocalDate();
+        try {
+            if (!day.equals(segmentDay)) {
+                flushSegment();
+                if (segment != null) {
+                    segment.close();
+                }
+                segment = null;
+                segment = SalesSegment.open(segmentPath(day));
+                segmentDay = day;
+            }
+            if (segment.getPendingCount() == 0) {
+                oldestPendingAt = System.currentTimeMillis();
+            }
+            segment.add(receipt);
+            lastReceiptId = receipt.receiptId;
+            if (segment.getPendingCount() >= BLOCK_RECEIPTS) {
+                flushSegment();
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private static void flushSegment() {
+        if (segment == null || segment.getPendingCount() == 0 || failed) {
+            return;
+        }
+        try {
+            segment.flush(FSYNC);
+            blocks.increment();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    // The next start catches up from the last block on disk, so stop writing rather than leave a gap
+    private static void fail(IOException e) {
+        System.err.println("[Analytics] Write failed, not recording more sales until restart: " + e.getMessage());
+        failed = true;
+        if (segment != null) {
+            segment.close();
+            segment = null;
+            segmentDay = null;
+        }
+    }
+
+    /**
+     * Copies receipts stored after the last one in the store, or from the last
+     * pos.analytics.backfillDays days into an empty store.
+     */
+    private static void catchUp() throws IOException, SQLException {
+        long after = lastStoredReceiptId();
+        lastReceiptId = after;
+
+        String sql = """
+                SELECT h.receipt_id, h.created_at, h.tender_type, h.subtotal_cents, h.discount_cents,
+                       h.tax_cents, h.total_cents, l.item_id, l.qty, l.line_total_cents
+                FROM receipt_header h LEFT JOIN receipt_line l ON l.receipt_id = h.receipt_id
+                """
+                + (after > 0 ? "WHERE h.receipt_id > ?" : "WHERE h.created_at >= ?")
+                + " ORDER BY h.receipt_id, l.line_no";
+        long before = caughtUp.sum();
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (after > 0) {
+                stmt.setLong(1, after);
+            } else {
+                stmt.setTimestamp(1, Timestamp.valueOf(LocalDate.now().minusDays(BACKFILL_DAYS).atStartOfDay()));
+            }
+            stmt.setFetchSize(1_000);
+            try (ResultSet rs = stmt.executeQuery()) {
+                ReceiptRows rows = null;
+                while (rs.next()) {
+                    long receiptId = rs.getLong(1);
+                    if (rows == null || rows.receiptId != receiptId) {
+                        if (rows != null) {
+                            append(rows.toReceipt());
+                            caughtUp.increment();
+                        }
+                        rows = new ReceiptRows(receiptId, rs.getTimestamp(2).getTime(), rs.getString(3),
+                                rs.getLong(4), rs.getLong(5), rs.getLong(6), rs.getLong(7));
+                    }
+                    String itemId = rs.getString(8);
+                    if (itemId != null) {
+                        rows.add(itemId, rs.getInt(9), rs.getLong(10));
+                    }
+                }
+                if (rows != null) {
+                    append(rows.toReceipt());
+                    caughtUp.increment();
+                }
+            }
+        }
+        flushSegment();
+        long copied = caughtUp.sum() - before;
+        if (copied > 0) {
+            System.out.println("[Analytics] Copied " + copied + " receipt(s) from the database");
+        }
+    }
+
+    // A receipt being assembled from the catch-up join, one row per line
+    private static final class ReceiptRows {
+        final long receiptId;
+        final long timeMillis;
+        final String tender;
+        final long subtotal;
+        final long discount;
+        final long tax;
+        final long total;
+        final List<String> itemIds = new ArrayList<>();
+        final List<Integer> qty = new ArrayList<>();
+        final List<Long> cents = new ArrayList<>();
+
+        ReceiptRows(long receiptId, long timeMillis, String tender, long subtotal, long discount, long tax, long total) {
+            this.receiptId = receiptId;
+            this.timeMillis = timeMillis;
+            this.tender = tender;
+            this.subtotal = subtotal;
+            this.discount = discount;
+            this.tax = tax;
+            this.total = total;
+        }
+
+        void add(String itemId, int q, long c) {
+            itemIds.add(itemId);
+            qty.add(q);
+            cents.add(c);
+        }
+
+        SalesSegment.Receipt toReceipt() {
+            int n = itemIds.size();
+            int[] q = new int[n];
+            long[] c = new long[n];
+            for (int i = 0; i < n; i++) {
+                q[i] = qty.get(i);
+                c[i] = cents.get(i);
+            }
+            return new SalesSegment.Receipt(receiptId, timeMillis, tender, subtotal, discount, tax, total,
+                    itemIds.toArray(new String[0]), q, c);
+        }
+    }
+
+    private static Path segmentPath(LocalDate day) {
+        return DIR.resolve(PREFIX + day + SUFFIX);
+    }
+
+    /**
+     * Highest receipt id in the store, or 0 if it holds none. Receipt ids are time-ordered and
+     * yyyy-MM-dd names sort by date, so this is the last receipt of the newest segment that has
+     * any; segments without a readable block (e.g. left empty by a crash) are skipped.
+     */
+    private static long lastStoredReceiptId() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(DIR, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                segments.add(file);
+            }
+        }
+        segments.sort(Comparator.comparing((Path p) -> p.getFileName().toString()).reversed());
+        for (Path file : segments) {
+            long last = SalesSegment.read(file).lastReceiptId();
+            if (last > 0) {
+                return last;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,443 @@
+package org.example.models.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * One day of committed sales in columnar form: an append-only file of blocks, each holding a
+ * few hundred receipts.
+ *
+ * A block is [int magic][int payloadLength][int crc32c][payload]. The payload starts with the
+ * item ids and tender types first used in the block (the file's dictionaries grow block by block,
+ * and rows refer to them by code), followed by one column at a time:
+ * <pre>
+ * receipts  receiptId (delta)  time millis (delta)  tender code  line count
+ *           subtotal  discount  tax  total (long cents)
+ * lines     item code  qty  line total (long cents)
+ * </pre>
+ * Every number is a varint, zigzag-encoded where it can be negative, so ids and times cost a
+ * byte or two per row. Reading a file stops at the first block with a bad length or CRC (a write
+ * torn by a crash); opening it for append cuts that tail off. The file is only created when its
+ * first block is written, so a segment file always holds at least one block.
+ */
+public class SalesSegment {
+
+    private static final int MAGIC = 0x53414C31; // "SAL1"
+    private static final int BLOCK_HEADER_BYTES = 12;
+
+    /** One committed sale as the analytics store sees it. */
+    static final class Receipt {
+        final long receiptId;
+        final long timeMillis;
+        final String tender;
+        final long subtotalCents;
+        final long discountCents;
+        final long taxCents;
+        final long totalCents;
+        final String[] itemIds;
+        final int[] qty;
+        final long[] lineCents;
+
+        Receipt(long receiptId, long timeMillis, String tender, long subtotalCents, long discountCents,
+                long taxCents, long totalCents, String[] itemIds, int[] qty, long[] lineCents) {
+            this.receiptId = receiptId;
+            this.timeMillis = timeMillis;
+            this.tender = tender == null ? "" : tender;
+            this.subtotalCents = subtotalCents;
+            this.discountCents = discountCents;
+            this.taxCents = taxCents;
+            this.totalCents = totalCents;
+            this.itemIds = itemIds;
+            this.qty = qty;
+            this.lineCents = lineCents;
+        }
+    }
+
+    /** A whole segment decoded into primitive column arrays; only the first receipts/lines entries are used. */
+    public static final class Columns {
+        public final List<String> items = new ArrayList<>();
+        public final List<String> tenders = new ArrayList<>();
+
+        public int receipts;
+        public long[] receiptId = new long[256];
+        public long[] time = new long[256];
+        public int[] tender = new int[256];
+        public int[] lineCount = new int[256];
+        public long[] subtotal = new long[256];
+        public long[] discount = new long[256];
+        public long[] tax = new long[256];
+        public long[] total = new long[256];
+
+        public int lines;
+        public int[] lineReceipt = new int[1024]; // index into the receipt columns
+        public int[] item = new int[1024];
+        public int[] qty = new int[1024];
+        public long[] lineCents = new long[1024];
+
+        long validBytes;
+
+        public long lastReceiptId() {
+            return receipts == 0 ? 0 : receiptId[receipts - 1];
+        }
+
+        private void ensureReceipts(int n) {
+            if (receipts + n <= receiptId.length) {
+                return;
+            }
+            int size = Math.max(receiptId.length * 2, receipts + n);
+            receiptId = Arrays.copyOf(receiptId, size);
+            time = Arrays.copyOf(time, size);
+            tender = Arrays.copyOf(tender, size);
+            lineCount = Arrays.copyOf(lineCount, size);
+            subtotal = Arrays.copyOf(subtotal, size);
+            discount = Arrays.copyOf(discount, size);
+            tax = Arrays.copyOf(tax, size);
+            total = Arrays.copyOf(total, size);
+        }
+
+        private void ensureLines(int n) {
+            if (lines + n <= item.length) {
+                return;
+            }
+            int size = Math.max(item.length * 2, lines + n);
+            lineReceipt = Arrays.copyOf(lineReceipt, size);
+            item = Arrays.copyOf(item, size);
+            qty = Arrays.copyOf(qty, size);
+            lineCents = Arrays.copyOf(lineCents, size);
+        }
+    }
+
+    private final Path path;
+    private FileChannel channel; // null until the first block of a new file
+    private final Map<String, Integer> itemCodes = new HashMap<>();
+    private final Map<String, Integer> tenderCodes = new HashMap<>();
+    private int itemCount;
+    private int tenderCount;
+    private long lastReceiptId;
+    private final List<Receipt> pending = new ArrayList<>();
+    private final CRC32C crc = new CRC32C();
+    private byte[] buf = new byte[64 * 1024];
+    private int len;
+
+    private SalesSegment(Path path, FileChannel channel, Columns existing) {
+        this.path = path;
+        this.channel = channel;
+        for (String id : existing.items) {
+            itemCodes.put(id, itemCount++);
+        }
+        for (String t : existing.tenders) {
+            tenderCodes.put(t, tenderCount++);
+        }
+        this.lastReceiptId = existing.lastReceiptId();
+    }
+
+    /** Opens a segment for appending, dropping a torn block at its end; a new file is created by flush(). */
+    static SalesSegment open(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return new SalesSegment(path, null, new Columns());
+        }
+        Columns existing = read(path);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() > existing.validBytes) {
+            System.err.println("[SalesSegment] Dropping " + (channel.size() - existing.validBytes)
+                    + " torn byte(s) at the end of " + path.getFileName());
+            channel.truncate(existing.validBytes);
+        }
+        channel.position(existing.validBytes);
+        return new SalesSegment(path, channel, existing);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getLastReceiptId() {
+        return lastReceiptId;
+    }
+
+    int getPendingCount() {
+        return pending.size();
+    }
+
+    /** Buffers a receipt for the next block. */
+    void add(Receipt receipt) {
+        pending.add(receipt);
+        lastReceiptId = receipt.receiptId;
+    }
+
+    /** Writes the buffered receipts as one block. */
+    void flush(boolean fsync) throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        len = BLOCK_HEADER_BYTES;
+
+        List<String> newItems = new ArrayList<>();
+        List<String> newTenders = new ArrayList<>();
+        for (Receipt r : pending) {
+            if (!tenderCodes.containsKey(r.tender)) {
+                tenderCodes.put(r.tender, tenderCount++);
+                newTenders.add(r.tender);
+            }
+            for (String id : r.itemIds) {
+                if (!itemCodes.containsKey(id)) {
+                    itemCodes.put(id, itemCount++);
+                    newItems.add(id);
+                }
+            }
+        }
+        putStrings(newItems);
+        putStrings(newTenders);
+
+        putVarLong(pending.size());
+        long prevId = 0;
+        long prevTime = 0;
+        for (Receipt r : pending) {
+            putVarLong(zigzag(r.receiptId - prevId));
+            prevId = r.receiptId;
+        }
+        for (Receipt r : pending) {
+            putVarLong(zigzag(r.timeMillis - prevTime));
+            prevTime = r.timeMillis;
+        }
+        for (Receipt r : pending) {
+            putVarLong(tenderCodes.get(r.tender));
+        }
+        for (Receipt r : pending) {
+            putVarLong(r.itemIds.length);
+        }
+        for (Receipt r : pending) {
+            putVarLong(zigzag(r.subtotalCents));
+        }
+        for (Receipt r : pending) {
+            putVarLong(zigzag(r.discountCents));
+        }
+        for (Receipt r : pending) {
+            putVarLong(zigzag(r.taxCents));
+        }
+        for (Receipt r : pending) {
+            putVarLong(zigzag(r.totalCents));
+        }
+        for (Receipt r : pending) {
+            for (String id : r.itemIds) {
+                putVarLong(itemCodes.get(id));
+            }
+        }
+        for (Receipt r : pending) {
+            for (int q : r.qty) {
+                putVarLong(zigzag(q));
+            }
+        }
+        for (Receipt r : pending) {
+            for (long c : r.lineCents) {
+                putVarLong(zigzag(c));
+            }
+        }
+
+        int payloadLength = len - BLOCK_HEADER_BYTES;
+        crc.reset();
+        crc.update(buf, BLOCK_HEADER_BYTES, payloadLength);
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+        ByteBuffer block = ByteBuffer.wrap(buf, 0, len);
+        block.putInt(0, MAGIC).putInt(4, payloadLength).putInt(8, (int) crc.getValue());
+        while (block.hasRemaining()) {
+            channel.write(block);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+        pending.clear();
+    }
+
+    void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("[SalesSegment] Failed to close " + path.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    /** Decodes every intact block of a segment file. */
+    public static Columns read(Path path) throws IOException {
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path));
+        Columns c = new Columns();
+        CRC32C check = new CRC32C();
+        while (file.remaining() >= BLOCK_HEADER_BYTES) {
+            int start = file.position();
+            int magic = file.getInt();
+            int payloadLength = file.getInt();
+            int expected = file.getInt();
+            if (magic != MAGIC || payloadLength < 0 || payloadLength > file.remaining()) {
+                break;
+            }
+            check.reset();
+            check.update(file.array(), file.position(), payloadLength);
+            if ((int) check.getValue() != expected) {
+                break;
+            }
+            ByteBuffer payload = file.slice(file.position(), payloadLength);
+            int receiptsBefore = c.receipts;
+            int linesBefore = c.lines;
+            int itemsBefore = c.items.size();
+            int tendersBefore = c.tenders.size();
+            try {
+                readBlock(payload, c);
+            } catch (RuntimeException e) {
+                // CRC matched but the block does not decode: treat it as the end of the data
+                c.receipts = receiptsBefore;
+                c.lines = linesBefore;
+                c.items.subList(itemsBefore, c.items.size()).clear();
+                c.tenders.subList(tendersBefore, c.tenders.size()).clear();
+                file.position(start);
+                break;
+            }
+            file.position(file.position() + payloadLength);
+            c.validBytes = file.position();
+        }
+        return c;
+    }
+
+    private static void readBlock(ByteBuffer in, Columns c) {
+        readStrings(in, c.items);
+        readStrings(in, c.tenders);
+        int n = (int) getVarLong(in);
+        c.ensureReceipts(n);
+        int base = c.receipts;
+
+        long id = 0;
+        for (int i = 0; i < n; i++) {
+            id += unzigzag(getVarLong(in));
+            c.receiptId[base + i] = id;
+        }
+        long time = 0;
+        for (int i = 0; i < n; i++) {
+            time += unzigzag(getVarLong(in));
+            c.time[base + i] = time;
+        }
+        for (int i = 0; i < n; i++) {
+            c.tender[base + i] = code(getVarLong(in), c.tenders.size());
+        }
+        int blockLines = 0;
+        for (int i = 0; i < n; i++) {
+            int count = (int) getVarLong(in);
+            c.lineCount[base + i] = count;
+            blockLines += count;
+        }
+        for (int i = 0; i < n; i++) {
+            c.subtotal[base + i] = unzigzag(getVarLong(in));
+        }
+        for (int i = 0; i < n; i++) {
+            c.discount[base + i] = unzigzag(getVarLong(in));
+        }
+        for (int i = 0; i < n; i++) {
+            c.tax[base + i] = unzigzag(getVarLong(in));
+        }
+        for (int i = 0; i < n; i++) {
+            c.total[base + i] = unzigzag(getVarLong(in));
+        }
+
+        c.ensureLines(blockLines);
+        int lineBase = c.lines;
+        int line = lineBase;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < c.lineCount[base + i]; j++) {
+                c.lineReceipt[line++] = base + i;
+            }
+        }
+        for (int i = 0; i < blockLines; i++) {
+            c.item[lineBase + i] = code(getVarLong(in), c.items.size());
+        }
+        for (int i = 0; i < blockLines; i++) {
+            c.qty[lineBase + i] = (int) unzigzag(getVarLong(in));
+        }
+        for (int i = 0; i < blockLines; i++) {
+            c.lineCents[lineBase + i] = unzigzag(getVarLong(in));
+        }
+        c.receipts += n;
+        c.lines += blockLines;
+    }
+
+    private static int code(long value, int dictionarySize) {
+        if (value < 0 || value >= dictionarySize) {
+            throw new IllegalStateException("Dictionary code " + value + " out of range");
+        }
+        return (int) value;
+    }
+
+    // ---------------------------------------------------------------- varints
+
+    private void putStrings(List<String> strings) {
+        putVarLong(strings.size());
+        for (String s : strings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            putVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, len, bytes.length);
+            len += bytes.length;
+        }
+    }
+
+    private static void readStrings(ByteBuffer in, List<String> into) {
+        int n = (int) getVarLong(in);
+        for (int i = 0; i < n; i++) {
+            int length = (int) getVarLong(in);
+            if (length < 0 || length > in.remaining()) {
+                throw new IllegalStateException("Bad string length " + length);
+            }
+            into.add(new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8));
+            in.position(in.position() + length);
+        }
+    }
+
+    private void putVarLong(long v) {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            buf[len++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[len++] = (byte) v;
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return v;
+            }
+        }
+        throw new IllegalStateException("Varint too long");
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private void ensure(int bytes) {
+        if (len + bytes > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + bytes));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package org.example.models.services;
+
+import org.example.utils.SpscRingBuffer;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Consumer side of the scanner pipeline.
+ *
+ * GlobalKeyScanner (on the EDT) offers completed codes into a single-producer/single-consumer ring;
+ * the scan-processor thread drains it and hands batches back to the EDT. Only one batch is on the
+ * EDT at a time: scans arriving while it is being applied are queued up behind it, and consecutive
+ * scans of the same code become one quantity update. Scan-to-display latency is measured from the
+ * terminating keystroke to the first EDT turn after the basket update, i.e. after the repaint the
+ * update queued.
+ */
+public class ScanProcessor {
+
+    /** Applies one (possibly coalesced) scan on the EDT. */
+    public interface ScanSink {
+        void apply(String code, String source, int qty);
+    }
+
+    /** One completed code as handed over by the keystroke side. */
+    public static final class Scan {
+        final String code;
+        final String source;
+        final long completedNanos;
+
+        public Scan(String code, String source, long completedNanos) {
+            this.code = code;
+            this.source = source;
+            this.completedNanos = completedNanos;
+        }
+    }
+
+    public static class ScanStats {
+        public long scans;
+        public long scannerScans;
+        public long keyboardScans;
+        public long updates;
+        public long coalesced;
+        public long dropped;
+        public int queued;
+        public double scansPerSecond;
+        public double avgLatencyMillis;
+        public double p50LatencyMillis;
+        public double p99LatencyMillis;
+        public double maxLatencyMillis;
+
+        @Override
+        public String toString() {
+            return String.format(java.util.Locale.US,
+                    "scans=%d (scanner=%d keyboard=%d) updates=%d coalesced=%d dropped=%d queued=%d " +
+                            "rate=%.2f/s latency avg=%.2fms p50=%.2fms p99=%.2fms max=%.2fms",
+                    scans, scannerScans, keyboardScans, updates, coalesced, dropped, queued,
+                    scansPerSecond, avgLatencyMillis, p50LatencyMillis, p99LatencyMillis, maxLatencyMillis);
+        }
+    }
+
+    // A run of consecutive scans of the same code
+    private static final class Run {
+        final String code;
+        final String source;
+        final long firstNanos;
+        int qty = 1;
+
+        Run(Scan scan) {
+            this.code = scan.code;
+            this.source = scan.source;
+            this.firstNanos = scan.completedNanos;
+        }
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int RATE_WINDOW_SECONDS = 10;
+    private static final int LATENCY_SAMPLES = 512;
+
+    private final SpscRingBuffer<Scan> ring;
+    private final ScanSink sink;
+    private final Thread thread;
+    private final AtomicBoolean inFlight = new AtomicBoolean();
+    private volatile boolean running = true;
+    private volatile long dropped;
+
+    // Written on the EDT, read by getStats(); guarded by this
+    private long scans, scannerScans, keyboardScans, updates, coalesced;
+    private final long[] perSecond = new long[RATE_WINDOW_SECONDS];
+    private final long[] perSecondStamp = new long[RATE_WINDOW_SECONDS];
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private long latencyCount, latencySum, latencyMax;
+
+    public ScanProcessor(int capacity, ScanSink sink) {
+        this.ring = new SpscRingBuffer<>(capacity);
+        this.sink = sink;
+        this.thread = new Thread(this::drainLoop, "scan-processor");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Producer side; call only from the one keystroke thread. Returns false if the ring is full.
+     */
+    public boolean submit(Scan scan) {
+        if (!ring.offer(scan)) {
+            dropped++;
+            return false;
+        }
+        LockSupport.unpark(thread);
+        return true;
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    public synchronized ScanStats getStats() {
+        ScanStats s = new ScanStats();
+        s.scans = scans;
+        s.scannerScans = scannerScans;
+        s.keyboardScans = keyboardScans;
+        s.updates = updates;
+        s.coalesced = coalesced;
+        s.dropped = dropped;
+        s.queued = ring.size();
+
+        long nowSecond = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        long recent = 0;
+        for (int i = 0; i < RATE_WINDOW_SECONDS; i++) {
+            if (nowSecond - perSecondStamp[i] < RATE_WINDOW_SECONDS) {
+                recent += perSecond[i];
+            }
+        }
+        s.scansPerSecond = (double) recent / RATE_WINDOW_SECONDS;
+
+        if (latencyCount > 0) {
+            int n = (int) Math.min(latencyCount, LATENCY_SAMPLES);
+            long[] sorted = Arrays.copyOf(latencies, n);
+            Arrays.sort(sorted);
+            s.avgLatencyMillis = latencySum / (double) latencyCount / 1_000_000.0;
+            s.p50LatencyMillis = sorted[(n - 1) / 2] / 1_000_000.0;
+            s.p99LatencyMillis = sorted[(int) Math.ceil(n * 0.99) - 1] / 1_000_000.0;
+            s.maxLatencyMillis = latencyMax / 1_000_000.0;
+        }
+        return s;
+    }
+
+    private void drainLoop() {
+        List<Run> pending = new ArrayList<>();
+        while (running || ring.peek() != null) {
+            Scan scan;
+            while ((scan = ring.poll()) != null) {
+                Run last = pending.isEmpty() ? null : pending.get(pending.size() - 1);
+                if (last != null && last.code.equals(scan.code) && last.source.equals(scan.source)) {
+                    last.qty++;
+                } else {
+                    pending.add(new Run(scan));
+                }
+            }
+            if (!pending.isEmpty() && inFlight.compareAndSet(false, true)) {
+                List<Run> batch = pending;
+                pending = new ArrayList<>();
+                SwingUtilities.invokeLater(() -> applyBatch(batch));
+                continue;
+            }
+            // Nothing to hand over, or the EDT is still applying the previous batch
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    private void applyBatch(List<Run> batch) {
+        try {
+            for (Run run : batch) {
+                try {
+                    sink.apply(run.code, run.source, run.qty);
+                } catch (Exception e) {
+                    System.err.println("[ScanProcessor] Failed to apply scan " + run.code + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            // Runs after the repaint events the update queued
+            SwingUtilities.invokeLater(() -> {
+                recordDisplayed(batch, System.nanoTime());
+                inFlight.set(false);
+                LockSupport.unpark(thread);
+            });
+        }
+    }
+
+    private synchronized void recordDisplayed(List<Run> batch, long now) {
+        long second = TimeUnit.NANOSECONDS.toSeconds(now);
+        int slot = (int) (second % RATE_WINDOW_SECONDS);
+        if (perSecondStamp[slot] != second) {
+            perSecondStamp[slot] = second;
+            perSecond[slot] = 0;
+        }
+        for (Run run : batch) {
+            scans += run.qty;
+            coalesced += run.qty - 1;
+            updates++;
+            if ("Scanner".equals(run.source)) {
+                scannerScans += run.qty;
+            } else {
+                keyboardScans += run.qty;
+            }
+            perSecond[slot] += run.qty;
+
+            long latency = Math.max(0, now - run.firstNanos);
+            latencies[(int) (latencyCount % LATENCY_SAMPLES)] = latency;
+            latencyCount++;
+            latencySum += latency;
+            latencyMax = Math.max(latencyMax, latency);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.models.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Brings the database schema up to date from the scripts in resources/db/migrations.
+ *
+ * Scripts are named V&lt;version&gt;__&lt;description&gt;.sql and listed in MIGRATIONS in the order they
+ * must run. Every applied version is recorded in schema_version together with a checksum of the
+ * script; already applied versions are skipped, and a changed script is reported but not re-run.
+ * Scripts themselves use IF NOT EXISTS so they are safe against databases created before this
+ * table existed.
+ */
+public class SchemaMigrator {
+
+    private static final String MIGRATION_DIR = "db/migrations/";
+
+    // Append new scripts here; never reorder or edit one that has shipped
+    private static final String[] MIGRATIONS = {
+            "V001__baseline.sql",
+            "V002__hot_query_indexes.sql",
+            "V003__app_metadata.sql",
+            "V004__item_sales_summary.sql",
+            "V005__receipt_header_line.sql",
+            "V006__journal_keyset_indexes.sql",
+            "V007__journal_transaction_lines.sql",
+    };
+
+    /**
+     * Applies pending migrations and returns how many ran.
+     */
+    public static int migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS schema_version (
+                    version INT PRIMARY KEY,
+                    script VARCHAR(255),
+                    checksum BIGINT,
+                    applied_at TIMESTAMP
+                )
+            """);
+        }
+
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+
+        int ran = 0;
+        for (String script : MIGRATIONS) {
+            int version = versionOf(script);
+            String sql = readScript(script);
+            long checksum = checksum(sql);
+
+            Long recorded = applied.get(version);
+            if (recorded != null) {
+                if (recorded != checksum) {
+                    System.err.println("[SchemaMigrator] " + script + " changed after it was applied; not re-running it");
+                }
+                continue;
+            }
+
+            long started = System.currentTimeMillis();
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement();
+                 PreparedStatement record = conn.prepareStatement(
+                         "INSERT INTO schema_version (version, script, checksum, applied_at) VALUES (?, ?, ?, CURRENT_TIMESTAMP)")) {
+                for (String statement : splitStatements(sql)) {
+                    stmt.execute(statement);
+                }
+                record.setInt(1, version);
+                record.setString(2, script);
+                record.setLong(3, checksum);
+                record.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw new SQLException("Migration " + script + " failed: " + e.getMessage(), e);
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            ran++;
+            System.out.println("[SchemaMigrator] Applied " + script + " in " + (System.currentTimeMillis() - started) + " ms");
+        }
+        return ran;
+    }
+
+    static int versionOf(String script) {
+        int sep = script.indexOf("__");
+        if (!script.startsWith("V") || sep < 2) {
+            throw new IllegalArgumentException("Bad migration name: " + script);
+        }
+        return Integer.parseInt(script.substring(1, sep));
+    }
+
+    private static String readScript(String script) throws SQLException {
+        try (InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(MIGRATION_DIR + script)) {
+            if (in == null) {
+                throw new SQLException("Migration script not found: " + MIGRATION_DIR + script);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Could not read " + script + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Statements end with ';' at the end of a line; '--' lines are comments
+    private static List<String> splitStatements(String sql) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : sql.split("\r?\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                String statement = current.toString().trim();
+                statements.add(statement.substring(0, statement.length() - 1));
+                current.setLength(0);
+            }
+        }
+        if (current.toString().trim().length() > 0) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+
+    private static long checksum(String sql) {
+        CRC32 crc = new CRC32();
+        crc.update(sql.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
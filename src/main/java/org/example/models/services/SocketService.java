@@ -1,17 +1,110 @@
 package org.example.models.services;
 
-import java.io.*;
-import java.net.Socket;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+/**
+ * Non-blocking journal transport.
+ *
+ * All socket work happens on a single "journal-io" thread driven by a Selector. Callers only
+ * encode their lines into pooled direct buffers and enqueue them; the I/O thread sends whatever is
+ * queued with gathering writes and reconnects in the background with exponential backoff when the
+ * journal server goes away. Lines queued while offline are kept (up to maxPendingBytes) and sent
+ * after the next successful connect. The journal spool uses sendReplayable() instead, keeping
+ * its own durable copy and resending from its last acknowledged sequence after a reconnect.
+ */
 public class SocketService {
+
+    public enum ConnectionState {
+        DISCONNECTED,
+        CONNECTING,
+        CONNECTED,
+        RECONNECTING
+    }
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 64;
+    private static final int MAX_GATHER = 64;
+    private static final long CONNECT_TIMEOUT_MILLIS = 3_000;
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final long DISCONNECT_FLUSH_MILLIS = 1_000;
+
     private String serverHost = "localhost";  // Changed from static final to instance variable
     private int serverPort = 1234;           // Changed from static final to instance variable
     private static SocketService instance;
-    
-    private Socket socket;
-    private BufferedWriter bufferedWriter;
-    private BufferedReader bufferedReader;
-    private boolean connected = false;
+
+    private final long maxPendingBytes = Long.getLong("pos.journal.socket.maxPendingBytes", 4L * 1024 * 1024);
+
+    // Producer side (any thread)
+    private final ConcurrentLinkedQueue<Chunk> outbound = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong droppedLines = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final Object encodeLock = new Object();
+    private ByteBuffer openBuffer;
+
+    private final CopyOnWriteArrayList<Consumer<ConnectionState>> listeners = new CopyOnWriteArrayList<>();
+    private volatile InboundListener inboundListener;
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private volatile ConnectionState state = ConnectionState.DISCONNECTED;
+    private final AtomicLong connectionEpoch = new AtomicLong();
+    private volatile boolean wantConnected = false;
+
+    // I/O thread only
+    private Selector selector;
+    private Thread ioThread;
+    private SocketChannel channel;
+    private SelectionKey key;
+    private InetSocketAddress target;
+    private final ArrayDeque<Chunk> inflight = new ArrayDeque<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(1024);
+    private long backoffMillis = INITIAL_BACKOFF_MILLIS;
+    private long nextAttemptAt = 0;
+    private long connectStartedAt = 0;
+    private CountDownLatch connectOutcome = new CountDownLatch(1);
+
+    /**
+     * A queued buffer. Replayable chunks belong to a caller that keeps its own copy of the data
+     * (the journal spool): they are tied to one connection epoch, discarded when that connection
+     * drops, and report back through onFlushed once fully written to the socket.
+     */
+    private static final class Chunk {
+        final ByteBuffer buffer;
+        final long epoch;
+        final Runnable onFlushed;
+
+        Chunk(ByteBuffer buffer, long epoch, Runnable onFlushed) {
+            this.buffer = buffer;
+            this.epoch = epoch;
+            this.onFlushed = onFlushed;
+        }
+
+        boolean isReplayable() {
+            return epoch >= 0;
+        }
+    }
+
+    /** Receives bytes sent by the server, on the I/O thread, tagged with their connection epoch. */
+    public interface InboundListener {
+        void received(long epoch, ByteBuffer data);
+    }
 
     private SocketService() {
         // Private constructor for singleton
@@ -41,68 +134,564 @@ public class SocketService {
         this.serverPort = serverPort;
     }
 
+    public ConnectionState getState() {
+        return state;
+    }
+
+    /**
+     * Subscribes to connection-state changes. Callbacks run on the journal-io thread; UI code must
+     * hop to the EDT itself.
+     */
+    public void addConnectionListener(Consumer<ConnectionState> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeConnectionListener(Consumer<ConnectionState> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sets the single consumer of server-to-client bytes (the binary journal protocol's ACKs).
+     * data is only valid during the call. Without a listener inbound bytes are discarded.
+     */
+    public void setInboundListener(InboundListener listener) {
+        this.inboundListener = listener;
+    }
+
+    /**
+     * Starts (or restarts, if host/port changed) the connection and waits up to the connect timeout
+     * for the first attempt. If that attempt fails the service keeps retrying in the background.
+     */
     public boolean connect() {
+        InetSocketAddress requested = InetSocketAddress.createUnresolved(serverHost, serverPort);
+        CountDownLatch outcome = new CountDownLatch(1);
+        ensureIoThread();
+        wantConnected = true;
+        commands.add(() -> {
+            connectOutcome.countDown();
+            connectOutcome = outcome;
+            if (channel != null && state == ConnectionState.CONNECTED && requested.equals(target)) {
+                outcome.countDown();
+                return;
+            }
+            target = requested;
+            if (channel != null) {
+                // Switching servers: nothing from the old connection may reach the new one
+                dropConnection();
+                setState(ConnectionState.RECONNECTING);
+            }
+            backoffMillis = INITIAL_BACKOFF_MILLIS;
+            nextAttemptAt = 0;
+        });
+        selector.wakeup();
         try {
-            socket = new Socket(serverHost, serverPort);  // Use instance variables instead of constants
-            
-            InputStreamReader inputStreamReader = new InputStreamReader(socket.getInputStream());
-            OutputStreamWriter outputStreamWriter = new OutputStreamWriter(socket.getOutputStream());
-            
-            bufferedReader = new BufferedReader(inputStreamReader);
-            bufferedWriter = new BufferedWriter(outputStreamWriter);
-            
-            connected = true;
-            System.out.println("[SocketService] Connected to server at " + serverHost + ":" + serverPort);
+            outcome.await(CONNECT_TIMEOUT_MILLIS + 500, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return isConnected();
+    }
+
+    public void sendLog(String logMessage) {
+        sendLogs(List.of(logMessage));
+    }
+
+    // Encodes a batch of log lines into the outbound queue; the I/O thread sends them in one gathering write
+    public void sendLogs(List<String> logMessages) {
+        if (logMessages.isEmpty()) {
+            return;
+        }
+        synchronized (encodeLock) {
+            for (String logMessage : logMessages) {
+                byte[] bytes = (logMessage + "\n").getBytes(StandardCharsets.UTF_8);
+                appendEncoded(bytes);
+            }
+            sealOpenBuffer();
+        }
+        trimBacklog();
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Counter that increases every time a connection is established. Replayable sends are only
+     * accepted for the current epoch.
+     */
+    public long getConnectionEpoch() {
+        return connectionEpoch.get();
+    }
+
+    /**
+     * Sends lines whose source keeps its own durable copy. Returns false (and sends nothing) unless
+     * the connection identified by epoch is still up. onFlushed runs on the I/O thread after the last
+     * line has been handed to the socket; if the connection drops first it never runs and the caller
+     * is expected to resend after the next connect.
+     */
+    public boolean sendReplayable(List<String> logMessages, long epoch, Runnable onFlushed) {
+        if (logMessages.isEmpty()) {
             return true;
-            
-        } catch (Exception e) {
-            System.err.println("[SocketService] Failed to connect to server: " + e.getMessage());
-            connected = false;
+        }
+        if (state != ConnectionState.CONNECTED || epoch != connectionEpoch.get()) {
             return false;
         }
+        synchronized (encodeLock) {
+            sealOpenBuffer();
+            ByteBuffer current = null;
+            for (String logMessage : logMessages) {
+                byte[] bytes = (logMessage + "\n").getBytes(StandardCharsets.UTF_8);
+                if (current != null && current.remaining() < bytes.length) {
+                    enqueue(current, epoch, null);
+                    current = null;
+                }
+                if (current == null) {
+                    current = bytes.length > BUFFER_SIZE ? ByteBuffer.allocateDirect(bytes.length) : takeBuffer();
+                }
+                current.put(bytes);
+            }
+            enqueue(current, epoch, onFlushed);
+        }
+        if (selector != null) {
+            selector.wakeup();
+        }
+        return true;
     }
 
-    public void sendLog(String logMessage) {
-        if (!connected) {
-            System.out.println("[SocketService] Not connected to server. Attempting to reconnect...");
-            if (!connect()) {
-                System.err.println("[SocketService] Failed to reconnect. Log not sent: " + logMessage);
-                return;
+    /**
+     * Binary counterpart of sendReplayable(List): queues one encoded frame (copied, so the caller
+     * may reuse its buffer) under the same epoch and flush rules.
+     */
+    public boolean sendReplayable(ByteBuffer frame, long epoch, Runnable onFlushed) {
+        if (state != ConnectionState.CONNECTED || epoch != connectionEpoch.get()) {
+            return false;
+        }
+        synchronized (encodeLock) {
+            sealOpenBuffer();
+            ByteBuffer current = null;
+            while (frame.hasRemaining()) {
+                if (current == null) {
+                    current = takeBuffer();
+                }
+                copy(frame, current);
+                if (frame.hasRemaining()) {
+                    enqueue(current, epoch, null);
+                    current = null;
+                }
+            }
+            if (current != null) {
+                enqueue(current, epoch, onFlushed);
             }
         }
+        if (selector != null) {
+            selector.wakeup();
+        }
+        return true;
+    }
+
+    /**
+     * Queues one encoded frame like sendLogs() queues lines: kept while offline (up to
+     * maxPendingBytes) and sent after reconnecting, with no delivery callback. The frame is copied.
+     */
+    public void sendFrame(ByteBuffer frame) {
+        synchronized (encodeLock) {
+            while (frame.hasRemaining()) {
+                if (openBuffer == null || !openBuffer.hasRemaining()) {
+                    sealOpenBuffer();
+                    openBuffer = takeBuffer();
+                }
+                copy(frame, openBuffer);
+            }
+            sealOpenBuffer();
+        }
+        trimBacklog();
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
 
+    private static void copy(ByteBuffer from, ByteBuffer to) {
+        int n = Math.min(from.remaining(), to.remaining());
+        ByteBuffer slice = from.duplicate();
+        slice.limit(slice.position() + n);
+        to.put(slice);
+        from.position(from.position() + n);
+    }
+
+    public void disconnect() {
+        wantConnected = false;
+        if (ioThread == null) {
+            return;
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        commands.add(() -> {
+            flushBeforeClose();
+            dropConnection();
+            setState(ConnectionState.DISCONNECTED);
+            System.out.println("[SocketService] Disconnected from server");
+            done.countDown();
+        });
+        selector.wakeup();
         try {
-            bufferedWriter.write(logMessage);
-            bufferedWriter.newLine(); // Add newline for better server parsing
-            bufferedWriter.flush();
+            done.await(DISCONNECT_FLUSH_MILLIS + 1_000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isConnected() {
+        return state == ConnectionState.CONNECTED;
+    }
+
+    public String getStats() {
+        return String.format("state=%s pendingBytes=%d sentBytes=%d droppedLines=%d",
+                state, pendingBytes.get(), sentBytes.get(), droppedLines.get());
+    }
+
+    // ---------------------------------------------------------------- producer side
 
-        } catch (Exception e) {
-            System.err.println("[SocketService] Error sending log: " + e.getMessage());
-            connected = false;
-            e.printStackTrace();
+    private void appendEncoded(byte[] bytes) {
+        if (openBuffer != null && openBuffer.remaining() < bytes.length) {
+            sealOpenBuffer();
         }
+        if (openBuffer == null) {
+            openBuffer = bytes.length > BUFFER_SIZE ? ByteBuffer.allocateDirect(bytes.length) : takeBuffer();
+        }
+        openBuffer.put(bytes);
     }
 
-    public void disconnect() {
+    private void sealOpenBuffer() {
+        if (openBuffer == null) {
+            return;
+        }
+        enqueue(openBuffer, -1, null);
+        openBuffer = null;
+    }
+
+    private void enqueue(ByteBuffer buffer, long epoch, Runnable onFlushed) {
+        buffer.flip();
+        pendingBytes.addAndGet(buffer.remaining());
+        outbound.add(new Chunk(buffer, epoch, onFlushed));
+    }
+
+    private ByteBuffer takeBuffer() {
+        ByteBuffer b = freeBuffers.poll();
+        if (b == null) {
+            b = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        b.clear();
+        return b;
+    }
+
+    private void recycle(ByteBuffer b) {
+        if (b.capacity() == BUFFER_SIZE && freeBuffers.size() < MAX_POOLED_BUFFERS) {
+            b.clear();
+            freeBuffers.add(b);
+        }
+    }
+
+    // Drops the oldest plain (non-replayable) buffers once the offline backlog exceeds maxPendingBytes.
+    // Runs on producer threads: a chunk is only recycled if remove() took it from the queue, since
+    // the I/O thread may have polled it for writing in the meantime.
+    private void trimBacklog() {
+        java.util.Iterator<Chunk> it = outbound.iterator();
+        while (pendingBytes.get() > maxPendingBytes && it.hasNext()) {
+            Chunk oldest = it.next();
+            if (oldest.isReplayable() || !outbound.remove(oldest)) {
+                continue;
+            }
+            pendingBytes.addAndGet(-oldest.buffer.remaining());
+            long lines = countLines(oldest.buffer);
+            if (droppedLines.getAndAdd(lines) == 0) {
+                System.err.println("[SocketService] Outbound backlog full, dropping oldest log lines");
+            }
+            recycle(oldest.buffer);
+        }
+    }
+
+    private static long countLines(ByteBuffer b) {
+        long n = 0;
+        for (int i = b.position(); i < b.limit(); i++) {
+            if (b.get(i) == '\n') {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    // ---------------------------------------------------------------- I/O thread
+
+    private synchronized void ensureIoThread() {
+        if (ioThread != null) {
+            return;
+        }
         try {
-            if (bufferedWriter != null) {
-                bufferedWriter.close();
+            selector = Selector.open();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to open selector", e);
+        }
+        ioThread = new Thread(this::ioLoop, "journal-io");
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    private void ioLoop() {
+        while (true) {
+            try {
+                Runnable command;
+                while ((command = commands.poll()) != null) {
+                    command.run();
+                }
+
+                long now = System.currentTimeMillis();
+                if (wantConnected && channel == null && target != null && now >= nextAttemptAt) {
+                    startConnect();
+                }
+                if (state == ConnectionState.CONNECTED) {
+                    writeOutbound();
+                }
+
+                selector.select(selectTimeout(System.currentTimeMillis()));
+
+                for (SelectionKey k : selector.selectedKeys()) {
+                    if (!k.isValid()) {
+                        continue;
+                    }
+                    if (k.isConnectable()) {
+                        finishConnect();
+                    }
+                    if (k.isValid() && k.isReadable()) {
+                        readInbound();
+                    }
+                    if (k.isValid() && k.isWritable()) {
+                        writeOutbound();
+                    }
+                }
+                selector.selectedKeys().clear();
+
+                if (state != ConnectionState.CONNECTED && channel != null
+                        && System.currentTimeMillis() - connectStartedAt > CONNECT_TIMEOUT_MILLIS) {
+                    connectionFailed("connect timed out");
+                }
+            } catch (Exception e) {
+                System.err.println("[SocketService] I/O loop error: " + e.getMessage());
+                connectionFailed(e.getMessage());
             }
-            if (bufferedReader != null) {
-                bufferedReader.close();
+        }
+    }
+
+    private long selectTimeout(long now) {
+        if (channel != null && state != ConnectionState.CONNECTED) {
+            return Math.max(1, CONNECT_TIMEOUT_MILLIS - (now - connectStartedAt));
+        }
+        if (wantConnected && channel == null && target != null) {
+            return Math.max(1, nextAttemptAt - now);
+        }
+        return 0; // block until woken
+    }
+
+    private void startConnect() {
+        setState(state == ConnectionState.DISCONNECTED ? ConnectionState.CONNECTING : ConnectionState.RECONNECTING);
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            connectStartedAt = System.currentTimeMillis();
+            InetSocketAddress resolved = new InetSocketAddress(target.getHostString(), target.getPort());
+            if (channel.connect(resolved)) {
+                key = channel.register(selector, SelectionKey.OP_READ);
+                connectionEstablished();
+            } else {
+                key = channel.register(selector, SelectionKey.OP_CONNECT);
             }
-            if (socket != null) {
-                socket.close();
+        } catch (IOException e) {
+            connectionFailed(e.getMessage());
+        }
+    }
+
+    private void finishConnect() {
+        try {
+            if (channel.finishConnect()) {
+                key.interestOps(SelectionKey.OP_READ);
+                connectionEstablished();
             }
-            connected = false;
-            System.out.println("[SocketService] Disconnected from server");
-            
-        } catch (Exception e) {
-            System.err.println("[SocketService] Error during disconnect: " + e.getMessage());
+        } catch (IOException e) {
+            connectionFailed(e.getMessage());
         }
     }
 
-    public boolean isConnected() {
-        return connected && socket != null && !socket.isClosed();
+    private void connectionEstablished() {
+        backoffMillis = INITIAL_BACKOFF_MILLIS;
+        connectionEpoch.incrementAndGet();
+        System.out.println("[SocketService] Connected to server at " + target.getHostString() + ":" + target.getPort());
+        setState(ConnectionState.CONNECTED);
+        connectOutcome.countDown();
+        writeOutbound();
+    }
+
+    private void connectionFailed(String reason) {
+        boolean wasConnected = state == ConnectionState.CONNECTED;
+        dropConnection();
+        if (wasConnected) {
+            System.err.println("[SocketService] Connection lost: " + reason);
+        } else if (connectOutcome.getCount() > 0) {
+            System.err.println("[SocketService] Failed to connect to server: " + reason);
+        }
+        connectOutcome.countDown();
+        if (wantConnected) {
+            long jitter = (long) (backoffMillis * 0.2 * ThreadLocalRandom.current().nextDouble());
+            nextAttemptAt = System.currentTimeMillis() + backoffMillis + jitter;
+            backoffMillis = Math.min(MAX_BACKOFF_MILLIS, backoffMillis * 2);
+            setState(ConnectionState.RECONNECTING);
+        } else {
+            setState(ConnectionState.DISCONNECTED);
+        }
+    }
+
+    /**
+     * Closes the channel and leaves the queues ready for the next connection: replayable chunks
+     * are dropped (their owner resends them under the new epoch), and a partially written plain
+     * buffer is resent from the start (at-least-once). Every way a connection ends goes through here.
+     */
+    private void dropConnection() {
+        closeChannel();
+        discardReplayable();
+        Chunk head = inflight.peekFirst();
+        if (head != null) {
+            head.buffer.rewind();
+        }
+    }
+
+    // Replayable chunks are owned by their producer, which resends them on the next connection
+    private void discardReplayable() {
+        inflight.removeIf(this::releaseIfReplayable);
+        outbound.removeIf(this::releaseIfReplayable);
+    }
+
+    private boolean releaseIfReplayable(Chunk chunk) {
+        if (!chunk.isReplayable()) {
+            return false;
+        }
+        pendingBytes.addAndGet(-chunk.buffer.limit());
+        recycle(chunk.buffer);
+        return true;
+    }
+
+    private void readInbound() {
+        try {
+            long epoch = connectionEpoch.get();
+            int n;
+            do {
+                readBuffer.clear();
+                n = channel.read(readBuffer);
+                InboundListener listener = inboundListener;
+                if (n > 0 && listener != null) {
+                    readBuffer.flip();
+                    listener.received(epoch, readBuffer);
+                }
+            } while (n == readBuffer.capacity());
+            if (n < 0) {
+                connectionFailed("closed by server");
+            }
+        } catch (IOException e) {
+            connectionFailed(e.getMessage());
+        } catch (RuntimeException e) {
+            // The peer sent something the protocol does not allow; start over on a new connection
+            connectionFailed("bad data from server: " + e.getMessage());
+        }
+    }
+
+    private void writeOutbound() {
+        if (channel == null || state != ConnectionState.CONNECTED) {
+            return;
+        }
+        Chunk next;
+        while (inflight.size() < MAX_GATHER && (next = outbound.poll()) != null) {
+            admit(next);
+        }
+        ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+        try {
+            while (!inflight.isEmpty()) {
+                int n = 0;
+                for (Chunk c : inflight) {
+                    gather[n++] = c.buffer;
+                }
+                long written = channel.write(gather, 0, n);
+                sentBytes.addAndGet(written);
+                while (!inflight.isEmpty() && !inflight.peekFirst().buffer.hasRemaining()) {
+                    Chunk done = inflight.pollFirst();
+                    pendingBytes.addAndGet(-done.buffer.limit());
+                    recycle(done.buffer);
+                    if (done.onFlushed != null) {
+                        done.onFlushed.run();
+                    }
+                }
+                if (!inflight.isEmpty() && written == 0) {
+                    break; // socket buffer full, wait for OP_WRITE
+                }
+                while (inflight.size() < MAX_GATHER && (next = outbound.poll()) != null) {
+                    admit(next);
+                }
+            }
+            int ops = inflight.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+            if (key != null && key.isValid() && key.interestOps() != ops) {
+                key.interestOps(ops);
+            }
+        } catch (IOException e) {
+            connectionFailed(e.getMessage());
+        }
+    }
+
+    // Replayable chunks queued against an earlier connection raced with its failure; their owner resends them
+    private void admit(Chunk chunk) {
+        if (chunk.isReplayable() && chunk.epoch != connectionEpoch.get()) {
+            releaseIfReplayable(chunk);
+            return;
+        }
+        inflight.addLast(chunk);
+    }
+
+    private void flushBeforeClose() {
+        long deadline = System.currentTimeMillis() + DISCONNECT_FLUSH_MILLIS;
+        while (state == ConnectionState.CONNECTED && (!inflight.isEmpty() || !outbound.isEmpty())
+                && System.currentTimeMillis() < deadline) {
+            writeOutbound();
+            if (!inflight.isEmpty()) {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void closeChannel() {
+        if (key != null) {
+            key.cancel();
+            key = null;
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+                // already closed
+            }
+            channel = null;
+        }
+    }
+
+    private void setState(ConnectionState newState) {
+        if (state == newState) {
+            return;
+        }
+        state = newState;
+        for (Consumer<ConnectionState> listener : listeners) {
+            try {
+                listener.accept(newState);
+            } catch (Exception e) {
+                System.err.println("[SocketService] Connection listener failed: " + e.getMessage());
+            }
+        }
     }
-}
\ No newline at end of file
+}
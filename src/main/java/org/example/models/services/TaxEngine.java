@@ -0,0 +1,357 @@
+package org.example.models.services;
+
+import org.example.utils.Money;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sales tax by tax class and jurisdiction.
+ *
+ * Two tab-separated tables are read at startup: tax-rates.tsv (jurisdiction, tax class, rate) and
+ * tax-classes.tsv (pricebook item id, tax class). Tax classes are numbered in the order they
+ * first appear, GENERAL being 0 and the class of every item that is not listed, and the rates of
+ * the selected jurisdiction are compiled into one array indexed by class. Basket keeps a taxable
+ * running total per class as lines change, so a breakdown only touches the classes.
+ *
+ * A discount is spread over the classes in proportion to their taxable amounts, and tax is
+ * rounded half-up once per class. With only GENERAL this is the old flat 7% of the discounted
+ * subtotal. If no tables are found that is exactly what the engine falls back to.
+ *
+ * Configuration: -Dpos.tax.jurisdiction (default DEFAULT), -Dpos.tax.rates.file and
+ * -Dpos.tax.classes.file (default: the bundled resources).
+ */
+public class TaxEngine {
+
+    public static final String GENERAL = "GENERAL";
+    public static final String DEFAULT_JURISDICTION = "DEFAULT";
+
+    private static final long MICROS_PER_UNIT = 1_000_000L;
+    // Used when there is no rates table at all
+    private static final long FALLBACK_RATE_MICROS = 70_000L;
+
+    private static volatile TaxEngine defaultEngine;
+
+    /** Tax for one class in a breakdown. */
+    public static final class ClassTax {
+        private final String taxClass;
+        private final long rateMicros;
+        private final Money taxable;
+        private final Money tax;
+
+        ClassTax(String taxClass, long rateMicros, Money taxable, Money tax) {
+            this.taxClass = taxClass;
+            this.rateMicros = rateMicros;
+            this.taxable = taxable;
+            this.tax = tax;
+        }
+
+        public String getTaxClass() {
+            return taxClass;
+        }
+
+        public long getRateMicros() {
+            return rateMicros;
+        }
+
+        /** The rate as a percentage without trailing zeros, e.g. "7" or "8.875". */
+        public String getRatePercent() {
+            return BigDecimal.valueOf(rateMicros, 4).stripTrailingZeros().toPlainString();
+        }
+
+        /** Taxable amount of the class after its share of the discount. */
+        public Money getTaxable() {
+            return taxable;
+        }
+
+        public Money getTax() {
+            return tax;
+        }
+    }
+
+    /** Subtotal, discount and tax of a basket, per class and in total. Immutable. */
+    public static final class Breakdown {
+        private final Money subtotal;
+        private final Money discount;
+        private final Money tax;
+        private final List<ClassTax> classes;
+
+        Breakdown(Money subtotal, Money discount, Money tax, List<ClassTax> classes) {
+            this.subtotal = subtotal;
+            this.discount = discount;
+            this.tax = tax;
+            this.classes = classes;
+        }
+
+        public Money getSubtotal() {
+            return subtotal;
+        }
+
+        public Money getDiscount() {
+            return discount;
+        }
+
+        public Money getDiscountedSubtotal() {
+            return subtotal.minus(discount);
+        }
+
+        public Money getTax() {
+            return tax;
+        }
+
+        public Money getTotal() {
+            return getDiscountedSubtotal().plus(tax);
+        }
+
+        /** Classes with a taxable amount, in class order. */
+        public List<ClassTax> getClasses() {
+            return classes;
+        }
+    }
+
+    private final String jurisdiction;
+    private final String[] classNames;
+    private final long[] rateMicros;
+    private final Map<String, Integer> classByItem;
+
+    private TaxEngine(String jurisdiction, String[] classNames, long[] rateMicros, Map<String, Integer> classByItem) {
+        this.jurisdiction = jurisdiction;
+        this.classNames = classNames;
+        this.rateMicros = rateMicros;
+        this.classByItem = classByItem;
+    }
+
+    /**
+     * The engine for the configured tables and jurisdiction, loaded on first use.
+     */
+    public static TaxEngine getDefault() {
+        TaxEngine engine = defaultEngine;
+        if (engine == null) {
+            synchronized (TaxEngine.class) {
+                engine = defaultEngine;
+                if (engine == null) {
+                    engine = loadConfigured();
+                    defaultEngine = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Builds an engine from a rates table and an optional item class table.
+     */
+    public static TaxEngine parse(Reader rates, Reader classes, String jurisdiction) throws IOException {
+        Map<String, Integer> classIndex = new LinkedHashMap<>();
+        classIndex.put(GENERAL, 0);
+        Map<Integer, Long> selected = new HashMap<>();
+        boolean jurisdictionSeen = false;
+
+        for (String[] cols : rows(rates, "tax-rates.tsv", 3)) {
+            long micros;
+            try {
+                micros = new BigDecimal(cols[2]).movePointRight(4).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            } catch (NumberFormatException | ArithmeticException e) {
+                System.err.println("[TaxEngine] Skipping rate with bad percentage: " + String.join(" ", cols));
+                continue;
+            }
+            if (micros < 0 || micros > MICROS_PER_UNIT) {
+                System.err.println("[TaxEngine] Skipping rate out of range: " + String.join(" ", cols));
+                continue;
+            }
+            int index = classIndex.computeIfAbsent(cols[1], k -> classIndex.size());
+            if (cols[0].equals(jurisdiction)) {
+                jurisdictionSeen = true;
+                selected.put(index, micros);
+            }
+        }
+        if (!jurisdictionSeen) {
+            System.err.println("[TaxEngine] No rates for jurisdiction " + jurisdiction + ", using "
+                    + BigDecimal.valueOf(FALLBACK_RATE_MICROS, 4).stripTrailingZeros().toPlainString() + "% for everything");
+        }
+
+        long generalRate = selected.getOrDefault(0, FALLBACK_RATE_MICROS);
+        String[] names = classIndex.keySet().toArray(new String[0]);
+        long[] table = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Long rate = selected.get(i);
+            if (rate == null && i > 0 && jurisdictionSeen) {
+                System.err.println("[TaxEngine] No " + names[i] + " rate for " + jurisdiction + ", using the GENERAL rate");
+            }
+            table[i] = rate != null ? rate : generalRate;
+        }
+
+        Map<String, Integer> byItem = new HashMap<>();
+        if (classes != null) {
+            for (String[] cols : rows(classes, "tax-classes.tsv", 2)) {
+                Integer index = classIndex.get(cols[1]);
+                if (index == null) {
+                    System.err.println("[TaxEngine] Unknown tax class " + cols[1] + " for item " + cols[0] + ", using GENERAL");
+                } else if (index != 0) {
+                    byItem.put(cols[0], index);
+                }
+            }
+        }
+        return new TaxEngine(jurisdiction, names, table, byItem);
+    }
+
+    public String getJurisdiction() {
+        return jurisdiction;
+    }
+
+    public int getClassCount() {
+        return classNames.length;
+    }
+
+    public String getClassName(int taxClass) {
+        return classNames[taxClass];
+    }
+
+    public long getRateMicros(int taxClass) {
+        return rateMicros[taxClass];
+    }
+
+    /** Tax class index of a pricebook item; GENERAL (0) unless the class table lists it. */
+    public int classOf(String itemId) {
+        Integer index = classByItem.get(itemId);
+        return index == null ? 0 : index;
+    }
+
+    /**
+     * Breakdown for per-class taxable totals in cents (as kept by Basket) and a discount off the
+     * whole basket.
+     */
+    public Breakdown breakdown(long[] taxableCents, Money discount) {
+        long subtotal = 0;
+        int nonZero = 0;
+        for (long cents : taxableCents) {
+            subtotal += cents;
+            if (cents != 0) {
+                nonZero++;
+            }
+        }
+        long discountCents = Math.max(0, Math.min(discount.getCents(), subtotal));
+        long[] shares = shareDiscount(taxableCents, subtotal, discountCents);
+
+        List<ClassTax> classes = new ArrayList<>(nonZero);
+        long tax = 0;
+        for (int i = 0; i < taxableCents.length; i++) {
+            if (taxableCents[i] == 0) {
+                continue;
+            }
+            long taxable = taxableCents[i] - shares[i];
+            long classTax = Money.multiply(taxable, rateMicros[i], MICROS_PER_UNIT, RoundingMode.HALF_UP);
+            tax += classTax;
+            classes.add(new ClassTax(classNames[i], rateMicros[i], Money.ofCents(taxable), Money.ofCents(classTax)));
+        }
+        return new Breakdown(Money.ofCents(subtotal), Money.ofCents(discountCents), Money.ofCents(tax),
+                Collections.unmodifiableList(classes));
+    }
+
+    /**
+     * Breakdown for a list of lines, e.g. a receipt of a basket that is already cleared.
+     */
+    public Breakdown breakdown(List<Basket.Line> lines, Money discount) {
+        long[] taxable = new long[classNames.length];
+        for (Basket.Line line : lines) {
+            taxable[line.getTaxClass()] += line.getLineTotalCents();
+        }
+        return breakdown(taxable, discount);
+    }
+
+    // Discount per class, proportional to its taxable amount; leftover cents go to the largest classes
+    private static long[] shareDiscount(long[] taxable, long subtotal, long discount) {
+        long[] shares = new long[taxable.length];
+        if (discount == 0 || subtotal <= 0) {
+            return shares;
+        }
+        long given = 0;
+        for (int i = 0; i < taxable.length; i++) {
+            shares[i] = Money.multiply(taxable[i], discount, subtotal, RoundingMode.DOWN);
+            given += shares[i];
+        }
+        while (given < discount) {
+            int largest = -1;
+            for (int i = 0; i < taxable.length; i++) {
+                if (shares[i] < taxable[i] && (largest < 0 || taxable[i] - shares[i] > taxable[largest] - shares[largest])) {
+                    largest = i;
+                }
+            }
+            if (largest < 0) {
+                break;
+            }
+            shares[largest]++;
+            given++;
+        }
+        return shares;
+    }
+
+    // Non-comment rows split on tabs, with at least minColumns non-empty columns
+    private static List<String[]> rows(Reader reader, String sourceName, int minColumns) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        BufferedReader in = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        String line;
+        int lineNo = 0;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] cols = line.split("\t");
+            for (int i = 0; i < cols.length; i++) {
+                cols[i] = cols[i].trim();
+            }
+            if (cols.length < minColumns || cols[minColumns - 1].isEmpty() || cols[0].isEmpty()) {
+                System.err.println("[TaxEngine] Skipping " + sourceName + ":" + lineNo + ": expected " + minColumns + " columns");
+                continue;
+            }
+            rows.add(cols);
+        }
+        return rows;
+    }
+
+    private static TaxEngine loadConfigured() {
+        String jurisdiction = System.getProperty("pos.tax.jurisdiction", DEFAULT_JURISDICTION).trim();
+        try (Reader rates = open("pos.tax.rates.file", "tax-rates.tsv");
+             Reader classes = open("pos.tax.classes.file", "tax-classes.tsv")) {
+            TaxEngine engine = parse(rates != null ? rates : Reader.nullReader(), classes, jurisdiction);
+            System.out.println("[TaxEngine] " + engine.classNames.length + " tax class(es), "
+                    + engine.classByItem.size() + " classified item(s), jurisdiction " + jurisdiction);
+            return engine;
+        } catch (IOException e) {
+            System.err.println("[TaxEngine] Failed to load tax tables: " + e.getMessage());
+            return new TaxEngine(jurisdiction, new String[]{GENERAL}, new long[]{FALLBACK_RATE_MICROS}, new HashMap<>());
+        }
+    }
+
+    // The file named by the property, else the bundled resource; null if neither exists
+    private static Reader open(String property, String resource) throws IOException {
+        String configured = System.getProperty(property);
+        if (configured != null && !configured.isBlank()) {
+            Path file = Paths.get(configured.trim());
+            if (Files.isRegularFile(file)) {
+                return Files.newBufferedReader(file, StandardCharsets.UTF_8);
+            }
+            System.err.println("[TaxEngine] Table not found: " + file);
+            return null;
+        }
+        InputStream in = TaxEngine.class.getClassLoader().getResourceAsStream(resource);
+        return in == null ? null : new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.utils;
+
+/**
+ * Consecutive-failure circuit breaker.
+ *
+ * CLOSED lets every call through. After failureThreshold failures in a row it goes OPEN and
+ * rejects calls for openMillis; then HALF_OPEN lets a single probe through, which either closes
+ * the circuit again or reopens it.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    private long rejected;
+    private long trips;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(0, openMillis);
+    }
+
+    /**
+     * Returns true if a call may go ahead. Every allowed call must be followed by recordSuccess(),
+     * recordFailure() or, if it ended without an outcome, release().
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (!probeInFlight) {
+                    probeInFlight = true;
+                    return true;
+                }
+                rejected++;
+                return false;
+            case OPEN:
+            default:
+                rejected++;
+                return false;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /** Ends an allowed call that says nothing about the service (e.g. the caller was interrupted). */
+    public synchronized void release() {
+        probeInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                trips++;
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /** True while calls are being rejected outright (open and the wait has not elapsed). */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.currentTimeMillis() - openedAt < openMillis;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /** Calls turned away while open. */
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    /** Times the breaker has opened. */
+    public synchronized long getTrips() {
+        return trips;
+    }
+}
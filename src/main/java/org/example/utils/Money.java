@@ -0,0 +1,241 @@
+package org.example.utils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Locale;
+
+/**
+ * An exact amount of money: a long count of the currency's minor units (cents for USD) and the
+ * currency. Immutable.
+ *
+ * Arithmetic is long arithmetic that throws ArithmeticException on overflow instead of wrapping.
+ * Percentages and rates are applied as exact fractions with an explicit RoundingMode. Hot paths
+ * that cannot afford an object per step can use the static long helpers (multiply, appendPlain)
+ * on raw cents; the instance methods are built on them.
+ *
+ * Amounts default to USD. BigDecimal is only used at the edges: the database and the pricebook.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Currency USD = Currency.getInstance("USD");
+    public static final Money ZERO = new Money(0, USD);
+
+    private static final long[] POW10 = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L};
+
+    private final long cents;
+    private final Currency currency;
+
+    private Money(long cents, Currency currency) {
+        this.cents = cents;
+        this.currency = currency;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents, USD);
+    }
+
+    public static Money ofCents(long cents, Currency currency) {
+        return currency == USD ? ofCents(cents) : new Money(cents, currency);
+    }
+
+    /** The amount rounded half-up to the cent. */
+    public static Money of(BigDecimal amount) {
+        return of(amount, RoundingMode.HALF_UP);
+    }
+
+    public static Money of(BigDecimal amount, RoundingMode mode) {
+        return ofCents(amount.setScale(scaleOf(USD), mode).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Parses a plain decimal amount such as "12.5" or "-3.07", rounded half-up to the cent.
+     * Throws NumberFormatException if it is not a number.
+     */
+    public static Money parse(String text) {
+        try {
+            return of(new BigDecimal(text.trim()));
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, sameCurrency(other).cents), currency);
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, sameCurrency(other).cents), currency);
+    }
+
+    public Money times(long quantity) {
+        return ofCents(Math.multiplyExact(cents, quantity), currency);
+    }
+
+    public Money negate() {
+        return ofCents(Math.negateExact(cents), currency);
+    }
+
+    /** This amount times numerator / denominator, rounded to the cent. */
+    public Money multiply(long numerator, long denominator, RoundingMode mode) {
+        return ofCents(multiply(cents, numerator, denominator, mode), currency);
+    }
+
+    /** basisPoints / 100 percent of this amount (700 is 7%), rounded to the cent. */
+    public Money percent(long basisPoints, RoundingMode mode) {
+        return multiply(basisPoints, 10_000, mode);
+    }
+
+    /** Rounds to a whole number of major units (dollars), e.g. CEILING for the next dollar. */
+    public Money toWholeUnits(RoundingMode mode) {
+        long unit = POW10[scaleOf(currency)];
+        return ofCents(Math.multiplyExact(multiply(cents, 1, unit, mode), unit), currency);
+    }
+
+    public Money max(Money other) {
+        return compareTo(other) >= 0 ? this : other;
+    }
+
+    public Money min(Money other) {
+        return compareTo(other) <= 0 ? this : other;
+    }
+
+    public int signum() {
+        return Long.signum(cents);
+    }
+
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    public boolean isNegative() {
+        return cents < 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, scaleOf(currency));
+    }
+
+    /** Plain decimal text, e.g. "12.34" or "-0.05". */
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(24)).toString();
+    }
+
+    /** Text for display with the currency symbol, e.g. "$12.34" or "-$0.05". */
+    public String format() {
+        StringBuilder sb = new StringBuilder(24);
+        if (cents < 0) {
+            sb.append('-');
+        }
+        sb.append(currency.getSymbol(Locale.US));
+        return appendPlain(sb, Math.abs(cents), scaleOf(currency)).toString();
+    }
+
+    public StringBuilder appendTo(StringBuilder sb) {
+        return appendPlain(sb, cents, scaleOf(currency));
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, sameCurrency(other).cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Money)) {
+            return false;
+        }
+        Money m = (Money) o;
+        return cents == m.cents && currency == m.currency;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents) * 31 + currency.hashCode();
+    }
+
+    /**
+     * amount * numerator / denominator rounded with mode, on raw minor units and without
+     * allocating unless the product overflows a long.
+     */
+    public static long multiply(long amount, long numerator, long denominator, RoundingMode mode) {
+        if (denominator <= 0) {
+            throw new IllegalArgumentException("denominator must be positive: " + denominator);
+        }
+        long product;
+        try {
+            product = Math.multiplyExact(amount, numerator);
+        } catch (ArithmeticException overflow) {
+            return new BigDecimal(BigInteger.valueOf(amount).multiply(BigInteger.valueOf(numerator)))
+                    .divide(BigDecimal.valueOf(denominator), 0, mode)
+                    .longValueExact();
+        }
+        long q = product / denominator;
+        long r = product % denominator;
+        if (r == 0) {
+            return q;
+        }
+        int sign = product < 0 ? -1 : 1;
+        long absR = Math.abs(r);
+        // > 0 past the half, 0 exactly on it
+        int half = Long.compare(absR, denominator - absR);
+        boolean away = switch (mode) {
+            case UP -> true;
+            case DOWN -> false;
+            case CEILING -> sign > 0;
+            case FLOOR -> sign < 0;
+            case HALF_UP -> half >= 0;
+            case HALF_DOWN -> half > 0;
+            case HALF_EVEN -> half > 0 || (half == 0 && (q & 1) != 0);
+            case UNNECESSARY -> throw new ArithmeticException("Rounding necessary");
+        };
+        return away ? q + sign : q;
+    }
+
+    /** Appends minor units as a plain decimal with scale fraction digits, without allocating. */
+    public static StringBuilder appendPlain(StringBuilder sb, long minor, int scale) {
+        if (scale == 0) {
+            return sb.append(minor);
+        }
+        long unit = POW10[scale];
+        long whole = minor / unit;
+        long frac = Math.abs(minor % unit);
+        if (minor < 0 && whole == 0) {
+            sb.append('-');
+        }
+        sb.append(whole).append('.');
+        for (long p = unit / 10; p > 0; p /= 10) {
+            sb.append((char) ('0' + frac / p % 10));
+        }
+        return sb;
+    }
+
+    private static int scaleOf(Currency currency) {
+        // Pseudo-currencies report -1
+        return Math.min(Math.max(currency.getDefaultFractionDigits(), 0), POW10.length - 1);
+    }
+
+    private Money sameCurrency(Money other) {
+        if (other.currency != currency) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+        return other;
+    }
+}
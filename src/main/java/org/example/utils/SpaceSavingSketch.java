@@ -0,0 +1,52 @@
+package org.example.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Space-Saving heavy-hitters sketch (Metwally et al.): tracks at most capacity keys. When a new
+ * key arrives and the sketch is full, the key with the smallest count is replaced and the new key
+ * inherits that count, so counts are over-estimates by at most the evicted minimum. Any key whose
+ * true count exceeds total/capacity is guaranteed to be present.
+ */
+public class SpaceSavingSketch {
+
+    private final int capacity;
+    private final Map<String, Long> counts;
+
+    public SpaceSavingSketch(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.counts = new HashMap<>();
+    }
+
+    public void add(String key, long weight) {
+        Long current = counts.get(key);
+        if (current != null) {
+            counts.put(key, current + weight);
+            return;
+        }
+        if (counts.size() < capacity) {
+            counts.put(key, weight);
+            return;
+        }
+        String minKey = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<String, Long> e : counts.entrySet()) {
+            if (e.getValue() < min) {
+                min = e.getValue();
+                minKey = e.getKey();
+            }
+        }
+        counts.remove(minKey);
+        counts.put(key, min + weight);
+    }
+
+    public void forEach(BiConsumer<String, Long> action) {
+        counts.forEach(action);
+    }
+
+    public int size() {
+        return counts.size();
+    }
+}
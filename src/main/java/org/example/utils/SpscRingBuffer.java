@@ -0,0 +1,69 @@
+package org.example.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for exactly one producer thread and one consumer thread.
+ *
+ * Capacity is rounded up to a power of two. The producer owns tail and the consumer owns head;
+ * each publishes its index with an ordered (lazySet) write so neither side ever takes a lock or
+ * spins on a CAS.
+ */
+public class SpscRingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    public SpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Producer side. Returns false if the buffer is full.
+     */
+    public boolean offer(T value) {
+        long t = tail.get();
+        if (t - head.get() > mask) {
+            return false;
+        }
+        slots.lazySet((int) t & mask, value);
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side. Returns null if the buffer is empty.
+     */
+    public T poll() {
+        long h = head.get();
+        if (h >= tail.get()) {
+            return null;
+        }
+        int index = (int) h & mask;
+        T value = slots.get(index);
+        slots.lazySet(index, null);
+        head.lazySet(h + 1);
+        return value;
+    }
+
+    /**
+     * Consumer side. Next value without removing it, or null.
+     */
+    public T peek() {
+        long h = head.get();
+        return h >= tail.get() ? null : slots.get((int) h & mask);
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -3,8 +3,14 @@ package org.example.utils;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
+/**
+ * Flat 7% tax on a bare amount. Sale totals come from TaxEngine, which taxes each line by its
+ * item's tax class and jurisdiction; this is only for callers that have an amount and no lines.
+ */
 public class TaxCalculator {
     private static final BigDecimal TAX_RATE = new BigDecimal("0.07");
+    // The same rate in basis points, for exact cent arithmetic
+    private static final long TAX_RATE_BPS = TAX_RATE.movePointRight(4).longValueExact();
 
     public static BigDecimal calculateTax(BigDecimal subtotal) {
         return subtotal.multiply(TAX_RATE).setScale(2, RoundingMode.HALF_UP);
@@ -13,4 +19,17 @@ public class TaxCalculator {
     public static BigDecimal calculateTotalWithTax(BigDecimal subtotal) {
         return subtotal.add(calculateTax(subtotal));
     }
+
+    public static Money calculateTax(Money subtotal) {
+        return subtotal.percent(TAX_RATE_BPS, RoundingMode.HALF_UP);
+    }
+
+    public static Money calculateTotalWithTax(Money subtotal) {
+        return subtotal.plus(calculateTax(subtotal));
+    }
+
+    /** Tax on a subtotal in cents, rounded half-up; allocation-free. */
+    public static long calculateTaxCents(long subtotalCents) {
+        return Money.multiply(subtotalCents, TAX_RATE_BPS, 10_000, RoundingMode.HALF_UP);
+    }
 }
@@ -0,0 +1,39 @@
+package org.example.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compact 64-bit ids that sort by creation time.
+ *
+ * The high bits are milliseconds since 2020-01-01T00:00Z, the low 20 bits a counter for ids made
+ * in the same millisecond. An id is never lower than the previous one, even if the clock steps
+ * back, so ids from one generator are unique and increasing.
+ */
+public class TimeOrderedIds {
+
+    public static final long EPOCH_MILLIS = 1_577_836_800_000L; // 2020-01-01T00:00:00Z
+    public static final int SEQUENCE_BITS = 20;
+
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * Makes sure later ids are above an id already in use, e.g. the highest one in a table.
+     */
+    public void seed(long usedId) {
+        last.accumulateAndGet(usedId, Math::max);
+    }
+
+    public long next() {
+        return next(System.currentTimeMillis());
+    }
+
+    public long next(long nowMillis) {
+        long candidate = (nowMillis - EPOCH_MILLIS) << SEQUENCE_BITS;
+        return last.accumulateAndGet(candidate, (prev, time) -> Math.max(prev + 1, time));
+    }
+
+    /** Epoch milliseconds an id was made at. */
+    public static long timestampMillis(long id) {
+        return (id >>> SEQUENCE_BITS) + EPOCH_MILLIS;
+    }
+}
@@ -0,0 +1,31 @@
+-- Tables that used to be recreated on every launch. IF NOT EXISTS lets this run against a
+-- database created by older builds without losing its data.
+
+CREATE TABLE IF NOT EXISTS pricebook (
+    id VARCHAR(12) PRIMARY KEY,
+    name VARCHAR(255),
+    price DECIMAL(10,2)
+);
+
+CREATE TABLE IF NOT EXISTS journal (
+    id IDENTITY PRIMARY KEY,
+    item_id VARCHAR(12),
+    item_qty INT,
+    action VARCHAR(255),
+    datetime TIMESTAMP,
+    FOREIGN KEY (item_id) REFERENCES pricebook(id)
+);
+
+-- 1 row per item in the receipt
+CREATE TABLE IF NOT EXISTS receipts (
+    id IDENTITY PRIMARY KEY,
+    receipt_id VARCHAR(36),
+    item_id VARCHAR(12),
+    qty INT,
+    unit_price DECIMAL(10, 2),
+    subtotal DECIMAL(10, 2),
+    amount_paid DECIMAL(10, 2),
+    change_due DECIMAL(10, 2),
+    created_at TIMESTAMP,
+    FOREIGN KEY (item_id) REFERENCES pricebook(id)
+);
@@ -0,0 +1,8 @@
+-- Popular items groups receipts by item_id, receipt lookups go by receipt_id and the journal
+-- window is read by time.
+
+CREATE INDEX IF NOT EXISTS idx_receipts_item_id ON receipts(item_id);
+
+CREATE INDEX IF NOT EXISTS idx_receipts_receipt_id ON receipts(receipt_id);
+
+CREATE INDEX IF NOT EXISTS idx_journal_datetime ON journal(datetime);
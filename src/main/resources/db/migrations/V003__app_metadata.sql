@@ -0,0 +1,7 @@
+-- Small key/value table for bookkeeping such as the checksum of the last imported pricebook.tsv
+
+CREATE TABLE IF NOT EXISTS app_metadata (
+    meta_key VARCHAR(64) PRIMARY KEY,
+    meta_value VARCHAR(255),
+    updated_at TIMESTAMP
+);
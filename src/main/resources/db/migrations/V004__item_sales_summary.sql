@@ -0,0 +1,26 @@
+-- Running sales counters maintained by ReceiptService, so popular items no longer need a
+-- GROUP BY over all receipts. item_sales_hourly feeds the time-windowed views.
+
+CREATE TABLE IF NOT EXISTS item_sales_summary (
+    item_id VARCHAR(12) PRIMARY KEY,
+    total_qty BIGINT NOT NULL,
+    updated_at TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS item_sales_hourly (
+    item_id VARCHAR(12) NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    qty BIGINT NOT NULL,
+    PRIMARY KEY (item_id, bucket_start)
+);
+
+CREATE INDEX IF NOT EXISTS idx_item_sales_hourly_bucket ON item_sales_hourly(bucket_start);
+
+-- Backfill from receipts recorded before this migration
+MERGE INTO item_sales_summary (item_id, total_qty, updated_at) KEY (item_id)
+    SELECT item_id, SUM(qty), CURRENT_TIMESTAMP FROM receipts GROUP BY item_id;
+
+MERGE INTO item_sales_hourly (item_id, bucket_start, qty) KEY (item_id, bucket_start)
+    SELECT item_id, DATE_TRUNC('HOUR', created_at), SUM(qty) FROM receipts
+    WHERE created_at >= DATEADD('DAY', -8, CURRENT_TIMESTAMP)
+    GROUP BY item_id, DATE_TRUNC('HOUR', created_at);
@@ -0,0 +1,79 @@
+-- Receipts split into one header per sale and one row per line. The header carries the totals,
+-- tax, discount and tender once instead of on every line; amounts are whole cents. receipt_id is
+-- a 64-bit time-ordered id (milliseconds since 2020-01-01 shifted left by 20 bits, see
+-- TimeOrderedIds), so receipts sort by time on their primary key.
+
+CREATE TABLE IF NOT EXISTS receipt_header (
+    receipt_id BIGINT PRIMARY KEY,
+    created_at TIMESTAMP NOT NULL,
+    line_count INT NOT NULL,
+    subtotal_cents BIGINT NOT NULL,
+    discount_cents BIGINT NOT NULL,
+    discount_name VARCHAR(64),
+    tax_cents BIGINT NOT NULL,
+    total_cents BIGINT NOT NULL,
+    tender_type VARCHAR(16),
+    paid_cents BIGINT NOT NULL,
+    change_cents BIGINT NOT NULL
+);
+
+-- Daily totals are a range scan on this index
+CREATE INDEX IF NOT EXISTS idx_receipt_header_created_at ON receipt_header(created_at);
+
+CREATE TABLE IF NOT EXISTS receipt_line (
+    receipt_id BIGINT NOT NULL,
+    line_no SMALLINT NOT NULL,
+    item_id VARCHAR(12) NOT NULL,
+    qty INT NOT NULL,
+    unit_price_cents BIGINT NOT NULL,
+    line_total_cents BIGINT NOT NULL,
+    PRIMARY KEY (receipt_id, line_no),
+    FOREIGN KEY (receipt_id) REFERENCES receipt_header(receipt_id),
+    FOREIGN KEY (item_id) REFERENCES pricebook(id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_receipt_line_item_id ON receipt_line(item_id);
+
+-- Backfill from the old one-row-per-line receipts table, which is kept but no longer written.
+-- Old receipts have no tax or discount of their own: the total is what was tendered minus the
+-- change, and the difference to the line subtotal is booked as tax (or discount if negative).
+-- Their ids are built from created_at the same way as new ones, plus a counter for receipts in
+-- the same millisecond. H2 commits DDL on its own, so a run that failed half way can leave the
+-- mapping table and some copied rows behind; the script drops the one and skips the others when
+-- it is run again.
+DROP TABLE IF EXISTS receipt_legacy_id;
+
+CREATE TABLE receipt_legacy_id AS
+    SELECT legacy_id,
+           DATEDIFF('MILLISECOND', TIMESTAMP '2020-01-01 00:00:00', first_at) * 1048576
+               + ROW_NUMBER() OVER (PARTITION BY first_at ORDER BY legacy_id) - 1 AS receipt_id
+    FROM (SELECT receipt_id AS legacy_id, MIN(created_at) AS first_at
+          FROM receipts WHERE receipt_id IS NOT NULL AND created_at IS NOT NULL
+          GROUP BY receipt_id) r;
+
+INSERT INTO receipt_header (receipt_id, created_at, line_count, subtotal_cents, discount_cents,
+                            discount_name, tax_cents, total_cents, tender_type, paid_cents, change_cents)
+    SELECT m.receipt_id, t.created_at, t.line_count, t.subtotal_cents,
+           GREATEST(t.subtotal_cents - (t.paid_cents - t.change_cents), 0), NULL,
+           GREATEST((t.paid_cents - t.change_cents) - t.subtotal_cents, 0),
+           t.paid_cents - t.change_cents, NULL, t.paid_cents, t.change_cents
+    FROM (SELECT receipt_id AS legacy_id, MIN(created_at) AS created_at, COUNT(*) AS line_count,
+                 CAST(COALESCE(SUM(subtotal), 0) * 100 AS BIGINT) AS subtotal_cents,
+                 CAST(COALESCE(MAX(amount_paid), 0) * 100 AS BIGINT) AS paid_cents,
+                 CAST(COALESCE(MAX(change_due), 0) * 100 AS BIGINT) AS change_cents
+          FROM receipts WHERE receipt_id IS NOT NULL AND created_at IS NOT NULL
+          GROUP BY receipt_id) t
+    JOIN receipt_legacy_id m ON m.legacy_id = t.legacy_id
+    WHERE NOT EXISTS (SELECT 1 FROM receipt_header h WHERE h.receipt_id = m.receipt_id);
+
+INSERT INTO receipt_line (receipt_id, line_no, item_id, qty, unit_price_cents, line_total_cents)
+    SELECT n.receipt_id, n.line_no, n.item_id, n.qty, n.unit_price_cents, n.line_total_cents
+    FROM (SELECT m.receipt_id, ROW_NUMBER() OVER (PARTITION BY r.receipt_id ORDER BY r.id) AS line_no, r.item_id,
+                 COALESCE(r.qty, 0) AS qty, CAST(COALESCE(r.unit_price, 0) * 100 AS BIGINT) AS unit_price_cents,
+                 CAST(COALESCE(r.subtotal, 0) * 100 AS BIGINT) AS line_total_cents
+          FROM receipts r
+          JOIN receipt_legacy_id m ON m.legacy_id = r.receipt_id
+          WHERE r.item_id IS NOT NULL) n
+    WHERE NOT EXISTS (SELECT 1 FROM receipt_line l WHERE l.receipt_id = n.receipt_id AND l.line_no = n.line_no);
+
+DROP TABLE IF EXISTS receipt_legacy_id;
@@ -0,0 +1,7 @@
+-- The journal view pages newest-first by (datetime, id): each page starts right after the last
+-- row of the previous one, so both columns are indexed in that order. Filtering by item pages
+-- through the second index.
+
+CREATE INDEX IF NOT EXISTS idx_journal_datetime_id ON journal(datetime DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_journal_item_datetime_id ON journal(item_id, datetime DESC, id DESC);
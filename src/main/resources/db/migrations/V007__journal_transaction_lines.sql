@@ -0,0 +1,18 @@
+-- A payment or void is journaled as one transaction row (item_id NULL, item_qty the total units,
+-- receipt_id set for payments) plus one compact journal_line row per basket line, instead of one
+-- journal row per line repeating the same action text.
+
+ALTER TABLE journal ADD COLUMN IF NOT EXISTS receipt_id BIGINT;
+
+CREATE TABLE IF NOT EXISTS journal_line (
+    journal_id BIGINT NOT NULL,
+    line_no INT NOT NULL,
+    item_id VARCHAR(12),
+    qty INT NOT NULL,
+    PRIMARY KEY (journal_id, line_no),
+    FOREIGN KEY (journal_id) REFERENCES journal(id),
+    FOREIGN KEY (item_id) REFERENCES pricebook(id)
+);
+
+-- Filtering the journal view by item also finds the transactions that contain it
+CREATE INDEX IF NOT EXISTS idx_journal_line_item ON journal_line(item_id, journal_id);
@@ -0,0 +1,135 @@
+package org.example.models.services;
+
+import org.example.JournalServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Streams a spool to a local JournalServer over the BINARY protocol. */
+class JournalReplayerTest {
+
+    private static final int LANE = 9;
+
+    @TempDir
+    Path spoolDir;
+
+    private JournalServer server;
+    private ServerSocket serverSocket;
+    private SocketService socketService;
+    private JournalSpool spool;
+    private JournalReplayer replayer;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new JournalServer();
+        serverSocket = new ServerSocket(0);
+        Thread t = new Thread(() -> {
+            try {
+                server.serve(serverSocket);
+            } catch (IOException closed) {
+                // test finished
+            }
+        }, "journal-server-test");
+        t.setDaemon(true);
+        t.start();
+
+        socketService = SocketService.getInstance();
+        socketService.setServerHost("localhost");
+        socketService.setServerPort(serverSocket.getLocalPort());
+        spool = JournalSpool.open(spoolDir, 64 * 1024, false);
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        if (replayer != null) {
+            replayer.drainAndStop(1_000);
+        }
+        socketService.disconnect();
+        spool.close();
+        serverSocket.close();
+    }
+
+    private void append(int count, String action) throws IOException {
+        List<String> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(JournalWireCodec.toSpoolRecord(
+                    new JournalEvent(String.valueOf(4000 + i), 1, action, System.currentTimeMillis())));
+        }
+        spool.append(records);
+        if (replayer != null) {
+            replayer.wakeUp();
+        }
+    }
+
+    private static void await(BooleanSupplier condition, String what) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting for " + what);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void replaysBacklogAndResumesAfterReconnect() throws Exception {
+        append(1_000, "Sale");
+        replayer = new JournalReplayer(spool, socketService, JournalWireCodec.Format.BINARY, LANE);
+        assertTrue(socketService.connect());
+        replayer.wakeUp();
+        await(() -> spool.getBacklog() == 0, "the backlog to be acknowledged");
+        assertEquals(1_000, spool.getAckedSeq());
+        assertEquals(1_000, server.getLastSeq(LANE));
+
+        // Written while offline, sent from the acknowledged position once connected again
+        socketService.disconnect();
+        append(250, "Offline sale");
+        assertEquals(250, spool.getBacklog());
+        assertTrue(socketService.connect());
+        replayer.wakeUp();
+        await(() -> spool.getBacklog() == 0, "the offline records to be acknowledged");
+        assertEquals(1_250, spool.getAckedSeq());
+        assertEquals(1_250, server.getLastSeq(LANE));
+    }
+
+    @Test
+    void serverWithoutStateTakesThePositionFromHello() throws Exception {
+        append(10, "Sale");
+        spool.acknowledge(6); // stored by a server instance that has since restarted
+        replayer = new JournalReplayer(spool, socketService, JournalWireCodec.Format.BINARY, LANE);
+        assertTrue(socketService.connect());
+        replayer.wakeUp();
+        await(() -> spool.getBacklog() == 0, "the rest of the backlog to be acknowledged");
+        assertEquals(10, server.getLastSeq(LANE));
+    }
+
+    @Test
+    void resetSpoolStartsTheLaneOver() throws Exception {
+        append(100, "Sale");
+        replayer = new JournalReplayer(spool, socketService, JournalWireCodec.Format.BINARY, LANE);
+        assertTrue(socketService.connect());
+        replayer.wakeUp();
+        await(() -> spool.getBacklog() == 0, "the first spool to be acknowledged");
+        replayer.drainAndStop(1_000);
+        socketService.disconnect();
+        spool.close();
+
+        // A new spool directory numbers its records from 1 again, under a new spool id
+        spool = JournalSpool.open(spoolDir.resolve("recreated"), 64 * 1024, false);
+        append(5, "After reset");
+        replayer = new JournalReplayer(spool, socketService, JournalWireCodec.Format.BINARY, LANE);
+        assertTrue(socketService.connect());
+        replayer.wakeUp();
+        await(() -> spool.getBacklog() == 0, "the new spool to be acknowledged");
+        assertEquals(5, server.getLastSeq(LANE));
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.models.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalSpoolTest {
+
+    private static final int SEGMENT_BYTES = 64 * 1024;
+    private static final int RECORD_HEADER_BYTES = 16;
+    private static final int PAYLOAD_CHARS = 1_000;
+
+    @TempDir
+    Path dir;
+
+    // Fixed-length payloads, so record offsets inside a segment are easy to compute
+    private static String line(long seq) {
+        String prefix = "line " + seq + " ";
+        return prefix + "x".repeat(PAYLOAD_CHARS - prefix.length());
+    }
+
+    private static void append(JournalSpool spool, long fromSeq, long toSeq) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (long seq = fromSeq; seq <= toSeq; seq++) {
+            lines.add(line(seq));
+        }
+        spool.append(lines);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    private static void assertRecords(List<JournalSpool.Record> records, long firstSeq, long lastSeq) {
+        assertEquals(lastSeq - firstSeq + 1, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(firstSeq + i, records.get(i).seq);
+            assertEquals(line(firstSeq + i), records.get(i).line);
+        }
+    }
+
+    @Test
+    void tornTailResumesAtLastGoodRecord() throws IOException {
+        JournalSpool spool = JournalSpool.open(dir, SEGMENT_BYTES, false);
+        append(spool, 1, 200);
+        spool.close();
+        List<Path> segments = segments();
+        assertTrue(segments.size() >= 3, "expected rollover into several segments, got " + segments.size());
+
+        // Cut the newest segment in the middle of its last record, as a crash during the write would
+        Path newest = segments.get(segments.size() - 1);
+        String name = newest.getFileName().toString();
+        long firstSeq = Long.parseLong(name.substring("journal-".length(), name.length() - ".seg".length()));
+        long lastRecordOffset = (200 - firstSeq) * (RECORD_HEADER_BYTES + PAYLOAD_CHARS);
+        try (FileChannel channel = FileChannel.open(newest, StandardOpenOption.WRITE)) {
+            channel.truncate(lastRecordOffset + RECORD_HEADER_BYTES + PAYLOAD_CHARS / 2);
+        }
+
+        spool = JournalSpool.open(dir, SEGMENT_BYTES, false);
+        assertEquals(199, spool.getLastSeq());
+        assertRecords(spool.read(0, 1_000), 1, 199);
+
+        // New records continue from the last good sequence and survive another restart
+        append(spool, 200, 210);
+        assertEquals(210, spool.getLastSeq());
+        spool.close();
+
+        spool = JournalSpool.open(dir, SEGMENT_BYTES, false);
+        assertEquals(210, spool.getLastSeq());
+        assertRecords(spool.read(0, 1_000), 1, 210);
+        spool.close();
+    }
+
+    @Test
+    void corruptRecordEndsTheSegment() throws IOException {
+        JournalSpool spool = JournalSpool.open(dir, SEGMENT_BYTES, false);
+        append(spool, 1, 20);
+        spool.close();
+
+        // Damage the payload of record 15: its CRC no longer matches
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            long offset = 14L * (RECORD_HEADER_BYTES + PAYLOAD_CHARS) + RECORD_HEADER_BYTES + 10;
+            channel.write(ByteBuffer.wrap(new byte[]{'#'}), offset);
+        }
+
+        spool = JournalSpool.open(dir, SEGMENT_BYTES, false);
+        assertEquals(14, spool.getLastSeq());
+        assertRecords(spool.read(0, 100), 1, 14);
+        append(spool, 15, 16);
+        assertRecords(spool.read(0, 100), 1, 16);
+        spool.close();
+    }
+
+    @Test
+    void acknowledgedPositionSurvivesRestartAndDeletesSentSegments() throws IOException {
+        JournalSpool spool = JournalSpool.open(dir, SEGMENT_BYTES, false);
+        append(spool, 1, 200);
+        int before = segments().size();
+
+        spool.acknowledge(150);
+        assertEquals(150, spool.getAckedSeq());
+        assertEquals(50, spool.getBacklog());
+        int after = segments().size();
+        assertTrue(after < before, "fully acknowledged segments should be deleted: " + before + " -> " + after);
+        spool.close();
+
+        spool = JournalSpool.open(dir, SEGMENT_BYTES, false);
+        assertEquals(150, spool.getAckedSeq());
+        assertEquals(200, spool.getLastSeq());
+        assertEquals(50, spool.getBacklog());
+        assertRecords(spool.read(150, 1_000), 151, 200);
+
+        // An ack past the end is capped at what was written
+        spool.acknowledge(500);
+        assertEquals(200, spool.getAckedSeq());
+        assertEquals(0, spool.getBacklog());
+        spool.close();
+    }
+}
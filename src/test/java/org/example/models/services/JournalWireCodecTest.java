@@ -0,0 +1,172 @@
+package org.example.models.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalWireCodecTest {
+
+    private record Frame(byte type, byte[] body) {
+    }
+
+    private static JournalEvent item(String id, int qty, String action) {
+        return new JournalEvent(id, qty, action, 1_760_000_000_123L);
+    }
+
+    private static JournalEvent transaction(String action, long receiptId) {
+        return new JournalEvent(action, receiptId,
+                List.of(new JournalEvent.Line("012345678905", 2), new JournalEvent.Line("4011", 1)),
+                1_760_000_000_456L);
+    }
+
+    private static byte[] bytes(ByteBuffer frame) {
+        byte[] b = new byte[frame.remaining()];
+        frame.duplicate().get(b);
+        return b;
+    }
+
+    private static List<Frame> decode(JournalWireCodec.FrameReader reader, byte[] data, int chunkSize) {
+        List<Frame> frames = new ArrayList<>();
+        for (int off = 0; off < data.length; off += chunkSize) {
+            int n = Math.min(chunkSize, data.length - off);
+            reader.feed(ByteBuffer.wrap(data, off, n), (type, body) -> {
+                byte[] copy = new byte[body.remaining()];
+                body.get(copy);
+                frames.add(new Frame(type, copy));
+            });
+        }
+        return frames;
+    }
+
+    private static void assertSameEvent(JournalEvent expected, JournalEvent actual) {
+        assertEquals(expected.getItemId(), actual.getItemId());
+        assertEquals(expected.getQty(), actual.getQty());
+        assertEquals(expected.getAction(), actual.getAction());
+        assertEquals(expected.getTimestampMillis(), actual.getTimestampMillis());
+        assertEquals(expected.getReceiptId(), actual.getReceiptId());
+        assertEquals(expected.getLines().size(), actual.getLines().size());
+        for (int i = 0; i < expected.getLines().size(); i++) {
+            assertEquals(expected.getLines().get(i).getItemId(), actual.getLines().get(i).getItemId());
+            assertEquals(expected.getLines().get(i).getQty(), actual.getLines().get(i).getQty());
+        }
+    }
+
+    @Test
+    void batchRoundTrip() {
+        List<JournalEvent> events = List.of(item("012345678905", 3, "Sale | Tax: $0.42"),
+                transaction("Payment", 123_456_789L), item("4011", -1, "Void é"));
+        byte[] frame = bytes(new JournalWireCodec.Encoder().batch(7, 41, events));
+
+        List<Frame> frames = decode(new JournalWireCodec.FrameReader(), frame, frame.length);
+        assertEquals(1, frames.size());
+        assertEquals(JournalWireCodec.BATCH, frames.get(0).type());
+
+        JournalWireCodec.Batch batch = JournalWireCodec.readBatch(ByteBuffer.wrap(frames.get(0).body()));
+        assertEquals(7, batch.laneId);
+        assertEquals(41, batch.firstSeq);
+        assertEquals(events.size(), batch.events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertSameEvent(events.get(i), batch.events.get(i));
+        }
+    }
+
+    @Test
+    void truncatedBatchIsRejected() {
+        byte[] frame = bytes(new JournalWireCodec.Encoder().batch(1, 1, List.of(item("4011", 1, "Sale"))));
+        ByteBuffer body = ByteBuffer.wrap(frame, 5, frame.length - 5 - 3).slice();
+        assertThrows(IllegalArgumentException.class, () -> JournalWireCodec.readBatch(body));
+    }
+
+    @Test
+    void helloRoundTrip() {
+        byte[] frame = bytes(new JournalWireCodec.Encoder().hello(3, 1_700_000_000_000L, 99));
+        List<Frame> frames = decode(new JournalWireCodec.FrameReader(), frame, frame.length);
+        assertEquals(JournalWireCodec.HELLO, frames.get(0).type());
+
+        JournalWireCodec.Hello hello = JournalWireCodec.readHello(ByteBuffer.wrap(frames.get(0).body()));
+        assertEquals(JournalWireCodec.VERSION, hello.version);
+        assertEquals(3, hello.laneId);
+        assertEquals(1_700_000_000_000L, hello.spoolId);
+        assertEquals(99, hello.ackedSeq);
+    }
+
+    @Test
+    void olderHellosHaveNoSpoolId() {
+        for (byte version = 1; version <= 2; version++) {
+            ByteBuffer body = ByteBuffer.allocate(13).put(version).putInt(5).putLong(1234);
+            body.flip();
+            JournalWireCodec.Hello hello = JournalWireCodec.readHello(body);
+            assertEquals(version, hello.version);
+            assertEquals(5, hello.laneId);
+            assertEquals(0, hello.spoolId);
+            assertEquals(1234, hello.ackedSeq);
+        }
+    }
+
+    @Test
+    void newerHelloIsRejected() {
+        ByteBuffer body = ByteBuffer.allocate(21).put((byte) (JournalWireCodec.VERSION + 1)).putInt(1).putLong(0).putLong(0);
+        body.flip();
+        assertThrows(IllegalArgumentException.class, () -> JournalWireCodec.readHello(body));
+    }
+
+    @Test
+    void frameReaderReassemblesSplitFrames() {
+        JournalWireCodec.Encoder encoder = new JournalWireCodec.Encoder();
+        byte[] hello = bytes(encoder.hello(2, 77, 0));
+        byte[] batch = bytes(encoder.batch(2, 1, List.of(item("4011", 1, "Sale"), transaction("Void Transaction", 0))));
+        byte[] ack = bytes(encoder.ack(2, 2));
+        byte[] stream = new byte[hello.length + batch.length + ack.length];
+        System.arraycopy(hello, 0, stream, 0, hello.length);
+        System.arraycopy(batch, 0, stream, hello.length, batch.length);
+        System.arraycopy(ack, 0, stream, hello.length + batch.length, ack.length);
+
+        for (int chunk : new int[]{1, 3, 4, 5, 17, stream.length}) {
+            List<Frame> frames = decode(new JournalWireCodec.FrameReader(), stream, chunk);
+            assertEquals(3, frames.size(), "chunk size " + chunk);
+            assertEquals(JournalWireCodec.HELLO, frames.get(0).type());
+            assertEquals(JournalWireCodec.BATCH, frames.get(1).type());
+            assertEquals(JournalWireCodec.ACK, frames.get(2).type());
+            assertArrayEquals(ack, concat(new byte[]{0, 0, 0, 13, JournalWireCodec.ACK}, frames.get(2).body()));
+        }
+    }
+
+    @Test
+    void frameReaderRejectsBadLength() {
+        JournalWireCodec.FrameReader reader = new JournalWireCodec.FrameReader();
+        byte[] garbage = {(byte) 0xFF, 0, 0, 0, 1};
+        assertThrows(IllegalStateException.class, () -> decode(reader, garbage, garbage.length));
+    }
+
+    @Test
+    void spoolRecordRoundTrip() {
+        JournalEvent escaped = item("4011", 2, "Sale\twith\\tab\nand newline");
+        assertSameEvent(escaped, JournalWireCodec.fromSpoolRecord(JournalWireCodec.toSpoolRecord(escaped)));
+
+        JournalEvent payment = transaction("Payment", 987_654_321L);
+        assertSameEvent(payment, JournalWireCodec.fromSpoolRecord(JournalWireCodec.toSpoolRecord(payment)));
+
+        assertNull(JournalWireCodec.fromSpoolRecord("[2026-01-01 10:00:00] ItemID: 4011 | Qty: 1 | Action: Sale"));
+    }
+
+    @Test
+    void textLineOfATransactionListsItsLines() {
+        String line = JournalWireCodec.toTextLine(transaction("Payment", 42));
+        assertTrue(line.contains("ItemID: - | Qty: 3 | Action: Payment | Receipt: 42 | Lines: 012345678905x2 4011x1"), line);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] out = new byte[a.length + b.length];
+        System.arraycopy(a, 0, out, 0, a.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+}